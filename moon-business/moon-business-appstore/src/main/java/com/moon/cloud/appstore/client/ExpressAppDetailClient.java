@@ -0,0 +1,143 @@
+package com.moon.cloud.appstore.client;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.moon.cloud.threadpool.factory.MoonThreadPoolFactory;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Express App详情服务客户端
+ * <p>
+ * 所有请求共用一个HttpClient，HTTP/1.1连接在请求间保持复用，避免每次调用重新建立连接；
+ * 同时发出的请求数由信号量限制，超出的调用方等待，不会压垮上游服务。
+ * 响应体以字节数组交给fastjson2直接解析，不经过中间字符串。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Slf4j
+@Component
+public class ExpressAppDetailClient {
+
+    private static final String APP_DETAIL_PATH = "/appstore/app/detail";
+
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final ThreadPoolExecutor executor;
+    private final HttpClient httpClient;
+
+    /**
+     * @param baseUrl               Express服务地址
+     * @param connectTimeoutSeconds 建立连接超时（秒）
+     * @param requestTimeoutSeconds 单个请求超时（秒）
+     * @param maxInFlight           最大同时请求数
+     * @param moonThreadPoolFactory 线程池工厂，HttpClient的异步回调在其创建的虚拟线程池中执行
+     */
+    public ExpressAppDetailClient(@Value("${appstore.express.url:http://localhost:3090}") String baseUrl,
+                                  @Value("${appstore.express.connect-timeout:5}") long connectTimeoutSeconds,
+                                  @Value("${appstore.express.timeout:30}") long requestTimeoutSeconds,
+                                  @Value("${appstore.express.max-in-flight:8}") int maxInFlight,
+                                  MoonThreadPoolFactory moonThreadPoolFactory) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("最大同时请求数必须大于0: " + maxInFlight);
+        }
+        this.baseUrl = baseUrl;
+        this.requestTimeout = Duration.ofSeconds(requestTimeoutSeconds);
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = moonThreadPoolFactory.createVirtualThreadPool("express-client", maxInFlight);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .executor(executor)
+                .build();
+    }
+
+    @PreDestroy
+    public void close() {
+        httpClient.close();
+        executor.shutdown();
+    }
+
+    /**
+     * 异步获取App详情
+     * 已达最大同时请求数时，调用线程在此等待空闲名额
+     *
+     * @param appId App ID
+     * @return App详情，上游返回非200或空响应时结果为null
+     */
+    public CompletableFuture<JSONObject> fetchAppDetailAsync(String appId) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + APP_DETAIL_PATH + "?appId="
+                        + URLEncoder.encode(appId, StandardCharsets.UTF_8)))
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<HttpResponse<byte[]>> response;
+        try {
+            response = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (RuntimeException e) {
+            inFlight.release();
+            return CompletableFuture.failedFuture(e);
+        }
+        return response
+                .whenComplete((r, e) -> inFlight.release())
+                .thenApply(r -> parse(appId, r));
+    }
+
+    /**
+     * 同步获取App详情
+     *
+     * @param appId App ID
+     * @return App详情，请求失败时返回null
+     */
+    public JSONObject fetchAppDetail(String appId) {
+        try {
+            return fetchAppDetailAsync(appId).join();
+        } catch (CompletionException e) {
+            log.error("调用Express服务获取App详情失败: {}", appId, e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * 当前正在进行的请求数
+     */
+    public int getInFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    private JSONObject parse(String appId, HttpResponse<byte[]> response) {
+        byte[] body = response.body();
+        if (response.statusCode() != 200 || body == null || body.length == 0) {
+            log.warn("Express服务返回异常: appId={}, status={}", appId, response.statusCode());
+            return null;
+        }
+        return JSON.parseObject(body);
+    }
+}
@@ -1,14 +1,16 @@
 package com.moon.cloud.appstore.config;
 
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import com.moon.cloud.appstore.crawler.HostRateLimiter;
+import com.moon.cloud.appstore.crawler.RedisBloomFilter;
+import com.moon.cloud.threadpool.factory.MoonThreadPoolFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -24,14 +26,52 @@ import java.util.concurrent.ThreadPoolExecutor;
 public class AppConsumerConfig {
 
     /**
-     * 配置RestTemplate
+     * App详情爬取执行器
+     * 爬取任务主要阻塞在Express详情服务的调用上，使用常驻的虚拟线程池，
+     * 最大并发数即同时请求Express服务的任务数
      */
-    @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        return builder
-                .connectTimeout(Duration.ofSeconds(10))
-                .readTimeout(Duration.ofSeconds(30))
-                .build();
+    @Bean("appCrawlerExecutor")
+    public ThreadPoolExecutor appCrawlerExecutor(MoonThreadPoolFactory moonThreadPoolFactory,
+                                                 @Value("${appstore.consumer.thread-pool-size:5}") int threadPoolSize) {
+        return moonThreadPoolFactory.createVirtualThreadPool("app-crawler", threadPoolSize);
+    }
+
+    /**
+     * 分类队列调度执行器
+     * 每个分类队列占用一个线程等待其URL爬取完成，与爬取执行器分开，避免相互等待
+     */
+    @Bean("appQueueDispatchExecutor")
+    public ThreadPoolExecutor appQueueDispatchExecutor(MoonThreadPoolFactory moonThreadPoolFactory,
+                                                       @Value("${appstore.consumer.dispatch-concurrency:5}") int dispatchConcurrency) {
+        return moonThreadPoolFactory.createVirtualThreadPool("app-queue-dispatch", dispatchConcurrency);
+    }
+
+    /**
+     * 分类页爬取执行器
+     * 多个分类页并发获取，对同一主机的请求间隔由crawlerHostRateLimiter控制
+     */
+    @Bean("appCategoryCrawlExecutor")
+    public ThreadPoolExecutor appCategoryCrawlExecutor(MoonThreadPoolFactory moonThreadPoolFactory,
+                                                       @Value("${appstore.crawler.concurrency:4}") int concurrency) {
+        return moonThreadPoolFactory.createVirtualThreadPool("app-category-crawl", concurrency);
+    }
+
+    /**
+     * 分类页请求的按主机限速
+     */
+    @Bean("crawlerHostRateLimiter")
+    public HostRateLimiter crawlerHostRateLimiter(@Value("${appstore.crawler.host-interval:2000}") long hostInterval) {
+        return new HostRateLimiter(hostInterval);
+    }
+
+    /**
+     * 已入队App的布隆过滤器，位图保存在Redis中
+     */
+    @Bean("appCrawlBloomFilter")
+    public RedisBloomFilter appCrawlBloomFilter(StringRedisTemplate stringRedisTemplate,
+                                                @Value("${appstore.crawler.bloom.expected-insertions:2000000}") long expectedInsertions,
+                                                @Value("${appstore.crawler.bloom.fpp:0.001}") double fpp) {
+        return new RedisBloomFilter(stringRedisTemplate, "appstore:crawl:seen", expectedInsertions, fpp);
     }
 
     /**
@@ -0,0 +1,227 @@
+package com.moon.cloud.appstore.crawler;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * App爬取边界（待爬取URL的准入和排序）
+ * <p>
+ * 分类页每次都会列出大量刚爬取过的App，准入前按App ID去重：
+ * <ul>
+ *     <li>布隆过滤器判断为未见过的App一定是新App，直接准入，不再查询时间戳</li>
+ *     <li>见过的App读取上次入队时间（Redis哈希）和上次爬取时间（apps表），距今未超过重新爬取间隔的跳过</li>
+ * </ul>
+ * 准入的链接新App在前，其余按过期程度和热度（评分数）降序，队列消费时先处理更需要更新的App。
+ * Redis不可用时不做过滤，全部链接按原顺序准入。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CrawlFrontier {
+
+    /**
+     * App上次入队时间（毫秒时间戳），field为App ID
+     */
+    private static final String SCHEDULED_KEY = "appstore:crawl:scheduled";
+
+    private static final Pattern APP_ID_PATTERN = Pattern.compile("/id(\\d+)");
+
+    /**
+     * 每次按App ID查询爬取时间的最大App数
+     */
+    private static final int QUERY_BATCH_SIZE = 500;
+
+    private final StringRedisTemplate redisTemplate;
+    private final AppMapper appMapper;
+
+    @Qualifier("appCrawlBloomFilter")
+    private final RedisBloomFilter appCrawlBloomFilter;
+
+    /**
+     * 同一App两次入队的最小间隔（小时）
+     */
+    @Value("${appstore.crawler.recrawl-interval-hours:24}")
+    private long recrawlIntervalHours = 24;
+
+    /**
+     * 过滤掉近期已入队或已爬取的App，并按优先级排序
+     *
+     * @param links 分类页提取的App链接
+     * @return 需要入队的链接，按优先级降序
+     */
+    public List<String> admit(List<String> links) {
+        if (links == null || links.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 按App ID去重，无法提取ID的链接消费时也会失败，直接丢弃
+        Map<String, String> linksByAppId = new LinkedHashMap<>();
+        for (String link : links) {
+            String appId = extractAppId(link);
+            if (appId == null) {
+                log.debug("无法从链接提取App ID，跳过: {}", link);
+            } else {
+                linksByAppId.putIfAbsent(appId, link);
+            }
+        }
+        if (linksByAppId.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<String> appIds = new ArrayList<>(linksByAppId.keySet());
+        try {
+            long now = System.currentTimeMillis();
+            long recrawlMillis = TimeUnit.HOURS.toMillis(recrawlIntervalHours);
+
+            List<String> admitted = new ArrayList<>();
+            List<String> seenAppIds = new ArrayList<>();
+            List<Boolean> seen = appCrawlBloomFilter.mightContain(appIds);
+            for (int i = 0; i < appIds.size(); i++) {
+                if (seen.get(i)) {
+                    seenAppIds.add(appIds.get(i));
+                } else {
+                    admitted.add(linksByAppId.get(appIds.get(i)));
+                }
+            }
+
+            // 见过的App先按入队时间过滤，只查询仍可能需要爬取的App
+            Map<String, Long> lastVisited = new HashMap<>();
+            List<Object> scheduledAt = seenAppIds.isEmpty() ? List.of()
+                    : redisTemplate.opsForHash().multiGet(SCHEDULED_KEY, new ArrayList<>(seenAppIds));
+            List<String> candidates = new ArrayList<>();
+            for (int i = 0; i < seenAppIds.size(); i++) {
+                Long scheduled = parseMillis(scheduledAt != null && i < scheduledAt.size() ? scheduledAt.get(i) : null);
+                if (scheduled != null && now - scheduled < recrawlMillis) {
+                    continue;
+                }
+                if (scheduled != null) {
+                    lastVisited.put(seenAppIds.get(i), scheduled);
+                }
+                candidates.add(seenAppIds.get(i));
+            }
+
+            List<Candidate> stale = new ArrayList<>();
+            Map<String, App> apps = findApps(candidates);
+            for (String appId : candidates) {
+                App app = apps.get(appId);
+                Long visited = lastVisited.get(appId);
+                if (app != null && app.getLastCrawledAt() != null) {
+                    long crawled = app.getLastCrawledAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                    visited = visited != null ? Math.max(visited, crawled) : crawled;
+                }
+                if (visited == null) {
+                    // 布隆过滤器误判或入队记录已丢失，按新App处理
+                    admitted.add(linksByAppId.get(appId));
+                } else if (now - visited >= recrawlMillis) {
+                    int ratingCount = app != null && app.getRatingCount() != null ? app.getRatingCount() : 0;
+                    stale.add(new Candidate(linksByAppId.get(appId), priority(now - visited, recrawlMillis, ratingCount)));
+                }
+            }
+            stale.sort(Comparator.comparingDouble(Candidate::priority).reversed());
+            stale.forEach(candidate -> admitted.add(candidate.link()));
+
+            log.debug("链接准入完成 - 提取: {}, 去重后: {}, 准入: {}", links.size(), appIds.size(), admitted.size());
+            return admitted;
+        } catch (Exception e) {
+            log.warn("过滤已爬取链接失败，全部链接入队", e);
+            return new ArrayList<>(linksByAppId.values());
+        }
+    }
+
+    /**
+     * 记录链接已入队，重新爬取间隔内再次出现时跳过
+     *
+     * @param links 已推送到队列的链接
+     */
+    public void markScheduled(List<String> links) {
+        if (links == null || links.isEmpty()) {
+            return;
+        }
+        String now = String.valueOf(System.currentTimeMillis());
+        List<String> appIds = new ArrayList<>();
+        Map<String, String> scheduled = new HashMap<>();
+        for (String link : links) {
+            String appId = extractAppId(link);
+            if (appId != null && scheduled.put(appId, now) == null) {
+                appIds.add(appId);
+            }
+        }
+        if (appIds.isEmpty()) {
+            return;
+        }
+        try {
+            appCrawlBloomFilter.put(appIds);
+            redisTemplate.opsForHash().putAll(SCHEDULED_KEY, scheduled);
+        } catch (Exception e) {
+            log.warn("记录链接入队时间失败，链接数: {}", appIds.size(), e);
+        }
+    }
+
+    /**
+     * 计算待重新爬取App的优先级：过期越久、评分数越多越优先
+     *
+     * @param elapsedMillis  距上次入队或爬取的毫秒数
+     * @param recrawlMillis  重新爬取间隔（毫秒）
+     * @param ratingCount    评分数
+     */
+    static double priority(long elapsedMillis, long recrawlMillis, int ratingCount) {
+        double staleness = (double) elapsedMillis / Math.max(1, recrawlMillis);
+        return staleness * (1 + Math.log10(1 + Math.max(0, ratingCount)));
+    }
+
+    static String extractAppId(String link) {
+        if (link == null) {
+            return null;
+        }
+        Matcher matcher = APP_ID_PATTERN.matcher(link);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private Map<String, App> findApps(List<String> appIds) {
+        Map<String, App> apps = new HashMap<>();
+        for (int from = 0; from < appIds.size(); from += QUERY_BATCH_SIZE) {
+            List<App> batch = appMapper.selectList(new LambdaQueryWrapper<App>()
+                    .select(App::getAppId, App::getLastCrawledAt, App::getRatingCount)
+                    .in(App::getAppId, appIds.subList(from, Math.min(from + QUERY_BATCH_SIZE, appIds.size()))));
+            for (App app : batch) {
+                apps.put(app.getAppId(), app);
+            }
+        }
+        return apps;
+    }
+
+    private static Long parseMillis(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private record Candidate(String link, double priority) {
+    }
+}
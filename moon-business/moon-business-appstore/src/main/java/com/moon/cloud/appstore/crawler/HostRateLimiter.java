@@ -0,0 +1,74 @@
+package com.moon.cloud.appstore.crawler;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按主机限速
+ * <p>
+ * 同一主机的相邻两次请求至少间隔固定时长，不同主机互不影响。
+ * 每次请求用CAS预约下一个可用时间点后再等待到该时间点，多个线程并发请求同一主机时按预约顺序依次发出。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public final class HostRateLimiter {
+
+    private final long intervalNanos;
+
+    /**
+     * 每个主机下一次允许请求的时间点（System.nanoTime）
+     */
+    private final Map<String, AtomicLong> nextAllowed = new ConcurrentHashMap<>();
+
+    /**
+     * @param intervalMillis 同一主机相邻请求的最小间隔（毫秒），不大于0时不限速
+     */
+    public HostRateLimiter(long intervalMillis) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, intervalMillis));
+    }
+
+    /**
+     * 等待到URL所在主机允许请求的时间点
+     *
+     * @param url 请求的URL
+     * @throws InterruptedException 等待期间线程被中断
+     */
+    public void acquire(String url) throws InterruptedException {
+        long waitNanos = reserve(host(url), System.nanoTime());
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * 为主机预约一次请求
+     *
+     * @return 距离预约时间点还需等待的纳秒数
+     */
+    long reserve(String host, long now) {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        AtomicLong next = nextAllowed.computeIfAbsent(host, h -> new AtomicLong(now));
+        while (true) {
+            long slot = next.get();
+            long start = slot - now > 0 ? slot : now;
+            if (next.compareAndSet(slot, start + intervalNanos)) {
+                return start - now;
+            }
+        }
+    }
+
+    static String host(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase() : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
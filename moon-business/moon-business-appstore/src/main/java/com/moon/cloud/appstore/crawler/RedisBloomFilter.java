@@ -0,0 +1,165 @@
+package com.moon.cloud.appstore.crawler;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 基于Redis位图的布隆过滤器
+ * <p>
+ * 位图保存在Redis中，随Redis持久化，重启和多个实例之间共享。
+ * 位偏移在本地由双重哈希计算，一批元素的全部位只需一次Lua脚本调用。
+ * 判断为不存在的元素一定没有加入过；判断为存在时有不超过误判率的概率实际未加入。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public final class RedisBloomFilter {
+
+    /**
+     * Redis位图最大长度 2^32 位
+     */
+    private static final long MAX_BITS = 1L << 32;
+
+    /**
+     * 查询脚本：每个元素的全部位都已置位时返回1
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CONTAINS_SCRIPT = RedisScript.of(
+            "local k = tonumber(ARGV[1]) "
+                    + "local result = {} "
+                    + "for i = 2, #ARGV, k do "
+                    + "  local found = 1 "
+                    + "  for j = i, i + k - 1 do "
+                    + "    if redis.call('GETBIT', KEYS[1], ARGV[j]) == 0 then found = 0 break end "
+                    + "  end "
+                    + "  result[#result + 1] = found "
+                    + "end "
+                    + "return result",
+            List.class);
+
+    /**
+     * 加入脚本：置位每个元素的全部位，原先有任一位未置位（即此前未加入）时返回1
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> PUT_SCRIPT = RedisScript.of(
+            "local k = tonumber(ARGV[1]) "
+                    + "local result = {} "
+                    + "for i = 2, #ARGV, k do "
+                    + "  local added = 0 "
+                    + "  for j = i, i + k - 1 do "
+                    + "    if redis.call('SETBIT', KEYS[1], ARGV[j], 1) == 0 then added = 1 end "
+                    + "  end "
+                    + "  result[#result + 1] = added "
+                    + "end "
+                    + "return result",
+            List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String key;
+    private final long bitSize;
+    private final int hashCount;
+
+    /**
+     * @param redisTemplate      Redis模板
+     * @param key                位图的Redis key
+     * @param expectedInsertions 预计加入的元素数
+     * @param fpp                预计加入元素数下的误判率
+     */
+    public RedisBloomFilter(StringRedisTemplate redisTemplate, String key, long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("预计元素数必须为正数");
+        }
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("误判率必须在0和1之间");
+        }
+        this.redisTemplate = redisTemplate;
+        this.key = key;
+        // m = -n*ln(p)/(ln2)^2, k = m/n*ln2
+        this.bitSize = Math.min(MAX_BITS,
+                Math.max(64L, (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)))));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+    }
+
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * 批量判断元素是否可能已加入
+     *
+     * @param values 元素
+     * @return 与元素一一对应，false表示一定未加入
+     */
+    public List<Boolean> mightContain(List<String> values) {
+        return execute(CONTAINS_SCRIPT, values);
+    }
+
+    /**
+     * 批量加入元素
+     *
+     * @param values 元素
+     * @return 与元素一一对应，true表示此前一定未加入
+     */
+    public List<Boolean> put(List<String> values) {
+        return execute(PUT_SCRIPT, values);
+    }
+
+    private List<Boolean> execute(@SuppressWarnings("rawtypes") RedisScript<List> script, List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String[] args = new String[1 + values.size() * hashCount];
+        args[0] = String.valueOf(hashCount);
+        int index = 1;
+        for (String value : values) {
+            for (long offset : offsets(value)) {
+                args[index++] = String.valueOf(offset);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Long> flags = redisTemplate.execute(script, List.of(key), (Object[]) args);
+        List<Boolean> result = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            result.add(flags != null && i < flags.size() && flags.get(i) != null && flags.get(i) == 1L);
+        }
+        return result;
+    }
+
+    /**
+     * 计算元素的位偏移：由两个64位哈希组合出 hashCount 个位置
+     */
+    long[] offsets(String value) {
+        long hash1 = fnv1a(value);
+        long hash2 = mix(hash1) | 1L;
+        long[] offsets = new long[hashCount];
+        for (int i = 0; i < hashCount; i++) {
+            offsets[i] = Math.floorMod(hash1 + i * hash2, bitSize);
+        }
+        return offsets;
+    }
+
+    private static long fnv1a(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,41 @@
+package com.moon.cloud.appstore.dto;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 互动计数增量DTO
+ * 一个刷新周期内同一记录累积的增量，用于批量累加到数据库
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Data
+@Accessors(chain = true)
+public class EngagementDeltaDTO {
+
+    /**
+     * 记录主键
+     */
+    private String id;
+
+    /**
+     * 查看次数增量
+     */
+    private long viewCount;
+
+    /**
+     * 点击次数增量
+     */
+    private long clickCount;
+
+    /**
+     * 分享次数增量
+     */
+    private long shareCount;
+
+    /**
+     * 下载次数增量
+     */
+    private long downloadCount;
+}
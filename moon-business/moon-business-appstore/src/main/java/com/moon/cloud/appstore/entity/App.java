@@ -225,6 +225,16 @@ public class App implements Serializable {
      */
     private Integer status;
 
+    /**
+     * 查看次数
+     */
+    private Integer viewCount;
+
+    /**
+     * 下载次数
+     */
+    private Integer downloadCount;
+
     /**
      * 创建时间
      */
@@ -0,0 +1,78 @@
+package com.moon.cloud.appstore.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 分类统计表实体类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("category_statistics")
+public class CategoryStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * App Store分类ID
+     */
+    @TableId(value = "category_id", type = IdType.INPUT)
+    private String categoryId;
+
+    /**
+     * 分类名称
+     */
+    private String categoryName;
+
+    /**
+     * 应用总数
+     */
+    private Integer appCount;
+
+    /**
+     * 免费应用数
+     */
+    private Integer freeAppCount;
+
+    /**
+     * 有评分的应用数
+     */
+    private Integer ratedAppCount;
+
+    /**
+     * 评分总和
+     */
+    private BigDecimal ratingSum;
+
+    /**
+     * 平均评分
+     */
+    private BigDecimal avgRating;
+
+    /**
+     * 进行中的限免数
+     */
+    private Integer activeFreeCount;
+
+    /**
+     * 进行中的打折数
+     */
+    private Integer activeDiscountCount;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updatedAt;
+}
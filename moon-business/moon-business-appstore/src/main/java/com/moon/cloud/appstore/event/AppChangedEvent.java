@@ -0,0 +1,19 @@
+package com.moon.cloud.appstore.event;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 应用数据变更事件
+ * 应用新增、更新或删除后发布，订阅方据此增量维护搜索索引等派生数据
+ *
+ * @param appIds 变更的应用ID（apps表主键）
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public record AppChangedEvent(List<String> appIds) {
+
+    public AppChangedEvent(Collection<String> appIds) {
+        this(List.copyOf(appIds));
+    }
+}
@@ -0,0 +1,21 @@
+package com.moon.cloud.appstore.event;
+
+import com.moon.cloud.appstore.entity.App;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 应用价格变化事件
+ * 爬取结果保存后，对价格发生变化的应用发布，订阅方据此增量维护限免记录
+ *
+ * @param apps 价格发生变化的应用，包含保存后的当前价格和原始价格
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public record PriceChangedEvent(List<App> apps) {
+
+    public PriceChangedEvent(Collection<App> apps) {
+        this(List.copyOf(apps));
+    }
+}
@@ -0,0 +1,21 @@
+package com.moon.cloud.appstore.event;
+
+import com.moon.cloud.appstore.entity.AppPriceHistory;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 价格历史记录事件
+ * 价格历史写入后发布，订阅方据此把新的价格点追加到应用的价格序列
+ *
+ * @param records 写入的价格历史记录
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public record PriceHistoryRecordedEvent(List<AppPriceHistory> records) {
+
+    public PriceHistoryRecordedEvent(Collection<AppPriceHistory> records) {
+        this(List.copyOf(records));
+    }
+}
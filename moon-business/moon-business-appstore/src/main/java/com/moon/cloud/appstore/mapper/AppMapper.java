@@ -1,8 +1,12 @@
 package com.moon.cloud.appstore.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.moon.cloud.appstore.dto.EngagementDeltaDTO;
 import com.moon.cloud.appstore.entity.App;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * 应用信息表 Mapper 接口
@@ -13,4 +17,20 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface AppMapper extends BaseMapper<App> {
 
+    /**
+     * 批量插入或更新App，按app_id判断是否已存在
+     * 新App的id需由调用方预先生成；已存在的App保留原id和created_at
+     *
+     * @param apps App列表
+     * @return 影响行数
+     */
+    int upsertBatch(@Param("apps") List<App> apps);
+
+    /**
+     * 批量累加查看次数和下载次数，不改变updated_at
+     *
+     * @param deltas 按App主键汇总的增量
+     * @return 影响行数
+     */
+    int incrementEngagementCounts(@Param("deltas") List<EngagementDeltaDTO> deltas);
 }
\ No newline at end of file
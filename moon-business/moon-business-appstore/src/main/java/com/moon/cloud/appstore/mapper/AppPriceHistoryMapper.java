@@ -2,6 +2,7 @@ package com.moon.cloud.appstore.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.moon.cloud.appstore.entity.AppPriceHistory;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -94,4 +95,27 @@ public interface AppPriceHistoryMapper extends BaseMapper<AppPriceHistory> {
      */
     @Select("SELECT MAX(new_price) FROM app_price_history WHERE app_id = #{appId}")
     BigDecimal getHistoricalHighestPrice(@Param("appId") String appId);
+
+    /**
+     * 批量插入价格历史记录，id需由调用方预先生成
+     *
+     * @param records 价格历史记录
+     * @return 插入数量
+     */
+    @Insert("<script>" +
+            "INSERT INTO app_price_history (" +
+            "id, app_id, bundle_id, app_name, old_price, new_price, " +
+            "price_change, change_percent, currency, price_type, change_type, is_free, " +
+            "old_is_free, version, category_id, category_name, developer_name, change_time, " +
+            "created_at, remark, source " +
+            ") VALUES " +
+            "<foreach collection='records' item='r' separator=','>(" +
+            "#{r.id}, #{r.appId}, #{r.bundleId}, #{r.appName}, #{r.oldPrice}, " +
+            "#{r.newPrice}, #{r.priceChange}, #{r.changePercent}, #{r.currency}, #{r.priceType}, " +
+            "#{r.changeType}, #{r.isFree}, #{r.oldIsFree}, #{r.version}, #{r.categoryId}, " +
+            "#{r.categoryName}, #{r.developerName}, #{r.changeTime}, #{r.createdAt}, #{r.remark}, " +
+            "#{r.source} " +
+            ")</foreach>" +
+            "</script>")
+    int insertBatch(@Param("records") List<AppPriceHistory> records);
 }
\ No newline at end of file
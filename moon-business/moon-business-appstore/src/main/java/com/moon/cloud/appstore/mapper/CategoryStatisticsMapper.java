@@ -0,0 +1,50 @@
+package com.moon.cloud.appstore.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.moon.cloud.appstore.entity.CategoryStatistics;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 分类统计表 Mapper 接口
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Mapper
+public interface CategoryStatisticsMapper extends BaseMapper<CategoryStatistics> {
+
+    /**
+     * 按分类聚合上架应用的数量和评分
+     *
+     * @param categoryIds 分类ID，为null时聚合全部分类
+     * @return 每个分类一条，只填充分类名称、应用数、免费应用数、评分应用数和评分总和
+     */
+    List<CategoryStatistics> aggregateApps(@Param("categoryIds") Collection<String> categoryIds);
+
+    /**
+     * 按应用分类聚合进行中的限免
+     *
+     * @return 每个分类一条，只填充分类名称、限免数和打折数
+     */
+    List<CategoryStatistics> aggregateActivePromotions();
+
+    /**
+     * 批量插入或更新分类统计
+     *
+     * @param statistics 分类统计
+     * @return 影响行数
+     */
+    int upsertBatch(@Param("statistics") List<CategoryStatistics> statistics);
+
+    /**
+     * 把分类统计同步到categories表的应用数、免费应用数和平均评分
+     *
+     * @param categoryIds 分类ID
+     * @return 影响行数
+     */
+    int syncCategories(@Param("categoryIds") Collection<String> categoryIds);
+}
@@ -1,6 +1,7 @@
 package com.moon.cloud.appstore.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.moon.cloud.appstore.dto.EngagementDeltaDTO;
 import com.moon.cloud.appstore.entity.FreePromotion;
 import com.moon.cloud.appstore.vo.FreeAppVO;
 import org.apache.ibatis.annotations.Mapper;
@@ -46,4 +47,12 @@ public interface FreePromotionMapper extends BaseMapper<FreePromotion> {
                            @Param("minRating") Double minRating,
                            @Param("minOriginalPrice") Double minOriginalPrice,
                            @Param("maxOriginalPrice") Double maxOriginalPrice);
+
+    /**
+     * 批量累加查看、点击和分享次数
+     *
+     * @param deltas 按限免记录主键汇总的增量
+     * @return 影响行数
+     */
+    int incrementEngagementCounts(@Param("deltas") List<EngagementDeltaDTO> deltas);
 }
\ No newline at end of file
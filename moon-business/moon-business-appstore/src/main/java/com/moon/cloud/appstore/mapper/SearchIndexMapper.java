@@ -2,6 +2,8 @@ package com.moon.cloud.appstore.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.moon.cloud.appstore.entity.SearchIndex;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -29,4 +31,38 @@ public interface SearchIndexMapper extends BaseMapper<SearchIndex> {
             "ORDER BY search_weight DESC, popularity_score DESC " +
             "LIMIT 100")
     List<SearchIndex> fullTextSearch(@Param("keyword") String keyword);
+
+    /**
+     * 批量插入或更新索引文本列，按app_id唯一键判重，id需由调用方预先生成；
+     * 搜索次数、点击率等统计列由各自的任务维护，更新时保留原值
+     *
+     * @param indexes 索引记录
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO search_index (" +
+            "id, app_id, appstore_app_id, app_name, app_name_pinyin, developer_name, " +
+            "developer_name_pinyin, keywords, category_names, description_snippet, created_at, updated_at" +
+            ") VALUES " +
+            "<foreach collection='indexes' item='i' separator=','>(" +
+            "#{i.id}, #{i.appId}, #{i.appstoreAppId}, #{i.appName}, #{i.appNamePinyin}, #{i.developerName}, " +
+            "#{i.developerNamePinyin}, #{i.keywords}, #{i.categoryNames}, #{i.descriptionSnippet}, " +
+            "#{i.createdAt}, #{i.updatedAt}" +
+            ")</foreach> " +
+            "ON DUPLICATE KEY UPDATE " +
+            "appstore_app_id = VALUES(appstore_app_id), app_name = VALUES(app_name), " +
+            "app_name_pinyin = VALUES(app_name_pinyin), developer_name = VALUES(developer_name), " +
+            "developer_name_pinyin = VALUES(developer_name_pinyin), keywords = VALUES(keywords), " +
+            "category_names = VALUES(category_names), description_snippet = VALUES(description_snippet), " +
+            "updated_at = VALUES(updated_at)" +
+            "</script>")
+    int upsertBatch(@Param("indexes") List<SearchIndex> indexes);
+
+    /**
+     * 删除对应应用已不存在的索引记录
+     *
+     * @return 删除数量
+     */
+    @Delete("DELETE si FROM search_index si LEFT JOIN apps a ON a.id = si.app_id WHERE a.id IS NULL")
+    int deleteOrphans();
 }
\ No newline at end of file
@@ -0,0 +1,455 @@
+package com.moon.cloud.appstore.price;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 单个应用的价格时间序列
+ * <p>
+ * 价格历史只在价格变化时产生记录，相邻两个价格点之间价格保持不变，序列本身就是游程编码。
+ * 除全部价格点外，序列还维护：
+ * <ul>
+ *     <li>全量汇总：历史最低价（不含免费）、历史最高价、价格变化次数，查询时直接读取</li>
+ *     <li>按天、按周预聚合的桶：区间内的最低、最高、收盘价、价格点数、价格总和和限免次数，
+ *     只保存有价格点的桶，图表的区间统计只需合并区间内的桶</li>
+ * </ul>
+ * 编码时时间（秒）和价格（分）都保存与上一个值的差值，以变长整数写入后再Base64，几十个价格点只占几百字节。
+ * 价格点必须按时间顺序追加。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public final class PriceSeries {
+
+    private static final int VERSION = 1;
+
+    /**
+     * 变化类型编码，下标即编码，未知类型编码为0
+     */
+    private static final String[] CHANGE_TYPES = {null, "INITIAL", "FREE", "DECREASE", "INCREASE", "RESTORE", "DISCOUNT"};
+
+    private static final int TYPE_INITIAL = 1;
+    private static final int TYPE_FREE = 2;
+
+    /**
+     * 1970-01-01是周四，加3后按周一为一周的开始分桶
+     */
+    private static final int WEEK_OFFSET = 3;
+
+    private final List<Point> points = new ArrayList<>();
+    private final List<Bucket> daily = new ArrayList<>();
+    private final List<Bucket> weekly = new ArrayList<>();
+
+    /**
+     * 不含免费的历史最低价（分），没有收费价格时为-1
+     */
+    private long lowestPaid = -1;
+    private long highest = -1;
+    private int changeCount;
+
+    /**
+     * 追加价格点
+     *
+     * @param time       变化时间
+     * @param price      新价格
+     * @param changeType 变化类型
+     * @return 早于最后一个价格点时返回false，不追加；与最后一个价格点完全相同时视为已追加
+     */
+    public boolean append(LocalDateTime time, BigDecimal price, String changeType) {
+        if (time == null || price == null) {
+            return true;
+        }
+        Point point = new Point(time.toEpochSecond(ZoneOffset.UTC), toCents(price), typeCode(changeType));
+        if (!points.isEmpty()) {
+            Point last = points.get(points.size() - 1);
+            if (point.epochSecond() < last.epochSecond()) {
+                return false;
+            }
+            if (point.equals(last)) {
+                return true;
+            }
+        }
+        add(point);
+        return true;
+    }
+
+    private void add(Point point) {
+        points.add(point);
+        if (point.cents() > 0 && (lowestPaid < 0 || point.cents() < lowestPaid)) {
+            lowestPaid = point.cents();
+        }
+        highest = Math.max(highest, point.cents());
+        if (point.type() != 0 && point.type() != TYPE_INITIAL) {
+            changeCount++;
+        }
+        merge(daily, dayIndex(point.epochSecond()), point);
+        merge(weekly, weekIndex(point.epochSecond()), point);
+    }
+
+    private static void merge(List<Bucket> buckets, long index, Point point) {
+        int free = point.type() == TYPE_FREE ? 1 : 0;
+        if (!buckets.isEmpty() && buckets.get(buckets.size() - 1).index() == index) {
+            Bucket last = buckets.get(buckets.size() - 1);
+            buckets.set(buckets.size() - 1, new Bucket(index,
+                    Math.min(last.low(), point.cents()),
+                    Math.max(last.high(), point.cents()),
+                    point.cents(),
+                    point.type(),
+                    last.count() + 1,
+                    last.sum() + point.cents(),
+                    last.freeCount() + free));
+        } else {
+            buckets.add(new Bucket(index, point.cents(), point.cents(), point.cents(), point.type(), 1, point.cents(), free));
+        }
+    }
+
+    public boolean isEmpty() {
+        return points.isEmpty();
+    }
+
+    public List<Point> getPoints() {
+        return Collections.unmodifiableList(points);
+    }
+
+    public List<Bucket> getDaily() {
+        return Collections.unmodifiableList(daily);
+    }
+
+    public List<Bucket> getWeekly() {
+        return Collections.unmodifiableList(weekly);
+    }
+
+    /**
+     * 不含免费的历史最低价，没有收费价格时返回null
+     */
+    public BigDecimal getLowestPaidPrice() {
+        return lowestPaid < 0 ? null : toPrice(lowestPaid);
+    }
+
+    /**
+     * 历史最高价，没有价格点时返回null
+     */
+    public BigDecimal getHighestPrice() {
+        return highest < 0 ? null : toPrice(highest);
+    }
+
+    /**
+     * 价格变化次数，不含初始价格
+     */
+    public int getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * 第一个不早于指定时间的价格点下标，都早于指定时间时返回价格点数
+     */
+    public int indexOf(LocalDateTime time) {
+        long second = time.toEpochSecond(ZoneOffset.UTC);
+        int low = 0;
+        int high = points.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (points.get(mid).epochSecond() < second) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 合并日期区间内的按天桶
+     *
+     * @param from 开始日期（含）
+     * @param to   结束日期（含）
+     * @return 区间统计，区间内没有价格点时返回null
+     */
+    public Window window(LocalDate from, LocalDate to) {
+        long fromIndex = from.toEpochDay();
+        long toIndex = to.toEpochDay();
+        long low = Long.MAX_VALUE;
+        long high = Long.MIN_VALUE;
+        long sum = 0;
+        int count = 0;
+        int freeCount = 0;
+        for (Bucket bucket : buckets(daily, fromIndex, toIndex)) {
+            low = Math.min(low, bucket.low());
+            high = Math.max(high, bucket.high());
+            sum += bucket.sum();
+            count += bucket.count();
+            freeCount += bucket.freeCount();
+        }
+        if (count == 0) {
+            return null;
+        }
+        BigDecimal average = toPrice(sum).divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+        return new Window(toPrice(low), toPrice(high), average, count, freeCount);
+    }
+
+    /**
+     * 日期区间内的按天桶
+     */
+    public List<Bucket> dailyBuckets(LocalDate from, LocalDate to) {
+        return buckets(daily, from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * 日期区间内的按周桶，包含开始日期和结束日期所在的周
+     */
+    public List<Bucket> weeklyBuckets(LocalDate from, LocalDate to) {
+        return buckets(weekly, Math.floorDiv(from.toEpochDay() + WEEK_OFFSET, 7), Math.floorDiv(to.toEpochDay() + WEEK_OFFSET, 7));
+    }
+
+    private static List<Bucket> buckets(List<Bucket> buckets, long fromIndex, long toIndex) {
+        List<Bucket> result = new ArrayList<>();
+        for (Bucket bucket : buckets) {
+            if (bucket.index() > toIndex) {
+                break;
+            }
+            if (bucket.index() >= fromIndex) {
+                result.add(bucket);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 编码为字符串
+     */
+    public String encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarLong(out, VERSION);
+        writeVarLong(out, zigzag(lowestPaid));
+        writeVarLong(out, zigzag(highest));
+        writeVarLong(out, changeCount);
+
+        writeVarLong(out, points.size());
+        long lastSecond = 0;
+        long lastCents = 0;
+        for (Point point : points) {
+            writeVarLong(out, zigzag(point.epochSecond() - lastSecond));
+            writeVarLong(out, zigzag(point.cents() - lastCents));
+            writeVarLong(out, point.type());
+            lastSecond = point.epochSecond();
+            lastCents = point.cents();
+        }
+        writeBuckets(out, daily);
+        writeBuckets(out, weekly);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(out.toByteArray());
+    }
+
+    private static void writeBuckets(ByteArrayOutputStream out, List<Bucket> buckets) {
+        writeVarLong(out, buckets.size());
+        long lastIndex = 0;
+        for (Bucket bucket : buckets) {
+            writeVarLong(out, zigzag(bucket.index() - lastIndex));
+            writeVarLong(out, zigzag(bucket.low()));
+            writeVarLong(out, bucket.high() - bucket.low());
+            writeVarLong(out, bucket.close() - bucket.low());
+            writeVarLong(out, bucket.closeType());
+            writeVarLong(out, bucket.count());
+            writeVarLong(out, zigzag(bucket.sum()));
+            writeVarLong(out, bucket.freeCount());
+            lastIndex = bucket.index();
+        }
+    }
+
+    /**
+     * 从字符串解码
+     *
+     * @throws IllegalArgumentException 编码无法识别
+     */
+    public static PriceSeries decode(String encoded) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(encoded);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("价格序列编码无效", e);
+        }
+        Reader in = new Reader(bytes);
+        if (in.readVarLong() != VERSION) {
+            throw new IllegalArgumentException("价格序列版本不支持");
+        }
+        PriceSeries series = new PriceSeries();
+        series.lowestPaid = unzigzag(in.readVarLong());
+        series.highest = unzigzag(in.readVarLong());
+        series.changeCount = (int) in.readVarLong();
+
+        int pointCount = (int) in.readVarLong();
+        long second = 0;
+        long cents = 0;
+        for (int i = 0; i < pointCount; i++) {
+            second += unzigzag(in.readVarLong());
+            cents += unzigzag(in.readVarLong());
+            series.points.add(new Point(second, cents, (int) in.readVarLong()));
+        }
+        readBuckets(in, series.daily);
+        readBuckets(in, series.weekly);
+        return series;
+    }
+
+    private static void readBuckets(Reader in, List<Bucket> buckets) {
+        int count = (int) in.readVarLong();
+        long index = 0;
+        for (int i = 0; i < count; i++) {
+            index += unzigzag(in.readVarLong());
+            long low = unzigzag(in.readVarLong());
+            long high = low + in.readVarLong();
+            long close = low + in.readVarLong();
+            int closeType = (int) in.readVarLong();
+            int pointCount = (int) in.readVarLong();
+            long sum = unzigzag(in.readVarLong());
+            int freeCount = (int) in.readVarLong();
+            buckets.add(new Bucket(index, low, high, close, closeType, pointCount, sum, freeCount));
+        }
+    }
+
+    static long dayIndex(long epochSecond) {
+        return Math.floorDiv(epochSecond, 86400L);
+    }
+
+    static long weekIndex(long epochSecond) {
+        return Math.floorDiv(dayIndex(epochSecond) + WEEK_OFFSET, 7);
+    }
+
+    private static long toCents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal toPrice(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static int typeCode(String changeType) {
+        for (int i = 1; i < CHANGE_TYPES.length; i++) {
+            if (CHANGE_TYPES[i].equals(changeType)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= bytes.length) {
+                    throw new IllegalArgumentException("价格序列编码不完整");
+                }
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("价格序列编码无效");
+        }
+    }
+
+    /**
+     * 价格点
+     *
+     * @param epochSecond 变化时间，按UTC换算的秒数（与LocalDateTime一一对应）
+     * @param cents       价格（分）
+     * @param type        变化类型编码
+     */
+    public record Point(long epochSecond, long cents, int type) {
+
+        public LocalDateTime time() {
+            return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+        }
+
+        public BigDecimal price() {
+            return toPrice(cents);
+        }
+
+        public String changeType() {
+            return CHANGE_TYPES[type < CHANGE_TYPES.length ? type : 0];
+        }
+
+        public boolean isFree() {
+            return cents == 0;
+        }
+    }
+
+    /**
+     * 预聚合的桶
+     *
+     * @param index     桶序号：按天为距1970-01-01的天数，按周为距1969-12-29（周一）的周数
+     * @param low       最低价（分）
+     * @param high      最高价（分）
+     * @param close     桶内最后一个价格（分）
+     * @param closeType 桶内最后一个价格点的变化类型编码
+     * @param count     价格点数
+     * @param sum       价格总和（分）
+     * @param freeCount 限免次数
+     */
+    public record Bucket(long index, long low, long high, long close, int closeType, int count, long sum, int freeCount) {
+
+        /**
+         * 按天桶的开始时间
+         */
+        public LocalDateTime dayStart() {
+            return LocalDate.ofEpochDay(index).atStartOfDay();
+        }
+
+        /**
+         * 按周桶的开始时间（周一）
+         */
+        public LocalDateTime weekStart() {
+            return LocalDate.ofEpochDay(index * 7 - WEEK_OFFSET).atStartOfDay();
+        }
+
+        public BigDecimal closePrice() {
+            return toPrice(close);
+        }
+
+        public String closeChangeType() {
+            return CHANGE_TYPES[closeType < CHANGE_TYPES.length ? closeType : 0];
+        }
+    }
+
+    /**
+     * 区间统计
+     *
+     * @param lowest    最低价（含免费）
+     * @param highest   最高价
+     * @param average   价格点的平均价格
+     * @param count     价格点数
+     * @param freeCount 限免次数
+     */
+    public record Window(BigDecimal lowest, BigDecimal highest, BigDecimal average, int count, int freeCount) {
+    }
+}
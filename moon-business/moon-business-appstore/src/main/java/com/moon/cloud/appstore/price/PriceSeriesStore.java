@@ -0,0 +1,237 @@
+package com.moon.cloud.appstore.price;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.moon.cloud.appstore.entity.AppPriceHistory;
+import com.moon.cloud.appstore.event.PriceHistoryRecordedEvent;
+import com.moon.cloud.appstore.mapper.AppPriceHistoryMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 应用价格序列存储
+ * <p>
+ * 每个应用的价格序列编码后保存在Redis哈希中，同时单独保存历史最低价、最高价和变化次数，
+ * 价格统计和图表一次读取即可得到，不再扫描价格历史表。
+ * <ul>
+ *     <li>首次读取时按应用查询一次价格历史生成序列</li>
+ *     <li>订阅 {@link PriceHistoryRecordedEvent}，把新的价格点追加到已存在的序列；无法追加时清除序列，下次读取时生成</li>
+ *     <li>哈希中的版本号在每次价格变化时递增，写回序列前在Lua脚本中比较版本号：
+ *     生成期间发生了价格变化的序列、并发追加中落后的一方都不会写回，避免覆盖较新的数据</li>
+ * </ul>
+ * Redis不可用时直接由价格历史生成序列，不影响查询。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PriceSeriesStore {
+
+    private static final String SERIES_KEY = "appstore:app:price:series:";
+
+    private static final String SERIES_FIELD = "series";
+    private static final String LOWEST_FIELD = "lowest";
+    private static final String HIGHEST_FIELD = "highest";
+    private static final String CHANGE_COUNT_FIELD = "changeCount";
+    private static final String VERSION_FIELD = "version";
+
+    /**
+     * 写回脚本：版本号与读取时一致才写入序列和汇总，ARGV[1]为读取时的版本号，ARGV[2]为写入后的版本号
+     */
+    private static final RedisScript<Long> SAVE_SCRIPT = RedisScript.of(
+            "if (redis.call('HGET', KEYS[1], 'version') or '0') ~= ARGV[1] then return 0 end "
+                    + "redis.call('HSET', KEYS[1], 'version', ARGV[2], 'series', ARGV[3], "
+                    + "'lowest', ARGV[4], 'highest', ARGV[5], 'changeCount', ARGV[6]) "
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[7]) "
+                    + "return 1",
+            Long.class);
+
+    /**
+     * 清除脚本：递增版本号并删除序列和汇总，使生成中的旧序列无法写回
+     */
+    private static final RedisScript<Long> INVALIDATE_SCRIPT = RedisScript.of(
+            "local version = redis.call('HINCRBY', KEYS[1], 'version', 1) "
+                    + "redis.call('HDEL', KEYS[1], 'series', 'lowest', 'highest', 'changeCount') "
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[1]) "
+                    + "return version",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final AppPriceHistoryMapper appPriceHistoryMapper;
+
+    /**
+     * 序列过期时间（天）
+     */
+    @Value("${appstore.price.series-ttl-days:30}")
+    private long ttlDays = 30;
+
+    /**
+     * 获取应用的价格序列
+     *
+     * @param appId App Store ID
+     * @return 价格序列，没有价格历史时为空序列
+     */
+    public PriceSeries getSeries(String appId) {
+        // 先读版本号再查询价格历史，查询期间发生的价格变化会递增版本号，生成的序列不再写回
+        String version;
+        try {
+            List<Object> values = redisTemplate.opsForHash().multiGet(SERIES_KEY + appId,
+                    List.of(SERIES_FIELD, VERSION_FIELD));
+            Object encoded = values != null && values.size() == 2 ? values.get(0) : null;
+            version = values != null && values.size() == 2 && values.get(1) != null ? values.get(1).toString() : "0";
+            if (encoded != null) {
+                try {
+                    return PriceSeries.decode(encoded.toString());
+                } catch (IllegalArgumentException e) {
+                    log.warn("价格序列无法解码，重新生成: appId={}", appId, e);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("读取价格序列失败，由价格历史生成: appId={}", appId, e);
+            return load(appId);
+        }
+        PriceSeries series = load(appId);
+        save(appId, version, version, series);
+        return series;
+    }
+
+    /**
+     * 获取应用的价格汇总，只读取汇总字段，不解码价格点
+     *
+     * @param appId App Store ID
+     * @return 价格汇总
+     */
+    public Summary getSummary(String appId) {
+        try {
+            List<Object> values = redisTemplate.opsForHash().multiGet(SERIES_KEY + appId,
+                    List.of(LOWEST_FIELD, HIGHEST_FIELD, CHANGE_COUNT_FIELD));
+            if (values != null && values.size() == 3 && values.get(2) != null) {
+                return new Summary(parsePrice(values.get(0)), parsePrice(values.get(1)),
+                        Integer.parseInt(values.get(2).toString()));
+            }
+        } catch (Exception e) {
+            log.warn("读取价格汇总失败: appId={}", appId, e);
+        }
+        PriceSeries series = getSeries(appId);
+        return new Summary(series.getLowestPaidPrice(), series.getHighestPrice(), series.getChangeCount());
+    }
+
+    /**
+     * 把新写入的价格历史追加到已存在的序列，在写入事务提交后执行
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPriceHistoryRecorded(PriceHistoryRecordedEvent event) {
+        Map<String, List<AppPriceHistory>> recordsByApp = new LinkedHashMap<>();
+        for (AppPriceHistory record : event.records()) {
+            if (record.getAppId() != null) {
+                recordsByApp.computeIfAbsent(record.getAppId(), k -> new ArrayList<>()).add(record);
+            }
+        }
+
+        for (Map.Entry<String, List<AppPriceHistory>> entry : recordsByApp.entrySet()) {
+            String appId = entry.getKey();
+            try {
+                List<Object> values = redisTemplate.opsForHash().multiGet(SERIES_KEY + appId,
+                        List.of(SERIES_FIELD, VERSION_FIELD));
+                Object encoded = values != null && values.size() == 2 ? values.get(0) : null;
+                if (encoded == null) {
+                    // 序列未生成，仍需递增版本号，使正在生成的旧序列无法写回
+                    invalidate(appId);
+                    continue;
+                }
+                long version = values.get(1) != null ? Long.parseLong(values.get(1).toString()) : 0;
+                PriceSeries series = PriceSeries.decode(encoded.toString());
+                boolean appended = true;
+                List<AppPriceHistory> records = entry.getValue();
+                records.sort(Comparator.comparing(AppPriceHistory::getChangeTime,
+                        Comparator.nullsLast(Comparator.naturalOrder())));
+                for (AppPriceHistory record : records) {
+                    appended &= series.append(record.getChangeTime(), record.getNewPrice(), record.getChangeType());
+                }
+                // 早于序列中最后一个价格点无法追加，或其他实例已先写回，清除后下次读取时重新生成
+                if (!appended || !save(appId, String.valueOf(version), String.valueOf(version + 1), series)) {
+                    invalidate(appId);
+                }
+            } catch (Exception e) {
+                log.warn("追加价格序列失败: appId={}", appId, e);
+                invalidate(appId);
+            }
+        }
+    }
+
+    /**
+     * 由价格历史生成序列
+     */
+    PriceSeries load(String appId) {
+        List<AppPriceHistory> records = appPriceHistoryMapper.selectList(new LambdaQueryWrapper<AppPriceHistory>()
+                .select(AppPriceHistory::getChangeTime, AppPriceHistory::getNewPrice, AppPriceHistory::getChangeType)
+                .eq(AppPriceHistory::getAppId, appId)
+                .orderByAsc(AppPriceHistory::getChangeTime));
+        PriceSeries series = new PriceSeries();
+        for (AppPriceHistory record : records) {
+            series.append(record.getChangeTime(), record.getNewPrice(), record.getChangeType());
+        }
+        return series;
+    }
+
+    /**
+     * 版本号未变化时写回序列和汇总
+     *
+     * @param expectedVersion 读取序列时的版本号
+     * @param newVersion      写入后的版本号
+     * @return 是否已写入
+     */
+    private boolean save(String appId, String expectedVersion, String newVersion, PriceSeries series) {
+        try {
+            Long saved = redisTemplate.execute(SAVE_SCRIPT, List.of(SERIES_KEY + appId),
+                    expectedVersion, newVersion, series.encode(),
+                    formatPrice(series.getLowestPaidPrice()), formatPrice(series.getHighestPrice()),
+                    String.valueOf(series.getChangeCount()), String.valueOf(TimeUnit.DAYS.toSeconds(ttlDays)));
+            return saved != null && saved > 0;
+        } catch (Exception e) {
+            log.warn("保存价格序列失败: appId={}", appId, e);
+            return false;
+        }
+    }
+
+    private void invalidate(String appId) {
+        try {
+            redisTemplate.execute(INVALIDATE_SCRIPT, List.of(SERIES_KEY + appId),
+                    String.valueOf(TimeUnit.DAYS.toSeconds(ttlDays)));
+        } catch (Exception e) {
+            log.warn("清除价格序列失败: appId={}", appId, e);
+        }
+    }
+
+    private static String formatPrice(BigDecimal price) {
+        return price != null ? price.toPlainString() : "";
+    }
+
+    private static BigDecimal parsePrice(Object value) {
+        return value == null || value.toString().isEmpty() ? null : new BigDecimal(value.toString());
+    }
+
+    /**
+     * 价格汇总
+     *
+     * @param lowestPrice  不含免费的历史最低价
+     * @param highestPrice 历史最高价
+     * @param changeCount  价格变化次数，不含初始价格
+     */
+    public record Summary(BigDecimal lowestPrice, BigDecimal highestPrice, int changeCount) {
+    }
+}
@@ -0,0 +1,345 @@
+package com.moon.cloud.appstore.promotion;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.FreePromotion;
+import com.moon.cloud.appstore.event.PriceChangedEvent;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.mapper.FreePromotionMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 限免检测器
+ * <p>
+ * 订阅爬取过程中产生的 {@link PriceChangedEvent}，只处理价格发生变化的应用：
+ * 降到原价以下时创建限免记录，仍低于原价但优惠价格变化时更新记录，恢复原价时结束限免。
+ * 每个事件只需一次查询取出相关应用的进行中限免，检测开销与价格变化量成正比，与应用总数无关。
+ * 预估结束时间已到的限免按 (status, end_time) 索引范围一次结束，不再逐条检查进行中的限免。
+ * 事件处理失败的价格变化和首次爬取即处于优惠中的应用（初始价格不发布事件）由定时全量对账补齐。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FreePromotionDetector {
+
+    private static final String STATUS_ACTIVE = "ACTIVE";
+    private static final String STATUS_ENDED = "ENDED";
+
+    /**
+     * 每次查询的最大记录数
+     */
+    private static final int QUERY_BATCH_SIZE = 500;
+
+    /**
+     * 限免记录变化后需要清空的缓存
+     */
+    private static final List<String> PROMOTION_CACHES = List.of("free:ending", "free:hot", "free:statistics");
+
+    private final AppMapper appMapper;
+    private final FreePromotionMapper freePromotionMapper;
+    private final CacheManager cacheManager;
+
+    /**
+     * 价格变化事件在爬取事务提交后处理，失败时由定时任务 {@link #reconcile()} 对账补齐
+     * 提交后原事务的资源仍绑定在线程上，需在新事务中写入，否则写入不会被提交
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onPriceChanged(PriceChangedEvent event) {
+        try {
+            applyPriceChanges(event.apps());
+        } catch (Exception e) {
+            // 回滚已写入的部分记录，交给对账任务整体补齐
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            log.error("根据价格变化检测限免失败，应用数: {}", event.apps().size(), e);
+        }
+    }
+
+    /**
+     * 按应用当前价格维护限免记录
+     *
+     * @param apps 应用，需包含主键、App Store ID、当前价格和原始价格
+     * @return 处理结果
+     */
+    public Result applyPriceChanges(Collection<App> apps) {
+        Map<String, App> appsByAppstoreId = new LinkedHashMap<>();
+        for (App app : apps) {
+            if (app.getAppId() != null) {
+                appsByAppstoreId.put(app.getAppId(), app);
+            }
+        }
+        if (appsByAppstoreId.isEmpty()) {
+            return Result.EMPTY;
+        }
+
+        Map<String, List<FreePromotion>> activePromotions = findActivePromotions(appsByAppstoreId.keySet());
+        LocalDateTime now = LocalDateTime.now();
+        int created = 0;
+        int updated = 0;
+        List<String> endedIds = new ArrayList<>();
+
+        for (App app : appsByAppstoreId.values()) {
+            BigDecimal currentPrice = app.getCurrentPrice();
+            BigDecimal originalPrice = app.getOriginalPrice();
+            if (currentPrice == null || originalPrice == null) {
+                continue;
+            }
+
+            List<FreePromotion> promotions = activePromotions.getOrDefault(app.getAppId(), List.of());
+            if (currentPrice.compareTo(originalPrice) >= 0) {
+                // 价格恢复，结束进行中的限免
+                promotions.forEach(promotion -> endedIds.add(promotion.getId()));
+            } else if (promotions.isEmpty()) {
+                FreePromotion promotion = buildPromotion(app, now);
+                freePromotionMapper.insert(promotion);
+                created++;
+                log.info("发现新的限免应用: appId={}, type={}, savings={}",
+                        app.getAppId(), promotion.getPromotionType(), promotion.getSavingsAmount());
+            } else {
+                // 仍在优惠中，优惠价格变化时更新记录
+                for (FreePromotion promotion : promotions) {
+                    if (promotion.getPromotionPrice() != null && promotion.getPromotionPrice().compareTo(currentPrice) == 0) {
+                        continue;
+                    }
+                    FreePromotion update = new FreePromotion().setId(promotion.getId()).setUpdatedAt(now);
+                    fillPrice(update, promotion.getOriginalPrice() != null ? promotion.getOriginalPrice() : originalPrice,
+                            currentPrice);
+                    freePromotionMapper.updateById(update);
+                    updated++;
+                }
+            }
+        }
+
+        if (!endedIds.isEmpty()) {
+            freePromotionMapper.update(null, new LambdaUpdateWrapper<FreePromotion>()
+                    .in(FreePromotion::getId, endedIds)
+                    .eq(FreePromotion::getStatus, STATUS_ACTIVE)
+                    .set(FreePromotion::getStatus, STATUS_ENDED)
+                    .set(FreePromotion::getActualEndTime, now)
+                    .set(FreePromotion::getUpdatedAt, now));
+            log.info("价格已恢复，结束限免 {} 条", endedIds.size());
+        }
+
+        Result result = new Result(created, updated, endedIds.size());
+        if (result.total() > 0) {
+            evictCaches();
+        }
+        return result;
+    }
+
+    /**
+     * 结束预估结束时间已到的限免，一条UPDATE按 (status, end_time) 索引范围完成
+     *
+     * @return 结束的限免数
+     */
+    @Scheduled(fixedDelayString = "${appstore.promotion.expire-interval:300000}")
+    public int expirePromotions() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = freePromotionMapper.update(null, new LambdaUpdateWrapper<FreePromotion>()
+                .eq(FreePromotion::getStatus, STATUS_ACTIVE)
+                .le(FreePromotion::getEndTime, now)
+                .set(FreePromotion::getStatus, STATUS_ENDED)
+                .set(FreePromotion::getActualEndTime, now)
+                .set(FreePromotion::getUpdatedAt, now));
+        if (expired > 0) {
+            evictCaches();
+            log.info("到期结束限免 {} 条", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * 定时全量对账：结束价格已恢复的限免，补齐未检测到的优惠中应用
+     */
+    @Scheduled(fixedDelayString = "${appstore.promotion.reconcile-interval:3600000}",
+            initialDelayString = "${appstore.promotion.reconcile-initial-delay:600000}")
+    public void reconcile() {
+        try {
+            Result result = reconcileActivePromotions();
+            int created = detectDiscountedApps();
+            log.info("限免对账完成 - 新发现: {}, 更新: {}, 结束: {}", created, result.updated(), result.ended());
+        } catch (Exception e) {
+            log.error("限免对账失败", e);
+        }
+    }
+
+    /**
+     * 全量对账：由数据库筛出当前价格低于原价的应用，按主键分批检测，只处理优惠中的应用
+     *
+     * @return 新发现的限免数
+     */
+    public int detectDiscountedApps() {
+        int created = 0;
+        String lastId = null;
+        while (true) {
+            List<App> apps = appMapper.selectList(new LambdaQueryWrapper<App>()
+                    .select(App::getId, App::getAppId, App::getCurrentPrice, App::getOriginalPrice)
+                    .apply("current_price < original_price")
+                    .gt(lastId != null, App::getId, lastId)
+                    .orderByAsc(App::getId)
+                    .last("LIMIT " + QUERY_BATCH_SIZE));
+            if (apps.isEmpty()) {
+                break;
+            }
+            created += applyPriceChanges(apps).created();
+            if (apps.size() < QUERY_BATCH_SIZE) {
+                break;
+            }
+            lastId = apps.get(apps.size() - 1).getId();
+        }
+        return created;
+    }
+
+    /**
+     * 对账进行中的限免：按主键分批取出限免及其应用的当前价格，价格已恢复的结束，优惠价格变化的更新
+     *
+     * @return 处理结果
+     */
+    public Result reconcileActivePromotions() {
+        int updated = 0;
+        int ended = 0;
+        String lastId = null;
+        while (true) {
+            List<FreePromotion> promotions = freePromotionMapper.selectList(new LambdaQueryWrapper<FreePromotion>()
+                    .select(FreePromotion::getId, FreePromotion::getAppId)
+                    .eq(FreePromotion::getStatus, STATUS_ACTIVE)
+                    .gt(lastId != null, FreePromotion::getId, lastId)
+                    .orderByAsc(FreePromotion::getId)
+                    .last("LIMIT " + QUERY_BATCH_SIZE));
+            if (promotions.isEmpty()) {
+                break;
+            }
+
+            Set<String> appIds = promotions.stream().map(FreePromotion::getAppId).collect(Collectors.toSet());
+            List<App> apps = appMapper.selectList(new LambdaQueryWrapper<App>()
+                    .select(App::getId, App::getAppId, App::getCurrentPrice, App::getOriginalPrice)
+                    .in(App::getId, appIds));
+            Result result = applyPriceChanges(apps);
+            updated += result.updated();
+            ended += result.ended();
+
+            if (promotions.size() < QUERY_BATCH_SIZE) {
+                break;
+            }
+            lastId = promotions.get(promotions.size() - 1).getId();
+        }
+        return new Result(0, updated, ended);
+    }
+
+    /**
+     * 一次查询取出应用的进行中限免，按App Store ID分组
+     */
+    private Map<String, List<FreePromotion>> findActivePromotions(Set<String> appstoreAppIds) {
+        Map<String, List<FreePromotion>> promotions = new HashMap<>();
+        List<FreePromotion> activePromotions = freePromotionMapper.selectList(new LambdaQueryWrapper<FreePromotion>()
+                .select(FreePromotion::getId, FreePromotion::getAppstoreAppId, FreePromotion::getOriginalPrice,
+                        FreePromotion::getPromotionPrice)
+                .eq(FreePromotion::getStatus, STATUS_ACTIVE)
+                .in(FreePromotion::getAppstoreAppId, appstoreAppIds));
+        for (FreePromotion promotion : activePromotions) {
+            promotions.computeIfAbsent(promotion.getAppstoreAppId(), k -> new ArrayList<>()).add(promotion);
+        }
+        return promotions;
+    }
+
+    private FreePromotion buildPromotion(App app, LocalDateTime now) {
+        FreePromotion promotion = new FreePromotion();
+        promotion.setAppId(app.getId());
+        promotion.setAppstoreAppId(app.getAppId());
+        fillPrice(promotion, app.getOriginalPrice(), app.getCurrentPrice());
+        promotion.setStartTime(now);
+        promotion.setDiscoveredAt(now);
+        promotion.setDiscoverySource("AUTO");
+        promotion.setStatus(STATUS_ACTIVE);
+        promotion.setViewCount(0);
+        promotion.setClickCount(0);
+        promotion.setShareCount(0);
+        promotion.setCreatedAt(now);
+        promotion.setUpdatedAt(now);
+        return promotion;
+    }
+
+    /**
+     * 填充优惠类型、价格、节省金额和折扣率
+     */
+    private void fillPrice(FreePromotion promotion, BigDecimal originalPrice, BigDecimal promotionPrice) {
+        promotion.setPromotionType(promotionPrice.compareTo(BigDecimal.ZERO) == 0 ? "FREE" : "DISCOUNT");
+        promotion.setOriginalPrice(originalPrice);
+        promotion.setPromotionPrice(promotionPrice);
+
+        BigDecimal savingsAmount = originalPrice.subtract(promotionPrice);
+        promotion.setSavingsAmount(savingsAmount);
+        if (originalPrice.compareTo(BigDecimal.ZERO) > 0) {
+            promotion.setDiscountRate(savingsAmount.divide(originalPrice, 4, RoundingMode.HALF_UP)
+                    .multiply(new BigDecimal("100")));
+        }
+    }
+
+    /**
+     * 在事务中写入时提交后再清空缓存，避免并发读取在提交前把旧数据重新放入缓存
+     */
+    private void evictCaches() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clearCaches();
+                }
+            });
+            return;
+        }
+        clearCaches();
+    }
+
+    private void clearCaches() {
+        for (String name : PROMOTION_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    /**
+     * 限免检测结果
+     *
+     * @param created 新建的限免数
+     * @param updated 更新优惠价格的限免数
+     * @param ended   因价格恢复结束的限免数
+     */
+    public record Result(int created, int updated, int ended) {
+
+        public static final Result EMPTY = new Result(0, 0, 0);
+
+        public int total() {
+            return created + updated + ended;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.moon.cloud.appstore.recommend;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.SplittableRandom;
+
+/**
+ * MinHash签名与LSH分桶
+ * <p>
+ * 对文本的词集合计算MinHash签名，两个签名中取值相同的位置占比近似为两个集合的Jaccard相似度。
+ * 签名按行数切成若干带，每带的取值组合作为一个桶键，任一带相同即成为候选对，
+ * 只需对同桶的应用比较签名，不必两两比较全部应用。
+ * 带数为b、每带r行时，相似度为s的两个集合成为候选对的概率为 1-(1-s^r)^b。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public final class MinHashLsh {
+
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+
+    /**
+     * @param bands 带数
+     * @param rows  每带行数，签名长度为 bands * rows
+     * @param seed  哈希种子，相同种子生成的签名才能互相比较
+     */
+    public MinHashLsh(int bands, int rows, long seed) {
+        if (bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("带数和行数必须为正数");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.seeds = new long[bands * rows];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = random.nextLong();
+        }
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    /**
+     * 计算签名
+     *
+     * @param shingles 词集合
+     * @return 签名，集合为空时返回null
+     */
+    public int[] signature(Collection<String> shingles) {
+        if (shingles == null || shingles.isEmpty()) {
+            return null;
+        }
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (String shingle : shingles) {
+            long hash = mix(shingle.hashCode());
+            for (int i = 0; i < seeds.length; i++) {
+                int value = (int) (mix(hash ^ seeds[i]) >>> 33);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * 指定带的桶键，带序号编入键中，不同带的桶互不冲突
+     */
+    public long bucketKey(int[] signature, int band) {
+        long key = band;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[i];
+        }
+        return mix(key);
+    }
+
+    /**
+     * 由签名估计Jaccard相似度
+     */
+    public static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / a.length;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+}
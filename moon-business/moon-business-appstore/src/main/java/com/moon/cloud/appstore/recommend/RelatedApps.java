@@ -0,0 +1,51 @@
+package com.moon.cloud.appstore.recommend;
+
+import java.util.List;
+
+/**
+ * 应用的预计算推荐列表
+ *
+ * @param similar     描述相似的应用，不足时以同分类高评分应用补齐
+ * @param developer   同开发商应用，按评分排序
+ * @param categoryTop 同分类热门应用，按评分人数排序
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public record RelatedApps(List<Neighbor> similar, List<Neighbor> developer, List<Neighbor> categoryTop) {
+
+    public List<Neighbor> get(Kind kind) {
+        return switch (kind) {
+            case SIMILAR -> similar;
+            case DEVELOPER -> developer;
+            case CATEGORY_TOP -> categoryTop;
+        };
+    }
+
+    /**
+     * 推荐类型，field为Redis哈希中的字段名
+     */
+    public enum Kind {
+        SIMILAR("similar"),
+        DEVELOPER("developer"),
+        CATEGORY_TOP("categoryTop");
+
+        private final String field;
+
+        Kind(String field) {
+            this.field = field;
+        }
+
+        public String getField() {
+            return field;
+        }
+    }
+
+    /**
+     * 推荐的应用
+     *
+     * @param appId 应用ID（apps表主键）
+     * @param score 描述相似度，非文本相似的推荐为0
+     */
+    public record Neighbor(String appId, double score) {
+    }
+}
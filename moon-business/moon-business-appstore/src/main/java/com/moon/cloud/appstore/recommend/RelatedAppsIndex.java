@@ -0,0 +1,379 @@
+package com.moon.cloud.appstore.recommend;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.search.SearchTokenizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 相关应用预计算索引
+ * <p>
+ * 后台任务一次性加载全部应用，为每个应用计算三类推荐：
+ * <ul>
+ *     <li>描述相似：名称和描述分词后计算MinHash签名，经LSH分桶找出候选应用，按估计的Jaccard相似度排序</li>
+ *     <li>同开发商：按评分排序</li>
+ *     <li>同分类热门：按评分人数排序</li>
+ * </ul>
+ * 结果以应用ID列表的形式写入每个应用的Redis哈希（同时以主键和App Store ID为键），
+ * 详情页一次读取即可得到推荐列表，再按主键批量回表，不再每次按分类、开发商排序查询。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RelatedAppsIndex {
+
+    private static final String RELATED_APPS_KEY = "appstore:app:related:";
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int WRITE_BATCH_SIZE = 500;
+
+    /**
+     * 参与计算签名的描述最大长度
+     */
+    private static final int DESCRIPTION_LENGTH = 1000;
+
+    /**
+     * 超过该大小的桶多为模板化的相同描述，跳过以免候选对数量平方级增长
+     */
+    private static final int MAX_BUCKET_SIZE = 200;
+
+    /**
+     * 20带 × 3行：相似度0.5的应用成为候选的概率约93%，0.2时约15%
+     */
+    private static final MinHashLsh MIN_HASH = new MinHashLsh(20, 3, 20240927L);
+
+    private final AppMapper appMapper;
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${appstore.recommend.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 每类推荐保存的应用数，请求数量超过该值时回退到数据库查询
+     */
+    @Value("${appstore.recommend.neighbor-count:20}")
+    private int neighborCount = 20;
+
+    /**
+     * 描述相似推荐的最低相似度
+     */
+    @Value("${appstore.recommend.min-similarity:0.3}")
+    private double minSimilarity = 0.3;
+
+    /**
+     * 推荐列表的过期时间，应大于任务执行间隔，保证任务失败一次时仍有数据可用
+     */
+    @Value("${appstore.recommend.ttl-hours:48}")
+    private long ttlHours = 48;
+
+    /**
+     * 读取预计算的推荐列表
+     *
+     * @param appId 应用ID或App Store ID
+     * @param kind  推荐类型
+     * @param limit 需要的数量
+     * @return 推荐列表，未计算、已过期或数量不足以满足请求时返回null
+     */
+    public List<RelatedApps.Neighbor> getNeighbors(String appId, RelatedApps.Kind kind, int limit) {
+        if (!enabled || limit > neighborCount) {
+            return null;
+        }
+        try {
+            Object value = redisTemplate.opsForHash().get(RELATED_APPS_KEY + appId, kind.getField());
+            if (value == null) {
+                return null;
+            }
+            List<RelatedApps.Neighbor> neighbors = decode(value.toString());
+            return neighbors.size() > limit ? neighbors.subList(0, limit) : neighbors;
+        } catch (Exception e) {
+            log.warn("读取预计算推荐失败: appId={}, kind={}", appId, kind, e);
+            return null;
+        }
+    }
+
+    /**
+     * 每天凌晨重新计算推荐列表
+     */
+    @Scheduled(cron = "${appstore.recommend.cron:0 30 4 * * ?}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("计算相关应用推荐失败", e);
+        }
+    }
+
+    /**
+     * 从数据库加载全部应用，计算推荐并写入Redis
+     *
+     * @return 计算的应用数
+     */
+    public synchronized int rebuild() {
+        long start = System.currentTimeMillis();
+
+        // 逐批计算签名，描述不在内存中常驻
+        List<Candidate> candidates = new ArrayList<>();
+        String lastId = null;
+        while (true) {
+            LambdaQueryWrapper<App> queryWrapper = new LambdaQueryWrapper<App>()
+                    .select(App::getId, App::getAppId, App::getName, App::getDescription, App::getDeveloperName,
+                            App::getPrimaryCategoryId, App::getRating, App::getRatingCount)
+                    .gt(lastId != null, App::getId, lastId)
+                    .orderByAsc(App::getId)
+                    .last("LIMIT " + LOAD_BATCH_SIZE);
+            List<App> apps = appMapper.selectList(queryWrapper);
+            for (App app : apps) {
+                candidates.add(toCandidate(app));
+            }
+            if (apps.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+            lastId = apps.get(apps.size() - 1).getId();
+        }
+
+        Map<String, Map<String, String>> batch = new LinkedHashMap<>();
+        compute(candidates, (candidate, related) -> {
+            Map<String, String> fields = new HashMap<>(4);
+            for (RelatedApps.Kind kind : RelatedApps.Kind.values()) {
+                fields.put(kind.getField(), encode(related.get(kind)));
+            }
+            batch.put(candidate.id(), fields);
+            if (StringUtils.hasText(candidate.appstoreId())) {
+                batch.put(candidate.appstoreId(), fields);
+            }
+            if (batch.size() >= WRITE_BATCH_SIZE) {
+                write(batch);
+                batch.clear();
+            }
+        });
+        write(batch);
+
+        log.info("相关应用推荐计算完成，应用数: {}, 耗时: {}ms", candidates.size(), System.currentTimeMillis() - start);
+        return candidates.size();
+    }
+
+    /**
+     * 计算给定应用之间的推荐列表
+     *
+     * @param apps 应用列表，需包含名称、描述、开发商、分类、评分和评分人数
+     * @return 推荐列表，key为apps表主键
+     */
+    public Map<String, RelatedApps> compute(Collection<App> apps) {
+        List<Candidate> candidates = apps.stream().map(RelatedAppsIndex::toCandidate).toList();
+        Map<String, RelatedApps> result = new LinkedHashMap<>();
+        compute(candidates, (candidate, related) -> result.put(candidate.id(), related));
+        return result;
+    }
+
+    private void compute(List<Candidate> candidates, BiConsumer<Candidate, RelatedApps> consumer) {
+        Comparator<Candidate> byRating = Comparator
+                .comparing(Candidate::rating, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(Candidate::ratingCount, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(Candidate::id);
+        Comparator<Candidate> byPopularity = Comparator
+                .comparing(Candidate::ratingCount, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(Candidate::rating, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(Candidate::id);
+
+        Map<String, List<Candidate>> developerByRating = groupAndSort(candidates, Candidate::developerName, byRating);
+        Map<String, List<Candidate>> categoryByRating = groupAndSort(candidates, Candidate::categoryId, byRating);
+        Map<String, List<Candidate>> categoryByPopularity = groupAndSort(candidates, Candidate::categoryId, byPopularity);
+
+        // LSH分桶，带序号已编入桶键
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            int[] signature = candidates.get(i).signature();
+            if (signature == null) {
+                continue;
+            }
+            for (int band = 0; band < MIN_HASH.getBands(); band++) {
+                buckets.computeIfAbsent(MIN_HASH.bucketKey(signature, band), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for (int i = 0; i < candidates.size(); i++) {
+            Candidate candidate = candidates.get(i);
+
+            List<RelatedApps.Neighbor> similar = findSimilar(candidates, buckets, i);
+            List<Candidate> sameCategory = categoryByRating.get(candidate.categoryId());
+            if (similar.size() < neighborCount && sameCategory != null) {
+                // 文本相似的应用不足时，用同分类高评分应用补齐
+                Set<String> present = new HashSet<>();
+                similar.forEach(neighbor -> present.add(neighbor.appId()));
+                for (Candidate other : sameCategory) {
+                    if (similar.size() >= neighborCount) {
+                        break;
+                    }
+                    if (!other.id().equals(candidate.id()) && present.add(other.id())) {
+                        similar.add(new RelatedApps.Neighbor(other.id(), 0));
+                    }
+                }
+            }
+
+            consumer.accept(candidate, new RelatedApps(similar,
+                    top(developerByRating.get(candidate.developerName()), candidate),
+                    top(categoryByPopularity.get(candidate.categoryId()), candidate)));
+        }
+    }
+
+    private List<RelatedApps.Neighbor> findSimilar(List<Candidate> candidates, Map<Long, List<Integer>> buckets, int i) {
+        List<RelatedApps.Neighbor> similar = new ArrayList<>();
+        int[] signature = candidates.get(i).signature();
+        if (signature == null) {
+            return similar;
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        for (int band = 0; band < MIN_HASH.getBands(); band++) {
+            List<Integer> bucket = buckets.get(MIN_HASH.bucketKey(signature, band));
+            if (bucket.size() > MAX_BUCKET_SIZE) {
+                continue;
+            }
+            for (int j : bucket) {
+                if (j == i || !seen.add(j)) {
+                    continue;
+                }
+                double similarity = MinHashLsh.similarity(signature, candidates.get(j).signature());
+                if (similarity >= minSimilarity) {
+                    similar.add(new RelatedApps.Neighbor(candidates.get(j).id(), similarity));
+                }
+            }
+        }
+
+        similar.sort(Comparator.comparingDouble(RelatedApps.Neighbor::score).reversed()
+                .thenComparing(RelatedApps.Neighbor::appId));
+        return similar.size() > neighborCount ? new ArrayList<>(similar.subList(0, neighborCount)) : similar;
+    }
+
+    private List<RelatedApps.Neighbor> top(List<Candidate> group, Candidate self) {
+        List<RelatedApps.Neighbor> neighbors = new ArrayList<>();
+        if (group == null) {
+            return neighbors;
+        }
+        for (Candidate other : group) {
+            if (neighbors.size() >= neighborCount) {
+                break;
+            }
+            if (!other.id().equals(self.id())) {
+                neighbors.add(new RelatedApps.Neighbor(other.id(), 0));
+            }
+        }
+        return neighbors;
+    }
+
+    private static Map<String, List<Candidate>> groupAndSort(List<Candidate> candidates,
+                                                            Function<Candidate, String> key,
+                                                            Comparator<Candidate> comparator) {
+        Map<String, List<Candidate>> groups = new HashMap<>();
+        for (Candidate candidate : candidates) {
+            String value = key.apply(candidate);
+            if (StringUtils.hasText(value)) {
+                groups.computeIfAbsent(value, k -> new ArrayList<>()).add(candidate);
+            }
+        }
+        groups.values().forEach(group -> group.sort(comparator));
+        return groups;
+    }
+
+    private void write(Map<String, Map<String, String>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long ttlSeconds = TimeUnit.HOURS.toSeconds(ttlHours);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            batch.forEach((id, fields) -> {
+                String key = RELATED_APPS_KEY + id;
+                stringConnection.hMSet(key, fields);
+                stringConnection.expire(key, ttlSeconds);
+            });
+            return null;
+        });
+    }
+
+    private static Candidate toCandidate(App app) {
+        String description = app.getDescription();
+        if (description != null && description.length() > DESCRIPTION_LENGTH) {
+            description = description.substring(0, DESCRIPTION_LENGTH);
+        }
+
+        // 单个汉字区分度太低，只保留两个字符及以上的词
+        Set<String> shingles = new HashSet<>();
+        List<String> tokens = new ArrayList<>(SearchTokenizer.tokenize(app.getName()));
+        tokens.addAll(SearchTokenizer.tokenize(description));
+        for (String token : tokens) {
+            if (token.length() >= 2) {
+                shingles.add(token);
+            }
+        }
+        return new Candidate(app.getId(), app.getAppId(), app.getDeveloperName(), app.getPrimaryCategoryId(),
+                app.getRating(), app.getRatingCount(), MIN_HASH.signature(shingles));
+    }
+
+    /**
+     * 编码为 "id:相似度,id,..."，相似度为0时省略
+     */
+    static String encode(List<RelatedApps.Neighbor> neighbors) {
+        StringBuilder sb = new StringBuilder(neighbors.size() * 24);
+        for (RelatedApps.Neighbor neighbor : neighbors) {
+            if (!sb.isEmpty()) {
+                sb.append(',');
+            }
+            sb.append(neighbor.appId());
+            if (neighbor.score() > 0) {
+                sb.append(':').append(Math.round(neighbor.score() * 1000) / 1000.0);
+            }
+        }
+        return sb.toString();
+    }
+
+    static List<RelatedApps.Neighbor> decode(String value) {
+        List<RelatedApps.Neighbor> neighbors = new ArrayList<>();
+        if (value.isEmpty()) {
+            return neighbors;
+        }
+        for (String item : value.split(",")) {
+            int colon = item.indexOf(':');
+            neighbors.add(colon < 0
+                    ? new RelatedApps.Neighbor(item, 0)
+                    : new RelatedApps.Neighbor(item.substring(0, colon), Double.parseDouble(item.substring(colon + 1))));
+        }
+        return neighbors;
+    }
+
+    /**
+     * 参与计算的应用，只保留计算需要的属性和签名
+     */
+    private record Candidate(String id, String appstoreId, String developerName, String categoryId,
+                             BigDecimal rating, Integer ratingCount, int[] signature) {
+    }
+}
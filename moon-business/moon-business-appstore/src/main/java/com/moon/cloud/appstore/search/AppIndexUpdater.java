@@ -0,0 +1,225 @@
+package com.moon.cloud.appstore.search;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.SearchIndex;
+import com.moon.cloud.appstore.event.AppChangedEvent;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.mapper.SearchIndexMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 搜索索引增量更新器
+ * <p>
+ * 订阅 {@link AppChangedEvent}，事务提交后只记录变更的应用ID，由定时任务合并后分批处理：
+ * 重新生成这些应用的search_index记录，并把新版本写入内存索引的增量段。
+ * 同一应用在一个周期内多次变更只处理一次，索引开销与变更量成正比，与应用总数无关。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AppIndexUpdater {
+
+    /**
+     * 每批处理的应用数
+     */
+    private static final int APPLY_BATCH_SIZE = 500;
+
+    /**
+     * 每条upsert语句包含的最大索引记录数
+     */
+    private static final int UPSERT_BATCH_SIZE = 200;
+
+    /**
+     * 描述摘要的最大长度
+     */
+    private static final int SNIPPET_LENGTH = 200;
+
+    private final AppMapper appMapper;
+    private final SearchIndexMapper searchIndexMapper;
+    private final AppSearchEngine appSearchEngine;
+
+    @Value("${appstore.search.index.incremental-enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 待处理的应用ID（apps表主键）
+     */
+    private final Set<String> pendingAppIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 记录变更的应用，在写入事务提交后执行，未提交的数据不会进入索引
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppChanged(AppChangedEvent event) {
+        if (enabled) {
+            pendingAppIds.addAll(event.appIds());
+        }
+    }
+
+    /**
+     * 待处理的变更数
+     */
+    public int getPendingCount() {
+        return pendingAppIds.size();
+    }
+
+    /**
+     * 定时分批处理累积的变更
+     */
+    @Scheduled(fixedDelayString = "${appstore.search.index.apply-interval:5000}")
+    public void applyPendingChanges() {
+        while (!pendingAppIds.isEmpty()) {
+            List<String> batch = new ArrayList<>(APPLY_BATCH_SIZE);
+            Iterator<String> iterator = pendingAppIds.iterator();
+            while (iterator.hasNext() && batch.size() < APPLY_BATCH_SIZE) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            try {
+                applyChanges(batch);
+            } catch (Exception e) {
+                // 放回待处理集合，下个周期重试
+                pendingAppIds.addAll(batch);
+                log.error("增量更新搜索索引失败，应用数: {}", batch.size(), e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 重新索引指定应用：应用存在则更新索引记录，不存在则删除
+     *
+     * @param appIds 应用ID（apps表主键）
+     * @return 更新的应用数
+     */
+    public int applyChanges(Collection<String> appIds) {
+        if (appIds == null || appIds.isEmpty()) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        Set<String> ids = new LinkedHashSet<>(appIds);
+
+        List<App> apps = appMapper.selectList(new LambdaQueryWrapper<App>()
+                .select(App::getId, App::getAppId, App::getBundleId, App::getName, App::getDescription,
+                        App::getDeveloperName, App::getPrimaryCategoryId, App::getPrimaryCategoryName,
+                        App::getCurrentPrice, App::getIsFree, App::getRating, App::getRatingCount,
+                        App::getUpdatedDate)
+                .in(App::getId, ids));
+
+        List<String> deletedIds = new ArrayList<>(ids);
+        List<SearchIndex> indexes = new ArrayList<>(apps.size());
+        for (App app : apps) {
+            deletedIds.remove(app.getId());
+            indexes.add(toSearchIndex(app));
+        }
+
+        for (int from = 0; from < indexes.size(); from += UPSERT_BATCH_SIZE) {
+            int to = Math.min(from + UPSERT_BATCH_SIZE, indexes.size());
+            searchIndexMapper.upsertBatch(indexes.subList(from, to));
+        }
+        if (!deletedIds.isEmpty()) {
+            searchIndexMapper.delete(new LambdaQueryWrapper<SearchIndex>().in(SearchIndex::getAppId, deletedIds));
+        }
+
+        appSearchEngine.applyChanges(apps, loadSignals(apps), deletedIds);
+
+        log.debug("增量更新搜索索引完成，更新: {}, 删除: {}, 耗时: {}ms",
+                apps.size(), deletedIds.size(), System.currentTimeMillis() - start);
+        return apps.size();
+    }
+
+    /**
+     * 由应用生成search_index记录，非空列缺值时写入空串
+     */
+    public static SearchIndex toSearchIndex(App app) {
+        LocalDateTime now = LocalDateTime.now();
+        PinyinConverter.Pinyin namePinyin = PinyinConverter.convert(app.getName());
+        PinyinConverter.Pinyin developerPinyin = PinyinConverter.convert(app.getDeveloperName());
+
+        return new SearchIndex()
+                .setId(IdWorker.getIdStr())
+                .setAppId(app.getId())
+                .setAppstoreAppId(nullToEmpty(app.getAppId()))
+                .setAppName(nullToEmpty(app.getName()))
+                .setAppNamePinyin(namePinyin != null ? namePinyin.full() : null)
+                .setDeveloperName(nullToEmpty(app.getDeveloperName()))
+                .setDeveloperNamePinyin(developerPinyin != null ? developerPinyin.full() : null)
+                .setKeywords(buildKeywords(app))
+                .setCategoryNames(app.getPrimaryCategoryName())
+                .setDescriptionSnippet(truncate(app.getDescription()))
+                .setCreatedAt(now)
+                .setUpdatedAt(now);
+    }
+
+    /**
+     * 加载应用的排序信号
+     */
+    private Map<String, SearchIndex> loadSignals(List<App> apps) {
+        Map<String, SearchIndex> signals = new HashMap<>();
+        if (apps.isEmpty()) {
+            return signals;
+        }
+        List<SearchIndex> indexes = searchIndexMapper.selectList(new LambdaQueryWrapper<SearchIndex>()
+                .select(SearchIndex::getAppId, SearchIndex::getSearchWeight, SearchIndex::getPopularityScore,
+                        SearchIndex::getQualityScore, SearchIndex::getClickRate)
+                .in(SearchIndex::getAppId, apps.stream().map(App::getId).toList()));
+        for (SearchIndex index : indexes) {
+            signals.put(index.getAppId(), index);
+        }
+        return signals;
+    }
+
+    /**
+     * 构建关键词索引
+     */
+    private static String buildKeywords(App app) {
+        List<String> keywords = new ArrayList<>();
+
+        if (app.getName() != null) {
+            keywords.add(app.getName());
+        }
+        if (app.getDeveloperName() != null) {
+            keywords.add(app.getDeveloperName());
+        }
+        if (app.getPrimaryCategoryName() != null) {
+            keywords.add(app.getPrimaryCategoryName());
+        }
+        if (app.getBundleId() != null) {
+            keywords.add(app.getBundleId());
+        }
+
+        return String.join(",", keywords);
+    }
+
+    private static String truncate(String description) {
+        if (description == null || description.length() <= SNIPPET_LENGTH) {
+            return description;
+        }
+        return description.substring(0, SNIPPET_LENGTH);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
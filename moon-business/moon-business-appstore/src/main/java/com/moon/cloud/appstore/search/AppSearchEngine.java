@@ -0,0 +1,774 @@
+package com.moon.cloud.appstore.search;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.moon.cloud.appstore.dto.AppSearchDTO;
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.SearchIndex;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.mapper.SearchIndexMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 应用内存搜索引擎
+ * <p>
+ * 应用名称、开发者、Bundle ID和描述分字段建立倒排索引，倒排列表压缩存储（见 {@link PostingList}）。
+ * 查询时按BM25计算各字段相关度并按字段权重求和，再乘以由search_index表热度、质量、点击率得到的权重，
+ * 分类、价格等筛选条件直接在内存中的应用属性上完成，不访问数据库。
+ * <p>
+ * 索引由主段和增量段组成，以不可变快照的形式整体替换，查询无需加锁：
+ * <ul>
+ *     <li>应用变更通过 {@link #applyChanges} 写入增量段，主段中的旧版本标记删除，开销只与变更量有关</li>
+ *     <li>增量超过阈值时把主段和增量段合并为新的主段，不需要重新读库和分词</li>
+ *     <li>定时从数据库全量重建，新快照构建期间旧快照继续提供查询，构建完成后切换版本</li>
+ * </ul>
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AppSearchEngine {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final double POPULARITY_WEIGHT = 0.3;
+    private static final double QUALITY_WEIGHT = 0.3;
+    private static final double CLICK_RATE_WEIGHT = 0.5;
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final AppMapper appMapper;
+    private final SearchIndexMapper searchIndexMapper;
+
+    @Value("${appstore.search.engine.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 描述字段参与索引的最大长度，避免长描述撑大索引
+     */
+    @Value("${appstore.search.engine.description-length:1000}")
+    private int descriptionLength = 1000;
+
+    /**
+     * 增量段中的变更数超过该值时合并到主段
+     */
+    @Value("${appstore.search.engine.compaction-threshold:2000}")
+    private int compactionThreshold = 2000;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * 上次合并以来新增或更新的应用，key为apps表主键，仅在持有对象锁时访问
+     */
+    private final Map<String, PendingApp> deltaApps = new LinkedHashMap<>();
+
+    /**
+     * 上次合并以来删除的应用
+     */
+    private final Set<String> deltaDeleted = new HashSet<>();
+
+    /**
+     * 索引字段及其权重
+     */
+    public enum Field {
+        NAME(3.0),
+        DEVELOPER(2.0),
+        BUNDLE_ID(1.5),
+        DESCRIPTION(1.0);
+
+        private final double weight;
+
+        Field(double weight) {
+            this.weight = weight;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+    }
+
+    /**
+     * 索引是否已构建完成，可以提供查询
+     */
+    public boolean isReady() {
+        return enabled && snapshot != null;
+    }
+
+    /**
+     * 已索引的应用数
+     */
+    public int size() {
+        Snapshot current = snapshot;
+        return current != null ? current.liveCount : 0;
+    }
+
+    /**
+     * 当前快照版本，每次替换快照加一
+     */
+    public long getVersion() {
+        Snapshot current = snapshot;
+        return current != null ? current.version : 0;
+    }
+
+    /**
+     * 增量段中尚未合并的变更数
+     */
+    public synchronized int getPendingChangeCount() {
+        return deltaApps.size() + deltaDeleted.size();
+    }
+
+    /**
+     * 定时从数据库全量重建索引，校正遗漏的变更并刷新排序信号
+     */
+    @Scheduled(fixedDelayString = "${appstore.search.engine.refresh-interval:21600000}",
+            initialDelayString = "${appstore.search.engine.initial-delay:10000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("重建内存搜索索引失败", e);
+        }
+    }
+
+    /**
+     * 从数据库全量重建索引
+     * 构建期间旧快照继续提供查询；构建期间提交的变更在构建完成后由 {@link #applyChanges} 补上
+     *
+     * @return 索引的应用数
+     */
+    public synchronized int rebuild() {
+        long start = System.currentTimeMillis();
+
+        Map<String, SearchIndex> signals = loadSignals();
+        SegmentBuilder builder = new SegmentBuilder(descriptionLength);
+
+        // 按主键分批加载，只查询索引需要的列
+        String lastId = null;
+        while (true) {
+            LambdaQueryWrapper<App> queryWrapper = new LambdaQueryWrapper<App>()
+                    .select(App::getId, App::getAppId, App::getBundleId, App::getName, App::getDescription,
+                            App::getDeveloperName, App::getPrimaryCategoryId, App::getCurrentPrice, App::getIsFree,
+                            App::getRating, App::getRatingCount, App::getUpdatedDate)
+                    .gt(lastId != null, App::getId, lastId)
+                    .orderByAsc(App::getId)
+                    .last("LIMIT " + LOAD_BATCH_SIZE);
+            List<App> apps = appMapper.selectList(queryWrapper);
+            for (App app : apps) {
+                builder.add(app, signals.get(app.getId()));
+            }
+            if (apps.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+            lastId = apps.get(apps.size() - 1).getId();
+        }
+
+        Segment main = builder.build();
+        swap(main);
+
+        log.info("内存搜索索引构建完成，版本: {}, 应用数: {}, 词项数: {}, 倒排列表: {}KB, 耗时: {}ms",
+                snapshot.version, main.size(), main.termCount(), main.postingBytes() / 1024,
+                System.currentTimeMillis() - start);
+        return main.size();
+    }
+
+    /**
+     * 使用给定的应用和排序信号重建索引
+     *
+     * @param apps    应用列表
+     * @param signals 排序信号，key为apps表主键
+     * @return 索引的应用数
+     */
+    public synchronized int rebuild(Collection<App> apps, Map<String, SearchIndex> signals) {
+        SegmentBuilder builder = new SegmentBuilder(descriptionLength);
+        for (App app : apps) {
+            builder.add(app, signals != null ? signals.get(app.getId()) : null);
+        }
+        Segment main = builder.build();
+        swap(main);
+        return main.size();
+    }
+
+    /**
+     * 应用增量变更
+     * 变更的应用重新分词写入增量段，主段中的旧版本标记删除
+     *
+     * @param apps       新增或更新的应用
+     * @param signals    排序信号，key为apps表主键，可为null
+     * @param deletedIds 已删除的应用ID（apps表主键）
+     */
+    public synchronized void applyChanges(Collection<App> apps, Map<String, SearchIndex> signals,
+                                          Collection<String> deletedIds) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // 索引尚未构建，首次构建时会从数据库读到这些变更
+            return;
+        }
+
+        for (App app : apps) {
+            deltaDeleted.remove(app.getId());
+            deltaApps.put(app.getId(), new PendingApp(app, signals != null ? signals.get(app.getId()) : null));
+        }
+        for (String id : deletedIds) {
+            deltaApps.remove(id);
+            deltaDeleted.add(id);
+        }
+
+        SegmentBuilder builder = new SegmentBuilder(descriptionLength);
+        for (PendingApp pending : deltaApps.values()) {
+            builder.add(pending.app(), pending.signal());
+        }
+        Segment delta = builder.build();
+
+        BitSet deleted = new BitSet(current.main.size());
+        markDeleted(current.main, deltaApps.keySet(), deleted);
+        markDeleted(current.main, deltaDeleted, deleted);
+
+        snapshot = new Snapshot(current.main, deleted, delta, current.version + 1);
+
+        if (getPendingChangeCount() > compactionThreshold) {
+            compact();
+        }
+    }
+
+    /**
+     * 合并主段和增量段：跳过已删除的文档，重新编号后拼接倒排列表，无需重新分词
+     */
+    public synchronized void compact() {
+        Snapshot current = snapshot;
+        if (current == null || (current.delta.size() == 0 && current.deleted.isEmpty())) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        Segment main = current.main;
+        Segment delta = current.delta;
+        int[] remap = new int[main.size()];
+        List<IndexedApp> docs = new ArrayList<>(current.liveCount);
+        int fieldCount = Field.values().length;
+        int[][] lengths = new int[fieldCount][current.liveCount];
+
+        for (int doc = 0; doc < main.size(); doc++) {
+            if (current.deleted.get(doc)) {
+                remap[doc] = -1;
+                continue;
+            }
+            remap[doc] = docs.size();
+            for (int f = 0; f < fieldCount; f++) {
+                lengths[f][docs.size()] = main.lengths[f][doc];
+            }
+            docs.add(main.docs[doc]);
+        }
+        int offset = docs.size();
+        for (int doc = 0; doc < delta.size(); doc++) {
+            for (int f = 0; f < fieldCount; f++) {
+                lengths[f][offset + doc] = delta.lengths[f][doc];
+            }
+            docs.add(delta.docs[doc]);
+        }
+
+        List<Map<String, PostingList>> postings = new ArrayList<>(fieldCount);
+        for (int f = 0; f < fieldCount; f++) {
+            Map<String, PostingList> mainPostings = main.postings.get(f);
+            Map<String, PostingList> deltaPostings = delta.postings.get(f);
+            Map<String, PostingList> merged = new HashMap<>(mainPostings.size() * 4 / 3 + 1);
+
+            for (Map.Entry<String, PostingList> entry : mainPostings.entrySet()) {
+                PostingList.Builder builder = new PostingList.Builder();
+                PostingList.Cursor cursor = entry.getValue().cursor();
+                while (cursor.next()) {
+                    if (remap[cursor.doc()] >= 0) {
+                        builder.add(remap[cursor.doc()], cursor.termFreq());
+                    }
+                }
+                appendPostings(builder, deltaPostings.get(entry.getKey()), offset);
+                PostingList list = builder.build();
+                if (list.getDocFreq() > 0) {
+                    merged.put(entry.getKey(), list);
+                }
+            }
+            for (Map.Entry<String, PostingList> entry : deltaPostings.entrySet()) {
+                if (!mainPostings.containsKey(entry.getKey())) {
+                    PostingList.Builder builder = new PostingList.Builder();
+                    appendPostings(builder, entry.getValue(), offset);
+                    merged.put(entry.getKey(), builder.build());
+                }
+            }
+            postings.add(merged);
+        }
+
+        deltaApps.clear();
+        deltaDeleted.clear();
+        snapshot = new Snapshot(new Segment(docs.toArray(new IndexedApp[0]), postings, lengths),
+                new BitSet(), Segment.EMPTY, current.version + 1);
+
+        log.info("内存搜索索引合并完成，版本: {}, 应用数: {}, 耗时: {}ms",
+                current.version + 1, docs.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 搜索应用
+     *
+     * @param searchDTO 搜索参数，需已校验分页参数
+     * @return 命中总数及当前页的应用ID
+     */
+    public SearchHits search(AppSearchDTO searchDTO) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("内存搜索索引尚未构建");
+        }
+
+        // 主段文档号在前，增量段文档号接在主段之后
+        int docCount = current.main.size() + current.delta.size();
+        Set<String> terms = SearchTokenizer.tokenizeQuery(searchDTO.getKeyword());
+        double[] scores = null;
+        int[] matchedTerms = null;
+
+        if (!terms.isEmpty()) {
+            scores = new double[docCount];
+            matchedTerms = new int[docCount];
+            int[] lastTerm = new int[docCount];
+            int termNo = 0;
+
+            for (String term : terms) {
+                termNo++;
+                boolean found = false;
+                for (Field field : fieldsOf(searchDTO.getSearchScope())) {
+                    PostingList mainPostings = current.main.postings.get(field.ordinal()).get(term);
+                    PostingList deltaPostings = current.delta.postings.get(field.ordinal()).get(term);
+                    if (mainPostings == null && deltaPostings == null) {
+                        continue;
+                    }
+                    found = true;
+
+                    // 主段中已删除的文档仍计入文档频率，合并后才会剔除
+                    int docFreq = (mainPostings != null ? mainPostings.getDocFreq() : 0)
+                            + (deltaPostings != null ? deltaPostings.getDocFreq() : 0);
+                    double idf = Math.log(1 + Math.max(0, current.liveCount - docFreq + 0.5) / (docFreq + 0.5));
+                    double weight = field.getWeight() * idf;
+                    double avgLength = current.avgLengths[field.ordinal()];
+
+                    score(mainPostings, current.main.lengths[field.ordinal()], 0, weight, avgLength,
+                            scores, matchedTerms, lastTerm, termNo);
+                    score(deltaPostings, current.delta.lengths[field.ordinal()], current.main.size(), weight, avgLength,
+                            scores, matchedTerms, lastTerm, termNo);
+                }
+                // 任一查询词在所有字段中都不存在，不可能有结果
+                if (!found) {
+                    return new SearchHits(0, List.of());
+                }
+            }
+        }
+
+        Filter filter = new Filter(searchDTO);
+        int[] candidates = new int[16];
+        int total = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (doc < current.main.size() && current.deleted.get(doc)) {
+                continue;
+            }
+            if (matchedTerms != null && matchedTerms[doc] != terms.size()) {
+                continue;
+            }
+            if (!filter.test(current.doc(doc))) {
+                continue;
+            }
+            if (total == candidates.length) {
+                candidates = Arrays.copyOf(candidates, total * 2);
+            }
+            candidates[total++] = doc;
+        }
+
+        double[] relevance = new double[docCount];
+        for (int i = 0; i < total; i++) {
+            int doc = candidates[i];
+            relevance[doc] = (scores != null ? scores[doc] : 1) * current.doc(doc).boost();
+        }
+
+        int from = (searchDTO.getPage() - 1) * searchDTO.getSize();
+        if (from >= total) {
+            return new SearchHits(total, List.of());
+        }
+        int to = Math.min(from + searchDTO.getSize(), total);
+
+        Comparator<Integer> byRelevance = (a, b) -> Double.compare(relevance[b], relevance[a]);
+        Comparator<Integer> comparator = sortComparator(current, searchDTO, byRelevance);
+
+        // 只保留到当前页为止的结果，不对全部命中排序
+        PriorityQueue<Integer> top = new PriorityQueue<>(to + 1, comparator.reversed());
+        for (int i = 0; i < total; i++) {
+            top.offer(candidates[i]);
+            if (top.size() > to) {
+                top.poll();
+            }
+        }
+        List<Integer> ordered = new ArrayList<>(top);
+        ordered.sort(comparator);
+
+        List<String> appIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            appIds.add(current.doc(ordered.get(i)).id());
+        }
+        return new SearchHits(total, appIds);
+    }
+
+    private static void score(PostingList postings, int[] lengths, int offset, double weight, double avgLength,
+                              double[] scores, int[] matchedTerms, int[] lastTerm, int termNo) {
+        if (postings == null) {
+            return;
+        }
+        PostingList.Cursor cursor = postings.cursor();
+        while (cursor.next()) {
+            int tf = cursor.termFreq();
+            double norm = K1 * (1 - B + B * lengths[cursor.doc()] / avgLength);
+            int doc = offset + cursor.doc();
+            scores[doc] += weight * tf * (K1 + 1) / (tf + norm);
+            if (lastTerm[doc] != termNo) {
+                lastTerm[doc] = termNo;
+                matchedTerms[doc]++;
+            }
+        }
+    }
+
+    private static void appendPostings(PostingList.Builder builder, PostingList postings, int offset) {
+        if (postings == null) {
+            return;
+        }
+        PostingList.Cursor cursor = postings.cursor();
+        while (cursor.next()) {
+            builder.add(offset + cursor.doc(), cursor.termFreq());
+        }
+    }
+
+    private static void markDeleted(Segment main, Collection<String> ids, BitSet deleted) {
+        for (String id : ids) {
+            Integer doc = main.docById.get(id);
+            if (doc != null) {
+                deleted.set(doc);
+            }
+        }
+    }
+
+    /**
+     * 替换为新的主段，构建前应用的增量已包含在新主段中
+     */
+    private void swap(Segment main) {
+        Snapshot current = snapshot;
+        deltaApps.clear();
+        deltaDeleted.clear();
+        snapshot = new Snapshot(main, new BitSet(), Segment.EMPTY, current != null ? current.version + 1 : 1);
+    }
+
+    /**
+     * 加载search_index表中的排序信号，只查询需要的列
+     */
+    private Map<String, SearchIndex> loadSignals() {
+        Map<String, SearchIndex> signals = new HashMap<>();
+        try {
+            List<SearchIndex> indexes = searchIndexMapper.selectList(new LambdaQueryWrapper<SearchIndex>()
+                    .select(SearchIndex::getAppId, SearchIndex::getSearchWeight, SearchIndex::getPopularityScore,
+                            SearchIndex::getQualityScore, SearchIndex::getClickRate));
+            for (SearchIndex index : indexes) {
+                signals.put(index.getAppId(), index);
+            }
+        } catch (Exception e) {
+            log.warn("加载搜索排序信号失败，使用应用评分计算权重", e);
+        }
+        return signals;
+    }
+
+    private Field[] fieldsOf(String searchScope) {
+        if ("name".equals(searchScope)) {
+            return new Field[]{Field.NAME};
+        } else if ("developer".equals(searchScope)) {
+            return new Field[]{Field.DEVELOPER};
+        } else if ("description".equals(searchScope)) {
+            return new Field[]{Field.DESCRIPTION};
+        }
+        return Field.values();
+    }
+
+    private Comparator<Integer> sortComparator(Snapshot current, AppSearchDTO searchDTO, Comparator<Integer> byRelevance) {
+        boolean desc = "desc".equalsIgnoreCase(searchDTO.getSortOrder());
+        String sortBy = searchDTO.getSortBy();
+
+        Comparator<Integer> comparator;
+        if ("rating".equals(sortBy)) {
+            comparator = byAttribute(current, IndexedApp::rating, desc);
+        } else if ("downloads".equals(sortBy)) {
+            comparator = byAttribute(current, IndexedApp::ratingCount, desc);
+        } else if ("price".equals(sortBy)) {
+            comparator = byAttribute(current, IndexedApp::currentPrice, desc);
+        } else if ("updated".equals(sortBy)) {
+            comparator = byAttribute(current, IndexedApp::updatedDate, desc);
+        } else {
+            return byRelevance.thenComparingInt(doc -> doc);
+        }
+        return comparator.thenComparing(byRelevance).thenComparingInt(doc -> doc);
+    }
+
+    /**
+     * 按应用属性排序，空值始终排在最后
+     */
+    private <T extends Comparable<? super T>> Comparator<Integer> byAttribute(Snapshot current,
+                                                                             Function<IndexedApp, T> attribute,
+                                                                             boolean desc) {
+        Comparator<T> order = desc ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        return Comparator.comparing(doc -> attribute.apply(current.doc(doc)), Comparator.nullsLast(order));
+    }
+
+    /**
+     * 根据search_index表的热度、质量、点击率和搜索权重计算排序权重；
+     * 没有对应记录时用评分人数近似热度、评分近似质量
+     */
+    static double boostOf(App app, SearchIndex signal) {
+        double popularity;
+        double quality;
+        double clickRate = 0;
+        int searchWeight = 1;
+
+        if (signal != null && signal.getPopularityScore() != null) {
+            popularity = signal.getPopularityScore().doubleValue();
+        } else {
+            int ratingCount = app.getRatingCount() != null ? app.getRatingCount() : 0;
+            popularity = Math.min(100, Math.log10(1 + ratingCount) * 20);
+        }
+        if (signal != null && signal.getQualityScore() != null) {
+            quality = signal.getQualityScore().doubleValue();
+        } else {
+            quality = app.getRating() != null ? app.getRating().doubleValue() * 20 : 0;
+        }
+        if (signal != null && signal.getClickRate() != null) {
+            clickRate = signal.getClickRate().doubleValue();
+        }
+        if (signal != null && signal.getSearchWeight() != null && signal.getSearchWeight() > 0) {
+            searchWeight = signal.getSearchWeight();
+        }
+
+        return searchWeight * (1 + POPULARITY_WEIGHT * popularity / 100
+                + QUALITY_WEIGHT * quality / 100
+                + CLICK_RATE_WEIGHT * clickRate);
+    }
+
+    /**
+     * 筛选条件，与原SQL查询的筛选语义一致
+     */
+    private static final class Filter {
+
+        private final Set<String> categoryIds;
+        private final String developerName;
+        private final BigDecimal minPrice;
+        private final BigDecimal maxPrice;
+        private final boolean freeOnly;
+        private final BigDecimal minRating;
+
+        private Filter(AppSearchDTO searchDTO) {
+            this.categoryIds = searchDTO.getCategoryIds() != null && !searchDTO.getCategoryIds().isEmpty()
+                    ? new HashSet<>(searchDTO.getCategoryIds()) : null;
+            this.developerName = StringUtils.hasText(searchDTO.getDeveloperName()) ? searchDTO.getDeveloperName() : null;
+            this.minPrice = searchDTO.getMinPrice();
+            this.maxPrice = searchDTO.getMaxPrice();
+            this.freeOnly = Boolean.TRUE.equals(searchDTO.getIsFree());
+            this.minRating = searchDTO.getMinRating();
+        }
+
+        private boolean test(IndexedApp app) {
+            if (categoryIds != null && !categoryIds.contains(app.categoryId())) {
+                return false;
+            }
+            if (developerName != null && !developerName.equals(app.developerName())) {
+                return false;
+            }
+            if (minPrice != null && (app.currentPrice() == null || app.currentPrice().compareTo(minPrice) < 0)) {
+                return false;
+            }
+            if (maxPrice != null && (app.currentPrice() == null || app.currentPrice().compareTo(maxPrice) > 0)) {
+                return false;
+            }
+            if (freeOnly && !Boolean.TRUE.equals(app.isFree())) {
+                return false;
+            }
+            return minRating == null || (app.rating() != null && app.rating().compareTo(minRating) >= 0);
+        }
+    }
+
+    /**
+     * 索引中保存的应用属性，用于筛选和排序
+     */
+    private record IndexedApp(String id, String categoryId, String developerName, BigDecimal currentPrice,
+                              Boolean isFree, BigDecimal rating, Integer ratingCount, LocalDateTime updatedDate,
+                              double boost) {
+    }
+
+    /**
+     * 等待写入增量段的应用
+     */
+    private record PendingApp(App app, SearchIndex signal) {
+    }
+
+    /**
+     * 不可变的索引快照：主段、主段中已删除文档的标记和增量段
+     */
+    private static final class Snapshot {
+
+        private final Segment main;
+        private final BitSet deleted;
+        private final Segment delta;
+        private final long version;
+        private final int liveCount;
+        private final double[] avgLengths;
+
+        private Snapshot(Segment main, BitSet deleted, Segment delta, long version) {
+            this.main = main;
+            this.deleted = deleted;
+            this.delta = delta;
+            this.version = version;
+            this.liveCount = main.size() - deleted.cardinality() + delta.size();
+
+            int fieldCount = Field.values().length;
+            int docCount = main.size() + delta.size();
+            this.avgLengths = new double[fieldCount];
+            for (int f = 0; f < fieldCount; f++) {
+                long sum = main.totalLengths[f] + delta.totalLengths[f];
+                // 平均长度至少为1，避免空字段导致除零
+                avgLengths[f] = docCount > 0 ? Math.max(1.0, (double) sum / docCount) : 1.0;
+            }
+        }
+
+        private IndexedApp doc(int doc) {
+            return doc < main.size() ? main.docs[doc] : delta.docs[doc - main.size()];
+        }
+    }
+
+    /**
+     * 不可变的索引段
+     */
+    private static final class Segment {
+
+        private static final Segment EMPTY = new SegmentBuilder(0).build();
+
+        private final IndexedApp[] docs;
+        private final List<Map<String, PostingList>> postings;
+        private final int[][] lengths;
+        private final long[] totalLengths;
+        private final Map<String, Integer> docById;
+
+        private Segment(IndexedApp[] docs, List<Map<String, PostingList>> postings, int[][] lengths) {
+            this.docs = docs;
+            this.postings = postings;
+            this.lengths = lengths;
+            this.totalLengths = new long[lengths.length];
+            for (int f = 0; f < lengths.length; f++) {
+                for (int length : lengths[f]) {
+                    totalLengths[f] += length;
+                }
+            }
+            this.docById = new HashMap<>(docs.length * 4 / 3 + 1);
+            for (int doc = 0; doc < docs.length; doc++) {
+                docById.put(docs[doc].id(), doc);
+            }
+        }
+
+        private int size() {
+            return docs.length;
+        }
+
+        private int termCount() {
+            return postings.stream().mapToInt(Map::size).sum();
+        }
+
+        private long postingBytes() {
+            return postings.stream()
+                    .flatMap(map -> map.values().stream())
+                    .mapToLong(PostingList::getSizeInBytes)
+                    .sum();
+        }
+    }
+
+    /**
+     * 索引段构建器，应用按加入顺序编号
+     */
+    private static final class SegmentBuilder {
+
+        private final int descriptionLength;
+        private final List<IndexedApp> docs = new ArrayList<>();
+        private final List<Map<String, PostingList.Builder>> postings = new ArrayList<>();
+        private final List<List<Integer>> lengths = new ArrayList<>();
+
+        private SegmentBuilder(int descriptionLength) {
+            this.descriptionLength = descriptionLength;
+            for (int i = 0; i < Field.values().length; i++) {
+                postings.add(new HashMap<>());
+                lengths.add(new ArrayList<>());
+            }
+        }
+
+        private void add(App app, SearchIndex signal) {
+            int doc = docs.size();
+            docs.add(new IndexedApp(app.getId(), app.getPrimaryCategoryId(), app.getDeveloperName(),
+                    app.getCurrentPrice(), app.getIsFree(), app.getRating(), app.getRatingCount(),
+                    app.getUpdatedDate(), boostOf(app, signal)));
+
+            String description = app.getDescription();
+            if (description != null && description.length() > descriptionLength) {
+                description = description.substring(0, descriptionLength);
+            }
+            addField(Field.NAME, doc, app.getName());
+            addField(Field.DEVELOPER, doc, app.getDeveloperName());
+            addField(Field.BUNDLE_ID, doc, app.getBundleId());
+            addField(Field.DESCRIPTION, doc, description);
+        }
+
+        private void addField(Field field, int doc, String text) {
+            List<String> tokens = SearchTokenizer.tokenize(text);
+            lengths.get(field.ordinal()).add(tokens.size());
+
+            Map<String, Integer> termFreqs = new HashMap<>();
+            for (String token : tokens) {
+                termFreqs.merge(token, 1, Integer::sum);
+            }
+            Map<String, PostingList.Builder> fieldPostings = postings.get(field.ordinal());
+            termFreqs.forEach((term, tf) ->
+                    fieldPostings.computeIfAbsent(term, k -> new PostingList.Builder()).add(doc, tf));
+        }
+
+        private Segment build() {
+            int fieldCount = Field.values().length;
+            List<Map<String, PostingList>> builtPostings = new ArrayList<>(fieldCount);
+            int[][] builtLengths = new int[fieldCount][];
+
+            for (int f = 0; f < fieldCount; f++) {
+                Map<String, PostingList> fieldPostings = new HashMap<>(postings.get(f).size() * 4 / 3 + 1);
+                postings.get(f).forEach((term, builder) -> fieldPostings.put(term, builder.build()));
+                builtPostings.add(fieldPostings);
+                builtLengths[f] = lengths.get(f).stream().mapToInt(Integer::intValue).toArray();
+            }
+            return new Segment(docs.toArray(new IndexedApp[0]), builtPostings, builtLengths);
+        }
+    }
+}
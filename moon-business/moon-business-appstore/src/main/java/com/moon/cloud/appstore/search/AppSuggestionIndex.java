@@ -0,0 +1,175 @@
+package com.moon.cloud.appstore.search;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.SearchIndex;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.mapper.SearchIndexMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 应用名称搜索建议索引
+ * <p>
+ * 以应用名称和开发者名称及其全拼、拼音首字母为检索键构建 {@link SuggestionTrie}，
+ * 输入"微"、"weix"、"wx"都能提示"微信"，建议按与搜索相同的热度、质量权重排序，
+ * 开发者取其应用中的最高权重。建议树只做前缀匹配，"荣耀"不会提示"王者荣耀"，
+ * 包含匹配由调用方在建议不足时查询数据库补齐。
+ * 建议树在后台线程构建完成后整体替换，查询不加锁、不访问Redis和数据库。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AppSuggestionIndex {
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final AppMapper appMapper;
+    private final SearchIndexMapper searchIndexMapper;
+
+    @Value("${appstore.search.suggestion.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 每个前缀保存的建议数，即单次可返回的最大建议数
+     */
+    @Value("${appstore.search.suggestion.top-k:10}")
+    private int topK = 10;
+
+    private volatile SuggestionTrie trie;
+
+    /**
+     * 建议树是否已构建完成
+     */
+    public boolean isReady() {
+        return enabled && trie != null;
+    }
+
+    /**
+     * 前缀建议
+     *
+     * @param keyword 用户输入，可以是名称、全拼或首字母的前缀
+     * @param limit   最大返回数
+     * @return 应用名称和开发者名称列表
+     */
+    public List<String> suggest(String keyword, int limit) {
+        SuggestionTrie current = trie;
+        if (current == null) {
+            throw new IllegalStateException("搜索建议索引尚未构建");
+        }
+        return current.suggest(keyword, limit);
+    }
+
+    /**
+     * 定时从数据库重建建议树
+     */
+    @Scheduled(fixedDelayString = "${appstore.search.suggestion.refresh-interval:600000}",
+            initialDelayString = "${appstore.search.suggestion.initial-delay:10000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("重建搜索建议索引失败", e);
+        }
+    }
+
+    /**
+     * 从数据库重建建议树
+     *
+     * @return 建议条数
+     */
+    public synchronized int rebuild() {
+        long start = System.currentTimeMillis();
+
+        Map<String, SearchIndex> signals = new HashMap<>();
+        try {
+            List<SearchIndex> indexes = searchIndexMapper.selectList(new LambdaQueryWrapper<SearchIndex>()
+                    .select(SearchIndex::getAppId, SearchIndex::getSearchWeight, SearchIndex::getPopularityScore,
+                            SearchIndex::getQualityScore, SearchIndex::getClickRate));
+            for (SearchIndex index : indexes) {
+                signals.put(index.getAppId(), index);
+            }
+        } catch (Exception e) {
+            log.warn("加载搜索排序信号失败，使用应用评分计算权重", e);
+        }
+
+        SuggestionTrie.Builder builder = new SuggestionTrie.Builder();
+        String lastId = null;
+        while (true) {
+            LambdaQueryWrapper<App> queryWrapper = new LambdaQueryWrapper<App>()
+                    .select(App::getId, App::getName, App::getDeveloperName, App::getRating, App::getRatingCount)
+                    .gt(lastId != null, App::getId, lastId)
+                    .orderByAsc(App::getId)
+                    .last("LIMIT " + LOAD_BATCH_SIZE);
+            List<App> apps = appMapper.selectList(queryWrapper);
+            for (App app : apps) {
+                add(builder, app, signals.get(app.getId()));
+            }
+            if (apps.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+            lastId = apps.get(apps.size() - 1).getId();
+        }
+
+        SuggestionTrie built = builder.build(topK);
+        trie = built;
+
+        log.info("搜索建议索引构建完成，建议数: {}, 耗时: {}ms", built.size(), System.currentTimeMillis() - start);
+        return built.size();
+    }
+
+    /**
+     * 使用给定的应用和排序信号重建建议树
+     *
+     * @param apps    应用列表
+     * @param signals 排序信号，key为apps表主键
+     * @return 建议条数
+     */
+    public synchronized int rebuild(Collection<App> apps, Map<String, SearchIndex> signals) {
+        SuggestionTrie.Builder builder = new SuggestionTrie.Builder();
+        for (App app : apps) {
+            add(builder, app, signals != null ? signals.get(app.getId()) : null);
+        }
+        trie = builder.build(topK);
+        return trie.size();
+    }
+
+    private void add(SuggestionTrie.Builder builder, App app, SearchIndex signal) {
+        double weight = AppSearchEngine.boostOf(app, signal);
+        for (String text : new String[]{app.getName(), app.getDeveloperName()}) {
+            if (text == null || text.isBlank()) {
+                continue;
+            }
+            builder.add(text.trim(), weight, keysOf(text));
+        }
+    }
+
+    /**
+     * 文本本身、全拼和拼音首字母
+     */
+    private static List<String> keysOf(String text) {
+        List<String> keys = new ArrayList<>(3);
+        keys.add(text);
+        PinyinConverter.Pinyin pinyin = PinyinConverter.convert(text);
+        if (pinyin != null) {
+            keys.add(pinyin.full());
+            keys.add(pinyin.initials());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,85 @@
+package com.moon.cloud.appstore.search;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.util.Locale;
+
+/**
+ * 汉字转拼音
+ * <p>
+ * 汉字转为不带声调的小写全拼，多音字取第一个读音；字母和数字转为小写原样保留，其余字符忽略。
+ * 例如 "QQ阅读" 的全拼为 "qqyuedu"，首字母为 "qqyd"。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public final class PinyinConverter {
+
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private PinyinConverter() {
+    }
+
+    /**
+     * 转换为全拼和首字母
+     *
+     * @param text 原文
+     * @return 拼音，原文不含汉字时返回null
+     */
+    public static Pinyin convert(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder full = new StringBuilder(text.length() * 4);
+        StringBuilder initials = new StringBuilder(text.length());
+        boolean hasHan = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String pinyin = toPinyin(c);
+            if (pinyin != null) {
+                hasHan = true;
+                full.append(pinyin);
+                initials.append(pinyin.charAt(0));
+            } else if (Character.isLetterOrDigit(c)) {
+                String lower = String.valueOf(c).toLowerCase(Locale.ROOT);
+                full.append(lower);
+                initials.append(lower);
+            }
+        }
+        return hasHan ? new Pinyin(full.toString(), initials.toString()) : null;
+    }
+
+    private static String toPinyin(char c) {
+        if (Character.UnicodeScript.of(c) != Character.UnicodeScript.HAN) {
+            return null;
+        }
+        try {
+            String[] readings = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+            return readings != null && readings.length > 0 && !readings[0].isEmpty() ? readings[0] : null;
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            return null;
+        }
+    }
+
+    /**
+     * 拼音
+     *
+     * @param full     全拼
+     * @param initials 首字母
+     */
+    public record Pinyin(String full, String initials) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.moon.cloud.appstore.search;
+
+import java.util.Arrays;
+
+/**
+ * 压缩倒排列表
+ * <p>
+ * 按文档号升序保存（文档号差值, 词频）对，两者均使用变长字节编码（每字节低7位存数据，最高位表示后面还有字节）。
+ * 文档号差值和词频通常都很小，大多数记录只占2个字节。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public final class PostingList {
+
+    private final byte[] data;
+    private final int docFreq;
+
+    private PostingList(byte[] data, int docFreq) {
+        this.data = data;
+        this.docFreq = docFreq;
+    }
+
+    /**
+     * 包含该词的文档数
+     */
+    public int getDocFreq() {
+        return docFreq;
+    }
+
+    /**
+     * 编码后占用的字节数
+     */
+    public int getSizeInBytes() {
+        return data.length;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * 倒排列表游标，按文档号升序遍历
+     */
+    public final class Cursor {
+
+        private int position;
+        private int doc = -1;
+        private int termFreq;
+
+        /**
+         * 移动到下一条记录
+         *
+         * @return 是否还有记录
+         */
+        public boolean next() {
+            if (position >= data.length) {
+                return false;
+            }
+            doc += readVarInt();
+            termFreq = readVarInt();
+            return true;
+        }
+
+        public int doc() {
+            return doc;
+        }
+
+        public int termFreq() {
+            return termFreq;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+
+    /**
+     * 倒排列表构建器，文档号必须严格递增
+     */
+    public static final class Builder {
+
+        private byte[] buffer = new byte[16];
+        private int length;
+        private int lastDoc = -1;
+        private int docFreq;
+
+        public Builder add(int doc, int termFreq) {
+            if (doc <= lastDoc) {
+                throw new IllegalArgumentException("文档号必须递增: " + lastDoc + " -> " + doc);
+            }
+            writeVarInt(lastDoc < 0 ? doc + 1 : doc - lastDoc);
+            writeVarInt(termFreq);
+            lastDoc = doc;
+            docFreq++;
+            return this;
+        }
+
+        public PostingList build() {
+            return new PostingList(Arrays.copyOf(buffer, length), docFreq);
+        }
+
+        private void writeVarInt(int value) {
+            if (length + 5 > buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[length++] = (byte) value;
+        }
+    }
+}
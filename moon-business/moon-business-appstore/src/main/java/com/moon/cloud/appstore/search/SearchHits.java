@@ -0,0 +1,14 @@
+package com.moon.cloud.appstore.search;
+
+import java.util.List;
+
+/**
+ * 内存搜索结果
+ *
+ * @param total  命中总数
+ * @param appIds 当前页的应用ID（apps表主键），按排序结果排列
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public record SearchHits(long total, List<String> appIds) {
+}
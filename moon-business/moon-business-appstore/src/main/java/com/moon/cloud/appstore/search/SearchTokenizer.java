@@ -0,0 +1,94 @@
+package com.moon.cloud.appstore.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 搜索分词器
+ * <p>
+ * 中日韩文字按二元组切分，同时保留单字，以支持单字查询；
+ * 拉丁字母和数字按连续的字母数字串切分并转为小写；其余字符作为分隔符。
+ * 例如 "微信读书 WeChat-Read" 索引为：微 信 读 书 微信 信读 读书 wechat read
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public final class SearchTokenizer {
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 索引分词，结果包含重复词，用于统计词频和文档长度
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        split(text, tokens, true);
+        return tokens;
+    }
+
+    /**
+     * 查询分词，结果去重
+     * 连续两个及以上的中日韩文字只取二元组，所有二元组都命中才近似等价于原文包含该词
+     */
+    public static Set<String> tokenizeQuery(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text != null && !text.isEmpty()) {
+            split(text, tokens, false);
+        }
+        return new LinkedHashSet<>(tokens);
+    }
+
+    private static void split(String text, List<String> tokens, boolean keepUnigrams) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (isCjk(codePoint)) {
+                int start = i;
+                while (i < length && isCjk(text.codePointAt(i))) {
+                    i += Character.charCount(text.codePointAt(i));
+                }
+                addCjkTokens(text.substring(start, i), tokens, keepUnigrams);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                int start = i;
+                while (i < length) {
+                    int c = text.codePointAt(i);
+                    if (!Character.isLetterOrDigit(c) || isCjk(c)) {
+                        break;
+                    }
+                    i += Character.charCount(c);
+                }
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+            } else {
+                i += Character.charCount(codePoint);
+            }
+        }
+    }
+
+    private static void addCjkTokens(String run, List<String> tokens, boolean keepUnigrams) {
+        int[] codePoints = run.codePoints().toArray();
+        if (codePoints.length == 1 || keepUnigrams) {
+            for (int codePoint : codePoints) {
+                tokens.add(new String(Character.toChars(codePoint)));
+            }
+        }
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            tokens.add(new String(codePoints, i, 2));
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,275 @@
+package com.moon.cloud.appstore.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 前缀建议树
+ * <p>
+ * 压缩前缀树（只有一个子节点且不是词尾的节点合并到边上），每个节点预先保存以该节点为前缀的
+ * 权重最高的K条建议，查询只需沿前缀走到对应节点直接返回，耗时与前缀长度有关，与建议总数无关。
+ * 一条建议可以有多个检索键（如名称、全拼、首字母），同一节点下同一建议只出现一次。
+ * <p>
+ * 构建完成后不可修改，可在多个线程间共享。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public final class SuggestionTrie {
+
+    private static final int[] EMPTY_TOP = new int[0];
+
+    private final Node root;
+    private final String[] suggestions;
+
+    private SuggestionTrie(Node root, String[] suggestions) {
+        this.root = root;
+        this.suggestions = suggestions;
+    }
+
+    /**
+     * 建议条数
+     */
+    public int size() {
+        return suggestions.length;
+    }
+
+    /**
+     * 前缀建议
+     *
+     * @param prefix 前缀，忽略大小写和空白
+     * @param limit  最大返回数，超过构建时的K按K返回
+     * @return 按权重降序排列的建议
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        Node node = root;
+        int pos = 0;
+        while (pos < key.length()) {
+            int index = Arrays.binarySearch(node.firstChars, key.charAt(pos));
+            if (index < 0) {
+                return new ArrayList<>();
+            }
+            String label = node.labels[index];
+            int remaining = key.length() - pos;
+            if (remaining <= label.length()) {
+                // 前缀在边的中间结束
+                if (!label.regionMatches(0, key, pos, remaining)) {
+                    return new ArrayList<>();
+                }
+                node = node.children[index];
+                break;
+            }
+            if (!key.startsWith(label, pos)) {
+                return new ArrayList<>();
+            }
+            pos += label.length();
+            node = node.children[index];
+        }
+
+        int count = Math.min(limit, node.top.length);
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(suggestions[node.top[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * 检索键和查询统一转为小写并去掉空白
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Node {
+
+        private final char[] firstChars;
+        private final String[] labels;
+        private final Node[] children;
+        private final int[] top;
+
+        private Node(char[] firstChars, String[] labels, Node[] children, int[] top) {
+            this.firstChars = firstChars;
+            this.labels = labels;
+            this.children = children;
+            this.top = top;
+        }
+    }
+
+    /**
+     * 建议树构建器
+     */
+    public static final class Builder {
+
+        private final List<String> suggestions = new ArrayList<>();
+        private final List<Double> weights = new ArrayList<>();
+        private final Map<String, Integer> suggestionIds = new HashMap<>();
+        private final List<String> keys = new ArrayList<>();
+        private final List<Integer> keyOwners = new ArrayList<>();
+
+        /**
+         * 添加建议，相同文本的建议合并，权重取最大值
+         *
+         * @param suggestion 建议文本
+         * @param weight     权重，越大越靠前
+         * @param searchKeys 检索键
+         */
+        public Builder add(String suggestion, double weight, Collection<String> searchKeys) {
+            if (suggestion == null || suggestion.isBlank()) {
+                return this;
+            }
+            Integer id = suggestionIds.get(suggestion);
+            if (id == null) {
+                id = suggestions.size();
+                suggestionIds.put(suggestion, id);
+                suggestions.add(suggestion);
+                weights.add(weight);
+            } else if (weight > weights.get(id)) {
+                weights.set(id, weight);
+            }
+            for (String searchKey : searchKeys) {
+                String key = normalize(searchKey);
+                if (!key.isEmpty()) {
+                    keys.add(key);
+                    keyOwners.add(id);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * 构建建议树
+         *
+         * @param topK 每个节点保存的建议数
+         */
+        public SuggestionTrie build(int topK) {
+            if (topK <= 0) {
+                throw new IllegalArgumentException("每个节点保存的建议数必须大于0: " + topK);
+            }
+
+            Integer[] order = new Integer[keys.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing((Integer i) -> keys.get(i)).thenComparing(keyOwners::get));
+
+            String[] sortedKeys = new String[order.length];
+            int[] owners = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedKeys[i] = keys.get(order[i]);
+                owners[i] = keyOwners.get(order[i]);
+            }
+
+            double[] weightArray = weights.stream().mapToDouble(Double::doubleValue).toArray();
+            String[] suggestionArray = suggestions.toArray(new String[0]);
+            Comparator<Integer> byWeight = Comparator.comparingDouble((Integer id) -> weightArray[id]).reversed()
+                    .thenComparing(id -> suggestionArray[id]);
+
+            Node root = new NodeBuilder(sortedKeys, owners, byWeight, topK).build(0, sortedKeys.length, 0);
+            return new SuggestionTrie(root, suggestionArray);
+        }
+    }
+
+    /**
+     * 由排好序的检索键递归构建压缩前缀树：区间内的键共享前depth个字符，
+     * 按第depth个字符分组，每组的最长公共前缀即为一条边
+     */
+    private static final class NodeBuilder {
+
+        private final String[] keys;
+        private final int[] owners;
+        private final Comparator<Integer> byWeight;
+        private final int topK;
+
+        private NodeBuilder(String[] keys, int[] owners, Comparator<Integer> byWeight, int topK) {
+            this.keys = keys;
+            this.owners = owners;
+            this.byWeight = byWeight;
+            this.topK = topK;
+        }
+
+        private Node build(int from, int to, int depth) {
+            Set<Integer> candidates = new LinkedHashSet<>();
+
+            // 排序后恰好在此结束的键位于区间开头
+            int i = from;
+            while (i < to && keys[i].length() == depth) {
+                candidates.add(owners[i]);
+                i++;
+            }
+
+            List<Character> firstChars = new ArrayList<>();
+            List<String> labels = new ArrayList<>();
+            List<Node> children = new ArrayList<>();
+            while (i < to) {
+                char c = keys[i].charAt(depth);
+                int j = i + 1;
+                while (j < to && keys[j].charAt(depth) == c) {
+                    j++;
+                }
+                int end = commonPrefixEnd(keys[i], keys[j - 1], depth);
+                Node child = build(i, j, end);
+
+                firstChars.add(c);
+                labels.add(keys[i].substring(depth, end));
+                children.add(child);
+                for (int id : child.top) {
+                    candidates.add(id);
+                }
+                i = j;
+            }
+
+            char[] chars = new char[firstChars.size()];
+            for (int k = 0; k < chars.length; k++) {
+                chars[k] = firstChars.get(k);
+            }
+            return new Node(chars, labels.toArray(new String[0]), children.toArray(new Node[0]), topOf(candidates));
+        }
+
+        private int[] topOf(Set<Integer> candidates) {
+            if (candidates.isEmpty()) {
+                return EMPTY_TOP;
+            }
+            return candidates.stream()
+                    .sorted(byWeight)
+                    .limit(topK)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+
+        /**
+         * 有序区间首尾两个键的公共前缀即整个区间的公共前缀
+         */
+        private static int commonPrefixEnd(String first, String last, int depth) {
+            int max = Math.min(first.length(), last.length());
+            int end = depth + 1;
+            while (end < max && first.charAt(end) == last.charAt(end)) {
+                end++;
+            }
+            return end;
+        }
+    }
+}
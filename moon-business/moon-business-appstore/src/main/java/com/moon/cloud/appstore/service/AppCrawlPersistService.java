@@ -0,0 +1,34 @@
+package com.moon.cloud.appstore.service;
+
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.AppPriceHistory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 爬取结果批量持久化服务接口
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public interface AppCrawlPersistService {
+
+    /**
+     * 一次查询获取已存在的App
+     *
+     * @param appIds App Store应用ID
+     * @return appId到App的映射，不存在的appId不在结果中
+     */
+    Map<String, App> findExistingApps(Collection<String> appIds);
+
+    /**
+     * 批量保存爬取的App及其价格变化
+     *
+     * @param apps           App列表，新App需已生成id
+     * @param priceHistories 价格变化记录
+     * @return 保存的App数量
+     */
+    int persistCrawledApps(List<App> apps, List<AppPriceHistory> priceHistories);
+}
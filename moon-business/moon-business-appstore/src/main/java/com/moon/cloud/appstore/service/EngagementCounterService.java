@@ -0,0 +1,62 @@
+package com.moon.cloud.appstore.service;
+
+/**
+ * 互动计数服务接口
+ * 应用和限免记录的查看、点击、分享、下载次数先在Redis中累加，再定期批量写入数据库
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+public interface EngagementCounterService {
+
+    /**
+     * 计数指标
+     */
+    enum Metric {
+        /**
+         * 应用查看次数，按apps表主键计数
+         */
+        APP_VIEW(true),
+        /**
+         * 应用下载次数，按apps表主键计数
+         */
+        APP_DOWNLOAD(true),
+        /**
+         * 限免查看次数，按free_promotions表主键计数
+         */
+        PROMOTION_VIEW(false),
+        /**
+         * 限免点击次数，按free_promotions表主键计数
+         */
+        PROMOTION_CLICK(false),
+        /**
+         * 限免分享次数，按free_promotions表主键计数
+         */
+        PROMOTION_SHARE(false);
+
+        private final boolean appMetric;
+
+        Metric(boolean appMetric) {
+            this.appMetric = appMetric;
+        }
+
+        public boolean isAppMetric() {
+            return appMetric;
+        }
+    }
+
+    /**
+     * 计数加一
+     *
+     * @param metric 计数指标
+     * @param id     记录主键
+     */
+    void increment(Metric metric, String id);
+
+    /**
+     * 把累积的增量批量写入数据库
+     *
+     * @return 写入的记录数
+     */
+    int flush();
+}
@@ -0,0 +1,125 @@
+package com.moon.cloud.appstore.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.AppPriceHistory;
+import com.moon.cloud.appstore.event.AppChangedEvent;
+import com.moon.cloud.appstore.event.PriceChangedEvent;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.service.AppCrawlPersistService;
+import com.moon.cloud.appstore.service.AppPriceHistoryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 爬取结果批量持久化服务实现类
+ * 一批App用多行 INSERT ... ON DUPLICATE KEY UPDATE 写入，价格变化用多行INSERT写入，
+ * 一个批次只需要少量SQL语句；写入后发布 {@link AppChangedEvent}，事务提交后增量更新搜索索引，
+ * 价格发生变化的App另外发布 {@link PriceChangedEvent}，用于增量检测限免
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AppCrawlPersistServiceImpl implements AppCrawlPersistService {
+
+    /**
+     * 每条upsert语句包含的最大App数
+     */
+    private static final int UPSERT_BATCH_SIZE = 100;
+
+    private final AppMapper appMapper;
+    private final AppPriceHistoryService appPriceHistoryService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public Map<String, App> findExistingApps(Collection<String> appIds) {
+        Map<String, App> existingApps = new HashMap<>();
+        if (appIds == null || appIds.isEmpty()) {
+            return existingApps;
+        }
+
+        List<App> apps = appMapper.selectList(new LambdaQueryWrapper<App>().in(App::getAppId, appIds));
+        for (App app : apps) {
+            existingApps.put(app.getAppId(), app);
+        }
+        return existingApps;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int persistCrawledApps(List<App> apps, List<AppPriceHistory> priceHistories) {
+        if (apps == null || apps.isEmpty()) {
+            return 0;
+        }
+
+        for (int from = 0; from < apps.size(); from += UPSERT_BATCH_SIZE) {
+            int to = Math.min(from + UPSERT_BATCH_SIZE, apps.size());
+            appMapper.upsertBatch(apps.subList(from, to));
+        }
+        refreshStoredIds(apps);
+
+        if (priceHistories != null && !priceHistories.isEmpty()) {
+            int recorded = appPriceHistoryService.batchRecordPriceChanges(priceHistories);
+            log.info("批量记录价格变化 {} 条", recorded);
+
+            List<App> priceChangedApps = findPriceChangedApps(apps, priceHistories);
+            if (!priceChangedApps.isEmpty()) {
+                eventPublisher.publishEvent(new PriceChangedEvent(priceChangedApps));
+            }
+        }
+
+        eventPublisher.publishEvent(new AppChangedEvent(apps.stream().map(App::getId).collect(Collectors.toList())));
+
+        log.info("批量保存App {} 个", apps.size());
+        return apps.size();
+    }
+
+    /**
+     * 按appId回读实际写入的主键：并发插入同一App时以先写入的行为准，预先生成的id不一定落库，
+     * 事件中的id需要与库中一致
+     */
+    private void refreshStoredIds(List<App> apps) {
+        List<App> storedApps = appMapper.selectList(new LambdaQueryWrapper<App>()
+                .select(App::getId, App::getAppId)
+                .in(App::getAppId, apps.stream().map(App::getAppId).collect(Collectors.toList())));
+        Map<String, String> storedIds = new HashMap<>();
+        for (App storedApp : storedApps) {
+            storedIds.put(storedApp.getAppId(), storedApp.getId());
+        }
+        for (App app : apps) {
+            String storedId = storedIds.get(app.getAppId());
+            if (storedId != null) {
+                app.setId(storedId);
+            }
+        }
+    }
+
+    /**
+     * 找出价格发生变化的App，新App的初始价格不算变化
+     */
+    private List<App> findPriceChangedApps(List<App> apps, List<AppPriceHistory> priceHistories) {
+        Set<String> changedAppIds = priceHistories.stream()
+                .filter(history -> history.getAppId() != null && !"INITIAL".equals(history.getChangeType()))
+                .map(AppPriceHistory::getAppId)
+                .collect(Collectors.toSet());
+        if (changedAppIds.isEmpty()) {
+            return List.of();
+        }
+        return apps.stream()
+                .filter(app -> changedAppIds.contains(app.getAppId()))
+                .collect(Collectors.toList());
+    }
+}
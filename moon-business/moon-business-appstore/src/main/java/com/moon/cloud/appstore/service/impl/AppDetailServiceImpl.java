@@ -7,23 +7,34 @@ import com.moon.cloud.appstore.entity.FreePromotion;
 import com.moon.cloud.appstore.mapper.AppMapper;
 import com.moon.cloud.appstore.mapper.AppPriceHistoryMapper;
 import com.moon.cloud.appstore.mapper.FreePromotionMapper;
+import com.moon.cloud.appstore.price.PriceSeries;
+import com.moon.cloud.appstore.price.PriceSeriesStore;
+import com.moon.cloud.appstore.recommend.RelatedApps;
+import com.moon.cloud.appstore.recommend.RelatedAppsIndex;
 import com.moon.cloud.appstore.service.AppDetailService;
+import com.moon.cloud.appstore.service.EngagementCounterService;
 import com.moon.cloud.appstore.vo.AppDetailVO;
 import com.moon.cloud.appstore.vo.AppPriceChartVO;
 import com.moon.cloud.appstore.vo.AppSimilarVO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -40,6 +51,15 @@ public class AppDetailServiceImpl implements AppDetailService {
     private final AppMapper appMapper;
     private final AppPriceHistoryMapper appPriceHistoryMapper;
     private final FreePromotionMapper freePromotionMapper;
+    private final RelatedAppsIndex relatedAppsIndex;
+    private final EngagementCounterService engagementCounterService;
+    private final PriceSeriesStore priceSeriesStore;
+
+    /**
+     * 价格图表的最大价格点数，超过时按天、按周的收盘价降采样
+     */
+    @Value("${appstore.price.chart-max-points:200}")
+    private int chartMaxPoints = 200;
 
     @Override
     @Cacheable(value = "app:detail", key = "#appId", unless = "#result == null")
@@ -92,51 +112,30 @@ public class AppDetailServiceImpl implements AppDetailService {
         chartVO.setDays(days);
 
         LocalDateTime endTime = LocalDateTime.now();
-        LocalDateTime startTime = endTime.minusDays(days);
+        // 开始时间按天对齐，区间统计直接合并价格序列按天预聚合的桶
+        LocalDateTime startTime = endTime.toLocalDate().minusDays(days).atStartOfDay();
         chartVO.setStartTime(startTime);
         chartVO.setEndTime(endTime);
 
-        // 获取价格历史数据
-        List<AppPriceHistory> priceHistoryList = appPriceHistoryMapper.getPriceHistoryByTimeRange(
-                app.getAppId(), startTime, endTime);
+        // 获取价格序列
+        PriceSeries series = priceSeriesStore.getSeries(app.getAppId());
+        int fromIndex = series.indexOf(startTime);
+        PriceSeries.Window window = series.window(startTime.toLocalDate(), endTime.toLocalDate());
 
-        if (!priceHistoryList.isEmpty()) {
+        if (fromIndex < series.getPoints().size() && window != null) {
             // 设置当前价格和统计信息
             chartVO.setCurrentPrice(app.getCurrentPrice());
             chartVO.setOriginalPrice(app.getOriginalPrice());
 
-            // 计算统计数据
-            BigDecimal lowestPrice = priceHistoryList.stream()
-                    .map(AppPriceHistory::getNewPrice)
-                    .min(BigDecimal::compareTo)
-                    .orElse(app.getCurrentPrice());
-            chartVO.setLowestPrice(lowestPrice);
-
-            BigDecimal highestPrice = priceHistoryList.stream()
-                    .map(AppPriceHistory::getNewPrice)
-                    .max(BigDecimal::compareTo)
-                    .orElse(app.getOriginalPrice());
-            chartVO.setHighestPrice(highestPrice);
-
-            // 计算平均价格
-            BigDecimal totalPrice = priceHistoryList.stream()
-                    .map(AppPriceHistory::getNewPrice)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            BigDecimal averagePrice = totalPrice.divide(
-                    new BigDecimal(priceHistoryList.size()), 2, RoundingMode.HALF_UP);
-            chartVO.setAveragePrice(averagePrice);
-
-            chartVO.setChangeCount(priceHistoryList.size());
-
-            // 统计限免次数
-            long freeCount = priceHistoryList.stream()
-                    .filter(h -> "FREE".equals(h.getChangeType()))
-                    .count();
-            chartVO.setFreeCount((int) freeCount);
+            chartVO.setLowestPrice(window.lowest());
+            chartVO.setHighestPrice(window.highest());
+            chartVO.setAveragePrice(window.average());
+            chartVO.setChangeCount(window.count());
+            chartVO.setFreeCount(window.freeCount());
 
             // 构建价格点和事件
-            chartVO.setPricePoints(buildPricePoints(priceHistoryList));
-            chartVO.setPriceEvents(buildPriceEvents(priceHistoryList));
+            chartVO.setPricePoints(buildPricePoints(series, fromIndex, startTime));
+            chartVO.setPriceEvents(buildPriceEvents(series, fromIndex));
         }
 
         return chartVO;
@@ -150,6 +149,12 @@ public class AppDetailServiceImpl implements AppDetailService {
             limit = 10;
         }
 
+        // 优先读取预计算的推荐列表
+        List<AppSimilarVO> precomputed = loadRelatedApps(appId, RelatedApps.Kind.SIMILAR, limit);
+        if (precomputed != null) {
+            return precomputed;
+        }
+
         App currentApp = getAppByIdOrAppStoreId(appId);
         if (currentApp == null) {
             return new ArrayList<>();
@@ -164,8 +169,9 @@ public class AppDetailServiceImpl implements AppDetailService {
 
         List<App> similarApps = appMapper.selectList(queryWrapper);
 
+        Set<String> promotedAppIds = getPromotedAppStoreIds(similarApps);
         return similarApps.stream()
-                .map(app -> convertToSimilarVO(app, "同分类高评分应用"))
+                .map(app -> convertToSimilarVO(app, "同分类高评分应用", promotedAppIds.contains(app.getAppId())))
                 .collect(Collectors.toList());
     }
 
@@ -177,6 +183,11 @@ public class AppDetailServiceImpl implements AppDetailService {
             limit = 10;
         }
 
+        List<AppSimilarVO> precomputed = loadRelatedApps(appId, RelatedApps.Kind.DEVELOPER, limit);
+        if (precomputed != null) {
+            return precomputed;
+        }
+
         App currentApp = getAppByIdOrAppStoreId(appId);
         if (currentApp == null || currentApp.getDeveloperName() == null) {
             return new ArrayList<>();
@@ -191,8 +202,9 @@ public class AppDetailServiceImpl implements AppDetailService {
 
         List<App> developerApps = appMapper.selectList(queryWrapper);
 
+        Set<String> promotedAppIds = getPromotedAppStoreIds(developerApps);
         return developerApps.stream()
-                .map(app -> convertToSimilarVO(app, "同一开发商"))
+                .map(app -> convertToSimilarVO(app, "同一开发商", promotedAppIds.contains(app.getAppId())))
                 .collect(Collectors.toList());
     }
 
@@ -204,6 +216,11 @@ public class AppDetailServiceImpl implements AppDetailService {
             limit = 10;
         }
 
+        List<AppSimilarVO> precomputed = loadRelatedApps(appId, RelatedApps.Kind.CATEGORY_TOP, limit);
+        if (precomputed != null) {
+            return precomputed;
+        }
+
         App currentApp = getAppByIdOrAppStoreId(appId);
         if (currentApp == null) {
             return new ArrayList<>();
@@ -219,13 +236,13 @@ public class AppDetailServiceImpl implements AppDetailService {
 
         List<App> topApps = appMapper.selectList(queryWrapper);
 
+        Set<String> promotedAppIds = getPromotedAppStoreIds(topApps);
         return topApps.stream()
-                .map(app -> convertToSimilarVO(app, "分类热门应用"))
+                .map(app -> convertToSimilarVO(app, "分类热门应用", promotedAppIds.contains(app.getAppId())))
                 .collect(Collectors.toList());
     }
 
     @Override
-    @Transactional
     public boolean increaseViewCount(String appId) {
         try {
             App app = getAppByIdOrAppStoreId(appId);
@@ -233,9 +250,8 @@ public class AppDetailServiceImpl implements AppDetailService {
                 return false;
             }
 
-            // 这里可以添加查看次数统计逻辑
-            // 例如：更新统计表或Redis计数器
-            log.info("记录应用查看: {}", appId);
+            // 计数先在Redis中累加，由定时任务批量写入数据库
+            engagementCounterService.increment(EngagementCounterService.Metric.APP_VIEW, app.getId());
             return true;
 
         } catch (Exception e) {
@@ -245,7 +261,6 @@ public class AppDetailServiceImpl implements AppDetailService {
     }
 
     @Override
-    @Transactional
     public boolean recordDownload(String appId) {
         try {
             App app = getAppByIdOrAppStoreId(appId);
@@ -253,8 +268,7 @@ public class AppDetailServiceImpl implements AppDetailService {
                 return false;
             }
 
-            // 这里可以添加下载统计逻辑
-            log.info("记录应用下载: {}", appId);
+            engagementCounterService.increment(EngagementCounterService.Metric.APP_DOWNLOAD, app.getId());
             return true;
 
         } catch (Exception e) {
@@ -294,6 +308,74 @@ public class AppDetailServiceImpl implements AppDetailService {
         return appMapper.selectOne(queryWrapper);
     }
 
+    /**
+     * 读取预计算的推荐列表并按主键批量回表
+     *
+     * @return 推荐应用，没有预计算结果时返回null
+     */
+    private List<AppSimilarVO> loadRelatedApps(String appId, RelatedApps.Kind kind, int limit) {
+        List<RelatedApps.Neighbor> neighbors = relatedAppsIndex.getNeighbors(appId, kind, limit);
+        if (neighbors == null) {
+            return null;
+        }
+        if (neighbors.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, App> apps = appMapper.selectByIds(neighbors.stream().map(RelatedApps.Neighbor::appId).toList())
+                .stream()
+                .collect(Collectors.toMap(App::getId, Function.identity(), (a, b) -> a));
+        Set<String> promotedAppIds = getPromotedAppStoreIds(apps.values());
+
+        List<AppSimilarVO> result = new ArrayList<>(neighbors.size());
+        for (RelatedApps.Neighbor neighbor : neighbors) {
+            App app = apps.get(neighbor.appId());
+            if (app == null) {
+                // 计算之后已被删除
+                continue;
+            }
+            AppSimilarVO vo = convertToSimilarVO(app, recommendReason(kind, neighbor),
+                    promotedAppIds.contains(app.getAppId()));
+            if (neighbor.score() > 0) {
+                vo.setSimilarityScore(BigDecimal.valueOf(neighbor.score()).setScale(2, RoundingMode.HALF_UP));
+            }
+            result.add(vo);
+        }
+        return result;
+    }
+
+    private String recommendReason(RelatedApps.Kind kind, RelatedApps.Neighbor neighbor) {
+        return switch (kind) {
+            case SIMILAR -> neighbor.score() > 0 ? "描述相似" : "同分类高评分应用";
+            case DEVELOPER -> "同一开发商";
+            case CATEGORY_TOP -> "分类热门应用";
+        };
+    }
+
+    /**
+     * 一次查询获取正在限免的应用
+     *
+     * @return 正在限免的App Store ID
+     */
+    private Set<String> getPromotedAppStoreIds(Collection<App> apps) {
+        List<String> appStoreIds = apps.stream()
+                .map(App::getAppId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (appStoreIds.isEmpty()) {
+            return Set.of();
+        }
+
+        LambdaQueryWrapper<FreePromotion> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(FreePromotion::getAppstoreAppId)
+                   .in(FreePromotion::getAppstoreAppId, appStoreIds)
+                   .eq(FreePromotion::getStatus, "ACTIVE");
+        return freePromotionMapper.selectList(queryWrapper).stream()
+                .map(FreePromotion::getAppstoreAppId)
+                .collect(Collectors.toSet());
+    }
+
     /**
      * 获取活跃的限免信息
      */
@@ -382,7 +464,7 @@ public class AppDetailServiceImpl implements AppDetailService {
     /**
      * 转换为相似应用VO
      */
-    private AppSimilarVO convertToSimilarVO(App app, String recommendReason) {
+    private AppSimilarVO convertToSimilarVO(App app, String recommendReason, boolean hasPromotion) {
         AppSimilarVO vo = new AppSimilarVO();
         vo.setId(app.getId());
         vo.setAppId(app.getAppId());
@@ -400,9 +482,7 @@ public class AppDetailServiceImpl implements AppDetailService {
         vo.setVersion(app.getVersion());
         vo.setRecommendReason(recommendReason);
 
-        // 检查是否有限免
-        FreePromotion promotion = getActivePromotion(app.getAppId());
-        vo.setHasPromotion(promotion != null);
+        vo.setHasPromotion(hasPromotion);
 
         // 生成简短描述
         if (app.getDescription() != null && app.getDescription().length() > 100) {
@@ -451,38 +531,73 @@ public class AppDetailServiceImpl implements AppDetailService {
     }
 
     /**
-     * 构建价格数据点
+     * 构建价格数据点，按时间倒序
+     * 价格点超过上限时改用按天桶的收盘价，按天仍超过上限时改用按周桶的收盘价
      */
-    private List<AppPriceChartVO.PricePoint> buildPricePoints(List<AppPriceHistory> historyList) {
-        return historyList.stream()
-                .map(history -> {
-                    AppPriceChartVO.PricePoint point = new AppPriceChartVO.PricePoint();
-                    point.setTime(history.getChangeTime());
-                    point.setPrice(history.getNewPrice());
-                    point.setIsFree(history.getNewPrice().compareTo(BigDecimal.ZERO) == 0);
-                    point.setChangeType(history.getChangeType());
-                    return point;
-                })
-                .collect(Collectors.toList());
+    private List<AppPriceChartVO.PricePoint> buildPricePoints(PriceSeries series, int fromIndex, LocalDateTime startTime) {
+        List<PriceSeries.Point> points = series.getPoints();
+        List<AppPriceChartVO.PricePoint> pricePoints = new ArrayList<>();
+        if (points.size() - fromIndex <= chartMaxPoints) {
+            for (int i = points.size() - 1; i >= fromIndex; i--) {
+                PriceSeries.Point point = points.get(i);
+                pricePoints.add(createPricePoint(point.time(), point.price(), point.changeType()));
+            }
+            return pricePoints;
+        }
+
+        LocalDate startDate = startTime.toLocalDate();
+        LocalDate endDate = points.get(points.size() - 1).time().toLocalDate();
+        List<PriceSeries.Bucket> buckets = series.dailyBuckets(startDate, endDate);
+        boolean weekly = buckets.size() > chartMaxPoints;
+        if (weekly) {
+            buckets = series.weeklyBuckets(startDate, endDate);
+        }
+        for (int i = buckets.size() - 1; i >= 0; i--) {
+            PriceSeries.Bucket bucket = buckets.get(i);
+            LocalDateTime time = weekly ? bucket.weekStart() : bucket.dayStart();
+            pricePoints.add(createPricePoint(time.isBefore(startTime) ? startTime : time,
+                    bucket.closePrice(), bucket.closeChangeType()));
+        }
+        return pricePoints;
+    }
+
+    private AppPriceChartVO.PricePoint createPricePoint(LocalDateTime time, BigDecimal price, String changeType) {
+        AppPriceChartVO.PricePoint point = new AppPriceChartVO.PricePoint();
+        point.setTime(time);
+        point.setPrice(price);
+        point.setIsFree(price.compareTo(BigDecimal.ZERO) == 0);
+        point.setChangeType(changeType);
+        return point;
     }
 
     /**
-     * 构建价格事件
+     * 构建价格事件，按时间倒序，原价取序列中的前一个价格点
      */
-    private List<AppPriceChartVO.PriceEvent> buildPriceEvents(List<AppPriceHistory> historyList) {
-        return historyList.stream()
-                .filter(h -> h.getChangeType() != null && !"INITIAL".equals(h.getChangeType()))
-                .map(history -> {
-                    AppPriceChartVO.PriceEvent event = new AppPriceChartVO.PriceEvent();
-                    event.setEventTime(history.getChangeTime());
-                    event.setEventType(history.getChangeType());
-                    event.setOldPrice(history.getOldPrice());
-                    event.setNewPrice(history.getNewPrice());
-                    event.setChangeAmount(history.getPriceChange());
-                    event.setChangePercent(history.getChangePercent());
-                    return event;
-                })
-                .collect(Collectors.toList());
+    private List<AppPriceChartVO.PriceEvent> buildPriceEvents(PriceSeries series, int fromIndex) {
+        List<PriceSeries.Point> points = series.getPoints();
+        List<AppPriceChartVO.PriceEvent> events = new ArrayList<>();
+        for (int i = points.size() - 1; i >= fromIndex; i--) {
+            PriceSeries.Point point = points.get(i);
+            if (point.changeType() == null || "INITIAL".equals(point.changeType())) {
+                continue;
+            }
+            AppPriceChartVO.PriceEvent event = new AppPriceChartVO.PriceEvent();
+            event.setEventTime(point.time());
+            event.setEventType(point.changeType());
+            event.setNewPrice(point.price());
+            if (i > 0) {
+                BigDecimal oldPrice = points.get(i - 1).price();
+                BigDecimal change = point.price().subtract(oldPrice);
+                event.setOldPrice(oldPrice);
+                event.setChangeAmount(change);
+                if (oldPrice.compareTo(BigDecimal.ZERO) > 0) {
+                    event.setChangePercent(change.divide(oldPrice, 4, RoundingMode.HALF_UP)
+                            .multiply(new BigDecimal("100")));
+                }
+            }
+            events.add(event);
+        }
+        return events;
     }
 
     /**
@@ -2,12 +2,16 @@ package com.moon.cloud.appstore.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.moon.cloud.appstore.entity.AppPriceHistory;
+import com.moon.cloud.appstore.event.PriceHistoryRecordedEvent;
 import com.moon.cloud.appstore.mapper.AppPriceHistoryMapper;
+import com.moon.cloud.appstore.price.PriceSeriesStore;
 import com.moon.cloud.appstore.service.AppPriceHistoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,7 +30,14 @@ import java.util.*;
 @RequiredArgsConstructor
 public class AppPriceHistoryServiceImpl implements AppPriceHistoryService {
 
+    /**
+     * 批量插入时每条语句包含的最大记录数
+     */
+    private static final int INSERT_BATCH_SIZE = 200;
+
     private final AppPriceHistoryMapper appPriceHistoryMapper;
+    private final PriceSeriesStore priceSeriesStore;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<AppPriceHistory> getAppPriceHistory(String appId, LocalDateTime startTime, LocalDateTime endTime) {
@@ -53,16 +64,14 @@ public class AppPriceHistoryServiceImpl implements AppPriceHistoryService {
     public Map<String, Object> getAppPriceStatistics(String appId) {
         Map<String, Object> statistics = new HashMap<>();
 
-        // 获取价格变化次数
-        Integer changeCount = appPriceHistoryMapper.countPriceChanges(appId);
-        statistics.put("changeCount", changeCount);
+        // 价格变化次数、历史最低价和最高价从价格序列的汇总读取
+        PriceSeriesStore.Summary summary = priceSeriesStore.getSummary(appId);
+        statistics.put("changeCount", summary.changeCount());
 
-        // 获取历史最低价
-        BigDecimal lowestPrice = appPriceHistoryMapper.getHistoricalLowestPrice(appId);
+        BigDecimal lowestPrice = summary.lowestPrice();
         statistics.put("lowestPrice", lowestPrice);
 
-        // 获取历史最高价
-        BigDecimal highestPrice = appPriceHistoryMapper.getHistoricalHighestPrice(appId);
+        BigDecimal highestPrice = summary.highestPrice();
         statistics.put("highestPrice", highestPrice);
 
         // 获取当前价格
@@ -86,42 +95,25 @@ public class AppPriceHistoryServiceImpl implements AppPriceHistoryService {
     }
 
     @Override
-    @Cacheable(value = "app:price:lowest", key = "#appId", unless = "#result == null")
     public BigDecimal getHistoricalLowestPrice(String appId) {
-        return appPriceHistoryMapper.getHistoricalLowestPrice(appId);
+        return priceSeriesStore.getSummary(appId).lowestPrice();
     }
 
     @Override
-    @Cacheable(value = "app:price:highest", key = "#appId", unless = "#result == null")
     public BigDecimal getHistoricalHighestPrice(String appId) {
-        return appPriceHistoryMapper.getHistoricalHighestPrice(appId);
+        return priceSeriesStore.getSummary(appId).highestPrice();
     }
 
     @Override
     @Transactional
     public boolean recordPriceChange(AppPriceHistory priceHistory) {
         try {
-            // 设置创建时间
-            if (priceHistory.getCreatedAt() == null) {
-                priceHistory.setCreatedAt(LocalDateTime.now());
-            }
-            if (priceHistory.getChangeTime() == null) {
-                priceHistory.setChangeTime(LocalDateTime.now());
-            }
-
-            // 计算价格变化量和百分比
-            if (priceHistory.getOldPrice() != null && priceHistory.getNewPrice() != null) {
-                BigDecimal change = priceHistory.getNewPrice().subtract(priceHistory.getOldPrice());
-                priceHistory.setPriceChange(change);
-
-                if (priceHistory.getOldPrice().compareTo(BigDecimal.ZERO) > 0) {
-                    BigDecimal changePercent = change.divide(priceHistory.getOldPrice(), 4, BigDecimal.ROUND_HALF_UP)
-                            .multiply(new BigDecimal("100"));
-                    priceHistory.setChangePercent(changePercent);
-                }
-            }
+            fillPriceChange(priceHistory);
 
             int result = appPriceHistoryMapper.insert(priceHistory);
+            if (result > 0) {
+                eventPublisher.publishEvent(new PriceHistoryRecordedEvent(List.of(priceHistory)));
+            }
             return result > 0;
 
         } catch (Exception e) {
@@ -133,15 +125,67 @@ public class AppPriceHistoryServiceImpl implements AppPriceHistoryService {
     @Override
     @Transactional
     public int batchRecordPriceChanges(List<AppPriceHistory> priceHistoryList) {
-        int successCount = 0;
+        if (priceHistoryList == null || priceHistoryList.isEmpty()) {
+            return 0;
+        }
+
+        // 异常向上抛出，由调用方的事务回滚同一批次写入的App
         for (AppPriceHistory priceHistory : priceHistoryList) {
-            if (recordPriceChange(priceHistory)) {
-                successCount++;
+            fillPriceChange(priceHistory);
+            if (priceHistory.getId() == null) {
+                priceHistory.setId(IdWorker.getIdStr());
+            }
+            // 批量插入会显式写入所有列，空值按表的默认值补齐
+            if (priceHistory.getSource() == null) {
+                priceHistory.setSource("CRAWLER");
+            }
+            if (priceHistory.getCurrency() == null) {
+                priceHistory.setCurrency("CNY");
+            }
+            if (priceHistory.getIsFree() == null) {
+                priceHistory.setIsFree(false);
             }
+            if (priceHistory.getOldIsFree() == null) {
+                priceHistory.setOldIsFree(false);
+            }
+        }
+
+        int successCount = 0;
+        for (int from = 0; from < priceHistoryList.size(); from += INSERT_BATCH_SIZE) {
+            int to = Math.min(from + INSERT_BATCH_SIZE, priceHistoryList.size());
+            successCount += appPriceHistoryMapper.insertBatch(priceHistoryList.subList(from, to));
+        }
+        if (successCount > 0) {
+            eventPublisher.publishEvent(new PriceHistoryRecordedEvent(priceHistoryList));
         }
         return successCount;
     }
 
+    /**
+     * 补齐创建时间、变化时间，并计算价格变化量和百分比
+     */
+    private void fillPriceChange(AppPriceHistory priceHistory) {
+        // 设置创建时间
+        if (priceHistory.getCreatedAt() == null) {
+            priceHistory.setCreatedAt(LocalDateTime.now());
+        }
+        if (priceHistory.getChangeTime() == null) {
+            priceHistory.setChangeTime(LocalDateTime.now());
+        }
+
+        // 计算价格变化量和百分比
+        if (priceHistory.getOldPrice() != null && priceHistory.getNewPrice() != null) {
+            BigDecimal change = priceHistory.getNewPrice().subtract(priceHistory.getOldPrice());
+            priceHistory.setPriceChange(change);
+
+            if (priceHistory.getOldPrice().compareTo(BigDecimal.ZERO) > 0) {
+                BigDecimal changePercent = change.divide(priceHistory.getOldPrice(), 4, BigDecimal.ROUND_HALF_UP)
+                        .multiply(new BigDecimal("100"));
+                priceHistory.setChangePercent(changePercent);
+            }
+        }
+    }
+
     @Override
     public List<AppPriceHistory> getCategoryPriceChanges(String categoryId, int days, int limit) {
         LocalDateTime startTime = LocalDateTime.now().minusDays(days);
@@ -1,41 +1,42 @@
 package com.moon.cloud.appstore.service.impl;
 
-import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.moon.cloud.appstore.client.ExpressAppDetailClient;
 import com.moon.cloud.appstore.entity.App;
 import com.moon.cloud.appstore.entity.AppCrawlFailure;
 import com.moon.cloud.appstore.entity.AppPriceHistory;
 import com.moon.cloud.appstore.entity.Category;
-import com.moon.cloud.appstore.entity.FreePromotion;
 import com.moon.cloud.appstore.mapper.AppCrawlFailureMapper;
-import com.moon.cloud.appstore.mapper.FreePromotionMapper;
-import com.moon.cloud.appstore.mapper.AppMapper;
-import com.moon.cloud.appstore.mapper.AppPriceHistoryMapper;
 import com.moon.cloud.appstore.mapper.CategoryMapper;
+import com.moon.cloud.appstore.service.AppCrawlPersistService;
 import com.moon.cloud.appstore.service.AppQueueConsumerService;
+import com.moon.cloud.queue.core.NackResult;
+import com.moon.cloud.queue.core.QueueOptions;
+import com.moon.cloud.queue.core.ReliableQueue;
+import com.moon.cloud.queue.core.ReliableQueueFactory;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.http.*;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
-import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -54,35 +55,43 @@ import java.util.regex.Pattern;
 public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
 
     private final StringRedisTemplate redisTemplate;
-    private final RestTemplate restTemplate;
-    private final AppMapper appMapper;
+    private final ExpressAppDetailClient expressAppDetailClient;
     private final AppCrawlFailureMapper appCrawlFailureMapper;
     private final CategoryMapper categoryMapper;
-    private final AppPriceHistoryMapper appPriceHistoryMapper;
-    private final FreePromotionMapper freePromotionMapper;
+    private final ReliableQueueFactory reliableQueueFactory;
+    private final AppCrawlPersistService appCrawlPersistService;
+
+    /**
+     * 常驻的爬取执行器，最大并发数由appstore.consumer.thread-pool-size控制
+     */
+    @Qualifier("appCrawlerExecutor")
+    private final ThreadPoolExecutor appCrawlerExecutor;
+
+    /**
+     * 分类队列调度执行器，与爬取执行器分开，避免调度任务占满爬取线程后互相等待
+     */
+    @Qualifier("appQueueDispatchExecutor")
+    private final ThreadPoolExecutor appQueueDispatchExecutor;
 
     // Redis队列key前缀（与CrawlerService保持一致）
     private static final String APP_QUEUE_PREFIX = "appstore:queue:";
     private static final String APP_URL_FAILED_QUEUE_KEY = "appstore:app:url:failed:queue";
-    private static final String APP_URL_PROCESSING_SET_KEY = "appstore:app:url:processing";
 
     // 配置参数
-    @Value("${appstore.express.url:http://localhost:3090}")
-    private String expressServerUrl;
-
     @Value("${appstore.consumer.batch-size:300}")
     private Integer batchSize;
 
-    @Value("${appstore.consumer.thread-pool-size:5}")
-    private Integer threadPoolSize;
-
     @Value("${appstore.consumer.max-retry:3}")
     private Integer maxRetry;
 
     @Value("${appstore.consumer.timeout:30}")
     private Integer requestTimeout;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(5);
+    /**
+     * URL出队后的租约时长（秒），开始处理时会重新续约；超时未确认的URL由可靠队列回收重新投递
+     */
+    @Value("${appstore.consumer.lease-seconds:600}")
+    private Long leaseSeconds;
 
     @Override
     public void consumeAllCategoryQueues() {
@@ -124,7 +133,7 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
                     failedCategories.incrementAndGet();
                     log.error("分类 {} 处理失败", category.getCategoryId(), e);
                 }
-            }, executorService);
+            }, appQueueDispatchExecutor);
             futures.add(future);
         }
 
@@ -140,7 +149,7 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
                     failedCategories.incrementAndGet();
                     log.error("default队列处理失败", e);
                 }
-            }, executorService);
+            }, appQueueDispatchExecutor);
             futures.add(defaultFuture);
         }
 
@@ -186,10 +195,10 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
     public void consumeAppQueue(String queueName) {
         log.info("开始消费队列：{}", queueName);
 
-        ExecutorService executor = null;
         try {
-            // 获取批量URL进行处理
-            List<String> urls = fetchUrlsFromQueue(queueName, batchSize);
+            // 批量出队并建立租约，处理完成前URL保留在租约中，消费者崩溃后可被回收重新投递
+            ReliableQueue queue = getAppQueue(queueName);
+            List<String> urls = queue.lease(batchSize);
             if (urls.isEmpty()) {
                 log.debug("队列 {} 为空，跳过本次消费", queueName);
                 return;
@@ -197,84 +206,92 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
 
             log.info("队列 {} 获取到 {} 个URL待处理", queueName, urls.size());
 
-            // 创建线程池进行并发处理
-            executor = Executors.newFixedThreadPool(threadPoolSize);
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
-
             // 记录处理统计
-            AtomicInteger successCount = new AtomicInteger(0);
             AtomicInteger failCount = new AtomicInteger(0);
 
-            for (String url : urls) {
-                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                    try {
-                        // 添加到处理中集合
-                        redisTemplate.opsForSet().add(APP_URL_PROCESSING_SET_KEY, url);
-
-                        boolean success = processAppUrl(url);
+            // 同一批次内重复的App只处理一次
+            // 相同的URL在租约中只有一个成员，只能确认指向同一App的其他URL，否则会删除保留下来的URL的租约
+            Map<String, String> urlsByAppId = new LinkedHashMap<>();
+            for (String url : new LinkedHashSet<>(urls)) {
+                String appId = extractAppIdFromUrl(url);
+                if (appId == null) {
+                    failCount.incrementAndGet();
+                    log.error("无法从URL提取App ID: {}", url);
+                    handleFailedUrl(queue, url, "无法从URL提取App ID");
+                } else if (urlsByAppId.putIfAbsent(appId, url) != null) {
+                    queue.ack(url);
+                }
+            }
 
-                        if (success) {
-                            successCount.incrementAndGet();
-                            log.debug("成功处理URL: {}", url);
-                        } else {
+            // 一次查询获取本批次已存在的App
+            Map<String, App> existingApps = appCrawlPersistService.findExistingApps(urlsByAppId.keySet());
+
+            // 提交到常驻的爬取执行器并发获取详情，此阶段不写库
+            List<CompletableFuture<CrawledApp>> futures = new ArrayList<>();
+            for (Map.Entry<String, String> entry : urlsByAppId.entrySet()) {
+                String appId = entry.getKey();
+                String url = entry.getValue();
+                CompletableFuture<CrawledApp> future = CompletableFuture.supplyAsync(() -> {
+                    // 在执行器中排队期间租约已过期的URL已被回收，由其他批次处理，这里跳过避免重复处理
+                    if (!queue.extendLease(url)) {
+                        log.warn("URL租约已过期，跳过处理: {}", url);
+                        return null;
+                    }
+                    try {
+                        CrawledApp crawledApp = crawlApp(url, appId, existingApps.get(appId));
+                        if (crawledApp == null) {
                             failCount.incrementAndGet();
-                            // 处理失败，添加到失败队列
-                            handleFailedUrl(url, "处理失败", 1);
+                            handleFailedUrl(queue, url, "处理失败");
                         }
+                        return crawledApp;
                     } catch (Exception e) {
                         failCount.incrementAndGet();
                         log.error("处理App URL异常: {}", url, e);
-                        handleFailedUrl(url, e.getMessage(), 1);
-                    } finally {
-                        // 从处理中集合移除
-                        redisTemplate.opsForSet().remove(APP_URL_PROCESSING_SET_KEY, url);
+                        handleFailedUrl(queue, url, e.getMessage());
+                        return null;
                     }
-                }, executor);
+                }, appCrawlerExecutor);
                 futures.add(future);
             }
 
             // 等待所有任务完成，增加超时时间
             // 每个URL预留60秒，最少300秒
-            long timeout = Math.max(300, urls.size() * 60L);
+            long timeout = Math.max(300, futures.size() * 60L);
 
             try {
                 CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
                         .get(timeout, TimeUnit.SECONDS);
-                log.info("队列 {} 处理完成 - 成功: {}, 失败: {}, 总计: {}",
-                    queueName, successCount.get(), failCount.get(), urls.size());
             } catch (TimeoutException e) {
+                // 未完成的URL不确认，租约到期后由可靠队列回收重新投递
                 log.error("队列 {} 处理超时（{}秒），部分任务可能未完成", queueName, timeout);
-                // 取消未完成的任务
                 futures.forEach(f -> {
                     if (!f.isDone()) {
                         f.cancel(true);
                     }
                 });
-                log.info("超时后统计 - 成功: {}, 失败: {}, 总计: {}",
-                    successCount.get(), failCount.get(), urls.size());
             }
 
-        } catch (Exception e) {
-            log.error("消费队列 {} 异常", queueName, e);
-        } finally {
-            // 确保线程池关闭
-            if (executor != null) {
-                executor.shutdown();
-                try {
-                    // 等待线程池关闭
-                    if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
-                        executor.shutdownNow();
+            // 已完成的结果一次批量写库
+            List<CrawledApp> crawledApps = new ArrayList<>();
+            for (CompletableFuture<CrawledApp> future : futures) {
+                if (future.isDone() && !future.isCompletedExceptionally()) {
+                    CrawledApp crawledApp = future.getNow(null);
+                    if (crawledApp != null) {
+                        crawledApps.add(crawledApp);
                     }
-                } catch (InterruptedException e) {
-                    executor.shutdownNow();
-                    Thread.currentThread().interrupt();
                 }
             }
+            int successCount = persistCrawledApps(queue, crawledApps);
+
+            log.info("队列 {} 处理完成 - 成功: {}, 失败: {}, 总计: {}",
+                queueName, successCount, failCount.get() + crawledApps.size() - successCount, urls.size());
+
+        } catch (Exception e) {
+            log.error("消费队列 {} 异常", queueName, e);
         }
     }
 
     @Override
-    @Transactional
     public boolean processAppUrl(String appUrl) {
         try {
             log.info("开始处理App URL: {}", appUrl);
@@ -286,52 +303,123 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
                 return false;
             }
 
-            // 2. 检查是否已存在
-            LambdaQueryWrapper<App> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(App::getAppId, appId);
-            App existingApp = appMapper.selectOne(queryWrapper);
-
-            boolean isUpdate = existingApp != null;
-
-            // 3. 调用Express服务获取App详情
-            JSONObject appDetail = fetchAppDetail(appId);
-            if (appDetail == null) {
-                log.error("获取App详情失败: {}", appId);
+            // 2. 获取详情并转换
+            Map<String, App> existingApps = appCrawlPersistService.findExistingApps(List.of(appId));
+            CrawledApp crawledApp = crawlApp(appUrl, appId, existingApps.get(appId));
+            if (crawledApp == null) {
                 return false;
             }
 
-            // 4. 转换数据并保存
-            App app = convertToApp(appDetail, existingApp);
+            // 3. 保存App及价格变化
+            appCrawlPersistService.persistCrawledApps(List.of(crawledApp.app()),
+                    crawledApp.priceHistory() != null ? List.of(crawledApp.priceHistory()) : List.of());
+            log.info("保存App信息成功: {}", appId);
 
-            // 如果 JSON 中没有 URL 或者 URL 为空，使用队列中的 URL
-            if (!StringUtils.hasText(app.getAppUrl())) {
-                app.setAppUrl(appUrl);
-            }
+            return true;
 
-            // 检测并记录价格变化
-            checkAndRecordPriceChange(app, existingApp, appDetail);
+        } catch (Exception e) {
+            log.error("处理App URL失败: {}", appUrl, e);
+            return false;
+        }
+    }
 
-            if (isUpdate) {
-                app.setUpdatedAt(LocalDateTime.now());
-                appMapper.updateById(app);
-                log.info("更新App信息成功: {}", appId);
-            } else {
-                app.setCreatedAt(LocalDateTime.now());
-                app.setUpdatedAt(LocalDateTime.now());
-                appMapper.insert(app);
-                log.info("保存新App信息成功: {}", appId);
-            }
+    /**
+     * 获取App详情并转换为待保存的App和价格变化，不写库
+     *
+     * @param appUrl      App URL
+     * @param appId       App ID
+     * @param existingApp 数据库中已存在的App，新App为null
+     * @return 爬取结果，获取详情失败时返回null
+     */
+    private CrawledApp crawlApp(String appUrl, String appId, App existingApp) {
+        JSONObject appDetail = fetchAppDetail(appId);
+        if (appDetail == null) {
+            log.error("获取App详情失败: {}", appId);
+            return null;
+        }
 
-            // 5. 记录最后爬取时间
-            app.setLastCrawledAt(LocalDateTime.now());
-            appMapper.updateById(app);
+        // convertToApp在已存在的App上原地修改，先记下原价格用于检测价格变化
+        BigDecimal oldPrice = existingApp != null ? existingApp.getCurrentPrice() : null;
+        Boolean oldIsFree = existingApp != null ? existingApp.getIsFree() : null;
 
-            return true;
+        App app = convertToApp(appDetail, existingApp);
+        if (!StringUtils.hasText(app.getAppId())) {
+            app.setAppId(appId);
+        }
+
+        // 如果 JSON 中没有 URL 或者 URL 为空，使用队列中的 URL
+        if (!StringUtils.hasText(app.getAppUrl())) {
+            app.setAppUrl(appUrl);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (existingApp == null) {
+            app.setId(IdWorker.getIdStr());
+            app.setCreatedAt(now);
+        }
+        app.setUpdatedAt(now);
+        app.setLastCrawledAt(now);
+
+        AppPriceHistory priceHistory = buildPriceChange(app, existingApp != null, oldPrice, oldIsFree);
+        return new CrawledApp(appUrl, app, priceHistory);
+    }
+
+    /**
+     * 批量保存爬取结果并确认出队，保存失败的URL放回队列重试
+     *
+     * @return 保存成功的App数
+     */
+    private int persistCrawledApps(ReliableQueue queue, List<CrawledApp> crawledApps) {
+        if (crawledApps.isEmpty()) {
+            return 0;
+        }
 
+        List<App> apps = new ArrayList<>(crawledApps.size());
+        List<AppPriceHistory> priceHistories = new ArrayList<>();
+        List<String> urls = new ArrayList<>(crawledApps.size());
+        for (CrawledApp crawledApp : crawledApps) {
+            apps.add(crawledApp.app());
+            urls.add(crawledApp.url());
+            if (crawledApp.priceHistory() != null) {
+                priceHistories.add(crawledApp.priceHistory());
+            }
+        }
+
+        try {
+            appCrawlPersistService.persistCrawledApps(apps, priceHistories);
         } catch (Exception e) {
-            log.error("处理App URL失败: {}", appUrl, e);
-            return false;
+            if (crawledApps.size() == 1) {
+                handleFailedUrl(queue, urls.get(0), "保存失败: " + e.getMessage());
+                return 0;
+            }
+            // 一行数据异常会导致整批回滚，逐个重新保存，只让出错的URL重新投递
+            log.error("批量保存App失败，逐个重新保存 {} 个App", urls.size(), e);
+            return persistOneByOne(queue, crawledApps);
         }
+
+        queue.ackAll(urls);
+        return urls.size();
+    }
+
+    /**
+     * 逐个保存爬取结果，保存成功的确认出队，失败的放回队列重试
+     *
+     * @return 保存成功的App数
+     */
+    private int persistOneByOne(ReliableQueue queue, List<CrawledApp> crawledApps) {
+        int saved = 0;
+        for (CrawledApp crawledApp : crawledApps) {
+            try {
+                appCrawlPersistService.persistCrawledApps(List.of(crawledApp.app()),
+                        crawledApp.priceHistory() != null ? List.of(crawledApp.priceHistory()) : List.of());
+                queue.ack(crawledApp.url());
+                saved++;
+            } catch (Exception e) {
+                log.error("保存App失败: {}", crawledApp.url(), e);
+                handleFailedUrl(queue, crawledApp.url(), "保存失败: " + e.getMessage());
+            }
+        }
+        return saved;
     }
 
     @Override
@@ -418,19 +506,14 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
     }
 
     /**
-     * 从指定Redis队列获取批量URL
+     * 获取App URL队列对应的可靠队列
+     * 达到最大重试次数的URL转入失败队列，由retryFailedTasks根据失败记录决定是否再次入队
      */
-    private List<String> fetchUrlsFromQueue(String queueName, int count) {
-        List<String> urls = new ArrayList<>();
-        for (int i = 0; i < count; i++) {
-            String url = redisTemplate.opsForList().rightPop(queueName);
-            if (url != null) {
-                urls.add(url);
-            } else {
-                break;
-            }
-        }
-        return urls;
+    private ReliableQueue getAppQueue(String queueName) {
+        return reliableQueueFactory.getQueue(queueName, new QueueOptions()
+                .setVisibilityTimeout(leaseSeconds)
+                .setMaxDeliveries(maxRetry)
+                .setDeadLetterKey(APP_URL_FAILED_QUEUE_KEY));
     }
 
     /**
@@ -459,28 +542,7 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
      * 调用Express服务获取App详情
      */
     private JSONObject fetchAppDetail(String appId) {
-        try {
-            String url = expressServerUrl + "/appstore/app/detail?appId=" + appId;
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                url,
-                HttpMethod.GET,
-                entity,
-                String.class
-            );
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                return JSON.parseObject(response.getBody());
-            }
-
-        } catch (Exception e) {
-            log.error("调用Express服务获取App详情失败: {}", appId, e);
-        }
-        return null;
+        return expressAppDetailClient.fetchAppDetail(appId);
     }
 
     /**
@@ -492,20 +554,20 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
         // 基本信息
         app.setAppId(json.getString("id"));
         app.setBundleId(json.getString("appId"));
-        app.setName(json.getString("title"));
+        app.setName(orElse(json.getString("title"), app.getName()));
         app.setDescription(json.getString("description"));
         app.setIconUrl(json.getString("icon"));
         app.setVersion(json.getString("version"));
         app.setReleaseNotes(json.getString("releaseNotes"));
 
         // 开发者信息
-        app.setDeveloperName(json.getString("developer"));
+        app.setDeveloperName(orElse(json.getString("developer"), app.getDeveloperName()));
         app.setDeveloperId(json.getString("developerId"));
         app.setDeveloperUrl(json.getString("developerUrl"));
 
         // 分类信息
-        app.setPrimaryCategoryId(json.getString("primaryGenreId"));
-        app.setPrimaryCategoryName(json.getString("primaryGenre"));
+        app.setPrimaryCategoryId(orElse(json.getString("primaryGenreId"), app.getPrimaryCategoryId()));
+        app.setPrimaryCategoryName(orElse(json.getString("primaryGenre"), app.getPrimaryCategoryName()));
 
         // 构建categories列表
         JSONArray genres = json.getJSONArray("genres");
@@ -545,10 +607,10 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
         app.setCurrentVersionRating(json.getBigDecimal("currentVersionScore"));
         app.setCurrentVersionRatingCount(json.getInteger("currentVersionReviews"));
 
-        // 价格信息
-        app.setCurrentPrice(json.getBigDecimal("price"));
+        // 价格信息，详情缺少价格时保留原价格，不当作价格变化
+        app.setCurrentPrice(orElse(json.getBigDecimal("price"), app.getCurrentPrice()));
         app.setCurrency(json.getString("currency"));
-        app.setIsFree(json.getBoolean("free"));
+        app.setIsFree(orElse(json.getBoolean("free"), app.getIsFree()));
 
         // 处理原始价格
         if (existingApp != null) {
@@ -557,11 +619,8 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
                 app.setOriginalPrice(json.getBigDecimal("price"));
                 log.info("为已存在的App设置原始价格: appId={}, price={}", app.getAppId(), json.getBigDecimal("price"));
             } else {
-                // 保持原有的原始价格
+                // 保持原有的原始价格，优惠由保存后的价格变化事件检测
                 app.setOriginalPrice(existingApp.getOriginalPrice());
-
-                // 检测优惠并记录
-                checkAndRecordDiscount(app, existingApp, json);
             }
         } else {
             // 新App，将当前价格设置为原始价格
@@ -603,6 +662,13 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
         return app;
     }
 
+    /**
+     * 表中非空的字段，详情缺失时已存在的App保留原值，新App由upsertBatch写入默认值
+     */
+    private static <T> T orElse(T value, T existingValue) {
+        return value != null ? value : existingValue;
+    }
+
     /**
      * 解析ISO 8601时间字符串
      */
@@ -617,25 +683,26 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
     }
 
     /**
-     * 检测并记录价格变化
+     * 检测价格变化，生成待保存的价格历史
+     *
+     * @param newApp    转换后的App
+     * @param existed   App是否已存在
+     * @param oldPrice  原价格
+     * @param oldIsFree 原是否免费
+     * @return 价格历史，无需记录时返回null
      */
-    private void checkAndRecordPriceChange(App newApp, App existingApp, JSONObject appDetail) {
+    private AppPriceHistory buildPriceChange(App newApp, boolean existed, BigDecimal oldPrice, Boolean oldIsFree) {
         try {
             BigDecimal newPrice = newApp.getCurrentPrice();
-            BigDecimal oldPrice = null;
-            Boolean oldIsFree = null;
-
-            // 如果是更新，获取原价格
-            if (existingApp != null) {
-                oldPrice = existingApp.getCurrentPrice();
-                oldIsFree = existingApp.getIsFree();
+            if (newPrice == null) {
+                return null;
             }
 
             // 判断是否需要记录价格历史
             boolean shouldRecord = false;
             String changeType = null;
 
-            if (existingApp == null) {
+            if (!existed) {
                 // 新App，记录初始价格
                 shouldRecord = true;
                 changeType = "INITIAL";
@@ -685,9 +752,6 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
                     priceHistory.setPriceType("NORMAL");
                 }
 
-                // 保存价格历史
-                appPriceHistoryMapper.insert(priceHistory);
-
                 log.info("记录价格变化 - App: {}, 变化类型: {}, 原价: {}, 新价: {}",
                     newApp.getName(), changeType, oldPrice, newPrice);
 
@@ -700,20 +764,23 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
                         "FREE".equals(changeType) ? "限免" : "降价超过50%");
                     // TODO: 发送通知给用户
                 }
+                return priceHistory;
             }
 
         } catch (Exception e) {
             log.error("记录价格变化失败", e);
         }
+        return null;
     }
 
     /**
      * 处理失败的URL
+     * 未达最大重试次数的URL放回队列重新投递，达到后由可靠队列转入失败队列
      */
-    private void handleFailedUrl(String url, String errorMessage, int retryCount) {
+    private void handleFailedUrl(ReliableQueue queue, String url, String errorMessage) {
         try {
-            // 添加到失败队列
-            redisTemplate.opsForList().leftPush(APP_URL_FAILED_QUEUE_KEY, url);
+            int retryCount = queue.getDeliveryCount(url);
+            NackResult result = queue.nack(url);
 
             // 记录失败信息到数据库
             AppCrawlFailure failure = new AppCrawlFailure();
@@ -725,7 +792,7 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
 
             appCrawlFailureMapper.insert(failure);
 
-            log.warn("URL处理失败已记录: {}, 错误: {}", url, errorMessage);
+            log.warn("URL处理失败已记录: {}, 错误: {}, 第{}次投递, 结果: {}", url, errorMessage, retryCount, result);
 
         } catch (Exception e) {
             log.error("记录失败信息异常", e);
@@ -733,71 +800,12 @@ public class AppQueueConsumerServiceImpl implements AppQueueConsumerService {
     }
 
     /**
-     * 检测并记录优惠信息
+     * 单个URL的爬取结果
+     *
+     * @param url          队列中的URL
+     * @param app          待保存的App
+     * @param priceHistory 价格变化，无变化时为null
      */
-    private void checkAndRecordDiscount(App app, App existingApp, JSONObject json) {
-        try {
-            BigDecimal originalPrice = existingApp.getOriginalPrice();
-            BigDecimal currentPrice = json.getBigDecimal("price");
-
-            // 如果原始价格和当前价格都存在，且当前价格小于原始价格
-            if (originalPrice != null && currentPrice != null &&
-                currentPrice.compareTo(originalPrice) < 0) {
-
-                // 检查今天是否已经记录过该App的优惠
-                LocalDate today = LocalDate.now();
-                LambdaQueryWrapper<FreePromotion> queryWrapper = new LambdaQueryWrapper<>();
-                queryWrapper.eq(FreePromotion::getAppstoreAppId, app.getAppId())
-                           .ge(FreePromotion::getCreatedAt, today.atStartOfDay())
-                           .le(FreePromotion::getCreatedAt, today.atTime(23, 59, 59))
-                           .eq(FreePromotion::getStatus, "ACTIVE");
-
-                FreePromotion existingPromotion = freePromotionMapper.selectOne(queryWrapper);
-
-                if (existingPromotion == null) {
-                    // 创建新的优惠记录
-                    FreePromotion promotion = new FreePromotion();
-                    promotion.setAppId(app.getId());
-                    promotion.setAppstoreAppId(app.getAppId());
-
-                    // 判断优惠类型
-                    if (currentPrice.compareTo(BigDecimal.ZERO) == 0) {
-                        promotion.setPromotionType("FREE");
-                    } else {
-                        promotion.setPromotionType("DISCOUNT");
-                    }
-
-                    promotion.setOriginalPrice(originalPrice);
-                    promotion.setPromotionPrice(currentPrice);
-
-                    // 计算优惠金额和折扣率
-                    BigDecimal savingsAmount = originalPrice.subtract(currentPrice);
-                    promotion.setSavingsAmount(savingsAmount);
-
-                    if (originalPrice.compareTo(BigDecimal.ZERO) > 0) {
-                        BigDecimal discountRate = savingsAmount.divide(originalPrice, 4, BigDecimal.ROUND_HALF_UP)
-                                                                .multiply(new BigDecimal("100"));
-                        promotion.setDiscountRate(discountRate);
-                    }
-
-                    promotion.setStartTime(LocalDateTime.now());
-                    promotion.setDiscoveredAt(LocalDateTime.now());
-                    promotion.setDiscoverySource("AUTO");
-                    promotion.setStatus("ACTIVE");
-                    promotion.setViewCount(0);
-                    promotion.setClickCount(0);
-                    promotion.setShareCount(0);
-                    promotion.setCreatedAt(LocalDateTime.now());
-                    promotion.setUpdatedAt(LocalDateTime.now());
-
-                    freePromotionMapper.insert(promotion);
-
-                    log.info("记录App优惠信息: appId={}, originalPrice={}, currentPrice={}, type={}",
-                            app.getAppId(), originalPrice, currentPrice, promotion.getPromotionType());
-                }
-            }
-        } catch (Exception e) {
-            log.error("记录优惠信息失败: appId={}", app.getAppId(), e);
-        }
+    private record CrawledApp(String url, App app, AppPriceHistory priceHistory) {
     }
 }
\ No newline at end of file
@@ -5,11 +5,14 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.moon.cloud.appstore.dto.AppSearchDTO;
 import com.moon.cloud.appstore.entity.*;
 import com.moon.cloud.appstore.mapper.*;
+import com.moon.cloud.appstore.search.AppIndexUpdater;
+import com.moon.cloud.appstore.search.AppSearchEngine;
+import com.moon.cloud.appstore.search.AppSuggestionIndex;
+import com.moon.cloud.appstore.search.SearchHits;
 import com.moon.cloud.appstore.service.AppSearchService;
 import com.moon.cloud.appstore.vo.AppSearchResultVO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
@@ -38,11 +41,19 @@ public class AppSearchServiceImpl implements AppSearchService {
     private final SearchHistoryMapper searchHistoryMapper;
     private final FreePromotionMapper freePromotionMapper;
     private final StringRedisTemplate redisTemplate;
+    private final AppSearchEngine appSearchEngine;
+    private final AppSuggestionIndex appSuggestionIndex;
+    private final AppIndexUpdater appIndexUpdater;
 
     private static final String HOT_SEARCH_KEY = "appstore:search:hot";
     private static final String USER_SEARCH_HISTORY_KEY = "appstore:search:history:";
     private static final String SEARCH_SUGGESTIONS_KEY = "appstore:search:suggestions:";
 
+    /**
+     * 全量构建索引时每批处理的应用数
+     */
+    private static final int INDEX_BATCH_SIZE = 500;
+
     @Override
     public Page<AppSearchResultVO> searchApps(AppSearchDTO searchDTO) {
         log.info("搜索应用: {}", searchDTO);
@@ -50,19 +61,21 @@ public class AppSearchServiceImpl implements AppSearchService {
         // 验证分页参数
         searchDTO.validatePagination();
 
-        // 创建分页对象
-        Page<App> page = new Page<>(searchDTO.getPage(), searchDTO.getSize());
-
-        // 构建查询条件
-        LambdaQueryWrapper<App> queryWrapper = buildSearchQuery(searchDTO);
-
-        // 执行查询
-        Page<App> resultPage = appMapper.selectPage(page, queryWrapper);
+        Page<AppSearchResultVO> voPage;
+        if (appSearchEngine.isReady()) {
+            // 在内存索引中检索和排序，只按主键回表查询当前页的应用
+            SearchHits hits = appSearchEngine.search(searchDTO);
+            voPage = new Page<>(searchDTO.getPage(), searchDTO.getSize(), hits.total());
+            voPage.setRecords(convertToSearchResultVO(loadAppsInOrder(hits.appIds()), searchDTO.getKeyword(), searchDTO.getHighlight()));
+        } else {
+            // 内存索引尚未构建完成，使用数据库查询
+            Page<App> page = new Page<>(searchDTO.getPage(), searchDTO.getSize());
+            LambdaQueryWrapper<App> queryWrapper = buildSearchQuery(searchDTO);
+            Page<App> resultPage = appMapper.selectPage(page, queryWrapper);
 
-        // 转换为搜索结果VO
-        Page<AppSearchResultVO> voPage = new Page<>(resultPage.getCurrent(), resultPage.getSize(), resultPage.getTotal());
-        List<AppSearchResultVO> voList = convertToSearchResultVO(resultPage.getRecords(), searchDTO.getKeyword(), searchDTO.getHighlight());
-        voPage.setRecords(voList);
+            voPage = new Page<>(resultPage.getCurrent(), resultPage.getSize(), resultPage.getTotal());
+            voPage.setRecords(convertToSearchResultVO(resultPage.getRecords(), searchDTO.getKeyword(), searchDTO.getHighlight()));
+        }
 
         // 记录搜索关键词到热搜
         if (StringUtils.hasText(searchDTO.getKeyword())) {
@@ -73,7 +86,6 @@ public class AppSearchServiceImpl implements AppSearchService {
     }
 
     @Override
-    @Cacheable(value = "search:suggestions", key = "#keyword", unless = "#result.isEmpty()")
     public List<String> getSearchSuggestions(String keyword, Integer limit) {
         log.info("获取搜索建议: keyword={}, limit={}", keyword, limit);
 
@@ -85,6 +97,30 @@ public class AppSearchServiceImpl implements AppSearchService {
             limit = 10;
         }
 
+        // 优先使用内存中的前缀建议树，支持名称、开发者、全拼和首字母前缀
+        if (appSuggestionIndex.isReady()) {
+            List<String> suggestions = appSuggestionIndex.suggest(keyword, limit);
+            if (suggestions.size() < limit) {
+                // 建议树只做前缀匹配，不足时用包含匹配补齐，如输入"荣耀"提示"王者荣耀"
+                for (String suggestion : loadSearchSuggestions(keyword, limit)) {
+                    if (suggestions.size() >= limit) {
+                        break;
+                    }
+                    if (!suggestions.contains(suggestion)) {
+                        suggestions.add(suggestion);
+                    }
+                }
+            }
+            return suggestions;
+        }
+
+        return loadSearchSuggestions(keyword, limit);
+    }
+
+    /**
+     * 按名称和开发者的包含匹配生成搜索建议，结果缓存1小时
+     */
+    private List<String> loadSearchSuggestions(String keyword, int limit) {
         // 先从缓存获取
         String cacheKey = SEARCH_SUGGESTIONS_KEY + keyword;
         Set<String> cachedSuggestions = redisTemplate.opsForZSet().reverseRange(cacheKey, 0, limit - 1);
@@ -209,36 +245,36 @@ public class AppSearchServiceImpl implements AppSearchService {
     }
 
     @Override
-    @Transactional
     public int buildSearchIndex() {
         log.info("开始构建搜索索引");
 
         try {
-            // 清除旧索引
-            searchIndexMapper.delete(null);
-
-            // 获取所有应用
-            List<App> apps = appMapper.selectList(null);
+            // 按主键分批upsert，不清空表，重建期间搜索不受影响
             int count = 0;
-
-            for (App app : apps) {
-                SearchIndex index = new SearchIndex();
-                index.setAppId(app.getId());
-                index.setAppstoreId(app.getAppId());
-                index.setName(app.getName());
-                index.setDeveloperName(app.getDeveloperName());
-                index.setDescription(app.getDescription());
-                index.setCategoryName(app.getPrimaryCategoryName());
-                index.setKeywords(buildKeywords(app));
-                index.setRating(app.getRating());
-                index.setDownloads(app.getRatingCount()); // 用评分人数近似下载量
-                index.setUpdatedAt(LocalDateTime.now());
-
-                searchIndexMapper.insert(index);
-                count++;
+            String lastId = null;
+            while (true) {
+                LambdaQueryWrapper<App> queryWrapper = new LambdaQueryWrapper<App>()
+                        .select(App::getId, App::getAppId, App::getBundleId, App::getName, App::getDescription,
+                                App::getDeveloperName, App::getPrimaryCategoryName)
+                        .gt(lastId != null, App::getId, lastId)
+                        .orderByAsc(App::getId)
+                        .last("LIMIT " + INDEX_BATCH_SIZE);
+                List<App> apps = appMapper.selectList(queryWrapper);
+                if (!apps.isEmpty()) {
+                    searchIndexMapper.upsertBatch(apps.stream().map(AppIndexUpdater::toSearchIndex).toList());
+                    count += apps.size();
+                }
+                if (apps.size() < INDEX_BATCH_SIZE) {
+                    break;
+                }
+                lastId = apps.get(apps.size() - 1).getId();
             }
+            int removed = searchIndexMapper.deleteOrphans();
 
-            log.info("搜索索引构建完成，索引应用数: {}", count);
+            log.info("搜索索引构建完成，索引应用数: {}, 清理失效索引: {}", count, removed);
+
+            // 同步刷新内存索引
+            appSearchEngine.refresh();
             return count;
 
         } catch (Exception e) {
@@ -252,47 +288,7 @@ public class AppSearchServiceImpl implements AppSearchService {
         log.info("更新应用搜索索引: {}", appId);
 
         try {
-            App app = appMapper.selectById(appId);
-            if (app == null) {
-                return false;
-            }
-
-            // 查找现有索引
-            LambdaQueryWrapper<SearchIndex> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(SearchIndex::getAppId, appId);
-            SearchIndex existingIndex = searchIndexMapper.selectOne(queryWrapper);
-
-            if (existingIndex != null) {
-                // 更新索引
-                existingIndex.setName(app.getName());
-                existingIndex.setDeveloperName(app.getDeveloperName());
-                existingIndex.setDescription(app.getDescription());
-                existingIndex.setCategoryName(app.getPrimaryCategoryName());
-                existingIndex.setKeywords(buildKeywords(app));
-                existingIndex.setRating(app.getRating());
-                existingIndex.setDownloads(app.getRatingCount());
-                existingIndex.setUpdatedAt(LocalDateTime.now());
-
-                searchIndexMapper.updateById(existingIndex);
-            } else {
-                // 创建新索引
-                SearchIndex index = new SearchIndex();
-                index.setAppId(app.getId());
-                index.setAppstoreId(app.getAppId());
-                index.setName(app.getName());
-                index.setDeveloperName(app.getDeveloperName());
-                index.setDescription(app.getDescription());
-                index.setCategoryName(app.getPrimaryCategoryName());
-                index.setKeywords(buildKeywords(app));
-                index.setRating(app.getRating());
-                index.setDownloads(app.getRatingCount());
-                index.setUpdatedAt(LocalDateTime.now());
-
-                searchIndexMapper.insert(index);
-            }
-
-            return true;
-
+            return appIndexUpdater.applyChanges(List.of(appId)) > 0;
         } catch (Exception e) {
             log.error("更新搜索索引失败: {}", appId, e);
             return false;
@@ -307,6 +303,7 @@ public class AppSearchServiceImpl implements AppSearchService {
             LambdaQueryWrapper<SearchIndex> queryWrapper = new LambdaQueryWrapper<>();
             queryWrapper.eq(SearchIndex::getAppId, appId);
             searchIndexMapper.delete(queryWrapper);
+            appSearchEngine.applyChanges(List.of(), Map.of(), List.of(appId));
             return true;
 
         } catch (Exception e) {
@@ -325,6 +322,21 @@ public class AppSearchServiceImpl implements AppSearchService {
 
     // ========== 私有辅助方法 ==========
 
+    /**
+     * 按主键查询应用，结果保持给定的顺序；索引构建后已删除的应用会被跳过
+     */
+    private List<App> loadAppsInOrder(List<String> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, App> appMap = appMapper.selectByIds(ids).stream()
+                .collect(Collectors.toMap(App::getId, app -> app));
+        return ids.stream()
+                .map(appMap::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     /**
      * 构建搜索查询条件
      */
@@ -522,28 +534,6 @@ public class AppSearchServiceImpl implements AppSearchService {
         }
     }
 
-    /**
-     * 构建关键词索引
-     */
-    private String buildKeywords(App app) {
-        List<String> keywords = new ArrayList<>();
-
-        if (app.getName() != null) {
-            keywords.add(app.getName());
-        }
-        if (app.getDeveloperName() != null) {
-            keywords.add(app.getDeveloperName());
-        }
-        if (app.getPrimaryCategoryName() != null) {
-            keywords.add(app.getPrimaryCategoryName());
-        }
-        if (app.getBundleId() != null) {
-            keywords.add(app.getBundleId());
-        }
-
-        return String.join(",", keywords);
-    }
-
     /**
      * 截取描述
      */
@@ -1,14 +1,13 @@
 package com.moon.cloud.appstore.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
-import com.moon.cloud.appstore.entity.App;
 import com.moon.cloud.appstore.entity.Category;
+import com.moon.cloud.appstore.entity.CategoryStatistics;
 import com.moon.cloud.appstore.entity.FreePromotion;
-import com.moon.cloud.appstore.mapper.AppMapper;
 import com.moon.cloud.appstore.mapper.CategoryMapper;
 import com.moon.cloud.appstore.mapper.FreePromotionMapper;
 import com.moon.cloud.appstore.service.CategoryService;
+import com.moon.cloud.appstore.statistics.CategoryStatisticsMaterializer;
 import com.moon.cloud.appstore.vo.CategoryVO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,7 +15,6 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -34,8 +32,8 @@ import java.util.stream.Collectors;
 public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryMapper categoryMapper;
-    private final AppMapper appMapper;
     private final FreePromotionMapper freePromotionMapper;
+    private final CategoryStatisticsMaterializer categoryStatisticsMaterializer;
 
     @Override
     @Cacheable(value = "categories", key = "'all'")
@@ -132,41 +130,15 @@ public class CategoryServiceImpl implements CategoryService {
             return;
         }
 
-        // 统计该分类下的应用总数
-        LambdaQueryWrapper<App> appWrapper = new LambdaQueryWrapper<>();
-        appWrapper.eq(App::getPrimaryCategoryId, category.getCategoryId())
-                  .eq(App::getStatus, 1);
-        Long appCount = appMapper.selectCount(appWrapper);
-
-        // 统计该分类下的限免应用数
-        LambdaQueryWrapper<App> freeAppWrapper = new LambdaQueryWrapper<>();
-        freeAppWrapper.eq(App::getPrimaryCategoryId, category.getCategoryId())
-                      .eq(App::getCurrentPrice, 0)
-                      .eq(App::getStatus, 1);
-        Long freeAppCount = appMapper.selectCount(freeAppWrapper);
-
-        // 计算平均评分
-        List<App> apps = appMapper.selectList(appWrapper);
-        BigDecimal avgRating = null;
-        if (!apps.isEmpty()) {
-            double totalRating = apps.stream()
-                .filter(app -> app.getRating() != null)
-                .mapToDouble(app -> app.getRating().doubleValue())
-                .average()
-                .orElse(0.0);
-            avgRating = BigDecimal.valueOf(totalRating).setScale(2, BigDecimal.ROUND_HALF_UP);
-        }
-
-        // 更新分类统计信息
-        LambdaUpdateWrapper<Category> updateWrapper = new LambdaUpdateWrapper<>();
-        updateWrapper.eq(Category::getId, categoryId)
-                     .set(Category::getAppCount, appCount.intValue())
-                     .set(Category::getFreeAppCount, freeAppCount.intValue())
-                     .set(Category::getAvgRating, avgRating);
-        categoryMapper.update(null, updateWrapper);
+        // 由分类统计物化器在数据库中聚合并同步到分类表，不加载分类下的应用
+        categoryStatisticsMaterializer.refresh(List.of(category.getCategoryId()));
 
+        CategoryStatistics statistics = categoryStatisticsMaterializer.getStatistics(category.getCategoryId());
         log.info("更新分类统计信息成功: categoryId={}, appCount={}, freeAppCount={}, avgRating={}",
-                categoryId, appCount, freeAppCount, avgRating);
+                categoryId,
+                statistics != null ? statistics.getAppCount() : 0,
+                statistics != null ? statistics.getFreeAppCount() : 0,
+                statistics != null ? statistics.getAvgRating() : null);
     }
 
     @Override
@@ -1,5 +1,7 @@
 package com.moon.cloud.appstore.service.impl;
 
+import com.moon.cloud.appstore.crawler.CrawlFrontier;
+import com.moon.cloud.appstore.crawler.HostRateLimiter;
 import com.moon.cloud.appstore.entity.Category;
 import com.moon.cloud.appstore.mapper.CategoryMapper;
 import com.moon.cloud.appstore.service.CrawlerService;
@@ -9,6 +11,7 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
@@ -16,11 +19,16 @@ import org.springframework.util.StringUtils;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * App Store 爬虫服务实现类
  * 负责爬取App Store分类页面，提取应用链接并存储到Redis队列
+ * 链接入队前经 {@link CrawlFrontier} 过滤近期已入队或已爬取的App；
+ * 多个分类页并发获取，对同一主机的请求由 {@link HostRateLimiter} 保持最小间隔
  *
  * @author Moon Cloud
  * @since 2024-09-26
@@ -32,6 +40,16 @@ public class CrawlerServiceImpl implements CrawlerService {
 
     private final RedisTemplate<String, String> redisTemplate;
     private final CategoryMapper categoryMapper;
+    private final CrawlFrontier crawlFrontier;
+
+    @Qualifier("crawlerHostRateLimiter")
+    private final HostRateLimiter crawlerHostRateLimiter;
+
+    /**
+     * 分类页爬取执行器，最大并发数由appstore.crawler.concurrency控制
+     */
+    @Qualifier("appCategoryCrawlExecutor")
+    private final ThreadPoolExecutor appCategoryCrawlExecutor;
 
     private static final String APP_QUEUE_PREFIX = "appstore:queue:";
     private static final String DEFAULT_QUEUE_NAME = "app_links";
@@ -71,12 +89,19 @@ public class CrawlerServiceImpl implements CrawlerService {
         List<String> appLinks = extractAppLinks(htmlContent);
         log.info("从分类 {} 提取到 {} 个应用链接", categoryId, appLinks.size());
 
-        // 4. 存储到Redis队列
+        // 4. 过滤近期已入队或已爬取的App，按优先级排序
+        List<String> admittedLinks = crawlFrontier.admit(appLinks);
+        log.info("分类 {} 准入 {} 个链接，跳过 {} 个近期已处理的链接",
+                categoryId, admittedLinks.size(), appLinks.size() - admittedLinks.size());
+
+        // 5. 存储到Redis队列
         String queueName = APP_QUEUE_PREFIX + categoryId;
-        int pushedCount = pushLinksToRedisQueue(appLinks, queueName);
-        log.info("成功将 {} 个链接推送到Redis队列: {}", pushedCount, queueName);
+        // 只标记实际入队的链接，推送失败的链接下次爬取时重新准入
+        List<String> pushedLinks = pushLinks(admittedLinks, queueName);
+        crawlFrontier.markScheduled(pushedLinks);
+        log.info("成功将 {} 个链接推送到Redis队列: {}", pushedLinks.size(), queueName);
 
-        return pushedCount;
+        return pushedLinks.size();
     }
 
     @Override
@@ -96,21 +121,43 @@ public class CrawlerServiceImpl implements CrawlerService {
         }
 
         log.info("找到 {} 个激活的分类", categories.size());
-        int totalLinks = 0;
 
+        // 并发爬取各分类页，同一主机的请求间隔由限速器控制
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
         for (Category category : categories) {
-            try {
-                int count = crawlAppsByCategoryId(category.getCategoryId());
-                totalLinks += count;
-
-                // 添加延时避免请求过快
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error("爬取被中断", e);
-                break;
-            } catch (Exception e) {
-                log.error("爬取分类 {} 时出错", category.getCategoryId(), e);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return crawlAppsByCategoryId(category.getCategoryId());
+                } catch (Exception e) {
+                    log.error("爬取分类 {} 时出错", category.getCategoryId(), e);
+                    return 0;
+                }
+            }, appCategoryCrawlExecutor));
+        }
+
+        // 每个分类预留60秒，最少10分钟
+        long timeout = Math.max(600, categories.size() * 60L);
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(timeout, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.error("爬取所有分类超时（{}秒），部分分类可能未完成", timeout);
+            futures.forEach(f -> {
+                if (!f.isDone()) {
+                    f.cancel(true);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("爬取被中断", e);
+        } catch (Exception e) {
+            log.error("爬取所有分类时发生异常", e);
+        }
+
+        int totalLinks = 0;
+        for (CompletableFuture<Integer> future : futures) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                totalLinks += future.getNow(0);
             }
         }
 
@@ -121,6 +168,7 @@ public class CrawlerServiceImpl implements CrawlerService {
     @Override
     public String fetchPageContent(String url) {
         try {
+            crawlerHostRateLimiter.acquire(url);
             log.debug("正在获取页面内容: {}", url);
 
             Document doc = Jsoup.connect(url)
@@ -133,6 +181,10 @@ public class CrawlerServiceImpl implements CrawlerService {
         } catch (IOException e) {
             log.error("获取页面内容失败: {}", url, e);
             return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("等待请求间隔时被中断: {}", url);
+            return null;
         }
     }
 
@@ -188,31 +240,40 @@ public class CrawlerServiceImpl implements CrawlerService {
 
     @Override
     public int pushLinksToRedisQueue(List<String> appLinks, String queueName) {
+        return pushLinks(appLinks, queueName).size();
+    }
+
+    /**
+     * 将应用链接推送到Redis队列
+     *
+     * @return 成功推送的链接
+     */
+    private List<String> pushLinks(List<String> appLinks, String queueName) {
+        List<String> pushedLinks = new ArrayList<>();
         if (appLinks == null || appLinks.isEmpty()) {
-            return 0;
+            return pushedLinks;
         }
 
-        int successCount = 0;
         String actualQueueName = StringUtils.hasText(queueName) ? queueName : APP_QUEUE_PREFIX + DEFAULT_QUEUE_NAME;
 
         try {
             for (String link : appLinks) {
-                // 使用Redis的List数据结构，RPUSH添加到队列尾部
-                Long result = redisTemplate.opsForList().rightPush(actualQueueName, link);
+                // 与可靠队列一致从左端入队，消费者从右端出队，先推送的高优先级链接先被处理
+                Long result = redisTemplate.opsForList().leftPush(actualQueueName, link);
                 if (result != null && result > 0) {
-                    successCount++;
+                    pushedLinks.add(link);
                 }
             }
 
             // 设置队列过期时间为7天
             redisTemplate.expire(actualQueueName, 7, TimeUnit.DAYS);
 
-            log.info("成功推送 {} 个链接到Redis队列: {}", successCount, actualQueueName);
+            log.info("成功推送 {} 个链接到Redis队列: {}", pushedLinks.size(), actualQueueName);
         } catch (Exception e) {
             log.error("推送链接到Redis队列失败: {}", actualQueueName, e);
         }
 
-        return successCount;
+        return pushedLinks;
     }
 
     @Override
@@ -0,0 +1,187 @@
+package com.moon.cloud.appstore.service.impl;
+
+import com.moon.cloud.appstore.dto.EngagementDeltaDTO;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.mapper.FreePromotionMapper;
+import com.moon.cloud.appstore.service.EngagementCounterService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 互动计数服务实现类
+ * <p>
+ * 每次计数只对Redis哈希执行一次HINCRBY，同一记录的多次计数在Redis中合并，不写数据库；
+ * 定时任务用Lua脚本原子地取出并清空全部增量，按表汇总后用 CASE WHEN 批量累加到数据库。
+ * 累加由数据库完成，不会像先查后改那样在并发时丢失计数；多个实例同时刷新也不会重复写入。
+ * 写库失败时未写入的增量加回Redis，下次刷新重试。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EngagementCounterServiceImpl implements EngagementCounterService {
+
+    private static final String PENDING_KEY = "appstore:engagement:pending";
+
+    /**
+     * 每条UPDATE语句包含的最大记录数
+     */
+    private static final int UPDATE_BATCH_SIZE = 200;
+
+    /**
+     * 取出脚本：返回全部增量并删除哈希
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> DRAIN_SCRIPT = RedisScript.of(
+            "local entries = redis.call('HGETALL', KEYS[1]) "
+                    + "redis.call('DEL', KEYS[1]) "
+                    + "return entries",
+            List.class);
+
+    /**
+     * 恢复脚本：把未写入数据库的增量加回哈希
+     */
+    private static final RedisScript<Long> RESTORE_SCRIPT = RedisScript.of(
+            "for i = 1, #ARGV, 2 do "
+                    + "  redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) "
+                    + "end "
+                    + "return #ARGV / 2",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final AppMapper appMapper;
+    private final FreePromotionMapper freePromotionMapper;
+
+    @Override
+    public void increment(Metric metric, String id) {
+        if (id == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForHash().increment(PENDING_KEY, metric.name() + ":" + id, 1);
+        } catch (Exception e) {
+            // 计数失败不影响正常访问
+            log.warn("记录互动计数失败: metric={}, id={}", metric, id, e);
+        }
+    }
+
+    @Override
+    public synchronized int flush() {
+        @SuppressWarnings("unchecked")
+        List<String> entries = redisTemplate.execute(DRAIN_SCRIPT, List.of(PENDING_KEY));
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, EngagementDeltaDTO> appDeltas = new LinkedHashMap<>();
+        Map<String, EngagementDeltaDTO> promotionDeltas = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < entries.size(); i += 2) {
+            String field = entries.get(i);
+            int separator = field.indexOf(':');
+            Metric metric;
+            long count;
+            try {
+                metric = Metric.valueOf(field.substring(0, Math.max(separator, 0)));
+                count = Long.parseLong(entries.get(i + 1));
+            } catch (IllegalArgumentException e) {
+                log.warn("忽略无法识别的互动计数: {}={}", field, entries.get(i + 1));
+                continue;
+            }
+            String id = field.substring(separator + 1);
+            EngagementDeltaDTO delta = (metric.isAppMetric() ? appDeltas : promotionDeltas)
+                    .computeIfAbsent(id, k -> new EngagementDeltaDTO().setId(k));
+            switch (metric) {
+                case APP_VIEW, PROMOTION_VIEW -> delta.setViewCount(delta.getViewCount() + count);
+                case PROMOTION_CLICK -> delta.setClickCount(delta.getClickCount() + count);
+                case PROMOTION_SHARE -> delta.setShareCount(delta.getShareCount() + count);
+                case APP_DOWNLOAD -> delta.setDownloadCount(delta.getDownloadCount() + count);
+            }
+        }
+
+        List<Batch> batches = new ArrayList<>();
+        addBatches(batches, new ArrayList<>(appDeltas.values()), true);
+        addBatches(batches, new ArrayList<>(promotionDeltas.values()), false);
+
+        int written = 0;
+        for (int i = 0; i < batches.size(); i++) {
+            Batch batch = batches.get(i);
+            try {
+                if (batch.app()) {
+                    appMapper.incrementEngagementCounts(batch.deltas());
+                } else {
+                    freePromotionMapper.incrementEngagementCounts(batch.deltas());
+                }
+            } catch (Exception e) {
+                // 已写入的批次不回滚，只放回当前及之后的批次
+                log.error("写入互动计数失败，未写入的增量已放回Redis，剩余批次: {}", batches.size() - i, e);
+                batches.subList(i, batches.size()).forEach(this::restore);
+                return written;
+            }
+            written += batch.deltas().size();
+        }
+
+        log.debug("互动计数已写入数据库，应用: {}, 限免: {}", appDeltas.size(), promotionDeltas.size());
+        return written;
+    }
+
+    /**
+     * 按批次大小切分增量
+     */
+    private void addBatches(List<Batch> batches, List<EngagementDeltaDTO> deltas, boolean app) {
+        for (int from = 0; from < deltas.size(); from += UPDATE_BATCH_SIZE) {
+            int to = Math.min(from + UPDATE_BATCH_SIZE, deltas.size());
+            batches.add(new Batch(deltas.subList(from, to), app));
+        }
+    }
+
+    /**
+     * 把批次中的增量加回Redis
+     */
+    private void restore(Batch batch) {
+        List<String> args = new ArrayList<>();
+        for (EngagementDeltaDTO delta : batch.deltas()) {
+            if (batch.app()) {
+                addRestoreArgs(args, Metric.APP_VIEW, delta.getId(), delta.getViewCount());
+                addRestoreArgs(args, Metric.APP_DOWNLOAD, delta.getId(), delta.getDownloadCount());
+            } else {
+                addRestoreArgs(args, Metric.PROMOTION_VIEW, delta.getId(), delta.getViewCount());
+                addRestoreArgs(args, Metric.PROMOTION_CLICK, delta.getId(), delta.getClickCount());
+                addRestoreArgs(args, Metric.PROMOTION_SHARE, delta.getId(), delta.getShareCount());
+            }
+        }
+        if (args.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RESTORE_SCRIPT, List.of(PENDING_KEY), args.toArray());
+        } catch (Exception e) {
+            log.error("互动计数放回Redis失败，丢失 {} 条增量", args.size() / 2, e);
+        }
+    }
+
+    private void addRestoreArgs(List<String> args, Metric metric, String id, long count) {
+        if (count > 0) {
+            args.add(metric.name() + ":" + id);
+            args.add(String.valueOf(count));
+        }
+    }
+
+    /**
+     * 一条UPDATE语句对应的增量
+     *
+     * @param deltas 增量
+     * @param app    是否为应用表，否则为限免表
+     */
+    private record Batch(List<EngagementDeltaDTO> deltas, boolean app) {
+    }
+}
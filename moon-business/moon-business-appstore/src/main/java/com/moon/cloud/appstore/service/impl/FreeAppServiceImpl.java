@@ -9,13 +9,13 @@ import com.moon.cloud.appstore.entity.PriceHistory;
 import com.moon.cloud.appstore.mapper.AppMapper;
 import com.moon.cloud.appstore.mapper.FreePromotionMapper;
 import com.moon.cloud.appstore.mapper.PriceHistoryMapper;
+import com.moon.cloud.appstore.service.EngagementCounterService;
 import com.moon.cloud.appstore.service.FreeAppService;
 import com.moon.cloud.appstore.vo.AppDetailVO;
 import com.moon.cloud.appstore.vo.FreeAppVO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -39,6 +39,7 @@ public class FreeAppServiceImpl implements FreeAppService {
     private final AppMapper appMapper;
     private final FreePromotionMapper freePromotionMapper;
     private final PriceHistoryMapper priceHistoryMapper;
+    private final EngagementCounterService engagementCounterService;
 
     @Override
     public Page<FreeAppVO> getTodayFreeApps(FreeAppListDTO dto) {
@@ -177,45 +178,41 @@ public class FreeAppServiceImpl implements FreeAppService {
     }
 
     @Override
-    @Transactional
     public void increaseViewCount(String appId) {
-        LambdaQueryWrapper<FreePromotion> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(FreePromotion::getAppId, appId)
-               .eq(FreePromotion::getStatus, "ACTIVE");
-
-        FreePromotion promotion = freePromotionMapper.selectOne(wrapper);
-        if (promotion != null) {
-            promotion.setViewCount(promotion.getViewCount() + 1);
-            freePromotionMapper.updateById(promotion);
+        String promotionId = getActivePromotionId(appId);
+        if (promotionId != null) {
+            engagementCounterService.increment(EngagementCounterService.Metric.PROMOTION_VIEW, promotionId);
         }
     }
 
     @Override
-    @Transactional
     public void increaseClickCount(String appId) {
-        LambdaQueryWrapper<FreePromotion> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(FreePromotion::getAppId, appId)
-               .eq(FreePromotion::getStatus, "ACTIVE");
-
-        FreePromotion promotion = freePromotionMapper.selectOne(wrapper);
-        if (promotion != null) {
-            promotion.setClickCount(promotion.getClickCount() + 1);
-            freePromotionMapper.updateById(promotion);
+        String promotionId = getActivePromotionId(appId);
+        if (promotionId != null) {
+            engagementCounterService.increment(EngagementCounterService.Metric.PROMOTION_CLICK, promotionId);
         }
     }
 
     @Override
-    @Transactional
     public void increaseShareCount(String appId) {
+        String promotionId = getActivePromotionId(appId);
+        if (promotionId != null) {
+            engagementCounterService.increment(EngagementCounterService.Metric.PROMOTION_SHARE, promotionId);
+        }
+    }
+
+    /**
+     * 查询应用当前进行中的限免记录ID，只取主键
+     */
+    private String getActivePromotionId(String appId) {
         LambdaQueryWrapper<FreePromotion> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(FreePromotion::getAppId, appId)
-               .eq(FreePromotion::getStatus, "ACTIVE");
+        wrapper.select(FreePromotion::getId)
+               .eq(FreePromotion::getAppId, appId)
+               .eq(FreePromotion::getStatus, "ACTIVE")
+               .last("LIMIT 1");
 
         FreePromotion promotion = freePromotionMapper.selectOne(wrapper);
-        if (promotion != null) {
-            promotion.setShareCount(promotion.getShareCount() + 1);
-            freePromotionMapper.updateById(promotion);
-        }
+        return promotion != null ? promotion.getId() : null;
     }
 
     private FreeAppVO convertToFreeAppVO(FreePromotion promotion) {
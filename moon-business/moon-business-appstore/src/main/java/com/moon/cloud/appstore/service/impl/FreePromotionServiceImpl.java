@@ -5,9 +5,13 @@ import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.moon.cloud.appstore.dto.FreeAppQueryDTO;
 import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.CategoryStatistics;
 import com.moon.cloud.appstore.entity.FreePromotion;
 import com.moon.cloud.appstore.mapper.AppMapper;
 import com.moon.cloud.appstore.mapper.FreePromotionMapper;
+import com.moon.cloud.appstore.promotion.FreePromotionDetector;
+import com.moon.cloud.appstore.service.EngagementCounterService;
+import com.moon.cloud.appstore.statistics.CategoryStatisticsMaterializer;
 import com.moon.cloud.appstore.service.FreePromotionService;
 import com.moon.cloud.appstore.vo.FreeAppStatisticsVO;
 import com.moon.cloud.appstore.vo.FreePromotionVO;
@@ -40,6 +44,9 @@ public class FreePromotionServiceImpl implements FreePromotionService {
 
     private final FreePromotionMapper freePromotionMapper;
     private final AppMapper appMapper;
+    private final EngagementCounterService engagementCounterService;
+    private final FreePromotionDetector freePromotionDetector;
+    private final CategoryStatisticsMaterializer categoryStatisticsMaterializer;
 
     @Override
     public Page<FreePromotionVO> getTodayFreeApps(FreeAppQueryDTO queryDTO) {
@@ -139,25 +146,20 @@ public class FreePromotionServiceImpl implements FreePromotionService {
 
         statistics.setTodayNewFreeCount(todayPromotions.size());
 
-        // 活跃限免统计
-        LambdaQueryWrapper<FreePromotion> activeQuery = new LambdaQueryWrapper<>();
-        activeQuery.eq(FreePromotion::getStatus, "ACTIVE");
+        // 活跃限免统计，由数据库计数，不加载进行中的限免记录
+        statistics.setActiveFreeCount(freePromotionMapper.selectCount(new LambdaQueryWrapper<FreePromotion>()
+                .eq(FreePromotion::getStatus, "ACTIVE")
+                .eq(FreePromotion::getPromotionType, "FREE")).intValue());
 
-        List<FreePromotion> activePromotions = freePromotionMapper.selectList(activeQuery);
-
-        statistics.setActiveFreeCount((int) activePromotions.stream()
-                .filter(p -> "FREE".equals(p.getPromotionType()))
-                .count());
-
-        statistics.setActiveDiscountCount((int) activePromotions.stream()
-                .filter(p -> "DISCOUNT".equals(p.getPromotionType()))
-                .count());
+        statistics.setActiveDiscountCount(freePromotionMapper.selectCount(new LambdaQueryWrapper<FreePromotion>()
+                .eq(FreePromotion::getStatus, "ACTIVE")
+                .eq(FreePromotion::getPromotionType, "DISCOUNT")).intValue());
 
         // 即将结束统计
         LocalDateTime sixHoursLater = LocalDateTime.now().plusHours(6);
-        statistics.setEndingSoonCount((int) activePromotions.stream()
-                .filter(p -> p.getEndTime() != null && p.getEndTime().isBefore(sixHoursLater))
-                .count());
+        statistics.setEndingSoonCount(freePromotionMapper.selectCount(new LambdaQueryWrapper<FreePromotion>()
+                .eq(FreePromotion::getStatus, "ACTIVE")
+                .lt(FreePromotion::getEndTime, sixHoursLater)).intValue());
 
         // 计算今日总节省金额
         BigDecimal todayTotalSavings = todayPromotions.stream()
@@ -188,12 +190,12 @@ public class FreePromotionServiceImpl implements FreePromotionService {
                     }
                 });
 
-        // 分类分布统计
+        // 分类分布统计，读取物化的分类统计，不再逐条查询限免应用
         Map<String, Integer> categoryDistribution = new HashMap<>();
-        for (FreePromotion promotion : activePromotions) {
-            App app = appMapper.selectById(promotion.getAppId());
-            if (app != null && app.getPrimaryCategoryName() != null) {
-                categoryDistribution.merge(app.getPrimaryCategoryName(), 1, Integer::sum);
+        for (CategoryStatistics categoryStatistics : categoryStatisticsMaterializer.getStatistics()) {
+            int activeCount = categoryStatistics.getActiveFreeCount() + categoryStatistics.getActiveDiscountCount();
+            if (activeCount > 0 && categoryStatistics.getCategoryName() != null) {
+                categoryDistribution.merge(categoryStatistics.getCategoryName(), activeCount, Integer::sum);
             }
         }
         statistics.setCategoryDistribution(categoryDistribution);
@@ -226,120 +228,26 @@ public class FreePromotionServiceImpl implements FreePromotionService {
     }
 
     @Override
-    @Transactional
     @CacheEvict(value = {"free:ending", "free:hot", "free:statistics"}, allEntries = true)
     public void updatePromotionStatus() {
         log.info("开始更新限免状态");
 
-        // 查询所有活跃的限免
-        LambdaQueryWrapper<FreePromotion> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(FreePromotion::getStatus, "ACTIVE");
-
-        List<FreePromotion> activePromotions = freePromotionMapper.selectList(queryWrapper);
-        int updatedCount = 0;
-
-        for (FreePromotion promotion : activePromotions) {
-            boolean needUpdate = false;
-
-            // 检查是否应该结束
-            if (promotion.getEndTime() != null && LocalDateTime.now().isAfter(promotion.getEndTime())) {
-                promotion.setStatus("ENDED");
-                promotion.setActualEndTime(LocalDateTime.now());
-                needUpdate = true;
-            } else {
-                // 检查应用当前价格是否仍然是优惠价格
-                App app = appMapper.selectById(promotion.getAppId());
-                if (app != null) {
-                    BigDecimal currentPrice = app.getCurrentPrice();
-                    BigDecimal originalPrice = app.getOriginalPrice();
-
-                    if (currentPrice != null && originalPrice != null) {
-                        // 如果价格恢复了，标记为结束
-                        if (currentPrice.compareTo(originalPrice) >= 0) {
-                            promotion.setStatus("ENDED");
-                            promotion.setActualEndTime(LocalDateTime.now());
-                            needUpdate = true;
-                        }
-                    }
-                }
-            }
+        // 预估结束时间已到的限免，按 (status, end_time) 索引一次结束
+        int expiredCount = freePromotionDetector.expirePromotions();
 
-            if (needUpdate) {
-                promotion.setUpdatedAt(LocalDateTime.now());
-                freePromotionMapper.updateById(promotion);
-                updatedCount++;
-                log.info("更新限免状态: appId={}, status={}", promotion.getAppstoreAppId(), promotion.getStatus());
-            }
-        }
+        // 价格恢复通常已由价格变化事件处理，这里分批对账兜底
+        FreePromotionDetector.Result result = freePromotionDetector.reconcileActivePromotions();
 
-        log.info("限免状态更新完成，更新了 {} 条记录", updatedCount);
+        log.info("限免状态更新完成，到期结束 {} 条，价格恢复结束 {} 条，更新优惠价格 {} 条",
+                expiredCount, result.ended(), result.updated());
     }
 
     @Override
-    @Transactional
     public int detectNewPromotions() {
         log.info("开始检测新的限免应用");
 
-        // 查询所有应用，检查价格变化
-        List<App> apps = appMapper.selectList(null);
-        int newPromotionsCount = 0;
-
-        for (App app : apps) {
-            if (app.getCurrentPrice() == null || app.getOriginalPrice() == null) {
-                continue;
-            }
-
-            // 如果当前价格小于原始价格，可能是限免或打折
-            if (app.getCurrentPrice().compareTo(app.getOriginalPrice()) < 0) {
-                // 检查是否已经有活跃的限免记录
-                LambdaQueryWrapper<FreePromotion> queryWrapper = new LambdaQueryWrapper<>();
-                queryWrapper.eq(FreePromotion::getAppstoreAppId, app.getAppId())
-                           .eq(FreePromotion::getStatus, "ACTIVE");
-
-                FreePromotion existingPromotion = freePromotionMapper.selectOne(queryWrapper);
-
-                if (existingPromotion == null) {
-                    // 创建新的限免记录
-                    FreePromotion promotion = new FreePromotion();
-                    promotion.setAppId(app.getId());
-                    promotion.setAppstoreAppId(app.getAppId());
-
-                    if (app.getCurrentPrice().compareTo(BigDecimal.ZERO) == 0) {
-                        promotion.setPromotionType("FREE");
-                    } else {
-                        promotion.setPromotionType("DISCOUNT");
-                    }
-
-                    promotion.setOriginalPrice(app.getOriginalPrice());
-                    promotion.setPromotionPrice(app.getCurrentPrice());
-
-                    BigDecimal savingsAmount = app.getOriginalPrice().subtract(app.getCurrentPrice());
-                    promotion.setSavingsAmount(savingsAmount);
-
-                    if (app.getOriginalPrice().compareTo(BigDecimal.ZERO) > 0) {
-                        BigDecimal discountRate = savingsAmount.divide(app.getOriginalPrice(), 4, BigDecimal.ROUND_HALF_UP)
-                                                                .multiply(new BigDecimal("100"));
-                        promotion.setDiscountRate(discountRate);
-                    }
-
-                    promotion.setStartTime(LocalDateTime.now());
-                    promotion.setDiscoveredAt(LocalDateTime.now());
-                    promotion.setDiscoverySource("AUTO");
-                    promotion.setStatus("ACTIVE");
-                    promotion.setViewCount(0);
-                    promotion.setClickCount(0);
-                    promotion.setShareCount(0);
-                    promotion.setCreatedAt(LocalDateTime.now());
-                    promotion.setUpdatedAt(LocalDateTime.now());
-
-                    freePromotionMapper.insert(promotion);
-                    newPromotionsCount++;
-
-                    log.info("发现新的限免应用: appId={}, type={}, savings={}",
-                            app.getAppId(), promotion.getPromotionType(), savingsAmount);
-                }
-            }
-        }
+        // 价格变化已由爬取时的价格变化事件实时检测，这里只对当前低于原价的应用做全量对账
+        int newPromotionsCount = freePromotionDetector.detectDiscountedApps();
 
         log.info("新限免检测完成，发现 {} 个新限免应用", newPromotionsCount);
         return newPromotionsCount;
@@ -406,16 +314,18 @@ public class FreePromotionServiceImpl implements FreePromotionService {
     }
 
     @Override
-    @Transactional
     public boolean increaseClickCount(String promotionId) {
         try {
-            LambdaUpdateWrapper<FreePromotion> updateWrapper = new LambdaUpdateWrapper<>();
-            updateWrapper.eq(FreePromotion::getId, promotionId)
-                        .setSql("click_count = click_count + 1")
-                        .set(FreePromotion::getUpdatedAt, LocalDateTime.now());
+            // 不存在的推广不计数，避免任意ID在待写入的计数Hash中堆积
+            Long count = freePromotionMapper.selectCount(new LambdaQueryWrapper<FreePromotion>()
+                    .eq(FreePromotion::getId, promotionId));
+            if (count == null || count == 0) {
+                return false;
+            }
 
-            int result = freePromotionMapper.update(null, updateWrapper);
-            return result > 0;
+            // 计数先在Redis中累加，由定时任务批量写入数据库
+            engagementCounterService.increment(EngagementCounterService.Metric.PROMOTION_CLICK, promotionId);
+            return true;
         } catch (Exception e) {
             log.error("增加点击次数失败: {}", promotionId, e);
             return false;
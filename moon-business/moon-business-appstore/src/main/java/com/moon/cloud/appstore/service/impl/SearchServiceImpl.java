@@ -8,6 +8,7 @@ import com.moon.cloud.appstore.entity.FreePromotion;
 import com.moon.cloud.appstore.entity.SearchHistory;
 import com.moon.cloud.appstore.entity.SearchIndex;
 import com.moon.cloud.appstore.mapper.*;
+import com.moon.cloud.appstore.search.AppSuggestionIndex;
 import com.moon.cloud.appstore.service.SearchService;
 import com.moon.cloud.appstore.vo.FreeAppVO;
 import lombok.RequiredArgsConstructor;
@@ -40,10 +41,12 @@ public class SearchServiceImpl implements SearchService {
     private final AppMapper appMapper;
     private final FreePromotionMapper freePromotionMapper;
     private final StringRedisTemplate redisTemplate;
+    private final AppSuggestionIndex appSuggestionIndex;
 
     private static final String HOT_SEARCH_KEY = "appstore:hot:search";
     private static final String SEARCH_SUGGESTION_KEY = "appstore:search:suggestion:";
     private static final String USER_SEARCH_HISTORY_KEY = "appstore:search:history:";
+    private static final int SUGGESTION_LIMIT = 10;
 
     @Override
     public Page<FreeAppVO> searchApps(SearchDTO dto) {
@@ -96,6 +99,30 @@ public class SearchServiceImpl implements SearchService {
 
     @Override
     public List<String> getSearchSuggestions(String keyword) {
+        // 优先使用内存中的前缀建议树
+        if (appSuggestionIndex.isReady()) {
+            List<String> suggestions = appSuggestionIndex.suggest(keyword, SUGGESTION_LIMIT);
+            if (suggestions.size() < SUGGESTION_LIMIT) {
+                // 建议树只做前缀匹配，不足时用包含匹配补齐，如输入"荣耀"提示"王者荣耀"
+                for (String suggestion : loadSearchSuggestions(keyword)) {
+                    if (suggestions.size() >= SUGGESTION_LIMIT) {
+                        break;
+                    }
+                    if (!suggestions.contains(suggestion)) {
+                        suggestions.add(suggestion);
+                    }
+                }
+            }
+            return suggestions;
+        }
+
+        return loadSearchSuggestions(keyword);
+    }
+
+    /**
+     * 按名称、拼音和开发者的包含匹配生成搜索建议，结果缓存1小时
+     */
+    private List<String> loadSearchSuggestions(String keyword) {
         // 先从缓存获取
         String cacheKey = SEARCH_SUGGESTION_KEY + keyword;
         Set<String> cached = redisTemplate.opsForSet().members(cacheKey);
@@ -111,7 +138,7 @@ public class SearchServiceImpl implements SearchService {
                .or()
                .like(SearchIndex::getDeveloperName, keyword)
                .orderByDesc(SearchIndex::getSearchWeight)
-               .last("LIMIT 10");
+               .last("LIMIT " + SUGGESTION_LIMIT);
 
         List<SearchIndex> indexes = searchIndexMapper.selectList(wrapper);
         List<String> suggestions = indexes.stream()
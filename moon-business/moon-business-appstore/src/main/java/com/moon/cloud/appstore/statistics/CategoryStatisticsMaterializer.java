@@ -0,0 +1,281 @@
+package com.moon.cloud.appstore.statistics;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.CategoryStatistics;
+import com.moon.cloud.appstore.event.AppChangedEvent;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.mapper.CategoryStatisticsMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分类统计物化器
+ * <p>
+ * 按分类维护应用数、免费应用数、评分总和与平均评分、进行中的限免数，保存在category_statistics表，
+ * 并在内存中保留一份快照，统计接口按分类数量读取，不再逐条加载应用和限免记录。
+ * <ul>
+ *     <li>应用统计：订阅 {@link AppChangedEvent}，只记录变更应用所在的分类，定时由数据库聚合这些分类</li>
+ *     <li>限免统计：进行中的限免数量很少，每个周期按分类重新聚合一次</li>
+ * </ul>
+ * 每个周期先从表中重新加载快照，多个实例各自刷新也能读到彼此写入的结果；只写入发生变化的分类。
+ * 应用更换分类时原分类不会被标记，由每日全量重建校正。
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryStatisticsMaterializer {
+
+    /**
+     * 每次按应用ID查询分类的最大应用数
+     */
+    private static final int QUERY_BATCH_SIZE = 500;
+
+    /**
+     * 每条upsert语句包含的最大分类数
+     */
+    private static final int UPSERT_BATCH_SIZE = 200;
+
+    /**
+     * 评分总和的小数位数，与表字段一致，比较是否变化时不受精度影响
+     */
+    private static final int RATING_SCALE = 2;
+
+    private final AppMapper appMapper;
+    private final CategoryStatisticsMapper categoryStatisticsMapper;
+
+    @Value("${appstore.statistics.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 待重新聚合应用统计的分类ID
+     */
+    private final Set<String> dirtyCategoryIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 当前统计快照，按分类ID索引
+     */
+    private volatile Map<String, CategoryStatistics> snapshot = Map.of();
+
+    /**
+     * 记录变更应用所在的分类，在写入事务提交后执行
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppChanged(AppChangedEvent event) {
+        if (!enabled || event.appIds().isEmpty()) {
+            return;
+        }
+        try {
+            List<String> appIds = event.appIds();
+            for (int from = 0; from < appIds.size(); from += QUERY_BATCH_SIZE) {
+                List<App> apps = appMapper.selectList(new LambdaQueryWrapper<App>()
+                        .select(App::getPrimaryCategoryId)
+                        .in(App::getId, appIds.subList(from, Math.min(from + QUERY_BATCH_SIZE, appIds.size()))));
+                for (App app : apps) {
+                    if (app != null && app.getPrimaryCategoryId() != null) {
+                        dirtyCategoryIds.add(app.getPrimaryCategoryId());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("记录待更新的分类统计失败，应用数: {}", event.appIds().size(), e);
+        }
+    }
+
+    /**
+     * 全部分类的统计
+     */
+    public List<CategoryStatistics> getStatistics() {
+        return new ArrayList<>(snapshot.values());
+    }
+
+    /**
+     * 指定分类的统计
+     *
+     * @param categoryId App Store分类ID
+     * @return 分类统计，不存在时返回null
+     */
+    public CategoryStatistics getStatistics(String categoryId) {
+        return snapshot.get(categoryId);
+    }
+
+    /**
+     * 定时刷新：重新聚合变更分类的应用统计和全部分类的限免统计
+     */
+    @Scheduled(fixedDelayString = "${appstore.statistics.refresh-interval:60000}",
+            initialDelayString = "${appstore.statistics.initial-delay:15000}")
+    public void refreshPending() {
+        if (!enabled) {
+            return;
+        }
+        List<String> categoryIds = new ArrayList<>(dirtyCategoryIds);
+        dirtyCategoryIds.removeAll(categoryIds);
+        try {
+            refresh(categoryIds);
+        } catch (Exception e) {
+            // 放回待处理集合，下个周期重试
+            dirtyCategoryIds.addAll(categoryIds);
+            log.error("刷新分类统计失败，待更新分类数: {}", categoryIds.size(), e);
+        }
+    }
+
+    /**
+     * 每日全量重建，校正应用更换分类、下架等未被事件覆盖的变化
+     */
+    @Scheduled(cron = "${appstore.statistics.rebuild-cron:0 0 5 * * ?}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int changed = refresh(null);
+            log.info("分类统计全量重建完成，变化分类数: {}", changed);
+        } catch (Exception e) {
+            log.error("分类统计全量重建失败", e);
+        }
+    }
+
+    /**
+     * 重新聚合指定分类的应用统计和全部分类的限免统计，写入发生变化的分类
+     *
+     * @param categoryIds 需要重新聚合应用统计的分类ID，为null时重新聚合全部分类；统计表为空时自动全量生成
+     * @return 发生变化的分类数
+     */
+    public synchronized int refresh(Collection<String> categoryIds) {
+        Map<String, CategoryStatistics> current = new HashMap<>();
+        for (CategoryStatistics statistics : categoryStatisticsMapper.selectList(null)) {
+            current.put(statistics.getCategoryId(), statistics);
+        }
+        boolean rebuildAll = categoryIds == null || current.isEmpty();
+
+        Map<String, CategoryStatistics> updated = new HashMap<>();
+        current.forEach((categoryId, statistics) -> updated.put(categoryId, copy(statistics)));
+
+        // 应用统计：只聚合变更的分类
+        if (rebuildAll || !categoryIds.isEmpty()) {
+            Map<String, CategoryStatistics> aggregated = index(
+                    categoryStatisticsMapper.aggregateApps(rebuildAll ? null : categoryIds));
+            Set<String> targets = new HashSet<>(rebuildAll ? current.keySet() : categoryIds);
+            targets.addAll(aggregated.keySet());
+            for (String categoryId : targets) {
+                applyAppStatistics(updated.computeIfAbsent(categoryId, CategoryStatisticsMaterializer::empty),
+                        aggregated.get(categoryId));
+            }
+        }
+
+        // 限免统计：全部分类重新聚合
+        Map<String, CategoryStatistics> promotions = index(categoryStatisticsMapper.aggregateActivePromotions());
+        Set<String> categories = new HashSet<>(updated.keySet());
+        categories.addAll(promotions.keySet());
+        for (String categoryId : categories) {
+            applyPromotionStatistics(updated.computeIfAbsent(categoryId, CategoryStatisticsMaterializer::empty),
+                    promotions.get(categoryId));
+        }
+
+        List<CategoryStatistics> changed = new ArrayList<>();
+        for (CategoryStatistics statistics : updated.values()) {
+            if (!statistics.equals(current.get(statistics.getCategoryId()))) {
+                changed.add(statistics);
+            }
+        }
+        if (!changed.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            changed.forEach(statistics -> statistics.setUpdatedAt(now));
+            for (int from = 0; from < changed.size(); from += UPSERT_BATCH_SIZE) {
+                categoryStatisticsMapper.upsertBatch(changed.subList(from, Math.min(from + UPSERT_BATCH_SIZE, changed.size())));
+            }
+            categoryStatisticsMapper.syncCategories(changed.stream().map(CategoryStatistics::getCategoryId).toList());
+            log.debug("分类统计已更新，变化分类数: {}", changed.size());
+        }
+
+        snapshot = Map.copyOf(updated);
+        return changed.size();
+    }
+
+    private static void applyAppStatistics(CategoryStatistics statistics, CategoryStatistics aggregated) {
+        if (aggregated == null) {
+            // 分类下已没有上架应用
+            statistics.setAppCount(0)
+                    .setFreeAppCount(0)
+                    .setRatedAppCount(0)
+                    .setRatingSum(BigDecimal.ZERO.setScale(RATING_SCALE))
+                    .setAvgRating(null);
+            return;
+        }
+        if (aggregated.getCategoryName() != null) {
+            statistics.setCategoryName(aggregated.getCategoryName());
+        }
+        statistics.setAppCount(aggregated.getAppCount())
+                .setFreeAppCount(aggregated.getFreeAppCount())
+                .setRatedAppCount(aggregated.getRatedAppCount())
+                .setRatingSum(aggregated.getRatingSum().setScale(RATING_SCALE, RoundingMode.HALF_UP))
+                .setAvgRating(average(aggregated.getRatingSum(), aggregated.getRatedAppCount()));
+    }
+
+    private static void applyPromotionStatistics(CategoryStatistics statistics, CategoryStatistics aggregated) {
+        if (aggregated == null) {
+            statistics.setActiveFreeCount(0).setActiveDiscountCount(0);
+            return;
+        }
+        if (statistics.getCategoryName() == null) {
+            statistics.setCategoryName(aggregated.getCategoryName());
+        }
+        statistics.setActiveFreeCount(aggregated.getActiveFreeCount())
+                .setActiveDiscountCount(aggregated.getActiveDiscountCount());
+    }
+
+    /**
+     * 由评分总和与评分应用数计算平均评分，保留两位小数
+     */
+    static BigDecimal average(BigDecimal ratingSum, Integer ratedAppCount) {
+        if (ratingSum == null || ratedAppCount == null || ratedAppCount == 0) {
+            return null;
+        }
+        return ratingSum.divide(BigDecimal.valueOf(ratedAppCount), RATING_SCALE, RoundingMode.HALF_UP);
+    }
+
+    private static Map<String, CategoryStatistics> index(List<CategoryStatistics> statistics) {
+        Map<String, CategoryStatistics> indexed = new HashMap<>();
+        for (CategoryStatistics item : statistics) {
+            indexed.put(item.getCategoryId(), item);
+        }
+        return indexed;
+    }
+
+    private static CategoryStatistics empty(String categoryId) {
+        return new CategoryStatistics()
+                .setCategoryId(categoryId)
+                .setAppCount(0)
+                .setFreeAppCount(0)
+                .setRatedAppCount(0)
+                .setRatingSum(BigDecimal.ZERO.setScale(RATING_SCALE))
+                .setActiveFreeCount(0)
+                .setActiveDiscountCount(0);
+    }
+
+    private static CategoryStatistics copy(CategoryStatistics statistics) {
+        CategoryStatistics copy = new CategoryStatistics();
+        BeanUtils.copyProperties(statistics, copy);
+        return copy;
+    }
+}
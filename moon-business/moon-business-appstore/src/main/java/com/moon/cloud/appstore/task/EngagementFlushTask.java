@@ -0,0 +1,37 @@
+package com.moon.cloud.appstore.task;
+
+import com.moon.cloud.appstore.service.EngagementCounterService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 互动计数刷新定时任务
+ * 定期把Redis中累积的查看、点击、分享、下载次数批量写入数据库
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EngagementFlushTask {
+
+    private final EngagementCounterService engagementCounterService;
+
+    /**
+     * 默认每10秒刷新一次
+     */
+    @Scheduled(fixedDelayString = "${appstore.engagement.flush-interval:10000}")
+    public void flushEngagementCounts() {
+        try {
+            int written = engagementCounterService.flush();
+            if (written > 0) {
+                log.debug("互动计数刷新完成，记录数: {}", written);
+            }
+        } catch (Exception e) {
+            log.error("互动计数刷新异常", e);
+        }
+    }
+}
@@ -46,6 +46,8 @@ CREATE TABLE IF NOT EXISTS `apps` (
   `has_in_app_purchase` tinyint(1) DEFAULT '0' COMMENT '是否有内购',
   `has_ads` tinyint(1) DEFAULT NULL COMMENT '是否含广告',
   `status` tinyint(1) NOT NULL DEFAULT '1' COMMENT '状态: 1=正常, 0=下架',
+  `view_count` int DEFAULT '0' COMMENT '查看次数',
+  `download_count` int DEFAULT '0' COMMENT '下载次数',
   `created_at` timestamp DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `updated_at` timestamp DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   `last_crawled_at` timestamp DEFAULT NULL COMMENT '最后爬取时间',
@@ -90,6 +92,7 @@ CREATE TABLE IF NOT EXISTS `free_promotions` (
   KEY `idx_app_id` (`app_id`),
   KEY `idx_start_time` (`start_time`),
   KEY `idx_status_start` (`status`, `start_time` DESC),
+  KEY `idx_status_end` (`status`, `end_time`),
   KEY `idx_featured_hot` (`is_featured`, `is_hot`, `priority_score` DESC),
   KEY `idx_discovery` (`discovered_at` DESC)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='限免推广记录表';
@@ -197,6 +200,21 @@ CREATE TABLE IF NOT EXISTS `search_history` (
   KEY `idx_result_count` (`result_count`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='搜索历史表';
 
+-- 7. 分类统计表
+CREATE TABLE IF NOT EXISTS `category_statistics` (
+  `category_id` varchar(20) NOT NULL COMMENT 'App Store分类ID',
+  `category_name` varchar(100) DEFAULT NULL COMMENT '分类名称',
+  `app_count` int NOT NULL DEFAULT '0' COMMENT '应用总数',
+  `free_app_count` int NOT NULL DEFAULT '0' COMMENT '免费应用数',
+  `rated_app_count` int NOT NULL DEFAULT '0' COMMENT '有评分的应用数',
+  `rating_sum` decimal(14,2) NOT NULL DEFAULT '0.00' COMMENT '评分总和',
+  `avg_rating` decimal(3,2) DEFAULT NULL COMMENT '平均评分',
+  `active_free_count` int NOT NULL DEFAULT '0' COMMENT '进行中的限免数',
+  `active_discount_count` int NOT NULL DEFAULT '0' COMMENT '进行中的打折数',
+  `updated_at` timestamp DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`category_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='分类统计表';
+
 -- 初始化分类数据
 INSERT INTO `categories` (`id`, `category_id`, `parent_id`, `name_cn`, `name_en`, `category_type`, `sort_order`) VALUES
 ('cat_001', '6014', NULL, '游戏', 'Games', 'GAME', 1),
@@ -0,0 +1,13 @@
+-- 为 apps 表添加查看次数和下载次数字段
+-- 由互动计数服务定期批量累加，不随爬虫更新覆盖
+
+ALTER TABLE apps
+ADD COLUMN view_count INT DEFAULT 0 COMMENT '查看次数' AFTER status,
+ADD COLUMN download_count INT DEFAULT 0 COMMENT '下载次数' AFTER view_count;
+
+-- 验证结果
+SELECT
+    COUNT(*) as total_apps,
+    SUM(view_count) as total_views,
+    SUM(download_count) as total_downloads
+FROM apps;
@@ -0,0 +1,8 @@
+-- 为 free_promotions 表添加 (status, end_time) 索引
+-- 到期结束限免时按索引范围更新，不再扫描全部进行中的限免
+
+ALTER TABLE free_promotions
+ADD KEY idx_status_end (status, end_time);
+
+-- 验证结果
+SHOW INDEX FROM free_promotions WHERE Key_name = 'idx_status_end';
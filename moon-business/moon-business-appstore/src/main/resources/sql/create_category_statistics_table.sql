@@ -0,0 +1,19 @@
+-- 创建分类统计表
+-- 按分类物化的应用数、评分和进行中限免数，由统计任务增量维护，首次运行时全量生成
+
+CREATE TABLE IF NOT EXISTS `category_statistics` (
+  `category_id` varchar(20) NOT NULL COMMENT 'App Store分类ID',
+  `category_name` varchar(100) DEFAULT NULL COMMENT '分类名称',
+  `app_count` int NOT NULL DEFAULT '0' COMMENT '应用总数',
+  `free_app_count` int NOT NULL DEFAULT '0' COMMENT '免费应用数',
+  `rated_app_count` int NOT NULL DEFAULT '0' COMMENT '有评分的应用数',
+  `rating_sum` decimal(14,2) NOT NULL DEFAULT '0.00' COMMENT '评分总和',
+  `avg_rating` decimal(3,2) DEFAULT NULL COMMENT '平均评分',
+  `active_free_count` int NOT NULL DEFAULT '0' COMMENT '进行中的限免数',
+  `active_discount_count` int NOT NULL DEFAULT '0' COMMENT '进行中的打折数',
+  `updated_at` timestamp DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`category_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='分类统计表';
+
+-- 验证结果
+SELECT COUNT(*) AS total_categories FROM category_statistics;
@@ -0,0 +1,154 @@
+package com.moon.cloud.appstore.client;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.moon.cloud.threadpool.factory.MoonThreadPoolFactory;
+import com.moon.cloud.threadpool.rejector.RetryRejectedExecutionConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Express App详情客户端测试，使用本地桩服务模拟Express服务
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@DisplayName("Express App详情客户端测试")
+class ExpressAppDetailClientTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private volatile long responseDelayMillis;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newFixedThreadPool(16);
+        server.setExecutor(serverExecutor);
+        server.createContext("/appstore/app/detail", this::handleDetail);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("解析App详情")
+    void testFetchAppDetail() {
+        ExpressAppDetailClient client = newClient(4);
+        try {
+            JSONObject detail = client.fetchAppDetail("123456");
+
+            assertNotNull(detail);
+            assertEquals("123456", detail.getString("appId"));
+            assertEquals("测试应用", detail.getString("name"));
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    @DisplayName("上游返回非200时返回null")
+    void testFetchAppDetailNotFound() {
+        ExpressAppDetailClient client = newClient(4);
+        try {
+            assertNull(client.fetchAppDetail("missing"));
+            assertEquals(0, client.getInFlightCount());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    @DisplayName("连接在请求间复用")
+    void testConnectionReuse() {
+        ExpressAppDetailClient client = newClient(1);
+        try {
+            for (int i = 0; i < 20; i++) {
+                assertNotNull(client.fetchAppDetail(String.valueOf(i)));
+            }
+
+            assertEquals(1, clientPorts.size());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    @DisplayName("同时请求数不超过上限")
+    void testMaxInFlight() {
+        responseDelayMillis = 50;
+        ExpressAppDetailClient client = newClient(3);
+        try {
+            List<CompletableFuture<JSONObject>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(client.fetchAppDetailAsync(String.valueOf(i)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+            futures.forEach(future -> assertNotNull(future.join()));
+            assertTrue(maxActive.get() <= 3, "最大同时请求数: " + maxActive.get());
+            assertEquals(0, client.getInFlightCount());
+        } finally {
+            client.close();
+        }
+    }
+
+    private ExpressAppDetailClient newClient(int maxInFlight) {
+        return new ExpressAppDetailClient("http://127.0.0.1:" + server.getAddress().getPort(), 5, 10, maxInFlight,
+                new MoonThreadPoolFactory(new RetryRejectedExecutionConfig()));
+    }
+
+    private void handleDetail(HttpExchange exchange) throws IOException {
+        int current = active.incrementAndGet();
+        maxActive.accumulateAndGet(current, Math::max);
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        try {
+            if (responseDelayMillis > 0) {
+                Thread.sleep(responseDelayMillis);
+            }
+
+            String appId = exchange.getRequestURI().getQuery().substring("appId=".length());
+            if ("missing".equals(appId)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            byte[] body = ("{\"appId\":\"" + appId + "\",\"name\":\"测试应用\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            active.decrementAndGet();
+            exchange.close();
+        }
+    }
+}
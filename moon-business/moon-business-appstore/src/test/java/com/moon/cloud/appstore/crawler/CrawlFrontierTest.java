@@ -0,0 +1,153 @@
+package com.moon.cloud.appstore.crawler;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * App爬取边界测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("App爬取边界测试")
+class CrawlFrontierTest {
+
+    private static final String LINK_1 = "https://apps.apple.com/cn/app/app1/id1001";
+    private static final String LINK_2 = "https://apps.apple.com/cn/app/app2/id1002";
+    private static final String LINK_3 = "https://apps.apple.com/cn/app/app3/id1003";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private AppMapper appMapper;
+
+    @Mock
+    private RedisBloomFilter appCrawlBloomFilter;
+
+    @InjectMocks
+    private CrawlFrontier crawlFrontier;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda条件构造需要实体的表信息
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), App.class);
+    }
+
+    @Test
+    @DisplayName("测试未见过的App直接准入并去重")
+    void testAdmitUnseenLinks() {
+        when(appCrawlBloomFilter.mightContain(List.of("1001", "1002"))).thenReturn(List.of(false, false));
+
+        List<String> admitted = crawlFrontier.admit(List.of(LINK_1, LINK_2, LINK_1 + "?l=en", "https://apps.apple.com/cn/app/none"));
+
+        assertEquals(List.of(LINK_1, LINK_2), admitted);
+        verifyNoInteractions(redisTemplate, appMapper);
+    }
+
+    @Test
+    @DisplayName("测试跳过近期已入队的App，过期App按热度排序")
+    void testAdmitSkipsRecentlyScheduled() {
+        long now = System.currentTimeMillis();
+        String recent = String.valueOf(now - TimeUnit.HOURS.toMillis(1));
+        String stale = String.valueOf(now - TimeUnit.HOURS.toMillis(48));
+        when(appCrawlBloomFilter.mightContain(anyList())).thenReturn(List.of(true, true, true));
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.multiGet(eq("appstore:crawl:scheduled"), anyCollection()))
+                .thenReturn(Arrays.<Object>asList(recent, stale, stale));
+        when(appMapper.selectList(any())).thenReturn(List.of(
+                createApp("1002", 10), createApp("1003", 100000)));
+
+        List<String> admitted = crawlFrontier.admit(List.of(LINK_1, LINK_2, LINK_3));
+
+        // 1001一小时前已入队，跳过；1003评分数更多，排在前面
+        assertEquals(List.of(LINK_3, LINK_2), admitted);
+    }
+
+    @Test
+    @DisplayName("测试没有入队和爬取记录的App按新App准入")
+    void testAdmitFalsePositive() {
+        when(appCrawlBloomFilter.mightContain(anyList())).thenReturn(List.of(true));
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.multiGet(anyString(), anyCollection())).thenReturn(Arrays.asList((Object) null));
+        when(appMapper.selectList(any())).thenReturn(List.of());
+
+        assertEquals(List.of(LINK_1), crawlFrontier.admit(List.of(LINK_1)));
+    }
+
+    @Test
+    @DisplayName("测试最近已爬取的App跳过")
+    void testAdmitSkipsRecentlyCrawled() {
+        App app = createApp("1001", 10);
+        app.setLastCrawledAt(LocalDateTime.now().minusHours(2));
+        when(appCrawlBloomFilter.mightContain(anyList())).thenReturn(List.of(true));
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.multiGet(anyString(), anyCollection())).thenReturn(Arrays.asList((Object) null));
+        when(appMapper.selectList(any())).thenReturn(List.of(app));
+
+        assertTrue(crawlFrontier.admit(List.of(LINK_1)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试Redis不可用时全部链接准入")
+    void testAdmitFailOpen() {
+        when(appCrawlBloomFilter.mightContain(anyList())).thenThrow(new RuntimeException("Redis不可用"));
+
+        assertEquals(List.of(LINK_1, LINK_2), crawlFrontier.admit(List.of(LINK_1, LINK_2, LINK_2)));
+    }
+
+    @Test
+    @DisplayName("测试记录入队时间")
+    void testMarkScheduled() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+
+        crawlFrontier.markScheduled(List.of(LINK_1, LINK_2, LINK_1));
+
+        verify(appCrawlBloomFilter, times(1)).put(List.of("1001", "1002"));
+        verify(hashOperations, times(1)).putAll(eq("appstore:crawl:scheduled"),
+                argThat(map -> map.keySet().equals(Set.of("1001", "1002"))));
+    }
+
+    @Test
+    @DisplayName("测试优先级随过期时间和评分数增加")
+    void testPriority() {
+        long day = TimeUnit.DAYS.toMillis(1);
+        assertTrue(CrawlFrontier.priority(2 * day, day, 0) > CrawlFrontier.priority(day, day, 0));
+        assertTrue(CrawlFrontier.priority(day, day, 1000) > CrawlFrontier.priority(day, day, 10));
+        assertNull(CrawlFrontier.extractAppId("https://apps.apple.com/cn/app/none"));
+        assertEquals("1001", CrawlFrontier.extractAppId(LINK_1));
+    }
+
+    private App createApp(String appId, int ratingCount) {
+        App app = new App();
+        app.setAppId(appId);
+        app.setRatingCount(ratingCount);
+        return app;
+    }
+}
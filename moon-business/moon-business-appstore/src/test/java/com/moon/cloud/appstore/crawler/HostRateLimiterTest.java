@@ -0,0 +1,57 @@
+package com.moon.cloud.appstore.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按主机限速测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@DisplayName("按主机限速测试")
+class HostRateLimiterTest {
+
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(2000);
+
+    @Test
+    @DisplayName("测试同一主机的请求按间隔依次预约")
+    void testSameHostSpaced() {
+        HostRateLimiter limiter = new HostRateLimiter(2000);
+
+        assertEquals(0, limiter.reserve("apps.apple.com", 0));
+        assertEquals(INTERVAL, limiter.reserve("apps.apple.com", 0));
+        assertEquals(2 * INTERVAL, limiter.reserve("apps.apple.com", 0));
+        // 间隔过后不再等待
+        assertEquals(0, limiter.reserve("apps.apple.com", 10 * INTERVAL));
+    }
+
+    @Test
+    @DisplayName("测试不同主机互不影响")
+    void testDifferentHostsIndependent() {
+        HostRateLimiter limiter = new HostRateLimiter(2000);
+
+        assertEquals(0, limiter.reserve("apps.apple.com", 0));
+        assertEquals(0, limiter.reserve("itunes.apple.com", 0));
+    }
+
+    @Test
+    @DisplayName("测试间隔为0时不限速")
+    void testDisabled() {
+        HostRateLimiter limiter = new HostRateLimiter(0);
+
+        assertEquals(0, limiter.reserve("apps.apple.com", 0));
+        assertEquals(0, limiter.reserve("apps.apple.com", 0));
+    }
+
+    @Test
+    @DisplayName("测试从URL解析主机")
+    void testHost() {
+        assertEquals("apps.apple.com", HostRateLimiter.host("https://Apps.Apple.com/cn/charts/iphone/games-apps/6014"));
+        assertEquals("", HostRateLimiter.host("not a url"));
+    }
+}
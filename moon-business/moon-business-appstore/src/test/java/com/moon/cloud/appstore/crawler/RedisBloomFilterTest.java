@@ -0,0 +1,39 @@
+package com.moon.cloud.appstore.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Redis布隆过滤器测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@DisplayName("Redis布隆过滤器测试")
+class RedisBloomFilterTest {
+
+    @Test
+    @DisplayName("测试位数、哈希次数和位偏移")
+    void testSizing() {
+        RedisBloomFilter bloomFilter = new RedisBloomFilter(null, "test", 1_000_000, 0.001);
+
+        // m = -n*ln(p)/(ln2)^2 ≈ 14377588，k ≈ 10
+        assertEquals(14_377_588, bloomFilter.getBitSize(), 1);
+        assertEquals(10, bloomFilter.getHashCount());
+        long[] offsets = bloomFilter.offsets("1001");
+        assertEquals(10, offsets.length);
+        for (long offset : offsets) {
+            assertTrue(offset >= 0 && offset < bloomFilter.getBitSize());
+        }
+        assertArrayEquals(offsets, bloomFilter.offsets("1001"));
+    }
+
+    @Test
+    @DisplayName("测试参数校验")
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new RedisBloomFilter(null, "test", 0, 0.001));
+        assertThrows(IllegalArgumentException.class, () -> new RedisBloomFilter(null, "test", 1000, 1));
+    }
+}
@@ -0,0 +1,187 @@
+package com.moon.cloud.appstore.price;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.moon.cloud.appstore.entity.AppPriceHistory;
+import com.moon.cloud.appstore.event.PriceHistoryRecordedEvent;
+import com.moon.cloud.appstore.mapper.AppPriceHistoryMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 应用价格序列存储测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("应用价格序列存储测试")
+class PriceSeriesStoreTest {
+
+    private static final String APP_ID = "1001";
+    private static final String KEY = "appstore:app:price:series:1001";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 9, 2, 10, 30);
+    private static final List<Object> FIELDS = List.of("series", "version");
+    private static final String TTL_SECONDS = String.valueOf(TimeUnit.DAYS.toSeconds(30));
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private AppPriceHistoryMapper appPriceHistoryMapper;
+
+    @InjectMocks
+    private PriceSeriesStore priceSeriesStore;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda条件构造需要实体的表信息
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), AppPriceHistory.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    @DisplayName("测试序列不存在时由价格历史生成，按读取时的版本号写回")
+    void testGetSeriesLoadsAndSaves() {
+        when(hashOperations.multiGet(KEY, FIELDS)).thenReturn(Arrays.asList(null, "5"));
+        when(appPriceHistoryMapper.selectList(any())).thenReturn(List.of(
+                createHistory(START, "68.00", "INITIAL"),
+                createHistory(START.plusDays(1), "0", "FREE")));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+
+        PriceSeries series = priceSeriesStore.getSeries(APP_ID);
+
+        assertEquals(2, series.getPoints().size());
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), eq(List.of(KEY)),
+                eq("5"), eq("5"), eq(series.encode()), eq("68.00"), eq("68.00"), eq("1"), eq(TTL_SECONDS));
+    }
+
+    @Test
+    @DisplayName("测试读取已保存的序列不查询数据库")
+    void testGetSeriesCached() {
+        PriceSeries saved = new PriceSeries();
+        saved.append(START, new BigDecimal("68.00"), "INITIAL");
+        when(hashOperations.multiGet(KEY, FIELDS)).thenReturn(Arrays.asList(saved.encode(), "3"));
+
+        assertEquals(saved.getPoints(), priceSeriesStore.getSeries(APP_ID).getPoints());
+        verifyNoInteractions(appPriceHistoryMapper);
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("测试Redis不可用时直接由价格历史生成")
+    void testGetSeriesRedisDown() {
+        when(hashOperations.multiGet(KEY, FIELDS)).thenThrow(new RuntimeException("Redis不可用"));
+        when(appPriceHistoryMapper.selectList(any())).thenReturn(List.of(createHistory(START, "68.00", "INITIAL")));
+
+        assertEquals(1, priceSeriesStore.getSeries(APP_ID).getPoints().size());
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("测试读取价格汇总")
+    void testGetSummary() {
+        when(hashOperations.multiGet(eq(KEY), anyCollection())).thenReturn(List.<Object>of("30.00", "68.00", "3"));
+
+        PriceSeriesStore.Summary summary = priceSeriesStore.getSummary(APP_ID);
+
+        assertEquals(new BigDecimal("30.00"), summary.lowestPrice());
+        assertEquals(new BigDecimal("68.00"), summary.highestPrice());
+        assertEquals(3, summary.changeCount());
+        verifyNoInteractions(appPriceHistoryMapper);
+    }
+
+    @Test
+    @DisplayName("测试新价格历史追加到已存在的序列，写回时递增版本号")
+    void testOnPriceHistoryRecorded() {
+        PriceSeries saved = new PriceSeries();
+        saved.append(START, new BigDecimal("68.00"), "INITIAL");
+        when(hashOperations.multiGet(KEY, FIELDS)).thenReturn(Arrays.asList(saved.encode(), "3"));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+
+        priceSeriesStore.onPriceHistoryRecorded(new PriceHistoryRecordedEvent(List.of(
+                createHistory(START.plusDays(2), "0", "FREE"))));
+
+        saved.append(START.plusDays(2), BigDecimal.ZERO, "FREE");
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), eq(List.of(KEY)),
+                eq("3"), eq("4"), eq(saved.encode()), eq("68.00"), eq("68.00"), eq("1"), eq(TTL_SECONDS));
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), eq(TTL_SECONDS));
+    }
+
+    @Test
+    @DisplayName("测试其他实例已先写回时清除序列")
+    void testOnPriceHistoryRecordedConcurrentAppend() {
+        PriceSeries saved = new PriceSeries();
+        saved.append(START, new BigDecimal("68.00"), "INITIAL");
+        when(hashOperations.multiGet(KEY, FIELDS)).thenReturn(Arrays.asList(saved.encode(), "3"));
+        // 版本号已被其他实例递增，写回失败
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(0L);
+
+        priceSeriesStore.onPriceHistoryRecorded(new PriceHistoryRecordedEvent(List.of(
+                createHistory(START.plusDays(2), "0", "FREE"))));
+
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), eq(List.of(KEY)), eq(TTL_SECONDS));
+    }
+
+    @Test
+    @DisplayName("测试序列未生成时仍递增版本号，使生成中的旧序列无法写回")
+    void testOnPriceHistoryRecordedNotLoaded() {
+        when(hashOperations.multiGet(KEY, FIELDS)).thenReturn(Arrays.asList(null, "5"));
+
+        priceSeriesStore.onPriceHistoryRecorded(new PriceHistoryRecordedEvent(List.of(
+                createHistory(START.plusDays(2), "0", "FREE"))));
+
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), eq(List.of(KEY)), eq(TTL_SECONDS));
+        verify(redisTemplate, never()).delete(anyString());
+    }
+
+    @Test
+    @DisplayName("测试乱序的价格历史清除序列，下次读取时重新生成")
+    void testOnPriceHistoryRecordedOutOfOrder() {
+        PriceSeries saved = new PriceSeries();
+        saved.append(START, new BigDecimal("68.00"), "INITIAL");
+        when(hashOperations.multiGet(KEY, FIELDS)).thenReturn(Arrays.asList(saved.encode(), "3"));
+
+        priceSeriesStore.onPriceHistoryRecorded(new PriceHistoryRecordedEvent(List.of(
+                createHistory(START.minusDays(1), "30.00", "DECREASE"))));
+
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), eq(List.of(KEY)), eq(TTL_SECONDS));
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    private AppPriceHistory createHistory(LocalDateTime changeTime, String newPrice, String changeType) {
+        AppPriceHistory history = new AppPriceHistory();
+        history.setAppId(APP_ID);
+        history.setChangeTime(changeTime);
+        history.setNewPrice(new BigDecimal(newPrice));
+        history.setChangeType(changeType);
+        return history;
+    }
+}
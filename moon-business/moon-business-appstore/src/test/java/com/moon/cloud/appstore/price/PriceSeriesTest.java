@@ -0,0 +1,112 @@
+package com.moon.cloud.appstore.price;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 应用价格时间序列测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@DisplayName("应用价格时间序列测试")
+class PriceSeriesTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 9, 2, 10, 30);
+
+    @Test
+    @DisplayName("测试汇总不含免费的最低价和初始价格")
+    void testSummary() {
+        PriceSeries series = createSeries();
+
+        assertEquals(new BigDecimal("30.00"), series.getLowestPaidPrice());
+        assertEquals(new BigDecimal("68.00"), series.getHighestPrice());
+        assertEquals(3, series.getChangeCount());
+    }
+
+    @Test
+    @DisplayName("测试编码后解码得到相同的序列")
+    void testEncodeDecode() {
+        PriceSeries series = createSeries();
+
+        PriceSeries decoded = PriceSeries.decode(series.encode());
+
+        assertEquals(series.getPoints(), decoded.getPoints());
+        assertEquals(series.getDaily(), decoded.getDaily());
+        assertEquals(series.getWeekly(), decoded.getWeekly());
+        assertEquals(series.getLowestPaidPrice(), decoded.getLowestPaidPrice());
+        assertEquals(series.getChangeCount(), decoded.getChangeCount());
+        assertEquals(START, decoded.getPoints().get(0).time());
+        assertEquals("FREE", decoded.getPoints().get(2).changeType());
+
+        PriceSeries empty = PriceSeries.decode(new PriceSeries().encode());
+        assertTrue(empty.isEmpty());
+        assertNull(empty.getLowestPaidPrice());
+        assertThrows(IllegalArgumentException.class, () -> PriceSeries.decode("!!"));
+    }
+
+    @Test
+    @DisplayName("测试早于最后价格点的追加被拒绝，重复追加忽略")
+    void testAppendOrder() {
+        PriceSeries series = createSeries();
+        int size = series.getPoints().size();
+
+        assertFalse(series.append(START.minusDays(1), new BigDecimal("12.00"), "DECREASE"));
+        assertTrue(series.append(START.plusDays(9), new BigDecimal("68.00"), "RESTORE"));
+        assertEquals(size, series.getPoints().size());
+    }
+
+    @Test
+    @DisplayName("测试按日期区间合并按天桶")
+    void testWindow() {
+        PriceSeries series = createSeries();
+
+        PriceSeries.Window window = series.window(START.toLocalDate().plusDays(1), START.toLocalDate().plusDays(9));
+
+        assertEquals(3, window.count());
+        assertEquals(1, window.freeCount());
+        assertEquals(new BigDecimal("0.00"), window.lowest());
+        assertEquals(new BigDecimal("68.00"), window.highest());
+        assertEquals(new BigDecimal("32.67"), window.average());
+        assertNull(series.window(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)));
+        assertEquals(1, series.indexOf(START.toLocalDate().plusDays(1).atStartOfDay()));
+    }
+
+    @Test
+    @DisplayName("测试按天、按周桶保存收盘价")
+    void testBuckets() {
+        PriceSeries series = new PriceSeries();
+        series.append(START, new BigDecimal("68.00"), "INITIAL");
+        series.append(START.plusHours(2), BigDecimal.ZERO, "FREE");
+        series.append(START.plusDays(7), new BigDecimal("68.00"), "RESTORE");
+
+        List<PriceSeries.Bucket> daily = series.dailyBuckets(START.toLocalDate(), START.toLocalDate().plusDays(7));
+        assertEquals(2, daily.size());
+        assertEquals(START.toLocalDate().atStartOfDay(), daily.get(0).dayStart());
+        assertEquals(BigDecimal.ZERO.setScale(2), daily.get(0).closePrice());
+        assertEquals("FREE", daily.get(0).closeChangeType());
+        assertEquals(2, daily.get(0).count());
+
+        // 2024-09-02是周一
+        List<PriceSeries.Bucket> weekly = series.weeklyBuckets(START.toLocalDate().plusDays(3), START.toLocalDate().plusDays(7));
+        assertEquals(2, weekly.size());
+        assertEquals(START.toLocalDate().atStartOfDay(), weekly.get(0).weekStart());
+        assertEquals(START.toLocalDate().plusDays(7).atStartOfDay(), weekly.get(1).weekStart());
+    }
+
+    private PriceSeries createSeries() {
+        PriceSeries series = new PriceSeries();
+        series.append(START, new BigDecimal("68.00"), "INITIAL");
+        series.append(START.plusDays(2), new BigDecimal("30"), "DECREASE");
+        series.append(START.plusDays(5), BigDecimal.ZERO, "FREE");
+        series.append(START.plusDays(9), new BigDecimal("68.00"), "RESTORE");
+        return series;
+    }
+}
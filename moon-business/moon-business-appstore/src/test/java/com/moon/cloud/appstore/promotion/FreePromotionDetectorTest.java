@@ -0,0 +1,204 @@
+package com.moon.cloud.appstore.promotion;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.FreePromotion;
+import com.moon.cloud.appstore.event.PriceChangedEvent;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.mapper.FreePromotionMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 限免检测器测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("限免检测器测试")
+class FreePromotionDetectorTest {
+
+    @Mock
+    private AppMapper appMapper;
+
+    @Mock
+    private FreePromotionMapper freePromotionMapper;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @InjectMocks
+    private FreePromotionDetector freePromotionDetector;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda条件构造需要实体的表信息
+        MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+        TableInfoHelper.initTableInfo(assistant, App.class);
+        TableInfoHelper.initTableInfo(assistant, FreePromotion.class);
+    }
+
+    @Test
+    @DisplayName("测试降为免费时创建限免记录")
+    void testPriceDropCreatesPromotion() {
+        when(freePromotionMapper.selectList(any())).thenReturn(List.of());
+
+        freePromotionDetector.onPriceChanged(new PriceChangedEvent(List.of(createApp("1001", "0", "18.00"))));
+
+        ArgumentCaptor<FreePromotion> captor = ArgumentCaptor.forClass(FreePromotion.class);
+        verify(freePromotionMapper, times(1)).insert(captor.capture());
+        FreePromotion promotion = captor.getValue();
+        assertEquals("id-1001", promotion.getAppId());
+        assertEquals("1001", promotion.getAppstoreAppId());
+        assertEquals("FREE", promotion.getPromotionType());
+        assertEquals("ACTIVE", promotion.getStatus());
+        assertEquals(0, new BigDecimal("18.00").compareTo(promotion.getSavingsAmount()));
+        assertEquals(0, new BigDecimal("100").compareTo(promotion.getDiscountRate()));
+        verify(freePromotionMapper, never()).update(any(), any());
+    }
+
+    @Test
+    @DisplayName("测试价格恢复时结束进行中的限免")
+    void testPriceRestoreEndsPromotion() {
+        when(freePromotionMapper.selectList(any())).thenReturn(List.of(createPromotion("p1", "1001", "0")));
+
+        FreePromotionDetector.Result result = freePromotionDetector.applyPriceChanges(
+                List.of(createApp("1001", "18.00", "18.00")));
+
+        assertEquals(new FreePromotionDetector.Result(0, 0, 1), result);
+        verify(freePromotionMapper, times(1)).update(isNull(), any());
+        verify(freePromotionMapper, never()).insert(any(FreePromotion.class));
+    }
+
+    @Test
+    @DisplayName("测试仍在优惠中但价格变化时更新限免记录")
+    void testPriceChangeUpdatesPromotion() {
+        when(freePromotionMapper.selectList(any())).thenReturn(List.of(createPromotion("p1", "1001", "0")));
+
+        FreePromotionDetector.Result result = freePromotionDetector.applyPriceChanges(
+                List.of(createApp("1001", "6.00", "18.00")));
+
+        assertEquals(new FreePromotionDetector.Result(0, 1, 0), result);
+        ArgumentCaptor<FreePromotion> captor = ArgumentCaptor.forClass(FreePromotion.class);
+        verify(freePromotionMapper, times(1)).updateById(captor.capture());
+        assertEquals("p1", captor.getValue().getId());
+        assertEquals("DISCOUNT", captor.getValue().getPromotionType());
+        assertEquals(0, new BigDecimal("6.00").compareTo(captor.getValue().getPromotionPrice()));
+        assertEquals(0, new BigDecimal("12.00").compareTo(captor.getValue().getSavingsAmount()));
+    }
+
+    @Test
+    @DisplayName("测试未发生变化的限免不写库")
+    void testUnchangedPromotionSkipped() {
+        when(freePromotionMapper.selectList(any())).thenReturn(List.of(createPromotion("p1", "1001", "0")));
+
+        FreePromotionDetector.Result result = freePromotionDetector.applyPriceChanges(
+                List.of(createApp("1001", "0", "18.00")));
+
+        assertEquals(FreePromotionDetector.Result.EMPTY, result);
+        verify(freePromotionMapper, never()).insert(any(FreePromotion.class));
+        verify(freePromotionMapper, never()).updateById(any(FreePromotion.class));
+        verifyNoInteractions(cacheManager);
+    }
+
+    @Test
+    @DisplayName("测试到期限免一条语句结束并清空缓存")
+    void testExpirePromotions() {
+        Cache cache = mock(Cache.class);
+        when(cacheManager.getCache(anyString())).thenReturn(cache);
+        when(freePromotionMapper.update(isNull(), any())).thenReturn(2);
+
+        int expired = freePromotionDetector.expirePromotions();
+
+        assertEquals(2, expired);
+        verify(freePromotionMapper, times(1)).update(isNull(), any());
+        verify(freePromotionMapper, never()).selectList(any());
+        verify(cache, times(3)).clear();
+    }
+
+    @Test
+    @DisplayName("测试全量对账只查询低于原价的应用")
+    void testDetectDiscountedApps() {
+        when(appMapper.selectList(any())).thenReturn(List.of(createApp("1001", "0", "18.00")));
+        when(freePromotionMapper.selectList(any())).thenReturn(List.of());
+
+        int created = freePromotionDetector.detectDiscountedApps();
+
+        assertEquals(1, created);
+        verify(appMapper, times(1)).selectList(any());
+        verify(freePromotionMapper, times(1)).insert(any(FreePromotion.class));
+    }
+
+    @Test
+    @DisplayName("测试事务中写入后提交时才清空缓存")
+    void testEvictCachesAfterCommit() {
+        Cache cache = mock(Cache.class);
+        when(cacheManager.getCache(anyString())).thenReturn(cache);
+        when(freePromotionMapper.selectList(any())).thenReturn(List.of());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            freePromotionDetector.applyPriceChanges(List.of(createApp("1001", "0", "18.00")));
+            verify(cache, never()).clear();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(cache, times(3)).clear();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("测试定时对账同时处理进行中的限免和优惠中的应用")
+    void testReconcile() {
+        when(freePromotionMapper.selectList(any())).thenReturn(List.of());
+        when(appMapper.selectList(any())).thenReturn(List.of(createApp("1001", "0", "18.00")));
+
+        freePromotionDetector.reconcile();
+
+        // 进行中限免一次，低于原价的应用检测时查询进行中限免一次
+        verify(freePromotionMapper, times(2)).selectList(any());
+        verify(freePromotionMapper, times(1)).insert(any(FreePromotion.class));
+    }
+
+    private App createApp(String appId, String currentPrice, String originalPrice) {
+        App app = new App();
+        app.setId("id-" + appId);
+        app.setAppId(appId);
+        app.setCurrentPrice(new BigDecimal(currentPrice));
+        app.setOriginalPrice(new BigDecimal(originalPrice));
+        return app;
+    }
+
+    private FreePromotion createPromotion(String id, String appstoreAppId, String promotionPrice) {
+        return new FreePromotion()
+                .setId(id)
+                .setAppId("id-" + appstoreAppId)
+                .setAppstoreAppId(appstoreAppId)
+                .setOriginalPrice(new BigDecimal("18.00"))
+                .setPromotionPrice(new BigDecimal(promotionPrice))
+                .setStartTime(LocalDateTime.now().minusHours(1))
+                .setStatus("ACTIVE");
+    }
+}
@@ -0,0 +1,105 @@
+package com.moon.cloud.appstore.recommend;
+
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 相关应用预计算索引测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("相关应用预计算索引测试")
+class RelatedAppsIndexTest {
+
+    @Mock
+    private AppMapper appMapper;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @InjectMocks
+    private RelatedAppsIndex relatedAppsIndex;
+
+    @Test
+    @DisplayName("测试描述相似、同开发商和同分类热门推荐")
+    void testCompute() {
+        Map<String, RelatedApps> related = relatedAppsIndex.compute(List.of(
+                createApp("1", "番茄小说", "Tomato", "6018", "4.8", 5000,
+                        "海量正版小说免费阅读，支持离线下载、夜间模式和听书功能"),
+                createApp("2", "七猫小说", "Qimao", "6018", "4.6", 9000,
+                        "海量正版小说免费阅读，支持离线下载、夜间模式和书架同步"),
+                createApp("3", "番茄畅听", "Tomato", "6018", "4.2", 800,
+                        "有声书、广播剧和播客，随时随地畅听"),
+                createApp("4", "天气预报", "Weather Lab", "6001", "4.0", 300,
+                        "精准天气预报，实时降雨提醒和空气质量")
+        ));
+
+        RelatedApps novel = related.get("1");
+        assertEquals("2", novel.similar().get(0).appId());
+        assertTrue(novel.similar().get(0).score() >= 0.3);
+        // 描述不相似的同分类应用作为补充排在后面
+        assertEquals(new RelatedApps.Neighbor("3", 0), novel.similar().get(1));
+        assertEquals(List.of(new RelatedApps.Neighbor("3", 0)), novel.developer());
+        assertEquals(List.of("2", "3"), novel.categoryTop().stream().map(RelatedApps.Neighbor::appId).toList());
+
+        assertTrue(related.get("4").similar().isEmpty());
+        assertTrue(related.get("4").developer().isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试推荐列表编码")
+    void testEncodeDecode() {
+        List<RelatedApps.Neighbor> neighbors = List.of(
+                new RelatedApps.Neighbor("1001", 0.8125),
+                new RelatedApps.Neighbor("1002", 0));
+
+        String encoded = RelatedAppsIndex.encode(neighbors);
+
+        assertEquals("1001:0.813,1002", encoded);
+        assertEquals(List.of(new RelatedApps.Neighbor("1001", 0.813), new RelatedApps.Neighbor("1002", 0)),
+                RelatedAppsIndex.decode(encoded));
+        assertTrue(RelatedAppsIndex.decode("").isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试MinHash估计相似度")
+    void testMinHashSimilarity() {
+        MinHashLsh minHash = new MinHashLsh(32, 4, 1L);
+        int[] a = minHash.signature(List.of("a", "b", "c", "d", "e", "f", "g", "h"));
+        int[] b = minHash.signature(List.of("a", "b", "c", "d", "e", "f", "x", "y"));
+
+        // 实际Jaccard相似度为 6/10
+        assertEquals(0.6, MinHashLsh.similarity(a, b), 0.2);
+        assertEquals(1.0, MinHashLsh.similarity(a, a));
+        assertNull(minHash.signature(List.of()));
+    }
+
+    private App createApp(String id, String name, String developer, String categoryId, String rating,
+                          int ratingCount, String description) {
+        App app = new App();
+        app.setId(id);
+        app.setAppId("appstore-" + id);
+        app.setName(name);
+        app.setDeveloperName(developer);
+        app.setPrimaryCategoryId(categoryId);
+        app.setRating(new BigDecimal(rating));
+        app.setRatingCount(ratingCount);
+        app.setDescription(description);
+        return app;
+    }
+}
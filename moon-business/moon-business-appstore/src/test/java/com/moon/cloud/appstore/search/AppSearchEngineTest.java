@@ -0,0 +1,200 @@
+package com.moon.cloud.appstore.search;
+
+import com.moon.cloud.appstore.dto.AppSearchDTO;
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.SearchIndex;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.mapper.SearchIndexMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 应用内存搜索引擎测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("应用内存搜索引擎测试")
+class AppSearchEngineTest {
+
+    @Mock
+    private AppMapper appMapper;
+
+    @Mock
+    private SearchIndexMapper searchIndexMapper;
+
+    @InjectMocks
+    private AppSearchEngine appSearchEngine;
+
+    @BeforeEach
+    void setUp() {
+        List<App> apps = List.of(
+                createApp("1", "微信读书", "Tencent", "com.tencent.weread", "海量图书免费阅读", "6017", "0", "4.8", 50000),
+                createApp("2", "微信", "Tencent", "com.tencent.xin", "微信是一款跨平台的通讯工具", "6005", "0", "4.5", 900000),
+                createApp("3", "读书笔记", "Note Studio", "com.note.reader", "记录读书心得，支持微信分享", "6017", "12", "4.2", 300),
+                createApp("4", "Photo Editor Pro", "Pixel Lab", "com.pixel.photo", "Edit photos with filters", "6008", "6", "4.6", 12000)
+        );
+        appSearchEngine.rebuild(apps, Map.of());
+    }
+
+    @Test
+    @DisplayName("测试中文关键词检索")
+    void testSearchChinese() {
+        SearchHits hits = appSearchEngine.search(query("微信"));
+
+        assertEquals(3, hits.total());
+        // 名称命中的应用排在只有描述命中的应用之前
+        assertEquals("3", hits.appIds().get(2));
+    }
+
+    @Test
+    @DisplayName("测试多字查询要求全部二元组命中")
+    void testSearchAllBigramsMatched() {
+        SearchHits hits = appSearchEngine.search(query("微信读书"));
+
+        assertEquals(List.of("1"), hits.appIds());
+    }
+
+    @Test
+    @DisplayName("测试英文关键词不区分大小写")
+    void testSearchLatin() {
+        assertEquals(List.of("4"), appSearchEngine.search(query("PHOTO")).appIds());
+        assertEquals(List.of("2"), appSearchEngine.search(query("com.tencent.xin")).appIds());
+        assertEquals(0, appSearchEngine.search(query("camera")).total());
+    }
+
+    @Test
+    @DisplayName("测试搜索范围")
+    void testSearchScope() {
+        AppSearchDTO searchDTO = query("微信").setSearchScope("description");
+
+        SearchHits hits = appSearchEngine.search(searchDTO);
+
+        assertEquals(2, hits.total());
+        assertTrue(hits.appIds().containsAll(List.of("2", "3")));
+    }
+
+    @Test
+    @DisplayName("测试分类和价格筛选")
+    void testFilters() {
+        AppSearchDTO byCategory = query("读书").setCategoryIds(List.of("6017")).setIsFree(true);
+        assertEquals(List.of("1"), appSearchEngine.search(byCategory).appIds());
+
+        AppSearchDTO byPrice = query(null).setMinPrice(new BigDecimal("1")).setMaxPrice(new BigDecimal("10"));
+        assertEquals(List.of("4"), appSearchEngine.search(byPrice).appIds());
+    }
+
+    @Test
+    @DisplayName("测试按属性排序和分页")
+    void testSortAndPagination() {
+        AppSearchDTO searchDTO = query(null).setSortBy("price").setSortOrder("asc").setSize(2);
+        searchDTO.setPage(2);
+        searchDTO.validatePagination();
+
+        SearchHits hits = appSearchEngine.search(searchDTO);
+
+        assertEquals(4, hits.total());
+        assertEquals(List.of("4", "3"), hits.appIds());
+    }
+
+    @Test
+    @DisplayName("测试热度和质量权重影响相关度排序")
+    void testBoost() {
+        SearchIndex popular = new SearchIndex().setAppId("3")
+                .setPopularityScore(new BigDecimal("100")).setQualityScore(new BigDecimal("100"))
+                .setClickRate(new BigDecimal("1")).setSearchWeight(10);
+        appSearchEngine.rebuild(List.of(
+                createApp("1", "读书", "A", "a", "", "6017", "0", "3.0", 10),
+                createApp("3", "读书", "B", "b", "", "6017", "0", "3.0", 10)
+        ), Map.of("3", popular));
+
+        assertEquals(List.of("3", "1"), appSearchEngine.search(query("读书")).appIds());
+    }
+
+    @Test
+    @DisplayName("测试增量更新和删除")
+    void testApplyChanges() {
+        long version = appSearchEngine.getVersion();
+
+        appSearchEngine.applyChanges(List.of(
+                createApp("2", "WeChat", "Tencent", "com.tencent.xin", "跨平台通讯工具", "6005", "0", "4.5", 900000),
+                createApp("5", "微信输入法", "Tencent", "com.tencent.wetype", "", "6005", "0", "4.0", 800)
+        ), Map.of(), List.of("4"));
+
+        assertEquals(version + 1, appSearchEngine.getVersion());
+        assertEquals(4, appSearchEngine.size());
+        assertEquals(3, appSearchEngine.getPendingChangeCount());
+        // 应用2的旧版本已被标记删除，新版本只能用新名称检索到
+        assertFalse(appSearchEngine.search(query("微信")).appIds().contains("2"));
+        assertEquals(List.of("2"), appSearchEngine.search(query("wechat")).appIds());
+        assertTrue(appSearchEngine.search(query("微信")).appIds().contains("5"));
+        assertEquals(0, appSearchEngine.search(query("photo")).total());
+        assertEquals(4, appSearchEngine.search(query(null)).total());
+    }
+
+    @Test
+    @DisplayName("测试合并增量段后结果不变")
+    void testCompact() {
+        appSearchEngine.applyChanges(List.of(
+                createApp("2", "WeChat", "Tencent", "com.tencent.xin", "跨平台通讯工具", "6005", "0", "4.5", 900000),
+                createApp("5", "微信输入法", "Tencent", "com.tencent.wetype", "", "6005", "0", "4.0", 800)
+        ), Map.of(), List.of("4"));
+        SearchHits before = appSearchEngine.search(query("微信"));
+
+        appSearchEngine.compact();
+
+        assertEquals(0, appSearchEngine.getPendingChangeCount());
+        assertEquals(4, appSearchEngine.size());
+        assertEquals(before, appSearchEngine.search(query("微信")));
+        assertEquals(List.of("2"), appSearchEngine.search(query("wechat")).appIds());
+        assertEquals(0, appSearchEngine.search(query("photo")).total());
+    }
+
+    @Test
+    @DisplayName("测试全量重建清空增量段")
+    void testRebuildClearsDelta() {
+        appSearchEngine.applyChanges(List.of(), Map.of(), List.of("1"));
+
+        appSearchEngine.rebuild(List.of(
+                createApp("1", "微信读书", "Tencent", "com.tencent.weread", "", "6017", "0", "4.8", 50000)
+        ), Map.of());
+
+        assertEquals(0, appSearchEngine.getPendingChangeCount());
+        assertEquals(List.of("1"), appSearchEngine.search(query("微信读书")).appIds());
+    }
+
+    private AppSearchDTO query(String keyword) {
+        AppSearchDTO searchDTO = new AppSearchDTO().setKeyword(keyword);
+        searchDTO.validatePagination();
+        return searchDTO;
+    }
+
+    private App createApp(String id, String name, String developer, String bundleId, String description,
+                          String categoryId, String price, String rating, int ratingCount) {
+        App app = new App();
+        app.setId(id);
+        app.setAppId("appstore-" + id);
+        app.setName(name);
+        app.setDeveloperName(developer);
+        app.setBundleId(bundleId);
+        app.setDescription(description);
+        app.setPrimaryCategoryId(categoryId);
+        app.setCurrentPrice(new BigDecimal(price));
+        app.setIsFree(BigDecimal.ZERO.compareTo(app.getCurrentPrice()) == 0);
+        app.setRating(new BigDecimal(rating));
+        app.setRatingCount(ratingCount);
+        return app;
+    }
+}
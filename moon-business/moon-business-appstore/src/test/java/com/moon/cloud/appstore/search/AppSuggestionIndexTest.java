@@ -0,0 +1,97 @@
+package com.moon.cloud.appstore.search;
+
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.SearchIndex;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.mapper.SearchIndexMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 应用名称搜索建议索引测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("应用名称搜索建议索引测试")
+class AppSuggestionIndexTest {
+
+    @Mock
+    private AppMapper appMapper;
+
+    @Mock
+    private SearchIndexMapper searchIndexMapper;
+
+    @InjectMocks
+    private AppSuggestionIndex appSuggestionIndex;
+
+    @BeforeEach
+    void setUp() {
+        SearchIndex popular = new SearchIndex().setAppId("1").setPopularityScore(new BigDecimal("100"));
+        appSuggestionIndex.rebuild(List.of(
+                createApp("1", "微信", "腾讯", 900000),
+                createApp("2", "微信读书", "腾讯", 50000),
+                createApp("3", "QQ阅读", "阅文集团", 200000),
+                createApp("4", "Weather Pro", null, 100)
+        ), Map.of("1", popular));
+    }
+
+    @Test
+    @DisplayName("测试拼音转换")
+    void testPinyinConverter() {
+        PinyinConverter.Pinyin pinyin = PinyinConverter.convert("QQ阅读");
+
+        assertEquals("qqyuedu", pinyin.full());
+        assertEquals("qqyd", pinyin.initials());
+        assertNull(PinyinConverter.convert("Weather Pro"));
+    }
+
+    @Test
+    @DisplayName("测试名称、全拼和首字母前缀建议")
+    void testSuggest() {
+        assertTrue(appSuggestionIndex.isReady());
+        assertEquals(List.of("微信", "微信读书"), appSuggestionIndex.suggest("微", 10));
+        assertEquals(List.of("微信", "微信读书"), appSuggestionIndex.suggest("weix", 10));
+        assertEquals(List.of("微信读书"), appSuggestionIndex.suggest("wxd", 10));
+        assertEquals(List.of("QQ阅读"), appSuggestionIndex.suggest("qqyue", 10));
+        assertEquals(List.of("Weather Pro"), appSuggestionIndex.suggest("weather", 10));
+    }
+
+    @Test
+    @DisplayName("测试开发者名称建议")
+    void testSuggestDeveloper() {
+        assertEquals(List.of("腾讯"), appSuggestionIndex.suggest("腾", 10));
+        assertEquals(List.of("腾讯"), appSuggestionIndex.suggest("tengx", 10));
+        assertEquals(List.of("阅文集团"), appSuggestionIndex.suggest("ywjt", 10));
+        // 只做前缀匹配
+        assertTrue(appSuggestionIndex.suggest("读书", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试返回数量限制")
+    void testSuggestLimit() {
+        assertEquals(List.of("微信"), appSuggestionIndex.suggest("w", 1));
+    }
+
+    private App createApp(String id, String name, String developerName, int ratingCount) {
+        App app = new App();
+        app.setId(id);
+        app.setName(name);
+        app.setDeveloperName(developerName);
+        app.setRating(new BigDecimal("4.5"));
+        app.setRatingCount(ratingCount);
+        return app;
+    }
+}
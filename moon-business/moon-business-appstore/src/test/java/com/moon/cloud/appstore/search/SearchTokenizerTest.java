@@ -0,0 +1,63 @@
+package com.moon.cloud.appstore.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 搜索分词器及倒排列表测试
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@DisplayName("搜索分词器测试")
+class SearchTokenizerTest {
+
+    @Test
+    @DisplayName("测试中文二元组和英文单词切分")
+    void testTokenize() {
+        List<String> tokens = SearchTokenizer.tokenize("微信读书 WeChat-Read 2024");
+
+        assertEquals(List.of("微", "信", "读", "书", "微信", "信读", "读书", "wechat", "read", "2024"), tokens);
+    }
+
+    @Test
+    @DisplayName("测试查询分词只保留二元组")
+    void testTokenizeQuery() {
+        assertEquals(Set.of("微信", "信读", "读书"), SearchTokenizer.tokenizeQuery("微信读书"));
+        assertEquals(Set.of("书"), SearchTokenizer.tokenizeQuery("书"));
+        assertEquals(Set.of("com", "tencent", "xin"), SearchTokenizer.tokenizeQuery("com.tencent.xin"));
+        assertTrue(SearchTokenizer.tokenizeQuery("  ,. ").isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试倒排列表编码和解码")
+    void testPostingList() {
+        PostingList.Builder builder = new PostingList.Builder();
+        int[] docs = {0, 1, 5, 300, 70000};
+        int[] termFreqs = {1, 2, 1, 200, 3};
+        for (int i = 0; i < docs.length; i++) {
+            builder.add(docs[i], termFreqs[i]);
+        }
+        PostingList postings = builder.build();
+
+        List<int[]> decoded = new ArrayList<>();
+        PostingList.Cursor cursor = postings.cursor();
+        while (cursor.next()) {
+            decoded.add(new int[]{cursor.doc(), cursor.termFreq()});
+        }
+
+        assertEquals(docs.length, postings.getDocFreq());
+        assertEquals(docs.length, decoded.size());
+        for (int i = 0; i < docs.length; i++) {
+            assertEquals(docs[i], decoded.get(i)[0]);
+            assertEquals(termFreqs[i], decoded.get(i)[1]);
+        }
+        assertThrows(IllegalArgumentException.class, () -> builder.add(70000, 1));
+    }
+}
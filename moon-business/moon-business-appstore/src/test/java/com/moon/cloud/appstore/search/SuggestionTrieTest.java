@@ -0,0 +1,64 @@
+package com.moon.cloud.appstore.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 前缀建议树测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@DisplayName("前缀建议树测试")
+class SuggestionTrieTest {
+
+    private final SuggestionTrie trie = new SuggestionTrie.Builder()
+            .add("WeChat", 5, List.of("WeChat", "weixin", "wx"))
+            .add("WeRead", 3, List.of("WeRead", "weixindushu", "wxds"))
+            .add("Weather", 9, List.of("Weather"))
+            .add("Photo Editor", 2, List.of("Photo Editor"))
+            .build(2);
+
+    @Test
+    @DisplayName("测试按权重返回前K条建议")
+    void testSuggestTopK() {
+        assertEquals(List.of("Weather", "WeChat"), trie.suggest("we", 10));
+        assertEquals(List.of("Weather"), trie.suggest("we", 1));
+    }
+
+    @Test
+    @DisplayName("测试多个检索键命中同一建议只返回一次")
+    void testSuggestByAlternativeKeys() {
+        assertEquals(List.of("WeChat", "WeRead"), trie.suggest("wei", 10));
+        assertEquals(List.of("WeChat", "WeRead"), trie.suggest("WX", 10));
+        assertEquals(List.of("WeRead"), trie.suggest("weixind", 10));
+    }
+
+    @Test
+    @DisplayName("测试前缀在压缩边中间结束及忽略空白")
+    void testSuggestInsideEdge() {
+        assertEquals(List.of("Photo Editor"), trie.suggest("phot", 10));
+        assertEquals(List.of("Photo Editor"), trie.suggest("photo ed", 10));
+        assertTrue(trie.suggest("photox", 10).isEmpty());
+        assertTrue(trie.suggest("weixindushuz", 10).isEmpty());
+        assertTrue(trie.suggest(" ", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试相同建议合并并取最大权重")
+    void testMergeDuplicateSuggestion() {
+        SuggestionTrie merged = new SuggestionTrie.Builder()
+                .add("计算器", 1, List.of("计算器"))
+                .add("计算尺", 5, List.of("计算尺"))
+                .add("计算器", 9, List.of("jisuanqi"))
+                .build(10);
+
+        assertEquals(2, merged.size());
+        assertEquals(List.of("计算器", "计算尺"), merged.suggest("计算", 10));
+        assertEquals(List.of("计算器"), merged.suggest("jisuan", 10));
+    }
+}
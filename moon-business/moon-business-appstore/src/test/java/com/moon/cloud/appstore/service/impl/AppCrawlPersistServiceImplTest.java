@@ -0,0 +1,153 @@
+package com.moon.cloud.appstore.service.impl;
+
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.AppPriceHistory;
+import com.moon.cloud.appstore.event.AppChangedEvent;
+import com.moon.cloud.appstore.event.PriceChangedEvent;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.service.AppPriceHistoryService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 爬取结果批量持久化服务测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("爬取结果批量持久化服务测试")
+class AppCrawlPersistServiceImplTest {
+
+    @Mock
+    private AppMapper appMapper;
+
+    @Mock
+    private AppPriceHistoryService appPriceHistoryService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private AppCrawlPersistServiceImpl appCrawlPersistService;
+
+    @Test
+    @DisplayName("测试一次查询获取已存在的App")
+    void testFindExistingApps() {
+        when(appMapper.selectList(any())).thenReturn(List.of(createApp("1001"), createApp("1002")));
+
+        Map<String, App> existingApps = appCrawlPersistService.findExistingApps(Set.of("1001", "1002", "1003"));
+
+        assertEquals(2, existingApps.size());
+        assertEquals("1001", existingApps.get("1001").getAppId());
+        assertNull(existingApps.get("1003"));
+        verify(appMapper, times(1)).selectList(any());
+    }
+
+    @Test
+    @DisplayName("测试空ID集合不查询数据库")
+    void testFindExistingAppsEmpty() {
+        assertTrue(appCrawlPersistService.findExistingApps(List.of()).isEmpty());
+        verifyNoInteractions(appMapper);
+    }
+
+    @Test
+    @DisplayName("测试300个App分3条upsert语句写入")
+    void testPersistCrawledApps() {
+        List<App> apps = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            apps.add(createApp(String.valueOf(i)));
+        }
+        List<AppPriceHistory> priceHistories = List.of(new AppPriceHistory());
+        when(appMapper.upsertBatch(anyList())).thenAnswer(invocation -> invocation.<List<App>>getArgument(0).size());
+        when(appPriceHistoryService.batchRecordPriceChanges(priceHistories)).thenReturn(1);
+
+        int saved = appCrawlPersistService.persistCrawledApps(apps, priceHistories);
+
+        assertEquals(300, saved);
+        verify(appMapper, times(3)).upsertBatch(argThat(batch -> batch.size() == 100));
+        verify(appPriceHistoryService, times(1)).batchRecordPriceChanges(priceHistories);
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof AppChangedEvent changed && changed.appIds().size() == 300));
+    }
+
+    @Test
+    @DisplayName("测试价格变化的App发布价格变化事件")
+    void testPersistCrawledAppsPublishesPriceChange() {
+        List<App> apps = List.of(createApp("1001"), createApp("1002"), createApp("1003"));
+        AppPriceHistory decrease = new AppPriceHistory();
+        decrease.setAppId("1001");
+        decrease.setChangeType("FREE");
+        AppPriceHistory initial = new AppPriceHistory();
+        initial.setAppId("1003");
+        initial.setChangeType("INITIAL");
+        List<AppPriceHistory> priceHistories = List.of(decrease, initial);
+        when(appPriceHistoryService.batchRecordPriceChanges(priceHistories)).thenReturn(2);
+
+        appCrawlPersistService.persistCrawledApps(apps, priceHistories);
+
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof PriceChangedEvent changed
+                        && changed.apps().size() == 1
+                        && "1001".equals(changed.apps().get(0).getAppId())));
+    }
+
+    @Test
+    @DisplayName("测试没有价格变化时不写价格历史")
+    void testPersistCrawledAppsWithoutPriceChange() {
+        int saved = appCrawlPersistService.persistCrawledApps(List.of(createApp("1001")), List.of());
+
+        assertEquals(1, saved);
+        verify(appMapper, times(1)).upsertBatch(anyList());
+        verifyNoInteractions(appPriceHistoryService);
+    }
+
+    @Test
+    @DisplayName("测试并发插入同一App时事件使用库中实际的id")
+    void testPersistCrawledAppsConcurrentInsert() {
+        App stored = createApp("1001");
+        stored.setId("stored-1001");
+        when(appMapper.selectList(any())).thenReturn(List.of(stored));
+
+        appCrawlPersistService.persistCrawledApps(List.of(createApp("1001"), createApp("1002")), List.of());
+
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof AppChangedEvent changed
+                        && changed.appIds().equals(List.of("stored-1001", "id-1002"))));
+    }
+
+    @Test
+    @DisplayName("测试价格历史写入失败时异常向上抛出，不发布事件")
+    void testPersistCrawledAppsPriceHistoryFailure() {
+        List<AppPriceHistory> priceHistories = List.of(new AppPriceHistory());
+        when(appPriceHistoryService.batchRecordPriceChanges(priceHistories))
+                .thenThrow(new DataIntegrityViolationException("new_price不能为空"));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> appCrawlPersistService.persistCrawledApps(List.of(createApp("1001")), priceHistories));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private App createApp(String appId) {
+        App app = new App();
+        app.setId("id-" + appId);
+        app.setAppId(appId);
+        app.setName("测试应用" + appId);
+        return app;
+    }
+}
@@ -1,15 +1,24 @@
 package com.moon.cloud.appstore.service.impl;
 
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
 import com.moon.cloud.appstore.entity.App;
 import com.moon.cloud.appstore.entity.AppPriceHistory;
 import com.moon.cloud.appstore.entity.FreePromotion;
 import com.moon.cloud.appstore.mapper.AppMapper;
 import com.moon.cloud.appstore.mapper.AppPriceHistoryMapper;
 import com.moon.cloud.appstore.mapper.FreePromotionMapper;
+import com.moon.cloud.appstore.price.PriceSeries;
+import com.moon.cloud.appstore.price.PriceSeriesStore;
+import com.moon.cloud.appstore.recommend.RelatedApps;
+import com.moon.cloud.appstore.recommend.RelatedAppsIndex;
+import com.moon.cloud.appstore.service.EngagementCounterService;
 import com.moon.cloud.appstore.vo.AppDetailVO;
 import com.moon.cloud.appstore.vo.AppPriceChartVO;
 import com.moon.cloud.appstore.vo.AppSimilarVO;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -21,6 +30,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -46,6 +56,15 @@ class AppDetailServiceImplTest {
     @Mock
     private FreePromotionMapper freePromotionMapper;
 
+    @Mock
+    private RelatedAppsIndex relatedAppsIndex;
+
+    @Mock
+    private EngagementCounterService engagementCounterService;
+
+    @Mock
+    private PriceSeriesStore priceSeriesStore;
+
     @InjectMocks
     private AppDetailServiceImpl appDetailService;
 
@@ -54,6 +73,12 @@ class AppDetailServiceImplTest {
     private FreePromotion testPromotion;
     private List<AppPriceHistory> testPriceHistory;
 
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda条件构造需要实体的表信息
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), FreePromotion.class);
+    }
+
     @BeforeEach
     void setUp() {
         testAppId = "284882215";
@@ -158,8 +183,7 @@ class AppDetailServiceImplTest {
         // Given
         when(appMapper.selectById(testAppId)).thenReturn(null);
         when(appMapper.selectOne(any(LambdaQueryWrapper.class))).thenReturn(testApp);
-        when(appPriceHistoryMapper.getPriceHistoryByTimeRange(anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(testPriceHistory);
+        when(priceSeriesStore.getSeries(testAppId)).thenReturn(buildSeries(testPriceHistory));
 
         // When
         AppPriceChartVO result = appDetailService.getAppPriceChart(testAppId, 90);
@@ -170,15 +194,50 @@ class AppDetailServiceImplTest {
         assertEquals("Facebook", result.getAppName());
         assertEquals(90, result.getDays());
         assertEquals(BigDecimal.ZERO, result.getCurrentPrice());
-        assertEquals(BigDecimal.ZERO, result.getLowestPrice());
+        assertEquals(0, BigDecimal.ZERO.compareTo(result.getLowestPrice()));
         assertEquals(1, result.getChangeCount());
         assertEquals(1, result.getFreeCount());
         assertNotNull(result.getPricePoints());
         assertNotNull(result.getPriceEvents());
 
         // Verify
-        verify(appPriceHistoryMapper, times(1)).getPriceHistoryByTimeRange(
-                eq(testAppId), any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(priceSeriesStore, times(1)).getSeries(testAppId);
+        verify(appPriceHistoryMapper, never()).getPriceHistoryByTimeRange(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("获取价格图表数据 - 只统计区间内的价格点，事件原价取前一个价格点")
+    void testGetAppPriceChart_Window() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        PriceSeries series = new PriceSeries();
+        series.append(now.minusDays(200), new BigDecimal("68.00"), "INITIAL");
+        series.append(now.minusDays(20), new BigDecimal("30.00"), "DECREASE");
+        series.append(now.minusDays(10), BigDecimal.ZERO, "FREE");
+        series.append(now.minusDays(5), new BigDecimal("68.00"), "RESTORE");
+        when(appMapper.selectById(testAppId)).thenReturn(testApp);
+        when(priceSeriesStore.getSeries(testAppId)).thenReturn(series);
+
+        // When
+        AppPriceChartVO result = appDetailService.getAppPriceChart(testAppId, 30);
+
+        // Then
+        assertEquals(3, result.getChangeCount());
+        assertEquals(1, result.getFreeCount());
+        assertEquals(new BigDecimal("0.00"), result.getLowestPrice());
+        assertEquals(new BigDecimal("68.00"), result.getHighestPrice());
+        assertEquals(new BigDecimal("32.67"), result.getAveragePrice());
+
+        // 按时间倒序
+        assertEquals(3, result.getPricePoints().size());
+        assertEquals("RESTORE", result.getPricePoints().get(0).getChangeType());
+        assertTrue(result.getPricePoints().get(1).getIsFree());
+
+        AppPriceChartVO.PriceEvent decrease = result.getPriceEvents().get(2);
+        assertEquals("DECREASE", decrease.getEventType());
+        assertEquals(new BigDecimal("68.00"), decrease.getOldPrice());
+        assertEquals(new BigDecimal("-38.00"), decrease.getChangeAmount());
+        assertEquals(0, new BigDecimal("-55.88").compareTo(decrease.getChangePercent()));
     }
 
     @Test
@@ -187,8 +246,7 @@ class AppDetailServiceImplTest {
         // Given
         when(appMapper.selectById(testAppId)).thenReturn(null);
         when(appMapper.selectOne(any(LambdaQueryWrapper.class))).thenReturn(testApp);
-        when(appPriceHistoryMapper.getPriceHistoryByTimeRange(anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(new ArrayList<>());
+        when(priceSeriesStore.getSeries(testAppId)).thenReturn(new PriceSeries());
 
         // When
         AppPriceChartVO result = appDetailService.getAppPriceChart(testAppId, null);
@@ -196,6 +254,7 @@ class AppDetailServiceImplTest {
         // Then
         assertNotNull(result);
         assertEquals(90, result.getDays()); // 默认90天
+        assertNull(result.getPricePoints());
     }
 
     @Test
@@ -230,6 +289,47 @@ class AppDetailServiceImplTest {
         verify(appMapper, times(1)).selectList(any(LambdaQueryWrapper.class));
     }
 
+    @Test
+    @DisplayName("获取相似应用 - 读取预计算推荐")
+    void testGetSimilarApps_Precomputed() {
+        // Given
+        App similar1 = new App();
+        similar1.setId("2");
+        similar1.setAppId("447188370");
+        similar1.setName("Snapchat");
+        App similar2 = new App();
+        similar2.setId("3");
+        similar2.setAppId("389801252");
+        similar2.setName("Instagram");
+
+        FreePromotion promotion = new FreePromotion();
+        promotion.setAppstoreAppId("389801252");
+
+        when(relatedAppsIndex.getNeighbors(testAppId, RelatedApps.Kind.SIMILAR, 10)).thenReturn(List.of(
+                new RelatedApps.Neighbor("3", 0.8),
+                new RelatedApps.Neighbor("2", 0),
+                new RelatedApps.Neighbor("4", 0.5)));
+        when(appMapper.selectByIds(anyCollection())).thenReturn(List.of(similar1, similar2));
+        when(freePromotionMapper.selectList(any(LambdaQueryWrapper.class))).thenReturn(List.of(promotion));
+
+        // When
+        List<AppSimilarVO> result = appDetailService.getSimilarApps(testAppId, 10);
+
+        // Then
+        assertEquals(2, result.size());
+        assertEquals("Instagram", result.get(0).getName());
+        assertEquals("描述相似", result.get(0).getRecommendReason());
+        assertEquals(new BigDecimal("0.80"), result.get(0).getSimilarityScore());
+        assertTrue(result.get(0).getHasPromotion());
+        assertEquals("Snapchat", result.get(1).getName());
+        assertEquals("同分类高评分应用", result.get(1).getRecommendReason());
+        assertFalse(result.get(1).getHasPromotion());
+
+        // Verify
+        verify(appMapper, never()).selectById(any());
+        verify(appMapper, never()).selectList(any(LambdaQueryWrapper.class));
+    }
+
     @Test
     @DisplayName("获取同开发商应用")
     void testGetDeveloperApps() {
@@ -305,6 +405,7 @@ class AppDetailServiceImplTest {
 
         // Verify
         verify(appMapper, times(1)).selectById(testAppId);
+        verify(engagementCounterService).increment(EngagementCounterService.Metric.APP_VIEW, testApp.getId());
     }
 
     @Test
@@ -321,6 +422,7 @@ class AppDetailServiceImplTest {
 
         // Verify
         verify(appMapper, times(1)).selectById(testAppId);
+        verify(engagementCounterService).increment(EngagementCounterService.Metric.APP_DOWNLOAD, testApp.getId());
     }
 
     @Test
@@ -389,4 +491,12 @@ class AppDetailServiceImplTest {
         AppDetailVO largeResult = appDetailService.getAppDetail("large");
         assertEquals("1.0 GB", largeResult.getFileSizeFormatted());
     }
+
+    private PriceSeries buildSeries(List<AppPriceHistory> historyList) {
+        PriceSeries series = new PriceSeries();
+        historyList.stream()
+                .sorted(Comparator.comparing(AppPriceHistory::getChangeTime))
+                .forEach(h -> series.append(h.getChangeTime(), h.getNewPrice(), h.getChangeType()));
+        return series;
+    }
 }
\ No newline at end of file
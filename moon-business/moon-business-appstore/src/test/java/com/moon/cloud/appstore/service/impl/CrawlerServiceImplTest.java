@@ -0,0 +1,106 @@
+package com.moon.cloud.appstore.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * App Store 爬虫服务测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("App Store 爬虫服务测试")
+class CrawlerServiceImplTest {
+
+    private static final String QUEUE_NAME = "appstore:queue:6014";
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ListOperations<String, String> listOperations;
+
+    @InjectMocks
+    private CrawlerServiceImpl crawlerService;
+
+    /**
+     * 模拟的Redis List，头部为左端
+     */
+    private final Deque<String> queue = new ArrayDeque<>();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForList()).thenReturn(listOperations);
+        lenient().when(listOperations.leftPush(eq(QUEUE_NAME), anyString())).thenAnswer(invocation -> {
+            queue.addFirst(invocation.getArgument(1));
+            return (long) queue.size();
+        });
+        lenient().when(listOperations.rightPush(eq(QUEUE_NAME), anyString())).thenAnswer(invocation -> {
+            queue.addLast(invocation.getArgument(1));
+            return (long) queue.size();
+        });
+    }
+
+    @Test
+    @DisplayName("测试按准入顺序出队，高优先级链接先被处理")
+    void testLeaseOrder() {
+        // CrawlFrontier.admit 按优先级从高到低返回
+        List<String> admitted = List.of(
+                "https://apps.apple.com/cn/app/app1/id1001",
+                "https://apps.apple.com/cn/app/app2/id1002",
+                "https://apps.apple.com/cn/app/app3/id1003");
+
+        int pushed = crawlerService.pushLinksToRedisQueue(admitted, QUEUE_NAME);
+
+        assertEquals(3, pushed);
+        verify(redisTemplate, times(1)).expire(QUEUE_NAME, 7, TimeUnit.DAYS);
+
+        // 可靠队列的出队脚本从右端RPOP
+        List<String> leased = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            leased.add(queue.pollLast());
+        }
+        assertEquals(admitted, leased);
+    }
+
+    @Test
+    @DisplayName("测试中间的链接推送失败时只统计实际入队的链接")
+    void testPushPartialFailure() {
+        String failed = "https://apps.apple.com/cn/app/app2/id1002";
+        doReturn(null).when(listOperations).leftPush(QUEUE_NAME, failed);
+
+        int pushed = crawlerService.pushLinksToRedisQueue(List.of(
+                "https://apps.apple.com/cn/app/app1/id1001",
+                failed,
+                "https://apps.apple.com/cn/app/app3/id1003"), QUEUE_NAME);
+
+        assertEquals(2, pushed);
+        assertFalse(queue.contains(failed));
+    }
+
+    @Test
+    @DisplayName("测试空链接列表不访问Redis")
+    void testPushEmptyLinks() {
+        assertEquals(0, crawlerService.pushLinksToRedisQueue(List.of(), QUEUE_NAME));
+        assertEquals(0, crawlerService.pushLinksToRedisQueue(null, QUEUE_NAME));
+        verifyNoInteractions(redisTemplate);
+    }
+}
@@ -0,0 +1,120 @@
+package com.moon.cloud.appstore.service.impl;
+
+import com.moon.cloud.appstore.dto.EngagementDeltaDTO;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.mapper.FreePromotionMapper;
+import com.moon.cloud.appstore.service.EngagementCounterService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 互动计数服务测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("互动计数服务测试")
+class EngagementCounterServiceImplTest {
+
+    private static final String PENDING_KEY = "appstore:engagement:pending";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private AppMapper appMapper;
+
+    @Mock
+    private FreePromotionMapper freePromotionMapper;
+
+    @InjectMocks
+    private EngagementCounterServiceImpl engagementCounterService;
+
+    @Test
+    @DisplayName("测试计数只写Redis")
+    void testIncrement() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+
+        engagementCounterService.increment(EngagementCounterService.Metric.APP_VIEW, "1");
+
+        verify(hashOperations).increment(PENDING_KEY, "APP_VIEW:1", 1L);
+        verifyNoInteractions(appMapper, freePromotionMapper);
+    }
+
+    @Test
+    @DisplayName("测试刷新时按记录汇总增量并批量写库")
+    @SuppressWarnings("unchecked")
+    void testFlushAggregatesDeltas() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList())).thenReturn(List.of(
+                "APP_VIEW:a1", "5",
+                "APP_DOWNLOAD:a1", "2",
+                "APP_VIEW:a2", "1",
+                "PROMOTION_CLICK:p1", "3",
+                "PROMOTION_SHARE:p1", "1"));
+
+        int written = engagementCounterService.flush();
+
+        assertEquals(3, written);
+
+        ArgumentCaptor<List<EngagementDeltaDTO>> appCaptor = ArgumentCaptor.forClass(List.class);
+        verify(appMapper, times(1)).incrementEngagementCounts(appCaptor.capture());
+        List<EngagementDeltaDTO> appDeltas = appCaptor.getValue();
+        assertEquals(2, appDeltas.size());
+        assertEquals("a1", appDeltas.get(0).getId());
+        assertEquals(5, appDeltas.get(0).getViewCount());
+        assertEquals(2, appDeltas.get(0).getDownloadCount());
+        assertEquals(1, appDeltas.get(1).getViewCount());
+
+        ArgumentCaptor<List<EngagementDeltaDTO>> promotionCaptor = ArgumentCaptor.forClass(List.class);
+        verify(freePromotionMapper, times(1)).incrementEngagementCounts(promotionCaptor.capture());
+        EngagementDeltaDTO promotionDelta = promotionCaptor.getValue().get(0);
+        assertEquals("p1", promotionDelta.getId());
+        assertEquals(3, promotionDelta.getClickCount());
+        assertEquals(1, promotionDelta.getShareCount());
+        assertEquals(0, promotionDelta.getViewCount());
+    }
+
+    @Test
+    @DisplayName("测试没有增量时不写库")
+    void testFlushEmpty() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList())).thenReturn(List.of());
+
+        assertEquals(0, engagementCounterService.flush());
+
+        verifyNoInteractions(appMapper, freePromotionMapper);
+    }
+
+    @Test
+    @DisplayName("测试写库失败时只放回未写入的增量")
+    void testFlushRestoresUnwrittenDeltas() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList())).thenReturn(List.of(
+                "APP_VIEW:a1", "5",
+                "PROMOTION_CLICK:p1", "3"));
+        when(freePromotionMapper.incrementEngagementCounts(anyList())).thenThrow(new RuntimeException("db down"));
+
+        int written = engagementCounterService.flush();
+
+        assertEquals(1, written);
+        verify(appMapper, times(1)).incrementEngagementCounts(anyList());
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), eq(List.of(PENDING_KEY)),
+                eq("PROMOTION_CLICK:p1"), eq("3"));
+    }
+}
@@ -3,9 +3,13 @@ package com.moon.cloud.appstore.service.impl;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.moon.cloud.appstore.dto.FreeAppQueryDTO;
 import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.CategoryStatistics;
 import com.moon.cloud.appstore.entity.FreePromotion;
 import com.moon.cloud.appstore.mapper.AppMapper;
 import com.moon.cloud.appstore.mapper.FreePromotionMapper;
+import com.moon.cloud.appstore.promotion.FreePromotionDetector;
+import com.moon.cloud.appstore.service.EngagementCounterService;
+import com.moon.cloud.appstore.statistics.CategoryStatisticsMaterializer;
 import com.moon.cloud.appstore.vo.FreeAppStatisticsVO;
 import com.moon.cloud.appstore.vo.FreePromotionVO;
 import org.junit.jupiter.api.BeforeEach;
@@ -21,6 +25,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -42,6 +47,15 @@ class FreePromotionServiceImplTest {
     @Mock
     private AppMapper appMapper;
 
+    @Mock
+    private EngagementCounterService engagementCounterService;
+
+    @Mock
+    private FreePromotionDetector freePromotionDetector;
+
+    @Mock
+    private CategoryStatisticsMaterializer categoryStatisticsMaterializer;
+
     @InjectMocks
     private FreePromotionServiceImpl freePromotionService;
 
@@ -137,12 +151,17 @@ class FreePromotionServiceImplTest {
     void testGetFreeAppStatistics() {
         // 准备数据
         List<FreePromotion> todayPromotions = Arrays.asList(testPromotion);
-        List<FreePromotion> activePromotions = Arrays.asList(testPromotion);
-
-        // Mock行为
-        when(freePromotionMapper.selectList(any())).thenReturn(todayPromotions, activePromotions);
-        when(freePromotionMapper.selectCount(any())).thenReturn(5L);
+        List<CategoryStatistics> categoryStatistics = Arrays.asList(
+                new CategoryStatistics().setCategoryId("6014").setCategoryName("游戏")
+                        .setActiveFreeCount(3).setActiveDiscountCount(1),
+                new CategoryStatistics().setCategoryId("6000").setCategoryName("商务")
+                        .setActiveFreeCount(0).setActiveDiscountCount(0));
+
+        // Mock行为：进行中限免数、打折数、即将结束数、本周数、本月数依次计数
+        when(freePromotionMapper.selectList(any())).thenReturn(todayPromotions);
+        when(freePromotionMapper.selectCount(any())).thenReturn(1L, 0L, 0L, 5L, 5L);
         when(appMapper.selectById(anyString())).thenReturn(testApp);
+        when(categoryStatisticsMaterializer.getStatistics()).thenReturn(categoryStatistics);
 
         // 执行测试
         FreeAppStatisticsVO result = freePromotionService.getFreeAppStatistics();
@@ -153,40 +172,34 @@ class FreePromotionServiceImplTest {
         assertEquals(1, result.getActiveFreeCount());
         assertNotNull(result.getTodayTotalSavings());
         assertTrue(result.getTodayTotalSavings().compareTo(BigDecimal.ZERO) > 0);
+        assertEquals(Map.of("游戏", 4), result.getCategoryDistribution());
+
+        // 验证方法调用：只查询今日限免列表，分类分布不再逐条查询应用
+        verify(freePromotionMapper, times(1)).selectList(any());
+        verify(appMapper, times(1)).selectById(anyString());
     }
 
     @Test
     @DisplayName("测试更新限免状态")
     void testUpdatePromotionStatus() {
-        // 准备数据
-        testPromotion.setEndTime(LocalDateTime.now().minusHours(1)); // 已过期
-        List<FreePromotion> activePromotions = Arrays.asList(testPromotion);
-
         // Mock行为
-        when(freePromotionMapper.selectList(any())).thenReturn(activePromotions);
-        when(appMapper.selectById(anyString())).thenReturn(testApp);
-        when(freePromotionMapper.updateById(any())).thenReturn(1);
+        when(freePromotionDetector.expirePromotions()).thenReturn(1);
+        when(freePromotionDetector.reconcileActivePromotions()).thenReturn(new FreePromotionDetector.Result(0, 0, 1));
 
         // 执行测试
         freePromotionService.updatePromotionStatus();
 
-        // 验证方法调用
-        verify(freePromotionMapper, times(1)).selectList(any());
-        verify(freePromotionMapper, times(1)).updateById(any());
+        // 验证方法调用：到期和价格恢复都由检测器批量处理，不再逐条查询应用
+        verify(freePromotionDetector, times(1)).expirePromotions();
+        verify(freePromotionDetector, times(1)).reconcileActivePromotions();
+        verifyNoInteractions(appMapper);
     }
 
     @Test
     @DisplayName("测试检测新限免应用")
     void testDetectNewPromotions() {
-        // 准备数据
-        testApp.setCurrentPrice(BigDecimal.ZERO);
-        testApp.setOriginalPrice(new BigDecimal("18.00"));
-        List<App> apps = Arrays.asList(testApp);
-
         // Mock行为
-        when(appMapper.selectList(any())).thenReturn(apps);
-        when(freePromotionMapper.selectOne(any())).thenReturn(null); // 没有现有记录
-        when(freePromotionMapper.insert(any())).thenReturn(1);
+        when(freePromotionDetector.detectDiscountedApps()).thenReturn(1);
 
         // 执行测试
         int count = freePromotionService.detectNewPromotions();
@@ -194,9 +207,9 @@ class FreePromotionServiceImplTest {
         // 验证结果
         assertEquals(1, count);
 
-        // 验证方法调用
-        verify(appMapper, times(1)).selectList(any());
-        verify(freePromotionMapper, times(1)).insert(any());
+        // 验证方法调用：不再加载全部应用
+        verify(freePromotionDetector, times(1)).detectDiscountedApps();
+        verifyNoInteractions(appMapper);
     }
 
     @Test
@@ -263,7 +276,7 @@ class FreePromotionServiceImplTest {
     @DisplayName("测试增加点击次数")
     void testIncreaseClickCount() {
         // Mock行为
-        when(freePromotionMapper.update(isNull(), any())).thenReturn(1);
+        when(freePromotionMapper.selectCount(any())).thenReturn(1L);
 
         // 执行测试
         boolean result = freePromotionService.increaseClickCount("1");
@@ -271,8 +284,23 @@ class FreePromotionServiceImplTest {
         // 验证结果
         assertTrue(result);
 
-        // 验证方法调用
-        verify(freePromotionMapper, times(1)).update(isNull(), any());
+        // 验证方法调用：只在Redis中计数，不直接写库
+        verify(engagementCounterService, times(1)).increment(EngagementCounterService.Metric.PROMOTION_CLICK, "1");
+        verify(freePromotionMapper, never()).update(any(), any());
+    }
+
+    @Test
+    @DisplayName("测试推广不存在时不计数")
+    void testIncreaseClickCountNotFound() {
+        // Mock行为
+        when(freePromotionMapper.selectCount(any())).thenReturn(0L);
+
+        // 执行测试
+        boolean result = freePromotionService.increaseClickCount("999");
+
+        // 验证结果
+        assertFalse(result);
+        verifyNoInteractions(engagementCounterService);
     }
 
     @Test
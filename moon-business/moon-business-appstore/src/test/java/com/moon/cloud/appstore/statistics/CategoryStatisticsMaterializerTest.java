@@ -0,0 +1,157 @@
+package com.moon.cloud.appstore.statistics;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.moon.cloud.appstore.entity.App;
+import com.moon.cloud.appstore.entity.CategoryStatistics;
+import com.moon.cloud.appstore.event.AppChangedEvent;
+import com.moon.cloud.appstore.mapper.AppMapper;
+import com.moon.cloud.appstore.mapper.CategoryStatisticsMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 分类统计物化器测试类
+ *
+ * @author Moon Cloud
+ * @since 2024-09-27
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("分类统计物化器测试")
+class CategoryStatisticsMaterializerTest {
+
+    @Mock
+    private AppMapper appMapper;
+
+    @Mock
+    private CategoryStatisticsMapper categoryStatisticsMapper;
+
+    @InjectMocks
+    private CategoryStatisticsMaterializer categoryStatisticsMaterializer;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda条件构造需要实体的表信息
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), App.class);
+    }
+
+    @Test
+    @DisplayName("测试只写入发生变化的分类")
+    void testRefreshWritesChangedCategories() {
+        CategoryStatistics games = createStatistics("6014", "游戏", 10, 4, 8, "36.00");
+        CategoryStatistics business = createStatistics("6000", "商务", 5, 1, 5, "20.00");
+        when(categoryStatisticsMapper.selectList(isNull())).thenReturn(List.of(games, business));
+        when(categoryStatisticsMapper.aggregateApps(eq(List.of("6014"))))
+                .thenReturn(List.of(createStatistics("6014", "游戏", 11, 5, 9, "40.50")));
+        when(categoryStatisticsMapper.aggregateActivePromotions()).thenReturn(List.of());
+
+        int changed = categoryStatisticsMaterializer.refresh(List.of("6014"));
+
+        assertEquals(1, changed);
+        ArgumentCaptor<List<CategoryStatistics>> captor = ArgumentCaptor.forClass(List.class);
+        verify(categoryStatisticsMapper, times(1)).upsertBatch(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        CategoryStatistics written = captor.getValue().get(0);
+        assertEquals("6014", written.getCategoryId());
+        assertEquals(11, written.getAppCount());
+        assertEquals(new BigDecimal("4.50"), written.getAvgRating());
+        assertNotNull(written.getUpdatedAt());
+        verify(categoryStatisticsMapper, times(1)).syncCategories(eq(List.of("6014")));
+
+        // 快照同时包含未变化的分类
+        assertEquals(2, categoryStatisticsMaterializer.getStatistics().size());
+        assertEquals(5, categoryStatisticsMaterializer.getStatistics("6000").getAppCount());
+    }
+
+    @Test
+    @DisplayName("测试统计表为空时全量生成")
+    void testRefreshRebuildsWhenTableEmpty() {
+        when(categoryStatisticsMapper.selectList(isNull())).thenReturn(List.of());
+        when(categoryStatisticsMapper.aggregateApps(isNull()))
+                .thenReturn(List.of(createStatistics("6014", "游戏", 2, 1, 2, "9.00")));
+        when(categoryStatisticsMapper.aggregateActivePromotions()).thenReturn(List.of(
+                new CategoryStatistics().setCategoryId("6014").setCategoryName("游戏")
+                        .setActiveFreeCount(1).setActiveDiscountCount(0)));
+
+        int changed = categoryStatisticsMaterializer.refresh(List.of());
+
+        assertEquals(1, changed);
+        CategoryStatistics statistics = categoryStatisticsMaterializer.getStatistics("6014");
+        assertEquals(2, statistics.getAppCount());
+        assertEquals(1, statistics.getActiveFreeCount());
+        assertEquals(new BigDecimal("4.50"), statistics.getAvgRating());
+        verify(categoryStatisticsMapper, times(1)).aggregateApps(isNull());
+    }
+
+    @Test
+    @DisplayName("测试没有变化时不写库")
+    void testRefreshSkipsUnchanged() {
+        when(categoryStatisticsMapper.selectList(isNull()))
+                .thenReturn(List.of(createStatistics("6014", "游戏", 10, 4, 8, "36.00")));
+        when(categoryStatisticsMapper.aggregateActivePromotions()).thenReturn(List.of());
+
+        int changed = categoryStatisticsMaterializer.refresh(List.of());
+
+        assertEquals(0, changed);
+        verify(categoryStatisticsMapper, never()).aggregateApps(any());
+        verify(categoryStatisticsMapper, never()).upsertBatch(any());
+        verify(categoryStatisticsMapper, never()).syncCategories(any());
+    }
+
+    @Test
+    @DisplayName("测试应用变更后只刷新所在分类")
+    void testAppChangedMarksCategory() {
+        App app = new App();
+        app.setPrimaryCategoryId("6014");
+        when(appMapper.selectList(any())).thenReturn(List.of(app));
+        when(categoryStatisticsMapper.selectList(isNull()))
+                .thenReturn(List.of(createStatistics("6014", "游戏", 10, 4, 8, "36.00")));
+        when(categoryStatisticsMapper.aggregateApps(any())).thenReturn(List.of());
+        when(categoryStatisticsMapper.aggregateActivePromotions()).thenReturn(List.of());
+
+        categoryStatisticsMaterializer.onAppChanged(new AppChangedEvent(List.of("id-1001")));
+        categoryStatisticsMaterializer.refreshPending();
+
+        verify(categoryStatisticsMapper, times(1)).aggregateApps(eq(List.of("6014")));
+        // 分类下已没有上架应用，统计归零
+        assertEquals(0, categoryStatisticsMaterializer.getStatistics("6014").getAppCount());
+        assertNull(categoryStatisticsMaterializer.getStatistics("6014").getAvgRating());
+    }
+
+    @Test
+    @DisplayName("测试平均评分计算")
+    void testAverage() {
+        assertEquals(new BigDecimal("4.33"), CategoryStatisticsMaterializer.average(new BigDecimal("13.00"), 3));
+        assertNull(CategoryStatisticsMaterializer.average(BigDecimal.ZERO, 0));
+        assertNull(CategoryStatisticsMaterializer.average(null, 3));
+    }
+
+    private CategoryStatistics createStatistics(String categoryId, String categoryName, int appCount,
+                                                int freeAppCount, int ratedAppCount, String ratingSum) {
+        BigDecimal sum = new BigDecimal(ratingSum);
+        return new CategoryStatistics()
+                .setCategoryId(categoryId)
+                .setCategoryName(categoryName)
+                .setAppCount(appCount)
+                .setFreeAppCount(freeAppCount)
+                .setRatedAppCount(ratedAppCount)
+                .setRatingSum(sum)
+                .setAvgRating(CategoryStatisticsMaterializer.average(sum, ratedAppCount))
+                .setActiveFreeCount(0)
+                .setActiveDiscountCount(0);
+    }
+}
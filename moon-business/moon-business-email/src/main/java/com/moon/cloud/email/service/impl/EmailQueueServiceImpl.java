@@ -5,8 +5,9 @@ import com.moon.cloud.email.entity.EmailRecord;
 import com.moon.cloud.email.enums.EmailStatus;
 import com.moon.cloud.email.mapper.EmailRecordMapper;
 import com.moon.cloud.email.service.EmailQueueService;
+import com.moon.cloud.queue.core.ReliableQueue;
+import com.moon.cloud.queue.core.ReliableQueueFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -15,10 +16,11 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 邮件队列服务实现类
+ * 邮件ID通过可靠队列投递：出队即建立租约，发送结束后确认；
+ * 发送过程中服务崩溃的邮件在租约到期后自动回收重新投递
  *
  * @author Moon Cloud
  * @since 2024-01-01
@@ -27,10 +29,9 @@ import java.util.concurrent.TimeUnit;
 public class EmailQueueServiceImpl implements EmailQueueService {
 
     private static final String EMAIL_QUEUE_KEY = "email:queue";
-    private static final String EMAIL_PROCESSING_KEY = "email:processing";
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private ReliableQueueFactory reliableQueueFactory;
 
     @Autowired
     private EmailRecordMapper emailRecordMapper;
@@ -46,13 +47,13 @@ public class EmailQueueServiceImpl implements EmailQueueService {
             }
 
             // 检查队列大小限制
-            Long queueSize = redisTemplate.opsForList().size(EMAIL_QUEUE_KEY);
-            if (queueSize != null && queueSize >= emailConfig.getQueueMaxSize()) {
+            ReliableQueue queue = emailQueue();
+            if (queue.size() >= emailConfig.getQueueMaxSize()) {
                 throw new RuntimeException("邮件队列已满，无法添加新邮件");
             }
 
             // 将邮件记录ID加入队列
-            redisTemplate.opsForList().rightPush(EMAIL_QUEUE_KEY, emailRecord.getId());
+            queue.enqueue(String.valueOf(emailRecord.getId()));
             return true;
         } catch (Exception e) {
             System.err.println("邮件入队失败: " + e.getMessage());
@@ -63,18 +64,30 @@ public class EmailQueueServiceImpl implements EmailQueueService {
     @Override
     public EmailRecord dequeue() {
         try {
-            // 从队列左侧取出邮件ID
-            Object emailId = redisTemplate.opsForList().leftPop(EMAIL_QUEUE_KEY);
-            if (emailId == null) {
-                return null;
-            }
+            ReliableQueue queue = emailQueue();
+            while (true) {
+                // 取出邮件ID并建立租约
+                List<String> emailIds = queue.lease(1);
+                if (emailIds.isEmpty()) {
+                    return null;
+                }
 
-            // 将邮件ID加入处理中集合
-            redisTemplate.opsForSet().add(EMAIL_PROCESSING_KEY, emailId);
-            redisTemplate.expire(EMAIL_PROCESSING_KEY, 1, TimeUnit.HOURS);
+                // 无法解析的条目（如旧版本写入的JSON）重试也不会成功，直接转入死信队列
+                String emailId = emailIds.get(0);
+                Long id = parseEmailId(emailId);
+                if (id == null) {
+                    queue.deadLetter(emailId);
+                    System.err.println("邮件队列条目无法解析，已转入死信队列: " + emailId);
+                    continue;
+                }
 
-            // 查询邮件记录
-            return emailRecordMapper.selectById((Long) emailId);
+                // 查询邮件记录，记录已不存在的ID直接确认
+                EmailRecord emailRecord = emailRecordMapper.selectById(id);
+                if (emailRecord != null) {
+                    return emailRecord;
+                }
+                queue.ack(emailId);
+            }
         } catch (Exception e) {
             System.err.println("邮件出队失败: " + e.getMessage());
             return null;
@@ -84,8 +97,7 @@ public class EmailQueueServiceImpl implements EmailQueueService {
     @Override
     public int getQueueSize() {
         try {
-            Long size = redisTemplate.opsForList().size(EMAIL_QUEUE_KEY);
-            return size != null ? size.intValue() : 0;
+            return (int) emailQueue().size();
         } catch (Exception e) {
             return 0;
         }
@@ -94,8 +106,7 @@ public class EmailQueueServiceImpl implements EmailQueueService {
     @Override
     public boolean clearQueue() {
         try {
-            redisTemplate.delete(EMAIL_QUEUE_KEY);
-            redisTemplate.delete(EMAIL_PROCESSING_KEY);
+            emailQueue().clear();
             return true;
         } catch (Exception e) {
             return false;
@@ -180,7 +191,8 @@ public class EmailQueueServiceImpl implements EmailQueueService {
 
         try {
             status.put("queueSize", getQueueSize());
-            status.put("processingSize", redisTemplate.opsForSet().size(EMAIL_PROCESSING_KEY));
+            status.put("processingSize", emailQueue().leasedSize());
+            status.put("deadLetterSize", emailQueue().deadLetterSize());
             status.put("queueEnabled", emailConfig.getEnableQueue());
             status.put("maxQueueSize", emailConfig.getQueueMaxSize());
 
@@ -212,30 +224,35 @@ public class EmailQueueServiceImpl implements EmailQueueService {
             // 更新状态为发送成功
             emailRecordMapper.updateStatus(emailRecord.getId(), EmailStatus.SUCCESS.getCode(), null);
 
-            // 从处理中集合移除
-            redisTemplate.opsForSet().remove(EMAIL_PROCESSING_KEY, emailRecord.getId());
+            // 确认出队
+            emailQueue().ack(String.valueOf(emailRecord.getId()));
 
         } catch (Exception e) {
             // 更新状态为发送失败
             emailRecordMapper.updateStatus(emailRecord.getId(), EmailStatus.FAILED.getCode(), e.getMessage());
 
-            // 从处理中集合移除
-            redisTemplate.opsForSet().remove(EMAIL_PROCESSING_KEY, emailRecord.getId());
+            // 发送失败由processRetryEmails按数据库记录重试，这里同样确认出队
+            emailQueue().ack(String.valueOf(emailRecord.getId()));
 
             System.err.println("邮件发送失败: " + e.getMessage());
         }
     }
 
     /**
-     * 定时清理处理中的过期邮件
+     * 解析队列中的邮件ID，无法解析时返回null
      */
-    @Scheduled(fixedDelay = 3600000) // 每小时执行一次
-    public void cleanProcessingEmails() {
+    private Long parseEmailId(String emailId) {
         try {
-            // 清理超过1小时还在处理中的邮件
-            redisTemplate.delete(EMAIL_PROCESSING_KEY);
-        } catch (Exception e) {
-            System.err.println("清理处理中邮件失败: " + e.getMessage());
+            return Long.valueOf(emailId);
+        } catch (NumberFormatException e) {
+            return null;
         }
     }
+
+    /**
+     * 邮件队列，租约到期未确认的邮件由可靠队列定期回收
+     */
+    private ReliableQueue emailQueue() {
+        return reliableQueueFactory.getQueue(EMAIL_QUEUE_KEY);
+    }
 }
\ No newline at end of file
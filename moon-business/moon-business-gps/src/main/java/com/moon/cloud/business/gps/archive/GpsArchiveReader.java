@@ -0,0 +1,177 @@
+package com.moon.cloud.business.gps.archive;
+
+import com.moon.cloud.business.gps.entity.GpsData;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GPS日归档文件读取器
+ * <p>
+ * 通过内存映射读取归档文件，打开时只解析末尾的索引，查询时按车辆定位轨迹段，
+ * 直接从映射内存解压，首末点时间不在查询范围内的轨迹段不解压。
+ * 映射在读取器关闭后由GC回收，读取器本身线程安全，可被多个查询共享。
+ *
+ * @author mooncloud
+ */
+public final class GpsArchiveReader implements Closeable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final LocalDate date;
+    private final Map<String, Entry> index;
+
+    /**
+     * 整个文件的映射；文件超过单次映射上限（2GB）时为null，改为按轨迹段映射
+     */
+    private final MappedByteBuffer mapped;
+
+    private GpsArchiveReader(Path file, FileChannel channel, LocalDate date, Map<String, Entry> index,
+                             MappedByteBuffer mapped) {
+        this.file = file;
+        this.channel = channel;
+        this.date = date;
+        this.index = index;
+        this.mapped = mapped;
+    }
+
+    /**
+     * 打开归档文件
+     *
+     * @param file 归档文件
+     * @return 读取器
+     * @throws IOException 文件不可读或格式不正确
+     */
+    public static GpsArchiveReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < GpsArchiveWriter.HEADER_SIZE + GpsArchiveWriter.FOOTER_SIZE) {
+                throw new IOException("GPS归档文件不完整: " + file);
+            }
+
+            MappedByteBuffer mapped = size <= Integer.MAX_VALUE
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+
+            ByteBuffer header = region(channel, mapped, 0, GpsArchiveWriter.HEADER_SIZE);
+            if (header.getInt() != GpsArchiveWriter.MAGIC || header.getInt() != GpsArchiveWriter.VERSION) {
+                throw new IOException("不是受支持的GPS归档文件: " + file);
+            }
+            LocalDate date = LocalDate.ofEpochDay(header.getLong());
+
+            ByteBuffer footer = region(channel, mapped, size - GpsArchiveWriter.FOOTER_SIZE, GpsArchiveWriter.FOOTER_SIZE);
+            long indexOffset = footer.getLong();
+            int vehicleCount = footer.getInt();
+            if (footer.getInt() != GpsArchiveWriter.MAGIC) {
+                throw new IOException("GPS归档文件不完整: " + file);
+            }
+
+            ByteBuffer indexBuffer = region(channel, mapped, indexOffset,
+                    (int) (size - GpsArchiveWriter.FOOTER_SIZE - indexOffset));
+            Map<String, Entry> index = new HashMap<>(vehicleCount * 4 / 3 + 1);
+            for (int i = 0; i < vehicleCount; i++) {
+                byte[] vehicleId = new byte[indexBuffer.getShort() & 0xFFFF];
+                indexBuffer.get(vehicleId);
+                Entry entry = new Entry(new String(vehicleId, StandardCharsets.UTF_8), indexBuffer.getLong(),
+                        indexBuffer.getInt(), indexBuffer.getInt(), indexBuffer.getInt(),
+                        indexBuffer.getLong(), indexBuffer.getLong());
+                index.put(entry.vehicleId(), entry);
+            }
+            return new GpsArchiveReader(file, channel, date, index, mapped);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getVehicleCount() {
+        return index.size();
+    }
+
+    public boolean contains(String vehicleId) {
+        return index.containsKey(vehicleId);
+    }
+
+    /**
+     * 读取车辆在时间范围内的轨迹
+     *
+     * @param vehicleId 车辆ID
+     * @param startTime 开始时间（包含）
+     * @param endTime   结束时间（包含）
+     * @return 按 (gps_time, id) 升序排列的轨迹点
+     */
+    public List<GpsData> read(String vehicleId, LocalDateTime startTime, LocalDateTime endTime) throws IOException {
+        Entry entry = index.get(vehicleId);
+        if (entry == null) {
+            return List.of();
+        }
+        long start = VehicleSegmentCodec.toMillis(startTime);
+        long end = VehicleSegmentCodec.toMillis(endTime);
+        if (entry.lastTime() < start || entry.firstTime() > end) {
+            return List.of();
+        }
+
+        byte[] raw = VehicleSegmentCodec.decompress(
+                region(channel, mapped, entry.offset(), entry.compressedLength()), entry.rawLength());
+        List<GpsData> points = VehicleSegmentCodec.decode(raw, vehicleId);
+        if (entry.firstTime() >= start && entry.lastTime() <= end) {
+            return points;
+        }
+
+        List<GpsData> matched = new ArrayList<>();
+        for (GpsData point : points) {
+            if (!point.getGpsTime().isBefore(startTime) && !point.getGpsTime().isAfter(endTime)) {
+                matched.add(point);
+            }
+        }
+        return matched;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static ByteBuffer region(FileChannel channel, MappedByteBuffer mapped, long offset, int length)
+            throws IOException {
+        if (mapped != null) {
+            return mapped.slice((int) offset, length);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    /**
+     * 车辆轨迹段索引项
+     *
+     * @param vehicleId        车辆ID
+     * @param offset           轨迹段在文件中的偏移
+     * @param compressedLength 压缩后长度
+     * @param rawLength        压缩前长度
+     * @param pointCount       轨迹点数
+     * @param firstTime        首点时间（毫秒）
+     * @param lastTime         末点时间（毫秒）
+     */
+    record Entry(String vehicleId, long offset, int compressedLength, int rawLength, int pointCount,
+                 long firstTime, long lastTime) {
+    }
+}
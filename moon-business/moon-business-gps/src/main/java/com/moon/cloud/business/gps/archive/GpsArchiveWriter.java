@@ -0,0 +1,110 @@
+package com.moon.cloud.business.gps.archive;
+
+import com.moon.cloud.business.gps.entity.GpsData;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GPS日归档文件写入器
+ * <p>
+ * 一天的数据写入一个文件，每辆车一个压缩的列式轨迹段（见 {@link VehicleSegmentCodec}），文件布局：
+ * <pre>
+ * 文件头:  magic(4) version(4) epochDay(8)
+ * 轨迹段:  按车辆依次存放的Deflate压缩数据
+ * 索引:    每辆车 vehicleId长度(2) vehicleId(UTF-8) 偏移(8) 压缩长度(4) 原始长度(4) 点数(4) 首点时间(8) 末点时间(8)
+ * 文件尾:  索引偏移(8) 车辆数(4) magic(4)
+ * </pre>
+ * 索引放在文件末尾，写入时只需缓存索引项，轨迹段可逐车流式写出。
+ *
+ * @author mooncloud
+ */
+public final class GpsArchiveWriter implements Closeable {
+
+    static final int MAGIC = 0x47505341;
+    /**
+     * 版本2在数值列前增加空值位图
+     */
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 16;
+    static final int FOOTER_SIZE = 16;
+
+    private final DataOutputStream output;
+    private final List<GpsArchiveReader.Entry> entries = new ArrayList<>();
+    private long position;
+    private long pointCount;
+    private boolean closed;
+
+    public GpsArchiveWriter(Path file, LocalDate date) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(date.toEpochDay());
+        position = HEADER_SIZE;
+    }
+
+    /**
+     * 写入一辆车的轨迹段，同一车辆只能写入一次
+     *
+     * @param vehicleId 车辆ID
+     * @param points    按 (gps_time, id) 升序排列的轨迹点
+     */
+    public void writeVehicle(String vehicleId, List<GpsData> points) throws IOException {
+        if (points.isEmpty()) {
+            return;
+        }
+        byte[] raw = VehicleSegmentCodec.encode(points);
+        byte[] compressed = VehicleSegmentCodec.compress(raw);
+        output.write(compressed);
+
+        entries.add(new GpsArchiveReader.Entry(vehicleId, position, compressed.length, raw.length, points.size(),
+                VehicleSegmentCodec.toMillis(points.get(0).getGpsTime()),
+                VehicleSegmentCodec.toMillis(points.get(points.size() - 1).getGpsTime())));
+        position += compressed.length;
+        pointCount += points.size();
+    }
+
+    public int getVehicleCount() {
+        return entries.size();
+    }
+
+    public long getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * 写入索引和文件尾后关闭
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (output) {
+            long indexOffset = position;
+            for (GpsArchiveReader.Entry entry : entries) {
+                byte[] vehicleId = entry.vehicleId().getBytes(StandardCharsets.UTF_8);
+                output.writeShort(vehicleId.length);
+                output.write(vehicleId);
+                output.writeLong(entry.offset());
+                output.writeInt(entry.compressedLength());
+                output.writeInt(entry.rawLength());
+                output.writeInt(entry.pointCount());
+                output.writeLong(entry.firstTime());
+                output.writeLong(entry.lastTime());
+            }
+            output.writeLong(indexOffset);
+            output.writeInt(entries.size());
+            output.writeInt(MAGIC);
+        }
+    }
+}
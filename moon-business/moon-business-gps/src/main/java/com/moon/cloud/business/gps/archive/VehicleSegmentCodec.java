@@ -0,0 +1,287 @@
+package com.moon.cloud.business.gps.archive;
+
+import com.moon.cloud.business.gps.codec.VarLongCodec;
+import com.moon.cloud.business.gps.entity.GpsData;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 单车单日轨迹段的列式编解码
+ * <p>
+ * 轨迹点按列依次存放，每列均为zigzag变长整数（见 {@link VarLongCodec}）：
+ * <pre>
+ * id:          首值 + 相邻差值
+ * gpsTime:     首值 + 首个差值 + 二阶差值（定频上报时几乎全为0）
+ * longitude:   空值位图 + 1e-7度定点数，首值 + 相邻差值
+ * latitude:    同上
+ * speed:       空值位图 + 0.01 km/h定点数，首值 + 相邻差值
+ * direction:   空值位图 + 0.01度定点数，首值 + 相邻差值
+ * altitude:    空值位图 + 0.01米定点数，首值 + 相邻差值
+ * createTime:  相对gpsTime的毫秒偏移加1，0表示为空
+ * </pre>
+ * 空值位图为空值个数，不为0时后跟每点1位的位图（置位表示为空）；空值按差值0写入，不影响相邻差值。
+ * 同列数值集中存放后差值重复度高，整段再用Deflate压缩。
+ *
+ * @author mooncloud
+ */
+final class VehicleSegmentCodec {
+
+    private static final double COORDINATE_SCALE = 1e7;
+    private static final double MEASURE_SCALE = 1e2;
+
+    private VehicleSegmentCodec() {
+    }
+
+    /**
+     * 编码轨迹段（未压缩）
+     *
+     * @param points 按 (gps_time, id) 升序排列的轨迹点
+     */
+    static byte[] encode(List<GpsData> points) {
+        int count = points.size();
+        Buffer buffer = new Buffer(count * 12 + 16);
+        buffer.writeVarLong(count);
+
+        long previous = 0;
+        for (GpsData point : points) {
+            buffer.writeSigned(point.getId() - previous);
+            previous = point.getId();
+        }
+
+        long previousTime = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < count; i++) {
+            long time = toMillis(points.get(i).getGpsTime());
+            long delta = time - previousTime;
+            buffer.writeSigned(i < 2 ? delta : delta - previousDelta);
+            previousDelta = delta;
+            previousTime = time;
+        }
+
+        writeFixedColumn(buffer, points, COORDINATE_SCALE, 0);
+        writeFixedColumn(buffer, points, COORDINATE_SCALE, 1);
+        writeFixedColumn(buffer, points, MEASURE_SCALE, 2);
+        writeFixedColumn(buffer, points, MEASURE_SCALE, 3);
+        writeFixedColumn(buffer, points, MEASURE_SCALE, 4);
+
+        for (GpsData point : points) {
+            LocalDateTime createTime = point.getCreateTime();
+            buffer.writeVarLong(createTime == null ? 0
+                    : VarLongCodec.zigzag(toMillis(createTime) - toMillis(point.getGpsTime())) + 1);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * 解码轨迹段
+     *
+     * @param raw       未压缩的轨迹段
+     * @param vehicleId 车辆ID
+     */
+    static List<GpsData> decode(byte[] raw, String vehicleId) {
+        try {
+            return decode(new VarLongCodec.Reader(raw, 0), vehicleId);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalStateException("归档轨迹段数据损坏", e);
+        }
+    }
+
+    private static List<GpsData> decode(VarLongCodec.Reader reader, String vehicleId) {
+        int count = (int) reader.readVarLong();
+        List<GpsData> points = new ArrayList<>(count);
+
+        long id = 0;
+        for (int i = 0; i < count; i++) {
+            id += reader.readSigned();
+            points.add(new GpsData().setId(id).setVehicleId(vehicleId));
+        }
+
+        long[] times = new long[count];
+        long time = 0;
+        long delta = 0;
+        for (int i = 0; i < count; i++) {
+            long value = reader.readSigned();
+            delta = i < 2 ? value : delta + value;
+            time += delta;
+            times[i] = time;
+            points.get(i).setGpsTime(toLocalDateTime(time));
+        }
+
+        readFixedColumn(reader, points, COORDINATE_SCALE, 0);
+        readFixedColumn(reader, points, COORDINATE_SCALE, 1);
+        readFixedColumn(reader, points, MEASURE_SCALE, 2);
+        readFixedColumn(reader, points, MEASURE_SCALE, 3);
+        readFixedColumn(reader, points, MEASURE_SCALE, 4);
+
+        for (int i = 0; i < count; i++) {
+            long offset = reader.readVarLong();
+            if (offset != 0) {
+                points.get(i).setCreateTime(toLocalDateTime(times[i] + VarLongCodec.unzigzag(offset - 1)));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Deflate压缩
+     */
+    static byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] output = new byte[Math.max(64, raw.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                length += deflater.deflate(output, length, output.length - length);
+            }
+            return Arrays.copyOf(output, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 直接从映射内存解压，不复制压缩数据
+     *
+     * @param compressed 压缩数据
+     * @param rawLength  解压后长度
+     */
+    static byte[] decompress(ByteBuffer compressed, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, rawLength - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != rawLength) {
+                throw new IllegalStateException("归档轨迹段长度不一致: 期望" + rawLength + ", 实际" + length);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("归档轨迹段数据损坏", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    private static void writeFixedColumn(Buffer buffer, List<GpsData> points, double scale, int column) {
+        int count = points.size();
+        byte[] nulls = new byte[(count + 7) / 8];
+        int nullCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (getColumn(points.get(i), column) == null) {
+                nulls[i >>> 3] |= (byte) (1 << (i & 7));
+                nullCount++;
+            }
+        }
+        buffer.writeVarLong(nullCount);
+        if (nullCount > 0) {
+            buffer.writeBytes(nulls);
+        }
+
+        long previous = 0;
+        for (GpsData point : points) {
+            Double value = getColumn(point, column);
+            long fixed = value != null ? Math.round(value * scale) : previous;
+            buffer.writeSigned(fixed - previous);
+            previous = fixed;
+        }
+    }
+
+    private static void readFixedColumn(VarLongCodec.Reader reader, List<GpsData> points, double scale, int column) {
+        int count = points.size();
+        byte[] nulls = null;
+        if (reader.readVarLong() > 0) {
+            nulls = reader.readBytes((count + 7) / 8);
+        }
+
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value += reader.readSigned();
+            boolean isNull = nulls != null && (nulls[i >>> 3] & (1 << (i & 7))) != 0;
+            setColumn(points.get(i), column, isNull ? null : value / scale);
+        }
+    }
+
+    private static Double getColumn(GpsData point, int column) {
+        return switch (column) {
+            case 0 -> point.getLongitude();
+            case 1 -> point.getLatitude();
+            case 2 -> point.getSpeed();
+            case 3 -> point.getDirection();
+            default -> point.getAltitude();
+        };
+    }
+
+    private static void setColumn(GpsData point, int column, Double value) {
+        switch (column) {
+            case 0 -> point.setLongitude(value);
+            case 1 -> point.setLatitude(value);
+            case 2 -> point.setSpeed(value);
+            case 3 -> point.setDirection(value);
+            default -> point.setAltitude(value);
+        }
+    }
+
+    /**
+     * 可扩容的写缓冲
+     */
+    private static final class Buffer {
+        private byte[] data;
+        private int length;
+
+        Buffer(int capacity) {
+            this.data = new byte[capacity];
+        }
+
+        void writeSigned(long value) {
+            writeVarLong(VarLongCodec.zigzag(value));
+        }
+
+        void writeVarLong(long value) {
+            if (length + VarLongCodec.MAX_VARLONG_SIZE > data.length) {
+                data = Arrays.copyOf(data, data.length * 2 + VarLongCodec.MAX_VARLONG_SIZE);
+            }
+            length = VarLongCodec.writeVarLong(data, length, value);
+        }
+
+        void writeBytes(byte[] bytes) {
+            if (length + bytes.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + bytes.length));
+            }
+            System.arraycopy(bytes, 0, data, length, bytes.length);
+            length += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(data, length);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.moon.cloud.business.gps.codec;
+
+import com.moon.cloud.business.gps.dto.GpsMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * GPS消息二进制编解码器
+ * <p>
+ * 消息布局（varint/varlong为7位一组的变长整数，见 {@link VarLongCodec}，zigzag用于有符号数）：
+ * <pre>
+ * magic(1) version(1) flags(1)
+ * vehicleId: varint长度 + UTF-8字节
+ * gpsTime:   zigzag varlong，UTC解释的毫秒时间戳
+ * longitude: zigzag varlong，1e-7度定点数相对参考经度的差值
+ * latitude:  zigzag varlong，1e-7度定点数相对参考纬度的差值
+ * speed:     zigzag varlong，0.01 km/h
+ * direction: zigzag varlong，0.01度
+ * altitude:  zigzag varlong，0.01米
+ * </pre>
+ * flags按位标记各可选字段是否存在，缺失的字段不占空间。
+ * 定点精度与数据库列精度一致（坐标DECIMAL(10,7)，速度/方向/海拔两位小数），入库结果与JSON格式相同；
+ * 坐标以参考点为基准做差值编码，常见的城市范围车队每个坐标只需3~4个字节，一条消息通常在30字节以内（JSON约150字节）。
+ * <p>
+ * 解码直接读取字节数组，除车辆ID外不创建中间字符串。
+ *
+ * @author mooncloud
+ */
+public final class GpsBinaryCodec {
+
+    /**
+     * 魔数，不是合法的JSON首字节，可据此与JSON消息区分
+     */
+    public static final byte MAGIC = (byte) 0xA7;
+    public static final byte VERSION = 1;
+
+    private static final int FLAG_GPS_TIME = 1;
+    private static final int FLAG_LONGITUDE = 1 << 1;
+    private static final int FLAG_LATITUDE = 1 << 2;
+    private static final int FLAG_SPEED = 1 << 3;
+    private static final int FLAG_DIRECTION = 1 << 4;
+    private static final int FLAG_ALTITUDE = 1 << 5;
+
+    private static final double COORDINATE_SCALE = 1e7;
+    private static final double MEASURE_SCALE = 1e2;
+
+    /**
+     * 参考点（北京市中心），坐标按与参考点的差值编码
+     */
+    private static final int ORIGIN_LONGITUDE = 1_164_074_000;
+    private static final int ORIGIN_LATITUDE = 399_042_000;
+
+    private static final int HEADER_SIZE = 3;
+
+    /**
+     * 可选数值字段的个数，每个字段最多占 {@link VarLongCodec#MAX_VARLONG_SIZE} 个字节
+     */
+    private static final int FIELD_COUNT = 6;
+
+    private GpsBinaryCodec() {
+    }
+
+    /**
+     * 判断字节数组是否为二进制编码的GPS消息
+     */
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC;
+    }
+
+    /**
+     * 编码GPS消息
+     *
+     * @param message GPS消息
+     * @return 编码后的字节数组
+     */
+    public static byte[] encode(GpsMessage message) {
+        byte[] vehicleId = message.getVehicleId() != null
+                ? message.getVehicleId().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        // 车辆ID长度和数值字段都按varlong最大长度预留，异常的速度、海拔等值编码后也可能占满10个字节
+        byte[] buffer = new byte[HEADER_SIZE + VarLongCodec.MAX_VARLONG_SIZE * (FIELD_COUNT + 1) + vehicleId.length];
+
+        int flags = 0;
+        flags |= message.getGpsTime() != null ? FLAG_GPS_TIME : 0;
+        flags |= message.getLongitude() != null ? FLAG_LONGITUDE : 0;
+        flags |= message.getLatitude() != null ? FLAG_LATITUDE : 0;
+        flags |= message.getSpeed() != null ? FLAG_SPEED : 0;
+        flags |= message.getDirection() != null ? FLAG_DIRECTION : 0;
+        flags |= message.getAltitude() != null ? FLAG_ALTITUDE : 0;
+
+        buffer[0] = MAGIC;
+        buffer[1] = VERSION;
+        buffer[2] = (byte) flags;
+        int position = HEADER_SIZE;
+
+        position = VarLongCodec.writeVarLong(buffer, position, vehicleId.length);
+        System.arraycopy(vehicleId, 0, buffer, position, vehicleId.length);
+        position += vehicleId.length;
+
+        if (message.getGpsTime() != null) {
+            long epochMillis = message.getGpsTime().toInstant(ZoneOffset.UTC).toEpochMilli();
+            position = VarLongCodec.writeSigned(buffer, position, epochMillis);
+        }
+        if (message.getLongitude() != null) {
+            position = VarLongCodec.writeSigned(buffer, position, toFixed(message.getLongitude(), COORDINATE_SCALE) - ORIGIN_LONGITUDE);
+        }
+        if (message.getLatitude() != null) {
+            position = VarLongCodec.writeSigned(buffer, position, toFixed(message.getLatitude(), COORDINATE_SCALE) - ORIGIN_LATITUDE);
+        }
+        if (message.getSpeed() != null) {
+            position = VarLongCodec.writeSigned(buffer, position, toFixed(message.getSpeed(), MEASURE_SCALE));
+        }
+        if (message.getDirection() != null) {
+            position = VarLongCodec.writeSigned(buffer, position, toFixed(message.getDirection(), MEASURE_SCALE));
+        }
+        if (message.getAltitude() != null) {
+            position = VarLongCodec.writeSigned(buffer, position, toFixed(message.getAltitude(), MEASURE_SCALE));
+        }
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * 解码GPS消息
+     *
+     * @param data 编码后的字节数组
+     * @return GPS消息
+     * @throws IllegalArgumentException 数据格式不正确
+     */
+    public static GpsMessage decode(byte[] data) {
+        if (!isBinary(data) || data.length < HEADER_SIZE) {
+            throw new IllegalArgumentException("不是二进制格式的GPS消息");
+        }
+        if (data[1] != VERSION) {
+            throw new IllegalArgumentException("不支持的GPS消息版本: " + data[1]);
+        }
+
+        try {
+            VarLongCodec.Reader reader = new VarLongCodec.Reader(data, HEADER_SIZE);
+            int flags = data[2];
+            int vehicleIdLength = (int) reader.readVarLong();
+            GpsMessage message = new GpsMessage()
+                    .setVehicleId(new String(data, reader.getPosition(), vehicleIdLength, StandardCharsets.UTF_8));
+            reader.skip(vehicleIdLength);
+
+            if ((flags & FLAG_GPS_TIME) != 0) {
+                long epochMillis = reader.readSigned();
+                message.setGpsTime(LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L),
+                        (int) Math.floorMod(epochMillis, 1000L) * 1_000_000, ZoneOffset.UTC));
+            }
+            if ((flags & FLAG_LONGITUDE) != 0) {
+                message.setLongitude((reader.readSigned() + ORIGIN_LONGITUDE) / COORDINATE_SCALE);
+            }
+            if ((flags & FLAG_LATITUDE) != 0) {
+                message.setLatitude((reader.readSigned() + ORIGIN_LATITUDE) / COORDINATE_SCALE);
+            }
+            if ((flags & FLAG_SPEED) != 0) {
+                message.setSpeed(reader.readSigned() / MEASURE_SCALE);
+            }
+            if ((flags & FLAG_DIRECTION) != 0) {
+                message.setDirection(reader.readSigned() / MEASURE_SCALE);
+            }
+            if ((flags & FLAG_ALTITUDE) != 0) {
+                message.setAltitude(reader.readSigned() / MEASURE_SCALE);
+            }
+            return message;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("GPS消息数据不完整", e);
+        }
+    }
+
+    private static long toFixed(double value, double scale) {
+        return Math.round(value * scale);
+    }
+}
@@ -0,0 +1,41 @@
+package com.moon.cloud.business.gps.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.moon.cloud.business.gps.dto.GpsMessage;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+
+/**
+ * GPS消息Kafka反序列化器
+ * 根据首字节自动识别格式：二进制消息由 {@link GpsBinaryCodec} 直接从记录字节数组解码，
+ * 其余按JSON由Jackson直接解析字节数组，两种格式都不经过中间字符串
+ *
+ * @author mooncloud
+ */
+public class GpsMessageDeserializer implements Deserializer<GpsMessage> {
+
+    private final ObjectMapper objectMapper;
+
+    public GpsMessageDeserializer() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    @Override
+    public GpsMessage deserialize(String topic, byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        try {
+            if (GpsBinaryCodec.isBinary(data)) {
+                return GpsBinaryCodec.decode(data);
+            }
+            return objectMapper.readValue(data, GpsMessage.class);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new SerializationException("GPS消息解析失败, topic: " + topic, e);
+        }
+    }
+}
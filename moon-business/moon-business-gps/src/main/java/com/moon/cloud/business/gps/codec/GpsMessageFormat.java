@@ -0,0 +1,19 @@
+package com.moon.cloud.business.gps.codec;
+
+/**
+ * GPS消息编码格式枚举
+ *
+ * @author mooncloud
+ */
+public enum GpsMessageFormat {
+
+    /**
+     * JSON文本，兼容旧版生产者和消费者
+     */
+    JSON,
+
+    /**
+     * 紧凑二进制编码，见 {@link GpsBinaryCodec}
+     */
+    BINARY
+}
@@ -0,0 +1,65 @@
+package com.moon.cloud.business.gps.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.moon.cloud.business.gps.dto.GpsMessage;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+/**
+ * GPS消息Kafka序列化器
+ * 按配置的格式输出JSON或二进制编码，消费端的 {@link GpsMessageDeserializer} 可自动识别两种格式，
+ * 因此生产者切换格式时无需同时升级消费者
+ *
+ * @author mooncloud
+ */
+public class GpsMessageSerializer implements Serializer<GpsMessage> {
+
+    /**
+     * 通过Kafka配置指定编码格式时使用的配置项
+     */
+    public static final String FORMAT_CONFIG = "gps.message.format";
+
+    private final ObjectMapper objectMapper;
+    private GpsMessageFormat format;
+
+    public GpsMessageSerializer() {
+        this(GpsMessageFormat.JSON);
+    }
+
+    public GpsMessageSerializer(GpsMessageFormat format) {
+        this.format = format;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object configured = configs.get(FORMAT_CONFIG);
+        if (configured != null) {
+            format = GpsMessageFormat.valueOf(configured.toString().toUpperCase());
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, GpsMessage message) {
+        if (message == null) {
+            return null;
+        }
+        if (format == GpsMessageFormat.BINARY) {
+            return GpsBinaryCodec.encode(message);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(message);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("GPS消息序列化失败: " + message.getVehicleId(), e);
+        }
+    }
+
+    public GpsMessageFormat getFormat() {
+        return format;
+    }
+}
@@ -0,0 +1,113 @@
+package com.moon.cloud.business.gps.codec;
+
+import java.util.Arrays;
+
+/**
+ * 变长整数编解码工具
+ * <p>
+ * 每个字节存放7位数据，最高位为1表示后面还有字节，long最多占 {@value #MAX_VARLONG_SIZE} 个字节；
+ * 有符号数先做zigzag变换，使绝对值小的负数同样只占少量字节。
+ *
+ * @author mooncloud
+ */
+public final class VarLongCodec {
+
+    /**
+     * 一个varlong最多占用的字节数
+     */
+    public static final int MAX_VARLONG_SIZE = 10;
+
+    private VarLongCodec() {
+    }
+
+    public static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 写入一个无符号varlong，调用方需保证缓冲区至少剩余 {@value #MAX_VARLONG_SIZE} 个字节
+     *
+     * @return 写入后的位置
+     */
+    public static int writeVarLong(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * 写入一个zigzag编码的有符号varlong
+     *
+     * @return 写入后的位置
+     */
+    public static int writeSigned(byte[] buffer, int position, long value) {
+        return writeVarLong(buffer, position, zigzag(value));
+    }
+
+    /**
+     * 顺序读取字节数组的游标
+     */
+    public static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        public Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public void skip(int length) {
+            position += length;
+        }
+
+        /**
+         * 读取定长字节
+         *
+         * @throws ArrayIndexOutOfBoundsException 数据不完整
+         */
+        public byte[] readBytes(int length) {
+            if (length < 0 || position + length > data.length) {
+                throw new ArrayIndexOutOfBoundsException("需要" + length + "字节，剩余" + (data.length - position) + "字节");
+            }
+            byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        /**
+         * 读取一个无符号varlong
+         *
+         * @throws IllegalArgumentException        超过 {@value #MAX_VARLONG_SIZE} 个字节仍未结束
+         * @throws ArrayIndexOutOfBoundsException 数据不完整
+         */
+        public long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("varint格式错误");
+        }
+
+        /**
+         * 读取一个zigzag编码的有符号varlong
+         */
+        public long readSigned() {
+            return unzigzag(readVarLong());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.moon.cloud.business.gps.config;
+
+import com.moon.cloud.business.gps.codec.GpsMessageDeserializer;
+import com.moon.cloud.business.gps.codec.GpsMessageFormat;
+import com.moon.cloud.business.gps.codec.GpsMessageSerializer;
+import com.moon.cloud.business.gps.dto.GpsMessage;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+
+/**
+ * GPS消息Kafka配置
+ * 生产端按gps.kafka.message-format选择JSON或二进制编码，消费端自动识别两种格式，
+ * 滚动升级时可先升级消费者，再逐步切换生产者的编码格式
+ *
+ * @author mooncloud
+ */
+@Configuration
+public class GpsKafkaConfig {
+
+    /**
+     * GPS消息发送模板
+     */
+    @Bean
+    public KafkaTemplate<String, GpsMessage> gpsKafkaTemplate(KafkaProperties kafkaProperties,
+                                                              @Value("${gps.kafka.message-format:json}") String messageFormat) {
+        GpsMessageFormat format = GpsMessageFormat.valueOf(messageFormat.toUpperCase());
+        DefaultKafkaProducerFactory<String, GpsMessage> producerFactory = new DefaultKafkaProducerFactory<>(
+                kafkaProperties.buildProducerProperties(null),
+                new StringSerializer(),
+                new GpsMessageSerializer(format));
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    /**
+     * GPS消息监听容器工厂
+     * 无法解析的消息由ErrorHandlingDeserializer转交错误处理器记录后跳过，不会阻塞分区
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, GpsMessage> gpsKafkaListenerContainerFactory(
+            KafkaProperties kafkaProperties) {
+        DefaultKafkaConsumerFactory<String, GpsMessage> consumerFactory = new DefaultKafkaConsumerFactory<>(
+                kafkaProperties.buildConsumerProperties(null),
+                new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(new GpsMessageDeserializer()));
+        ConcurrentKafkaListenerContainerFactory<String, GpsMessage> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        return factory;
+    }
+}
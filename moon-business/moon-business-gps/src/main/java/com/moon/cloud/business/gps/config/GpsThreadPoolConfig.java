@@ -0,0 +1,45 @@
+package com.moon.cloud.business.gps.config;
+
+import com.moon.cloud.threadpool.factory.MoonThreadPoolFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GPS服务线程池配置
+ * 线程池统一通过MoonThreadPoolFactory创建，并注册到ThreadPoolRegistry便于监控和优雅关闭
+ *
+ * @author mooncloud
+ */
+@Configuration
+public class GpsThreadPoolConfig {
+
+    /**
+     * GPS数据处理线程池
+     * Kafka消费者解析消息后将入库和事件检测交给该线程池异步执行
+     */
+    @Bean(name = "gpsDataExecutor")
+    public ThreadPoolExecutor gpsDataExecutor(MoonThreadPoolFactory moonThreadPoolFactory) {
+        return moonThreadPoolFactory.createCpuIntensiveThreadPool("gps-data");
+    }
+
+    /**
+     * 历史轨迹分表查询线程池
+     * 查询为IO密集型，队列满时由调用线程执行，天然限制并发查询数
+     */
+    @Bean(name = "gpsHistoryQueryExecutor")
+    public ThreadPoolExecutor gpsHistoryQueryExecutor(MoonThreadPoolFactory moonThreadPoolFactory) {
+        return moonThreadPoolFactory.createCustomThreadPool(
+                "gps-history-query",
+                4,
+                8,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(256),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+}
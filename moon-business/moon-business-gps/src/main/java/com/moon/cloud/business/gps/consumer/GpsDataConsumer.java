@@ -1,18 +1,14 @@
 package com.moon.cloud.business.gps.consumer;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.moon.cloud.business.gps.dto.GpsMessage;
 import com.moon.cloud.business.gps.service.GpsProcessingService;
-import com.moon.cloud.threadpool.factory.MoonThreadPoolFactory;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
  * GPS数据Kafka消费者
@@ -23,30 +19,28 @@ import java.util.concurrent.Executors;
 @Component
 public class GpsDataConsumer {
     
-    @Autowired
-    private GpsProcessingService gpsProcessingService;
-    
-    private final ObjectMapper objectMapper;
+    private final GpsProcessingService gpsProcessingService;
     private final Executor threadPool;
     
-    public GpsDataConsumer() {
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-        // 创建线程池，用于异步处理GPS数据
-        this.threadPool = MoonThreadPoolFactory.createCPUIntensiveThreadPoolWithRetry("gps-data", null);
+    public GpsDataConsumer(GpsProcessingService gpsProcessingService,
+                           @Qualifier("gpsDataExecutor") Executor threadPool) {
+        this.gpsProcessingService = gpsProcessingService;
+        // 线程池用于异步处理GPS数据
+        this.threadPool = threadPool;
     }
     
     /**
      * 消费GPS数据
+     * 消息由GpsMessageDeserializer从记录字节数组直接解码，支持JSON和二进制两种格式
      * 
-     * @param message GPS消息JSON字符串
+     * @param gpsMessage GPS消息
      */
-    @KafkaListener(topics = "gps-data", groupId = "gps-consumer-group")
-    public void consumeGpsData(String message) {
+    @KafkaListener(topics = "gps-data", groupId = "gps-consumer-group", containerFactory = "gpsKafkaListenerContainerFactory")
+    public void consumeGpsData(GpsMessage gpsMessage) {
+        if (gpsMessage == null) {
+            return;
+        }
         try {
-            // 解析GPS消息
-            GpsMessage gpsMessage = objectMapper.readValue(message, GpsMessage.class);
-
             //更新redis缓存的最新GPS信息
             //更新实时GPS信息
             //更新历史GPS信息
@@ -64,7 +58,7 @@ public class GpsDataConsumer {
             log.debug("Received and queued GPS data for vehicle: {}", gpsMessage.getVehicleId());
             
         } catch (Exception e) {
-            log.error("Failed to parse GPS message: {}", message, e);
+            log.error("Failed to queue GPS data for vehicle: {}", gpsMessage.getVehicleId(), e);
         }
     }
 }
\ No newline at end of file
@@ -1,16 +1,25 @@
 package com.moon.cloud.business.gps.controller;
 
+import com.moon.cloud.business.gps.dto.GpsHistoryPage;
 import com.moon.cloud.business.gps.entity.GpsData;
+import com.moon.cloud.business.gps.entity.GpsVehicleDailyStats;
 import com.moon.cloud.business.gps.mapper.GpsDataMapper;
+import com.moon.cloud.business.gps.service.GpsEventService;
+import com.moon.cloud.business.gps.service.GpsHistoryQueryService;
+import com.moon.cloud.business.gps.service.GpsRealtimeRetentionService;
 import com.moon.cloud.business.gps.service.GpsSimulatorService;
+import com.moon.cloud.business.gps.service.GpsVehicleStatsService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * GPS控制器
@@ -26,6 +35,14 @@ public class GpsController {
     private GpsSimulatorService gpsSimulatorService;
     @Autowired
     private GpsDataMapper gpsDataMapper;
+    @Autowired
+    private GpsHistoryQueryService gpsHistoryQueryService;
+    @Autowired
+    private GpsEventService gpsEventService;
+    @Autowired
+    private GpsRealtimeRetentionService gpsRealtimeRetentionService;
+    @Autowired
+    private GpsVehicleStatsService gpsVehicleStatsService;
     
 
     /**
@@ -67,27 +84,106 @@ public class GpsController {
     
     /**
      * 获取指定车辆在指定时间范围内的GPS数据
+     * 查询可跨越多个日分表，结果按GPS时间升序分页返回
      * 
      * @param vehicleId 车辆ID
      * @param startTime 开始时间
      * @param endTime 结束时间
-     * @return GPS数据列表
+     * @param cursor 分页游标，首页不传，后续页传上一页返回的nextCursor
+     * @param pageSize 每页记录数
+     * @param compressed 是否返回压缩后的轨迹
+     * @param toleranceMeters 轨迹压缩容差（米）
+     * @return GPS数据分页结果
      */
     @GetMapping("/vehicle/{vehicleId}/history")
-    public ResponseEntity<List<GpsData>> getGpsHistory(
+    public ResponseEntity<GpsHistoryPage> getGpsHistory(
             @PathVariable String vehicleId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "500") int pageSize,
+            @RequestParam(defaultValue = "false") boolean compressed,
+            @RequestParam(defaultValue = "10") double toleranceMeters) {
         try {
-            //List<GpsData> gpsDataList = gpsDataMapper.findByVehicleIdAndTimeRange(vehicleId, startTime, endTime);
-            //return ResponseEntity.ok(gpsDataList);
-            return null;
+            GpsHistoryPage page = gpsHistoryQueryService.queryHistory(vehicleId, startTime, endTime, cursor, pageSize,
+                    compressed ? toleranceMeters : null);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid GPS history query for vehicle: {}, {}", vehicleId, e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Failed to get GPS history for vehicle: {}", vehicleId, e);
             return ResponseEntity.internalServerError().build();
         }
     }
     
+    /**
+     * 获取事件管道统计信息（缓冲、写入、丢弃的事件数）
+     * 
+     * @return 统计信息
+     */
+    @GetMapping("/events/statistics")
+    public ResponseEntity<Map<String, Object>> getEventStatistics() {
+        return ResponseEntity.ok(gpsEventService.getStatistics());
+    }
+    
+    /**
+     * 获取车辆日统计（里程、最高/平均速度、行驶时长、停车次数）
+     * 
+     * @param vehicleId 车辆ID
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @return 按日期升序排列的统计
+     */
+    @GetMapping("/vehicle/{vehicleId}/daily-stats")
+    public ResponseEntity<List<GpsVehicleDailyStats>> getVehicleDailyStats(
+            @PathVariable String vehicleId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            return ResponseEntity.ok(gpsVehicleStatsService.queryDailyStats(vehicleId, startDate, endDate));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid daily stats query for vehicle: {}, {}", vehicleId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Failed to get daily stats for vehicle: {}", vehicleId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * 获取车辆日统计管道信息
+     * 
+     * @return 统计信息
+     */
+    @GetMapping("/vehicle-stats/statistics")
+    public ResponseEntity<Map<String, Object>> getVehicleStatsStatistics() {
+        return ResponseEntity.ok(gpsVehicleStatsService.getStatistics());
+    }
+    
+    /**
+     * 分批清理实时表中的过期数据
+     * 
+     * @param beforeTime 截止时间，不传时按配置的保留时长计算
+     * @return 清理统计信息
+     */
+    @PostMapping("/realtime/purge")
+    public ResponseEntity<Map<String, Object>> purgeRealtimeData(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeTime) {
+        try {
+            Map<String, Object> stats = beforeTime != null
+                    ? gpsRealtimeRetentionService.purgeBefore(beforeTime)
+                    : gpsRealtimeRetentionService.purgeExpired();
+            return ResponseEntity.ok(stats);
+        } catch (IllegalStateException e) {
+            log.warn("GPS realtime purge rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (Exception e) {
+            log.error("Failed to purge GPS realtime data", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
     /**
      * 健康检查接口
      * 
@@ -1,6 +1,8 @@
 package com.moon.cloud.business.gps.controller;
 
+import com.moon.cloud.business.gps.service.GpsArchiveService;
 import com.moon.cloud.business.gps.service.GpsPartitionService;
+import com.moon.cloud.business.gps.service.GpsTrackCompressionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -30,6 +32,12 @@ public class GpsPartitionController {
     @Autowired
     private GpsPartitionService gpsPartitionService;
 
+    @Autowired
+    private GpsTrackCompressionService gpsTrackCompressionService;
+
+    @Autowired
+    private GpsArchiveService gpsArchiveService;
+
     /**
      * 创建指定日期的分表
      */
@@ -118,6 +126,95 @@ public class GpsPartitionController {
         }
     }
 
+    /**
+     * 压缩指定日期分表中的轨迹
+     */
+    @PostMapping("/compress")
+    @Operation(summary = "压缩分表轨迹", description = "按车辆压缩已结束日期的GPS数据分表，删除容差范围内的冗余点")
+    public ResponseEntity<Map<String, Object>> compressPartition(
+            @Parameter(description = "日期，格式：yyyy-MM-dd", example = "2024-01-15")
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date,
+            @Parameter(description = "压缩容差（米）", example = "10")
+            @RequestParam(defaultValue = "10") double toleranceMeters) {
+        
+        Map<String, Object> result = new HashMap<>();
+        
+        try {
+            Map<String, Object> stats = gpsTrackCompressionService.compressPartition(date, toleranceMeters);
+            
+            result.put("success", true);
+            result.put("message", "分表轨迹压缩成功");
+            result.put("data", stats);
+            return ResponseEntity.ok(result);
+            
+        } catch (IllegalArgumentException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        } catch (Exception e) {
+            log.error("压缩分表轨迹接口异常", e);
+            result.put("success", false);
+            result.put("message", "压缩分表轨迹时发生异常: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(result);
+        }
+    }
+
+    /**
+     * 归档指定日期的分表
+     */
+    @PostMapping("/archive")
+    @Operation(summary = "归档分表", description = "将已结束日期的GPS数据分表转存为本地列式归档文件，历史轨迹查询优先读取归档")
+    public ResponseEntity<Map<String, Object>> archivePartition(
+            @Parameter(description = "日期，格式：yyyy-MM-dd", example = "2024-01-15")
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date) {
+        
+        Map<String, Object> result = new HashMap<>();
+        
+        try {
+            Map<String, Object> stats = gpsArchiveService.archivePartition(date);
+            
+            result.put("success", true);
+            result.put("message", "分表归档成功");
+            result.put("data", stats);
+            return ResponseEntity.ok(result);
+            
+        } catch (IllegalArgumentException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        } catch (Exception e) {
+            log.error("归档分表接口异常", e);
+            result.put("success", false);
+            result.put("message", "归档分表时发生异常: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(result);
+        }
+    }
+
+    /**
+     * 获取已归档日期列表
+     */
+    @GetMapping("/archive/list")
+    @Operation(summary = "获取已归档日期", description = "获取本地归档文件覆盖的日期列表")
+    public ResponseEntity<Map<String, Object>> listArchivedDates() {
+        
+        Map<String, Object> result = new HashMap<>();
+        
+        try {
+            List<LocalDate> dates = gpsArchiveService.listArchivedDates();
+            
+            result.put("success", true);
+            result.put("data", dates);
+            result.put("total", dates.size());
+            return ResponseEntity.ok(result);
+            
+        } catch (Exception e) {
+            log.error("获取已归档日期接口异常", e);
+            result.put("success", false);
+            result.put("message", "获取已归档日期时发生异常: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(result);
+        }
+    }
+
     /**
      * 获取分表信息列表
      */
@@ -0,0 +1,32 @@
+package com.moon.cloud.business.gps.dto;
+
+import com.moon.cloud.business.gps.entity.GpsData;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * GPS历史轨迹分页结果
+ *
+ * @author mooncloud
+ */
+@Data
+@Accessors(chain = true)
+public class GpsHistoryPage {
+
+    /**
+     * 按GPS时间升序排列的轨迹点
+     */
+    private List<GpsData> records;
+
+    /**
+     * 下一页游标，没有更多数据时为null
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private boolean hasMore;
+}
@@ -0,0 +1,92 @@
+package com.moon.cloud.business.gps.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 车辆日统计实体类
+ * 
+ * @author mooncloud
+ */
+@Data
+@Accessors(chain = true)
+@TableName("gps_vehicle_daily_stats")
+public class GpsVehicleDailyStats {
+    
+    /**
+     * 主键ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    /**
+     * 车辆ID
+     */
+    private String vehicleId;
+    
+    /**
+     * 统计日期（按GPS时间）
+     */
+    private LocalDate statDate;
+    
+    /**
+     * GPS点数
+     */
+    private Long pointCount;
+    
+    /**
+     * 行驶里程（米）
+     */
+    private Double distanceMeters;
+    
+    /**
+     * 最高速度 (km/h)
+     */
+    private Double maxSpeed;
+    
+    /**
+     * 速度累加值，用于计算平均速度
+     */
+    private Double speedSum;
+    
+    /**
+     * 计入速度累加值的点数，速度异常的点不计入
+     */
+    private Long speedCount;
+    
+    /**
+     * 平均速度 (km/h)
+     */
+    private Double avgSpeed;
+    
+    /**
+     * 行驶时长（秒）
+     */
+    private Long movingSeconds;
+    
+    /**
+     * 停车次数
+     */
+    private Integer stopCount;
+    
+    /**
+     * 当天第一个点的GPS时间
+     */
+    private LocalDateTime firstGpsTime;
+    
+    /**
+     * 当天最后一个点的GPS时间
+     */
+    private LocalDateTime lastGpsTime;
+    
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
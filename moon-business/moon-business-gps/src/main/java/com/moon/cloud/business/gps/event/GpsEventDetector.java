@@ -0,0 +1,165 @@
+package com.moon.cloud.business.gps.event;
+
+import com.moon.cloud.business.gps.dto.GpsMessage;
+import com.moon.cloud.business.gps.entity.GpsEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * GPS事件检测器
+ * <p>
+ * 按车辆在内存中维护“是否偏离路线”“是否在区域内”两个状态，只在状态确认翻转时产生事件：
+ * <ul>
+ *     <li>去重：GPS时间不晚于该车辆上一个已处理点的数据（重复投递或乱序到达）直接忽略</li>
+ *     <li>防抖：新状态需持续至少 debounce 时长才被确认，避免在边界附近来回抖动时产生成串事件</li>
+ *     <li>一次偏离只产生一条路线偏离事件，回到路线并确认后才可能再次产生</li>
+ * </ul>
+ * 同一车辆的状态更新在 {@link ConcurrentHashMap#compute} 中串行执行，可被多个处理线程并发调用。
+ *
+ * @author mooncloud
+ */
+public class GpsEventDetector {
+
+    private final Duration debounce;
+    private final Map<String, VehicleState> vehicleStates = new ConcurrentHashMap<>();
+
+    public GpsEventDetector(Duration debounce) {
+        if (debounce == null || debounce.isNegative()) {
+            throw new IllegalArgumentException("防抖时长不能为负数");
+        }
+        this.debounce = debounce;
+    }
+
+    /**
+     * 输入一个GPS点的判定结果，返回本次确认的事件
+     *
+     * @param gpsMessage GPS消息
+     * @param deviated   是否偏离路线
+     * @param inArea     是否在区域内
+     * @return 新产生的事件，没有则返回空列表
+     */
+    public List<GpsEvent> detect(GpsMessage gpsMessage, boolean deviated, boolean inArea) {
+        if (gpsMessage.getVehicleId() == null || gpsMessage.getGpsTime() == null) {
+            return List.of();
+        }
+
+        List<GpsEvent> events = new ArrayList<>(1);
+        vehicleStates.compute(gpsMessage.getVehicleId(), (vehicleId, state) -> {
+            if (state == null) {
+                state = new VehicleState();
+            } else if (!gpsMessage.getGpsTime().isAfter(state.lastGpsTime)) {
+                return state;
+            }
+            state.lastGpsTime = gpsMessage.getGpsTime();
+            state.lastUpdateMillis = System.currentTimeMillis();
+
+            GpsMessage routeTransition = state.route.update(deviated, gpsMessage, debounce);
+            if (routeTransition != null && deviated) {
+                events.add(newEvent(GpsEventType.ROUTE_DEVIATION, routeTransition));
+            }
+            GpsMessage areaTransition = state.area.update(inArea, gpsMessage, debounce);
+            if (areaTransition != null) {
+                events.add(newEvent(inArea ? GpsEventType.AREA_ENTER : GpsEventType.AREA_EXIT, areaTransition));
+            }
+            return state;
+        });
+        return events;
+    }
+
+    /**
+     * 清理长时间没有上报数据的车辆状态
+     *
+     * @param idleTimeout 空闲时长
+     * @return 清理的车辆数
+     */
+    public int evictIdle(Duration idleTimeout) {
+        long deadline = System.currentTimeMillis() - idleTimeout.toMillis();
+        int before = vehicleStates.size();
+        vehicleStates.values().removeIf(state -> state.lastUpdateMillis < deadline);
+        return before - vehicleStates.size();
+    }
+
+    /**
+     * 当前跟踪的车辆数
+     */
+    public int size() {
+        return vehicleStates.size();
+    }
+
+    /**
+     * 以状态开始翻转的点作为事件发生的时间和位置
+     */
+    private GpsEvent newEvent(GpsEventType eventType, GpsMessage origin) {
+        return new GpsEvent()
+                .setVehicleId(origin.getVehicleId())
+                .setEventType(eventType.name())
+                .setLongitude(origin.getLongitude())
+                .setLatitude(origin.getLatitude())
+                .setEventTime(origin.getGpsTime())
+                .setDescription(String.format("车辆%s%s，位置: [%s, %s]",
+                        origin.getVehicleId(), eventType.getDescription(), origin.getLongitude(), origin.getLatitude()))
+                .setCreateTime(LocalDateTime.now());
+    }
+
+    /**
+     * 单辆车的状态
+     */
+    private static final class VehicleState {
+        /**
+         * 路线偏离状态，初始视为未偏离，第一个点即偏离时也会产生事件
+         */
+        private final Condition route = new Condition(Boolean.FALSE);
+        /**
+         * 区域状态，初始未知，第一个点只确定状态不产生事件
+         */
+        private final Condition area = new Condition(null);
+        private LocalDateTime lastGpsTime;
+        private long lastUpdateMillis;
+    }
+
+    /**
+     * 带防抖的布尔状态
+     */
+    private static final class Condition {
+        private Boolean confirmed;
+        /**
+         * 状态开始翻转但尚未确认时的第一个点
+         */
+        private GpsMessage transitionPoint;
+
+        Condition(Boolean initial) {
+            this.confirmed = initial;
+        }
+
+        /**
+         * 更新状态
+         *
+         * @return 已确认状态发生翻转时返回开始翻转的点，否则返回null
+         */
+        GpsMessage update(boolean active, GpsMessage point, Duration debounce) {
+            if (confirmed == null) {
+                confirmed = active;
+                return null;
+            }
+            if (active == confirmed) {
+                transitionPoint = null;
+                return null;
+            }
+            if (transitionPoint == null) {
+                transitionPoint = point;
+            }
+            if (Duration.between(transitionPoint.getGpsTime(), point.getGpsTime()).compareTo(debounce) < 0) {
+                return null;
+            }
+            GpsMessage origin = transitionPoint;
+            confirmed = active;
+            transitionPoint = null;
+            return origin;
+        }
+    }
+}
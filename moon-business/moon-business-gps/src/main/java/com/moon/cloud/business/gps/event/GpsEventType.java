@@ -0,0 +1,34 @@
+package com.moon.cloud.business.gps.event;
+
+/**
+ * GPS事件类型枚举
+ *
+ * @author mooncloud
+ */
+public enum GpsEventType {
+
+    /**
+     * 路线偏离
+     */
+    ROUTE_DEVIATION("路线偏离"),
+
+    /**
+     * 驶入区域
+     */
+    AREA_ENTER("驶入区域"),
+
+    /**
+     * 驶出区域
+     */
+    AREA_EXIT("驶出区域");
+
+    private final String description;
+
+    GpsEventType(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
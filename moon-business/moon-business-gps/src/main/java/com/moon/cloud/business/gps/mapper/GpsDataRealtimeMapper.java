@@ -2,6 +2,7 @@ package com.moon.cloud.business.gps.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.moon.cloud.business.gps.entity.GpsDataRealtime;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -77,12 +78,13 @@ public interface GpsDataRealtimeMapper extends BaseMapper<GpsDataRealtime> {
     List<GpsDataRealtime> selectAllLatest();
 
     /**
-     * 删除指定时间之前的数据（用于数据清理）
+     * 删除指定时间之前的数据
+     * 单条语句删除全部过期数据，数据量大时会长时间持有锁，定期清理请使用GpsRealtimeRetentionService分批删除
      *
      * @param beforeTime 指定时间
      * @return 删除的记录数
      */
-    @Select("DELETE FROM gps_data_realtime WHERE gps_time < #{beforeTime}")
+    @Delete("DELETE FROM gps_data_realtime WHERE gps_time < #{beforeTime}")
     int deleteBeforeTime(@Param("beforeTime") LocalDateTime beforeTime);
 
 }
\ No newline at end of file
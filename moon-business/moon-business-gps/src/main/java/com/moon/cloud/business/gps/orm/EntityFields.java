@@ -0,0 +1,64 @@
+package com.moon.cloud.business.gps.orm;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 实体字段访问工具
+ * 按类型缓存字段查找结果，避免拦截器每次执行都遍历类层次并调用setAccessible
+ *
+ * @author moon-cloud
+ * @since 2024-01-01
+ */
+final class EntityFields {
+
+    private static final ClassValue<Boolean> ENTITY_TYPES = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return type.getPackage() != null && type.getPackage().getName().contains("entity");
+        }
+    };
+
+    private static final ClassValue<Map<String, Optional<Field>>> FIELDS = new ClassValue<>() {
+        @Override
+        protected Map<String, Optional<Field>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private EntityFields() {
+    }
+
+    /**
+     * 判断对象是否为实体对象
+     */
+    static boolean isEntity(Object obj) {
+        return obj != null && ENTITY_TYPES.get(obj.getClass());
+    }
+
+    /**
+     * 查找字段（包括父类），返回的字段已设置为可访问
+     *
+     * @return 字段，不存在时返回null
+     */
+    static Field find(Class<?> type, String fieldName) {
+        return FIELDS.get(type)
+                .computeIfAbsent(fieldName, name -> Optional.ofNullable(lookup(type, name)))
+                .orElse(null);
+    }
+
+    private static Field lookup(Class<?> clazz, String fieldName) {
+        while (clazz != null && clazz != Object.class) {
+            try {
+                Field field = clazz.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException e) {
+                clazz = clazz.getSuperclass();
+            }
+        }
+        return null;
+    }
+}
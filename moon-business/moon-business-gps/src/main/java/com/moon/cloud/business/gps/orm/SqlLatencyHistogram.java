@@ -0,0 +1,103 @@
+package com.moon.cloud.business.gps.orm;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL执行耗时直方图
+ * 按微秒的2的幂划分桶，记录只需几次LongAdder累加，适合在调用线程上高并发写入
+ *
+ * @author moon-cloud
+ * @since 2024-01-01
+ */
+public class SqlLatencyHistogram {
+
+    /**
+     * 桶数量，最后一个桶的下界约为2^38微秒（约76小时），足够覆盖所有SQL耗时
+     */
+    private static final int BUCKET_COUNT = 40;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    public SqlLatencyHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次执行
+     *
+     * @param elapsedNanos 耗时（纳秒）
+     * @param failed       是否执行失败
+     */
+    public void record(long elapsedNanos, boolean failed) {
+        long micros = Math.max(0, elapsedNanos / 1000);
+        int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(elapsedNanos);
+        maxNanos.accumulate(elapsedNanos);
+        if (failed) {
+            errorCount.increment();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getTotalMillis() {
+        return totalNanos.sum() / 1_000_000.0;
+    }
+
+    /**
+     * 估算分位数，返回所在桶的上界（毫秒）
+     *
+     * @param quantile 分位，取值(0, 1]
+     * @return 耗时上界（毫秒）
+     */
+    public double percentileMillis(double quantile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long threshold = (long) Math.ceil(total * quantile);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += counts[i];
+            if (cumulative >= threshold) {
+                return (1L << i) / 1000.0;
+            }
+        }
+        return (1L << (BUCKET_COUNT - 1)) / 1000.0;
+    }
+
+    /**
+     * 生成统计快照
+     */
+    public Map<String, Object> snapshot() {
+        long executions = count.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", executions);
+        snapshot.put("errors", errorCount.sum());
+        snapshot.put("avgMs", executions > 0 ? totalNanos.sum() / 1_000_000.0 / executions : 0);
+        snapshot.put("maxMs", maxNanos.get() / 1_000_000.0);
+        snapshot.put("p50Ms", percentileMillis(0.50));
+        snapshot.put("p95Ms", percentileMillis(0.95));
+        snapshot.put("p99Ms", percentileMillis(0.99));
+        return snapshot;
+    }
+}
@@ -1,5 +1,7 @@
 package com.moon.cloud.business.gps.orm;
 
+import com.moon.cloud.threadpool.factory.MoonThreadPoolFactory;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.BoundSql;
@@ -11,18 +13,33 @@ import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
-import java.util.regex.Matcher;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * SQL日志拦截器
  * 记录执行的具体SQL语句和执行时间
+ * <p>
+ * 调用线程上只做计时和直方图累加；只有失败、慢SQL和按比例采样的SQL才会在调用线程上生成BoundSql并提取参数值快照，
+ * 完整SQL的拼装与日志输出交给后台单线程异步完成，队列满时直接丢弃日志，不阻塞业务线程。
  *
  * @author moon-cloud
  * @since 2024-01-01
@@ -36,20 +53,53 @@ import java.util.regex.Matcher;
 public class SqlLogInterceptor implements Interceptor {
 
     private static final String SLOW_SQL_THRESHOLD_KEY = "slowSqlThreshold";
+    private static final String SAMPLE_RATE_KEY = "sampleRate";
     private static final long DEFAULT_SLOW_SQL_THRESHOLD = 1000L; // 默认慢SQL阈值1秒
+    private static final double DEFAULT_SAMPLE_RATE = 0.01D; // 默认采样1%的普通SQL
+    private static final int LOG_QUEUE_CAPACITY = 1024;
+    private static final int REPORT_TOP_N = 10;
     
+    @Value("${gps.sql-log.slow-threshold-ms:1000}")
     private long slowSqlThreshold = DEFAULT_SLOW_SQL_THRESHOLD;
 
+    @Value("${gps.sql-log.sample-rate:0.01}")
+    private double sampleRate = DEFAULT_SAMPLE_RATE;
+
+    @Autowired
+    private MoonThreadPoolFactory moonThreadPoolFactory;
+
+    /**
+     * 语句ID -> 耗时直方图
+     */
+    private final Map<String, SqlLatencyHistogram> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * 因队列已满而丢弃的日志数
+     */
+    private final LongAdder droppedLogs = new LongAdder();
+
+    private ThreadPoolExecutor logExecutor;
+
+    @PostConstruct
+    public void init() {
+        logExecutor = moonThreadPoolFactory.createCustomThreadPool(
+                "gps-sql-log",
+                1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(LOG_QUEUE_CAPACITY),
+                (task, executor) -> droppedLogs.increment()
+        );
+    }
+
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
         MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
         Object parameter = invocation.getArgs()[1];
         
-        BoundSql boundSql = mappedStatement.getBoundSql(parameter);
-        Configuration configuration = mappedStatement.getConfiguration();
-        
         // 记录开始时间
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
         
         Object result = null;
         Throwable exception = null;
@@ -62,27 +112,71 @@ public class SqlLogInterceptor implements Interceptor {
             exception = e;
             throw e;
         } finally {
-            // 记录结束时间
-            long endTime = System.currentTimeMillis();
-            long executionTime = endTime - startTime;
-            
-            // 记录SQL执行信息
-            logSqlExecution(mappedStatement, boundSql, parameter, configuration, 
-                          executionTime, result, exception);
+            long elapsedNanos = System.nanoTime() - startTime;
+            recordExecution(mappedStatement, parameter, elapsedNanos, result, exception);
         }
     }
     
     /**
-     * 记录SQL执行信息
+     * 记录执行统计，并决定是否异步输出SQL日志
      */
-    private void logSqlExecution(MappedStatement mappedStatement, BoundSql boundSql, 
-                                Object parameter, Configuration configuration,
-                                long executionTime, Object result, Throwable exception) {
+    private void recordExecution(MappedStatement mappedStatement, Object parameter,
+                                 long elapsedNanos, Object result, Throwable exception) {
         try {
             String sqlId = mappedStatement.getId();
+            SqlLatencyHistogram histogram = statistics.get(sqlId);
+            if (histogram == null) {
+                histogram = statistics.computeIfAbsent(sqlId, id -> new SqlLatencyHistogram());
+            }
+            histogram.record(elapsedNanos, exception != null);
+
+            long executionTime = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            boolean slow = executionTime >= slowSqlThreshold;
+            if (exception == null && !slow && !(log.isInfoEnabled() && isSampled())) {
+                return;
+            }
+
+            // 参数对象属于调用方，语句返回后可能被继续修改或复用，因此BoundSql和参数值必须在调用线程上提取，
+            // 同时租户拦截器生成BoundSql时依赖调用线程的租户上下文；后台线程只负责拼装和格式化字符串
+            BoundSql boundSql = mappedStatement.getBoundSql(parameter);
+            List<String> parameterValues = getParameterValues(boundSql, parameter, mappedStatement.getConfiguration());
+            String parameterInfo = parameter == null ? null : getParameterInfo(parameter);
             String sqlType = mappedStatement.getSqlCommandType().name();
-            String originalSql = boundSql.getSql();
-            String completeSql = getCompleteSql(boundSql, parameter, configuration);
+            String resultInfo = describeResult(result);
+            logExecutor.execute(() -> logSqlExecution(sqlId, sqlType, boundSql.getSql(), parameterValues,
+                    parameterInfo, executionTime, resultInfo, exception));
+        } catch (Exception e) {
+            log.error("记录SQL执行统计失败", e);
+        }
+    }
+
+    /**
+     * 按采样率决定是否输出普通SQL日志
+     */
+    private boolean isSampled() {
+        return sampleRate >= 1.0D || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * 描述执行结果
+     */
+    private String describeResult(Object result) {
+        if (result instanceof List<?> list) {
+            return "，返回记录数: " + list.size();
+        }
+        if (result instanceof Number) {
+            return "，影响行数: " + result;
+        }
+        return "";
+    }
+
+    /**
+     * 记录SQL执行信息（在后台线程执行）
+     */
+    private void logSqlExecution(String sqlId, String sqlType, String originalSql, List<String> parameterValues,
+                                String parameterInfo, long executionTime, String resultInfo, Throwable exception) {
+        try {
+            String completeSql = getCompleteSql(originalSql, parameterValues);
             
             // 构建日志信息
             StringBuilder logBuilder = new StringBuilder();
@@ -94,20 +188,13 @@ public class SqlLogInterceptor implements Interceptor {
             logBuilder.append("\n完整SQL: ").append(formatSql(completeSql));
             
             // 记录参数信息
-            if (parameter != null) {
-                logBuilder.append("\n参数信息: ").append(getParameterInfo(parameter));
+            if (parameterInfo != null) {
+                logBuilder.append("\n参数信息: ").append(parameterInfo);
             }
             
             // 记录结果信息
             if (exception == null) {
-                logBuilder.append("\n执行结果: 成功");
-                if (result != null) {
-                    if (result instanceof List) {
-                        logBuilder.append("，返回记录数: ").append(((List<?>) result).size());
-                    } else if (result instanceof Number) {
-                        logBuilder.append("，影响行数: ").append(result);
-                    }
-                }
+                logBuilder.append("\n执行结果: 成功").append(resultInfo);
             } else {
                 logBuilder.append("\n执行结果: 失败");
                 logBuilder.append("\n异常信息: ").append(exception.getMessage());
@@ -130,38 +217,113 @@ public class SqlLogInterceptor implements Interceptor {
     }
     
     /**
-     * 获取完整的SQL（替换参数）
+     * 获取各语句的耗时统计，按总耗时降序排列
+     *
+     * @return 语句ID -> 统计快照
+     */
+    public Map<String, Map<String, Object>> getStatistics() {
+        List<Map.Entry<String, SqlLatencyHistogram>> entries = new ArrayList<>(statistics.entrySet());
+        entries.sort(Comparator.comparingDouble(
+                (Map.Entry<String, SqlLatencyHistogram> entry) -> entry.getValue().getTotalMillis()).reversed());
+
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, SqlLatencyHistogram> entry : entries) {
+            result.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * 获取因队列已满而丢弃的日志数
+     */
+    public long getDroppedLogCount() {
+        return droppedLogs.sum();
+    }
+
+    /**
+     * 定时输出总耗时最高的SQL统计
      */
-    private String getCompleteSql(BoundSql boundSql, Object parameterObject, Configuration configuration) {
-        String sql = boundSql.getSql().replaceAll("[\\s]+", " ");
+    @Scheduled(fixedRateString = "${gps.sql-log.report-interval-ms:300000}",
+            initialDelayString = "${gps.sql-log.report-interval-ms:300000}")
+    public void reportStatistics() {
+        if (statistics.isEmpty()) {
+            return;
+        }
+
+        StringBuilder report = new StringBuilder("\n=== SQL耗时统计 ===");
+        int index = 0;
+        for (Map.Entry<String, Map<String, Object>> entry : getStatistics().entrySet()) {
+            if (index++ >= REPORT_TOP_N) {
+                break;
+            }
+            report.append("\n").append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        report.append("\n丢弃日志数: ").append(droppedLogs.sum());
+        report.append("\n===================");
+        log.info(report.toString());
+    }
+
+    /**
+     * 按占位符顺序提取参数值快照（在调用线程执行）
+     */
+    private List<String> getParameterValues(BoundSql boundSql, Object parameterObject, Configuration configuration) {
         List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+        if (parameterMappings == null || parameterMappings.isEmpty()) {
+            return List.of();
+        }
+
         TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
-        
-        if (parameterMappings != null && !parameterMappings.isEmpty()) {
-            MetaObject metaObject = parameterObject == null ? null : 
-                configuration.newMetaObject(parameterObject);
-            
-            for (ParameterMapping parameterMapping : parameterMappings) {
-                if (parameterMapping.getMode() != org.apache.ibatis.mapping.ParameterMode.OUT) {
-                    Object value;
-                    String propertyName = parameterMapping.getProperty();
-                    
-                    if (boundSql.hasAdditionalParameter(propertyName)) {
-                        value = boundSql.getAdditionalParameter(propertyName);
-                    } else if (parameterObject == null) {
-                        value = null;
-                    } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
-                        value = parameterObject;
-                    } else {
-                        value = metaObject == null ? null : metaObject.getValue(propertyName);
-                    }
-                    
-                    sql = sql.replaceFirst("\\?", Matcher.quoteReplacement(getParameterValue(value)));
-                }
+        MetaObject metaObject = parameterObject == null ? null :
+            configuration.newMetaObject(parameterObject);
+
+        List<String> values = new ArrayList<>(parameterMappings.size());
+        for (ParameterMapping parameterMapping : parameterMappings) {
+            // 跳过OUT参数
+            if (parameterMapping.getMode() == org.apache.ibatis.mapping.ParameterMode.OUT) {
+                continue;
+            }
+
+            Object value;
+            String propertyName = parameterMapping.getProperty();
+
+            if (boundSql.hasAdditionalParameter(propertyName)) {
+                value = boundSql.getAdditionalParameter(propertyName);
+            } else if (parameterObject == null) {
+                value = null;
+            } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+                value = parameterObject;
+            } else {
+                value = metaObject == null ? null : metaObject.getValue(propertyName);
             }
+
+            // 转成字符串保存，避免后台线程读取到之后被修改的可变参数值
+            values.add(getParameterValue(value));
+        }
+        return values;
+    }
+
+    /**
+     * 获取完整的SQL（替换参数）
+     */
+    private String getCompleteSql(String originalSql, List<String> parameterValues) {
+        String sql = originalSql.replaceAll("[\\s]+", " ");
+        if (parameterValues.isEmpty()) {
+            return sql;
         }
         
-        return sql;
+        // 单次扫描依次替换占位符
+        StringBuilder completeSql = new StringBuilder(sql.length() + parameterValues.size() * 8);
+        int valueIndex = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c != '?' || valueIndex >= parameterValues.size()) {
+                completeSql.append(c);
+                continue;
+            }
+            completeSql.append(parameterValues.get(valueIndex++));
+        }
+
+        return completeSql.toString();
     }
     
     /**
@@ -249,37 +411,6 @@ public class SqlLogInterceptor implements Interceptor {
         }
     }
     
-    /**
-     * 获取当前线程信息
-     */
-    private String getThreadInfo() {
-        Thread currentThread = Thread.currentThread();
-        return currentThread.getName() + "(" + currentThread.getId() + ")";
-    }
-    
-    /**
-     * 获取调用栈信息
-     */
-    private String getStackTrace() {
-        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-        
-        // 查找第一个非框架类的调用
-        for (StackTraceElement element : stackTrace) {
-            String className = element.getClassName();
-            if (!className.startsWith("java.") && 
-                !className.startsWith("org.apache.ibatis") &&
-                !className.startsWith("org.springframework") &&
-                !className.startsWith("com.sun.") &&
-                !className.contains("$$") &&
-                !className.contains("CGLIB")) {
-                return element.getClassName() + "." + element.getMethodName() + 
-                       "(" + element.getFileName() + ":" + element.getLineNumber() + ")";
-            }
-        }
-        
-        return "未知调用位置";
-    }
-    
     @Override
     public Object plugin(Object target) {
         return Plugin.wrap(target, this);
@@ -297,5 +428,16 @@ public class SqlLogInterceptor implements Interceptor {
                 this.slowSqlThreshold = DEFAULT_SLOW_SQL_THRESHOLD;
             }
         }
+
+        String rate = properties.getProperty(SAMPLE_RATE_KEY);
+        if (rate != null && !rate.trim().isEmpty()) {
+            try {
+                this.sampleRate = Double.parseDouble(rate.trim());
+                log.info("设置SQL日志采样率为: {}", this.sampleRate);
+            } catch (NumberFormatException e) {
+                log.warn("SQL日志采样率配置无效: {}, 使用默认值: {}", rate, DEFAULT_SAMPLE_RATE);
+                this.sampleRate = DEFAULT_SAMPLE_RATE;
+            }
+        }
     }
 }
\ No newline at end of file
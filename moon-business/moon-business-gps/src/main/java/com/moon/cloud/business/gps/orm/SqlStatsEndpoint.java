@@ -0,0 +1,35 @@
+package com.moon.cloud.business.gps.orm;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SQL耗时统计端点
+ * 通过 /actuator/sqlstats 查看各Mapper语句的执行次数、失败次数及耗时分位数
+ *
+ * @author moon-cloud
+ * @since 2024-01-01
+ */
+@Component
+@Endpoint(id = "sqlstats")
+public class SqlStatsEndpoint {
+
+    @Autowired
+    private SqlLogInterceptor sqlLogInterceptor;
+
+    @ReadOperation
+    public Map<String, Object> sqlStats() {
+        Map<String, Map<String, Object>> statements = sqlLogInterceptor.getStatistics();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("total", statements.size());
+        result.put("droppedLogs", sqlLogInterceptor.getDroppedLogCount());
+        result.put("statements", statements);
+        return result;
+    }
+}
@@ -9,7 +9,8 @@ import org.apache.ibatis.plugin.*;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Field;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -17,6 +18,8 @@ import java.util.regex.Pattern;
 /**
  * 租户插入拦截器
  * 自动为插入语句添加租户ID和主键ID（雪花算法）
+ * <p>
+ * 改写后的SQL按语句缓存，租户ID和生成的主键以参数形式在执行时绑定
  *
  * @author moon-cloud
  * @since 2024-01-01
@@ -34,6 +37,10 @@ public class TenantInsertInterceptor implements Interceptor {
     private static final String UPDATE_TIME_COLUMN = "update_time";
     private static final String VERSION_COLUMN = "version";
     private static final String DELETE_FLAG_COLUMN = "dr";
+    private static final String TENANT_ID_PARAMETER = "__tenant_id";
+    private static final String GENERATED_ID_PARAMETER = "__tenant_generated_id";
+    private static final int VARIANT_DEFAULT = 0;
+    private static final int VARIANT_GENERATE_ID = 1;
     
     // 雪花算法ID生成器
     private final SnowflakeIdGenerator snowflakeIdGenerator = new SnowflakeIdGenerator(1, 1);
@@ -44,6 +51,8 @@ public class TenantInsertInterceptor implements Interceptor {
         Pattern.CASE_INSENSITIVE | Pattern.DOTALL
     );
 
+    private final TenantStatementCache statementCache = new TenantStatementCache("租户插入拦截器");
+
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
         MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
@@ -54,24 +63,19 @@ public class TenantInsertInterceptor implements Interceptor {
             return invocation.proceed();
         }
         
-        BoundSql boundSql = mappedStatement.getBoundSql(parameter);
-        String originalSql = boundSql.getSql();
-        
-        // 检查是否需要添加租户和主键
-        if (!needTenantAndIdGeneration(originalSql)) {
-            return invocation.proceed();
-        }
-        
         try {
-            String newSql = addTenantAndIdFields(originalSql, parameter);
-            
-            if (!newSql.equals(originalSql)) {
-                // 创建新的MappedStatement
-                MappedStatement newMappedStatement = copyMappedStatement(mappedStatement, newSql, boundSql);
-                invocation.getArgs()[0] = newMappedStatement;
-                
-                log.debug("租户插入拦截器处理SQL: {} -> {}", originalSql.replaceAll("\\s+", " ").trim(), 
-                         newSql.replaceAll("\\s+", " ").trim());
+            BoundSql boundSql = mappedStatement.getBoundSql(parameter);
+            // 参数中是否已设置ID决定是否需要生成主键，两种情况分别缓存模板
+            String existingId = extractIdFromParameter(parameter);
+            boolean needGenerateId = existingId == null || existingId.trim().isEmpty();
+            TenantStatementCache.Entry entry = statementCache.get(mappedStatement, boundSql,
+                    needGenerateId ? VARIANT_GENERATE_ID : VARIANT_DEFAULT, sql -> parse(sql, needGenerateId));
+            if (entry != TenantStatementCache.NONE) {
+                if (entry.template().hasParameter(GENERATED_ID_PARAMETER)) {
+                    // 生成新的雪花ID，写回参数后在绑定时读取
+                    setIdToParameter(parameter, String.valueOf(snowflakeIdGenerator.nextId()));
+                }
+                invocation.getArgs()[0] = entry.mappedStatement();
             }
         } catch (Exception e) {
             log.error("租户插入拦截器处理失败，使用原始SQL执行", e);
@@ -79,6 +83,16 @@ public class TenantInsertInterceptor implements Interceptor {
         
         return invocation.proceed();
     }
+
+    /**
+     * 解析SQL并生成租户插入模板
+     */
+    private TenantSqlTemplate parse(String sql, boolean needGenerateId) {
+        if (!needTenantAndIdGeneration(sql)) {
+            return TenantSqlTemplate.NONE;
+        }
+        return addTenantAndIdFields(sql, needGenerateId);
+    }
     
     /**
      * 检查是否需要租户和ID生成
@@ -99,49 +113,43 @@ public class TenantInsertInterceptor implements Interceptor {
     /**
      * 添加租户和ID字段
      */
-    private String addTenantAndIdFields(String sql, Object parameter) {
+    private TenantSqlTemplate addTenantAndIdFields(String sql, boolean needGenerateId) {
         Matcher matcher = INSERT_PATTERN.matcher(sql);
         if (!matcher.find()) {
-            return sql;
+            return TenantSqlTemplate.NONE;
         }
         
         String tableName = matcher.group(1);
         String columns = matcher.group(2);
         String values = matcher.group(3);
         
-        // 解析列名和值
+        // 解析列名
         String[] columnArray = columns.split(",");
-        String[] valueArray = values.split(",");
-        
-        // 清理空格
         for (int i = 0; i < columnArray.length; i++) {
             columnArray[i] = columnArray[i].trim();
         }
-        for (int i = 0; i < valueArray.length; i++) {
-            valueArray[i] = valueArray[i].trim();
-        }
         
         StringBuilder newColumns = new StringBuilder(columns);
         StringBuilder newValues = new StringBuilder(values);
         
+        // 新增的值都追加在原有参数之后
+        int appendParameterIndex = TenantSqlTemplate.countPlaceholders(values);
+        List<TenantSqlTemplate.ExtraParameter> parameters = new ArrayList<>(2);
+        
         // 检查并添加主键ID
-        if (!containsColumn(columnArray, ID_COLUMN)) {
-            // 检查参数中是否已设置ID
-            String existingId = extractIdFromParameter(parameter);
-            if (existingId == null || existingId.trim().isEmpty()) {
-                // 生成新的雪花ID
-                String newId = String.valueOf(snowflakeIdGenerator.nextId());
-                setIdToParameter(parameter, newId);
-                
-                newColumns.append(", ").append(ID_COLUMN);
-                newValues.append(", '").append(newId).append("'");
-            }
+        if (needGenerateId && !containsColumn(columnArray, ID_COLUMN)) {
+            newColumns.append(", ").append(ID_COLUMN);
+            newValues.append(", ?");
+            parameters.add(new TenantSqlTemplate.ExtraParameter(
+                    appendParameterIndex, GENERATED_ID_PARAMETER, Object.class, this::extractIdFromParameter));
         }
         
         // 检查并添加租户ID
         if (!containsColumn(columnArray, TENANT_ID_COLUMN)) {
             newColumns.append(", ").append(TENANT_ID_COLUMN);
-            newValues.append(", '").append(getCurrentTenantId()).append("'");
+            newValues.append(", ?");
+            parameters.add(new TenantSqlTemplate.ExtraParameter(
+                    appendParameterIndex, TENANT_ID_PARAMETER, String.class, parameter -> getCurrentTenantId()));
         }
         
         // 检查并添加创建时间
@@ -168,7 +176,11 @@ public class TenantInsertInterceptor implements Interceptor {
             newValues.append(", 0");
         }
         
-        return "INSERT INTO " + tableName + " (" + newColumns + ") VALUES (" + newValues + ")";
+        String newSql = "INSERT INTO " + tableName + " (" + newColumns + ") VALUES (" + newValues + ")";
+        if (newSql.equals(sql)) {
+            return TenantSqlTemplate.NONE;
+        }
+        return new TenantSqlTemplate(newSql, parameters);
     }
     
     /**
@@ -193,8 +205,7 @@ public class TenantInsertInterceptor implements Interceptor {
         
         try {
             // 处理实体对象
-            if (parameter.getClass().getPackage() != null && 
-                parameter.getClass().getPackage().getName().contains("entity")) {
+            if (EntityFields.isEntity(parameter)) {
                 Object id = getFieldValue(parameter, "id", Object.class);
                 return id != null ? id.toString() : null;
             }
@@ -203,16 +214,15 @@ public class TenantInsertInterceptor implements Interceptor {
             if (parameter instanceof java.util.Map) {
                 java.util.Map<?, ?> paramMap = (java.util.Map<?, ?>) parameter;
                 
-                // 尝试从Map中获取id
-                Object idObj = paramMap.get("id");
+                // 尝试从Map中获取id（MyBatis的ParamMap在键不存在时会抛出异常）
+                Object idObj = paramMap.containsKey("id") ? paramMap.get("id") : null;
                 if (idObj != null) {
                     return idObj.toString();
                 }
                 
                 // 尝试从Map中获取实体对象
                 for (Object value : paramMap.values()) {
-                    if (value != null && value.getClass().getPackage() != null &&
-                        value.getClass().getPackage().getName().contains("entity")) {
+                    if (EntityFields.isEntity(value)) {
                         Object id = getFieldValue(value, "id", Object.class);
                         if (id != null) {
                             return id.toString();
@@ -237,8 +247,7 @@ public class TenantInsertInterceptor implements Interceptor {
         
         try {
             // 处理实体对象
-            if (parameter.getClass().getPackage() != null && 
-                parameter.getClass().getPackage().getName().contains("entity")) {
+            if (EntityFields.isEntity(parameter)) {
                 setFieldValue(parameter, "id", id);
                 return;
             }
@@ -251,8 +260,7 @@ public class TenantInsertInterceptor implements Interceptor {
                 
                 // 尝试设置到Map中的实体对象
                 for (Object value : paramMap.values()) {
-                    if (value != null && value.getClass().getPackage() != null &&
-                        value.getClass().getPackage().getName().contains("entity")) {
+                    if (EntityFields.isEntity(value)) {
                         setFieldValue(value, "id", id);
                     }
                 }
@@ -268,9 +276,8 @@ public class TenantInsertInterceptor implements Interceptor {
     @SuppressWarnings("unchecked")
     private <T> T getFieldValue(Object obj, String fieldName, Class<T> fieldType) {
         try {
-            Field field = findField(obj.getClass(), fieldName);
+            Field field = EntityFields.find(obj.getClass(), fieldName);
             if (field != null) {
-                field.setAccessible(true);
                 Object value = field.get(obj);
                 if (value != null && (fieldType == Object.class || fieldType.isInstance(value))) {
                     return (T) value;
@@ -287,9 +294,8 @@ public class TenantInsertInterceptor implements Interceptor {
      */
     private void setFieldValue(Object obj, String fieldName, Object value) {
         try {
-            Field field = findField(obj.getClass(), fieldName);
+            Field field = EntityFields.find(obj.getClass(), fieldName);
             if (field != null) {
-                field.setAccessible(true);
                 
                 // 类型转换
                 if (field.getType() == String.class && value != null) {
@@ -305,20 +311,6 @@ public class TenantInsertInterceptor implements Interceptor {
         }
     }
     
-    /**
-     * 查找字段（包括父类）
-     */
-    private Field findField(Class<?> clazz, String fieldName) {
-        while (clazz != null && clazz != Object.class) {
-            try {
-                return clazz.getDeclaredField(fieldName);
-            } catch (NoSuchFieldException e) {
-                clazz = clazz.getSuperclass();
-            }
-        }
-        return null;
-    }
-    
     /**
      * 获取当前租户ID
      */
@@ -326,41 +318,6 @@ public class TenantInsertInterceptor implements Interceptor {
         return TenantContext.getTenantId();
     }
     
-    /**
-     * 复制MappedStatement并替换SQL
-     */
-    private MappedStatement copyMappedStatement(MappedStatement ms, String newSql, BoundSql boundSql) {
-        MappedStatement.Builder builder = new MappedStatement.Builder(
-            ms.getConfiguration(),
-            ms.getId(),
-            new StaticSqlSource(ms.getConfiguration(), newSql, boundSql.getParameterMappings()),
-            ms.getSqlCommandType()
-        );
-        
-        builder.resource(ms.getResource());
-        builder.fetchSize(ms.getFetchSize());
-        builder.timeout(ms.getTimeout());
-        builder.statementType(ms.getStatementType());
-        builder.keyGenerator(ms.getKeyGenerator());
-        if (ms.getKeyProperties() != null && ms.getKeyProperties().length > 0) {
-            builder.keyProperty(String.join(",", ms.getKeyProperties()));
-        }
-        if (ms.getKeyColumns() != null && ms.getKeyColumns().length > 0) {
-            builder.keyColumn(String.join(",", ms.getKeyColumns()));
-        }
-        builder.databaseId(ms.getDatabaseId());
-        builder.lang(ms.getLang());
-        if (ms.getResultMaps() != null) {
-            builder.resultMaps(ms.getResultMaps());
-        }
-        builder.resultSetType(ms.getResultSetType());
-        builder.flushCacheRequired(ms.isFlushCacheRequired());
-        builder.useCache(ms.isUseCache());
-        builder.cache(ms.getCache());
-        
-        return builder.build();
-    }
-    
     @Override
     public Object plugin(Object target) {
         return Plugin.wrap(target, this);
@@ -371,27 +328,6 @@ public class TenantInsertInterceptor implements Interceptor {
         // 可以通过配置文件设置属性
     }
     
-    /**
-     * 静态SQL源
-     */
-    private static class StaticSqlSource implements org.apache.ibatis.mapping.SqlSource {
-        private final String sql;
-        private final java.util.List<org.apache.ibatis.mapping.ParameterMapping> parameterMappings;
-        private final org.apache.ibatis.session.Configuration configuration;
-        
-        public StaticSqlSource(org.apache.ibatis.session.Configuration configuration, String sql, 
-                              java.util.List<org.apache.ibatis.mapping.ParameterMapping> parameterMappings) {
-            this.sql = sql;
-            this.parameterMappings = parameterMappings;
-            this.configuration = configuration;
-        }
-        
-        @Override
-        public BoundSql getBoundSql(Object parameterObject) {
-            return new BoundSql(configuration, sql, parameterMappings, parameterObject);
-        }
-    }
-    
     /**
      * 雪花算法ID生成器
      */
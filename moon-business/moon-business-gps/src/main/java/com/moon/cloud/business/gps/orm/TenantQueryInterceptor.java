@@ -10,12 +10,16 @@ import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.Properties;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * 租户查询拦截器
  * 自动为查询语句添加租户ID和软删除标识
+ * <p>
+ * 改写后的SQL按语句缓存，租户ID以参数形式在执行时绑定
  *
  * @author moon-cloud
  * @since 2024-01-01
@@ -29,12 +33,15 @@ public class TenantQueryInterceptor implements Interceptor {
 
     private static final String TENANT_ID_COLUMN = "tenant_id";
     private static final String DELETE_FLAG_COLUMN = "dr";
-    private static final String CURRENT_TENANT_ID = "getCurrentTenantId()";
+    private static final String TENANT_ID_PARAMETER = "__tenant_id";
     
     // 匹配WHERE子句的正则表达式
     private static final Pattern WHERE_PATTERN = Pattern.compile("\\bWHERE\\b", Pattern.CASE_INSENSITIVE);
-    // 匹配FROM子句的正则表达式
-    private static final Pattern FROM_PATTERN = Pattern.compile("\\bFROM\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    // 匹配WHERE子句应插入位置之后的子句
+    private static final Pattern TRAILING_CLAUSE_PATTERN = Pattern.compile(
+        "\\b(ORDER\\s+BY|GROUP\\s+BY|HAVING|LIMIT|OFFSET)\\b", Pattern.CASE_INSENSITIVE);
+
+    private final TenantStatementCache statementCache = new TenantStatementCache("租户查询拦截器");
 
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
@@ -46,24 +53,11 @@ public class TenantQueryInterceptor implements Interceptor {
             return invocation.proceed();
         }
         
-        BoundSql boundSql = mappedStatement.getBoundSql(parameter);
-        String originalSql = boundSql.getSql();
-        
-        // 检查是否需要添加租户条件
-        if (!needTenantFilter(originalSql)) {
-            return invocation.proceed();
-        }
-        
         try {
-            String newSql = addTenantAndDeleteConditions(originalSql);
-            
-            if (!newSql.equals(originalSql)) {
-                // 创建新的MappedStatement
-                MappedStatement newMappedStatement = copyMappedStatement(mappedStatement, newSql, boundSql);
-                invocation.getArgs()[0] = newMappedStatement;
-                
-                log.debug("租户查询拦截器处理SQL: {} -> {}", originalSql.replaceAll("\\s+", " ").trim(), 
-                         newSql.replaceAll("\\s+", " ").trim());
+            BoundSql boundSql = mappedStatement.getBoundSql(parameter);
+            TenantStatementCache.Entry entry = statementCache.get(mappedStatement, boundSql, 0, this::parse);
+            if (entry != TenantStatementCache.NONE) {
+                invocation.getArgs()[0] = entry.mappedStatement();
             }
         } catch (Exception e) {
             log.error("租户查询拦截器处理失败，使用原始SQL执行", e);
@@ -71,6 +65,16 @@ public class TenantQueryInterceptor implements Interceptor {
         
         return invocation.proceed();
     }
+
+    /**
+     * 解析SQL并生成租户查询模板
+     */
+    private TenantSqlTemplate parse(String sql) {
+        if (!needTenantFilter(sql)) {
+            return TenantSqlTemplate.NONE;
+        }
+        return addTenantAndDeleteConditions(sql);
+    }
     
     /**
      * 检查是否需要租户过滤
@@ -96,36 +100,34 @@ public class TenantQueryInterceptor implements Interceptor {
     /**
      * 添加租户和删除条件
      */
-    private String addTenantAndDeleteConditions(String sql) {
-        String result = sql;
+    private TenantSqlTemplate addTenantAndDeleteConditions(String sql) {
+        String result;
+        int tenantParameterIndex;
         
-        // 添加租户条件和软删除条件
-        String tenantCondition = TENANT_ID_COLUMN + " = '" + getCurrentTenantId() + "'";
+        // 添加租户条件和软删除条件，租户ID使用占位符
+        String tenantCondition = TENANT_ID_COLUMN + " = ?";
         String deleteCondition = DELETE_FLAG_COLUMN + " = 0";
         String combinedCondition = tenantCondition + " AND " + deleteCondition;
         
-        if (WHERE_PATTERN.matcher(result).find()) {
+        Matcher whereMatcher = WHERE_PATTERN.matcher(sql);
+        if (whereMatcher.find()) {
             // 如果已有WHERE子句，在条件前添加
-            result = WHERE_PATTERN.matcher(result).replaceFirst("WHERE " + combinedCondition + " AND ");
+            String prefix = sql.substring(0, whereMatcher.start());
+            tenantParameterIndex = TenantSqlTemplate.countPlaceholders(prefix);
+            result = prefix + "WHERE " + combinedCondition + " AND " + sql.substring(whereMatcher.end());
         } else {
             // 如果没有WHERE子句，添加WHERE子句
             // 查找ORDER BY, GROUP BY, HAVING, LIMIT等子句的位置
-            String[] keywords = {"ORDER\\s+BY", "GROUP\\s+BY", "HAVING", "LIMIT", "OFFSET"};
-            int insertPos = result.length();
+            Matcher clauseMatcher = TRAILING_CLAUSE_PATTERN.matcher(sql);
+            int insertPos = clauseMatcher.find() ? clauseMatcher.start() : sql.length();
             
-            for (String keyword : keywords) {
-                Pattern pattern = Pattern.compile("\\b" + keyword + "\\b", Pattern.CASE_INSENSITIVE);
-                java.util.regex.Matcher matcher = pattern.matcher(result);
-                if (matcher.find()) {
-                    insertPos = Math.min(insertPos, matcher.start());
-                }
-            }
-            
-            result = result.substring(0, insertPos).trim() + " WHERE " + combinedCondition + " " + 
-                    result.substring(insertPos);
+            String prefix = sql.substring(0, insertPos).trim();
+            tenantParameterIndex = TenantSqlTemplate.countPlaceholders(prefix);
+            result = prefix + " WHERE " + combinedCondition + " " + sql.substring(insertPos);
         }
         
-        return result;
+        return new TenantSqlTemplate(result, List.of(new TenantSqlTemplate.ExtraParameter(
+                tenantParameterIndex, TENANT_ID_PARAMETER, String.class, parameter -> getCurrentTenantId())));
     }
     
     /**
@@ -135,41 +137,6 @@ public class TenantQueryInterceptor implements Interceptor {
         return TenantContext.getTenantId();
     }
     
-    /**
-     * 复制MappedStatement并替换SQL
-     */
-    private MappedStatement copyMappedStatement(MappedStatement ms, String newSql, BoundSql boundSql) {
-        MappedStatement.Builder builder = new MappedStatement.Builder(
-            ms.getConfiguration(),
-            ms.getId(),
-            new StaticSqlSource(ms.getConfiguration(), newSql, boundSql.getParameterMappings()),
-            ms.getSqlCommandType()
-        );
-        
-        builder.resource(ms.getResource());
-        builder.fetchSize(ms.getFetchSize());
-        builder.timeout(ms.getTimeout());
-        builder.statementType(ms.getStatementType());
-        builder.keyGenerator(ms.getKeyGenerator());
-        if (ms.getKeyProperties() != null && ms.getKeyProperties().length > 0) {
-            builder.keyProperty(String.join(",", ms.getKeyProperties()));
-        }
-        if (ms.getKeyColumns() != null && ms.getKeyColumns().length > 0) {
-            builder.keyColumn(String.join(",", ms.getKeyColumns()));
-        }
-        builder.databaseId(ms.getDatabaseId());
-        builder.lang(ms.getLang());
-        if (ms.getResultMaps() != null) {
-            builder.resultMaps(ms.getResultMaps());
-        }
-        builder.resultSetType(ms.getResultSetType());
-        builder.flushCacheRequired(ms.isFlushCacheRequired());
-        builder.useCache(ms.isUseCache());
-        builder.cache(ms.getCache());
-        
-        return builder.build();
-    }
-    
     @Override
     public Object plugin(Object target) {
         return Plugin.wrap(target, this);
@@ -179,25 +146,4 @@ public class TenantQueryInterceptor implements Interceptor {
     public void setProperties(Properties properties) {
         // 可以通过配置文件设置属性
     }
-    
-    /**
-     * 静态SQL源
-     */
-    private static class StaticSqlSource implements org.apache.ibatis.mapping.SqlSource {
-        private final String sql;
-        private final java.util.List<org.apache.ibatis.mapping.ParameterMapping> parameterMappings;
-        private final org.apache.ibatis.session.Configuration configuration;
-        
-        public StaticSqlSource(org.apache.ibatis.session.Configuration configuration, String sql, 
-                              java.util.List<org.apache.ibatis.mapping.ParameterMapping> parameterMappings) {
-            this.sql = sql;
-            this.parameterMappings = parameterMappings;
-            this.configuration = configuration;
-        }
-        
-        @Override
-        public BoundSql getBoundSql(Object parameterObject) {
-            return new BoundSql(configuration, sql, parameterMappings, parameterObject);
-        }
-    }
 }
\ No newline at end of file
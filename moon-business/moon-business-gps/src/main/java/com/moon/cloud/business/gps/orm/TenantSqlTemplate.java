@@ -0,0 +1,200 @@
+package com.moon.cloud.business.gps.orm;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 租户改写后的SQL模板
+ * <p>
+ * 模板中的租户ID、版本号等运行时值均以占位符表示，不再拼接字面量。
+ * 每个占位符对应一个附加参数，在生成BoundSql时根据当前参数对象和 {@link TenantContext} 取值绑定，
+ * 因此同一语句的模板只需解析一次即可被所有租户复用。
+ *
+ * @author moon-cloud
+ * @since 2024-01-01
+ */
+final class TenantSqlTemplate {
+
+    /**
+     * 无需改写的SQL
+     */
+    static final TenantSqlTemplate NONE = new TenantSqlTemplate(null, List.of());
+
+    private final String sql;
+    private final List<ExtraParameter> parameters;
+
+    TenantSqlTemplate(String sql, List<ExtraParameter> parameters) {
+        this.sql = sql;
+        this.parameters = parameters;
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    /**
+     * 是否包含指定名称的附加参数
+     */
+    boolean hasParameter(String name) {
+        for (ExtraParameter parameter : parameters) {
+            if (parameter.name().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 基于原始语句创建使用本模板的MappedStatement
+     *
+     * @param ms       原始MappedStatement
+     * @param boundSql 原始语句按当前参数生成的BoundSql
+     * @return 改写后的MappedStatement
+     */
+    MappedStatement toMappedStatement(MappedStatement ms, BoundSql boundSql) {
+        Configuration configuration = ms.getConfiguration();
+        List<ParameterMapping> extraMappings = new ArrayList<>(parameters.size());
+        for (ExtraParameter parameter : parameters) {
+            extraMappings.add(new ParameterMapping.Builder(configuration, parameter.name(), parameter.javaType()).build());
+        }
+
+        // 静态SQL的参数映射固定，可直接合并缓存；动态SQL需要每次由原始SQL源生成，以保留foreach等产生的附加参数
+        SqlSource original = ms.getSqlSource();
+        boolean isStatic = original instanceof RawSqlSource || original instanceof org.apache.ibatis.builder.StaticSqlSource;
+        TenantSqlSource sqlSource = isStatic
+                ? new TenantSqlSource(configuration, sql, merge(parameters, boundSql.getParameterMappings(), extraMappings), null, parameters, extraMappings)
+                : new TenantSqlSource(configuration, sql, null, original, parameters, extraMappings);
+        return copyMappedStatement(ms, sqlSource);
+    }
+
+    /**
+     * 按附加参数的位置将其参数映射插入原始参数映射中
+     */
+    private static List<ParameterMapping> merge(List<ExtraParameter> parameters, List<ParameterMapping> originalMappings,
+                                                List<ParameterMapping> extraMappings) {
+        List<ParameterMapping> merged = new ArrayList<>(originalMappings.size() + extraMappings.size());
+        int extra = 0;
+        for (int i = 0; i <= originalMappings.size(); i++) {
+            while (extra < parameters.size() && parameters.get(extra).index() == i) {
+                merged.add(extraMappings.get(extra++));
+            }
+            if (i < originalMappings.size()) {
+                merged.add(originalMappings.get(i));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 统计SQL中的参数占位符数量，忽略字符串字面量中的问号
+     */
+    static int countPlaceholders(String sql) {
+        int count = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 复制MappedStatement并替换SQL源
+     */
+    private static MappedStatement copyMappedStatement(MappedStatement ms, SqlSource sqlSource) {
+        MappedStatement.Builder builder = new MappedStatement.Builder(
+            ms.getConfiguration(),
+            ms.getId(),
+            sqlSource,
+            ms.getSqlCommandType()
+        );
+
+        builder.resource(ms.getResource());
+        builder.fetchSize(ms.getFetchSize());
+        builder.timeout(ms.getTimeout());
+        builder.statementType(ms.getStatementType());
+        builder.keyGenerator(ms.getKeyGenerator());
+        if (ms.getKeyProperties() != null && ms.getKeyProperties().length > 0) {
+            builder.keyProperty(String.join(",", ms.getKeyProperties()));
+        }
+        if (ms.getKeyColumns() != null && ms.getKeyColumns().length > 0) {
+            builder.keyColumn(String.join(",", ms.getKeyColumns()));
+        }
+        builder.databaseId(ms.getDatabaseId());
+        builder.lang(ms.getLang());
+        builder.resultOrdered(ms.isResultOrdered());
+        if (ms.getResultMaps() != null) {
+            builder.resultMaps(ms.getResultMaps());
+        }
+        builder.resultSetType(ms.getResultSetType());
+        builder.flushCacheRequired(ms.isFlushCacheRequired());
+        builder.useCache(ms.isUseCache());
+        builder.cache(ms.getCache());
+
+        return builder.build();
+    }
+
+    /**
+     * 附加参数
+     *
+     * @param index    插入位置，即模板中该占位符之前的原始占位符数量
+     * @param name     参数名
+     * @param javaType 参数类型
+     * @param resolver 根据参数对象计算参数值
+     */
+    record ExtraParameter(int index, String name, Class<?> javaType, Function<Object, Object> resolver) {
+    }
+
+    /**
+     * 租户SQL源
+     * 生成BoundSql时绑定附加参数的值
+     */
+    private static final class TenantSqlSource implements SqlSource {
+        private final Configuration configuration;
+        private final String sql;
+        private final List<ParameterMapping> parameterMappings;
+        private final SqlSource delegate;
+        private final List<ExtraParameter> parameters;
+        private final List<ParameterMapping> extraMappings;
+
+        TenantSqlSource(Configuration configuration, String sql, List<ParameterMapping> parameterMappings,
+                        SqlSource delegate, List<ExtraParameter> parameters, List<ParameterMapping> extraMappings) {
+            this.configuration = configuration;
+            this.sql = sql;
+            this.parameterMappings = parameterMappings;
+            this.delegate = delegate;
+            this.parameters = parameters;
+            this.extraMappings = extraMappings;
+        }
+
+        @Override
+        public BoundSql getBoundSql(Object parameterObject) {
+            BoundSql boundSql;
+            if (delegate == null) {
+                boundSql = new BoundSql(configuration, sql, parameterMappings, parameterObject);
+            } else {
+                BoundSql original = delegate.getBoundSql(parameterObject);
+                List<ParameterMapping> mappings = merge(parameters, original.getParameterMappings(), extraMappings);
+                boundSql = new BoundSql(configuration, sql, mappings, parameterObject);
+                original.getAdditionalParameters().forEach(boundSql::setAdditionalParameter);
+            }
+
+            for (ExtraParameter parameter : parameters) {
+                boundSql.setAdditionalParameter(parameter.name(), parameter.resolver().apply(parameterObject));
+            }
+            return boundSql;
+        }
+    }
+}
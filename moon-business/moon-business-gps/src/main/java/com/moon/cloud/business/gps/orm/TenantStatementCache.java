@@ -0,0 +1,86 @@
+package com.moon.cloud.business.gps.orm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 租户改写语句缓存
+ * 按 语句ID + 改写变体 + 原始SQL 缓存解析出的模板及派生的MappedStatement，
+ * 同一形态的语句只解析一次，之后每次执行只需一次哈希查找
+ *
+ * @author moon-cloud
+ * @since 2024-01-01
+ */
+@Slf4j
+final class TenantStatementCache {
+
+    /**
+     * 最大条目数，超过后整体清空重建，防止动态SQL导致缓存无限增长
+     */
+    private static final int MAX_CACHE_SIZE = 4096;
+
+    /**
+     * 不需要改写的语句
+     */
+    static final Entry NONE = new Entry(TenantSqlTemplate.NONE, null);
+
+    private final String name;
+    private final Map<TemplateKey, Entry> cache = new ConcurrentHashMap<>();
+
+    TenantStatementCache(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 获取改写后的语句，未命中时使用解析器生成模板
+     *
+     * @param ms       原始MappedStatement
+     * @param boundSql 原始语句按当前参数生成的BoundSql
+     * @param variant  改写变体，同一SQL因参数不同需要不同改写结果时使用
+     * @param parser   模板解析器，无需改写时返回{@link TenantSqlTemplate#NONE}
+     * @return 缓存条目，无需改写时返回{@link #NONE}
+     */
+    Entry get(MappedStatement ms, BoundSql boundSql, int variant, Function<String, TenantSqlTemplate> parser) {
+        String originalSql = boundSql.getSql();
+        TemplateKey key = new TemplateKey(ms.getId(), variant, originalSql);
+        Entry entry = cache.get(key);
+        if (entry != null) {
+            return entry;
+        }
+
+        TenantSqlTemplate template = parser.apply(originalSql);
+        if (template == TenantSqlTemplate.NONE) {
+            entry = NONE;
+        } else {
+            entry = new Entry(template, template.toMappedStatement(ms, boundSql));
+            log.debug("{}解析SQL模板: {} -> {}", name, originalSql.replaceAll("\\s+", " ").trim(),
+                    template.getSql().replaceAll("\\s+", " ").trim());
+        }
+
+        if (cache.size() >= MAX_CACHE_SIZE) {
+            cache.clear();
+        }
+        cache.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * 缓存键
+     */
+    private record TemplateKey(String statementId, int variant, String sql) {
+    }
+
+    /**
+     * 缓存条目
+     *
+     * @param template        SQL模板
+     * @param mappedStatement 使用模板的MappedStatement
+     */
+    record Entry(TenantSqlTemplate template, MappedStatement mappedStatement) {
+    }
+}
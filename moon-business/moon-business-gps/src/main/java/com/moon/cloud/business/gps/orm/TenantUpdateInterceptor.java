@@ -9,6 +9,8 @@ import org.apache.ibatis.plugin.*;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -16,6 +18,8 @@ import java.util.regex.Pattern;
 /**
  * 租户更新拦截器
  * 自动为更新语句添加租户ID和版本号控制
+ * <p>
+ * 改写后的SQL按语句缓存，租户ID和版本号以参数形式在执行时绑定
  *
  * @author moon-cloud
  * @since 2024-01-01
@@ -30,6 +34,10 @@ public class TenantUpdateInterceptor implements Interceptor {
     private static final String TENANT_ID_COLUMN = "tenant_id";
     private static final String VERSION_COLUMN = "version";
     private static final String UPDATE_TIME_COLUMN = "update_time";
+    private static final String TENANT_ID_PARAMETER = "__tenant_id";
+    private static final String VERSION_PARAMETER = "__tenant_version";
+    private static final int VARIANT_DEFAULT = 0;
+    private static final int VARIANT_WITH_VERSION = 1;
     
     // 匹配UPDATE语句的正则表达式
     private static final Pattern UPDATE_PATTERN = Pattern.compile(
@@ -37,11 +45,7 @@ public class TenantUpdateInterceptor implements Interceptor {
         Pattern.CASE_INSENSITIVE | Pattern.DOTALL
     );
     
-    // 匹配SET子句的正则表达式
-    private static final Pattern SET_PATTERN = Pattern.compile(
-        "SET\\s+(.+?)\\s+WHERE", 
-        Pattern.CASE_INSENSITIVE | Pattern.DOTALL
-    );
+    private final TenantStatementCache statementCache = new TenantStatementCache("租户更新拦截器");
 
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
@@ -53,24 +57,14 @@ public class TenantUpdateInterceptor implements Interceptor {
             return invocation.proceed();
         }
         
-        BoundSql boundSql = mappedStatement.getBoundSql(parameter);
-        String originalSql = boundSql.getSql();
-        
-        // 检查是否需要添加租户和版本控制
-        if (!needTenantAndVersionControl(originalSql)) {
-            return invocation.proceed();
-        }
-        
         try {
-            String newSql = addTenantAndVersionControl(originalSql, parameter);
-            
-            if (!newSql.equals(originalSql)) {
-                // 创建新的MappedStatement
-                MappedStatement newMappedStatement = copyMappedStatement(mappedStatement, newSql, boundSql);
-                invocation.getArgs()[0] = newMappedStatement;
-                
-                log.debug("租户更新拦截器处理SQL: {} -> {}", originalSql.replaceAll("\\s+", " ").trim(), 
-                         newSql.replaceAll("\\s+", " ").trim());
+            BoundSql boundSql = mappedStatement.getBoundSql(parameter);
+            // 参数中是否带有版本号决定是否追加乐观锁条件，两种情况分别缓存模板
+            boolean withVersion = extractVersionFromParameter(parameter) != null;
+            TenantStatementCache.Entry entry = statementCache.get(mappedStatement, boundSql,
+                    withVersion ? VARIANT_WITH_VERSION : VARIANT_DEFAULT, sql -> parse(sql, withVersion));
+            if (entry != TenantStatementCache.NONE) {
+                invocation.getArgs()[0] = entry.mappedStatement();
             }
         } catch (Exception e) {
             log.error("租户更新拦截器处理失败，使用原始SQL执行", e);
@@ -78,6 +72,16 @@ public class TenantUpdateInterceptor implements Interceptor {
         
         return invocation.proceed();
     }
+
+    /**
+     * 解析SQL并生成租户更新模板
+     */
+    private TenantSqlTemplate parse(String sql, boolean withVersion) {
+        if (!needTenantAndVersionControl(sql)) {
+            return TenantSqlTemplate.NONE;
+        }
+        return addTenantAndVersionControl(sql, withVersion);
+    }
     
     /**
      * 检查是否需要租户和版本控制
@@ -98,10 +102,10 @@ public class TenantUpdateInterceptor implements Interceptor {
     /**
      * 添加租户和版本控制
      */
-    private String addTenantAndVersionControl(String sql, Object parameter) {
+    private TenantSqlTemplate addTenantAndVersionControl(String sql, boolean withVersion) {
         Matcher matcher = UPDATE_PATTERN.matcher(sql);
         if (!matcher.find()) {
-            return sql;
+            return TenantSqlTemplate.NONE;
         }
         
         String tableName = matcher.group(1);
@@ -127,21 +131,26 @@ public class TenantUpdateInterceptor implements Interceptor {
             newSetClause.append(VERSION_COLUMN).append(" = ").append(VERSION_COLUMN).append(" + 1");
         }
         
-        // 构建新的WHERE子句
+        // 构建新的WHERE子句，新增条件位于SET子句的参数之后
+        int whereParameterIndex = TenantSqlTemplate.countPlaceholders(setClause);
+        List<TenantSqlTemplate.ExtraParameter> parameters = new ArrayList<>(2);
         StringBuilder newWhereClause = new StringBuilder();
         
         // 添加租户ID条件
         if (!whereClause.toLowerCase().contains(TENANT_ID_COLUMN.toLowerCase())) {
-            newWhereClause.append(TENANT_ID_COLUMN).append(" = '").append(getCurrentTenantId()).append("'");
+            newWhereClause.append(TENANT_ID_COLUMN).append(" = ?");
+            parameters.add(new TenantSqlTemplate.ExtraParameter(
+                    whereParameterIndex, TENANT_ID_PARAMETER, String.class, parameter -> getCurrentTenantId()));
         }
         
         // 添加版本号条件（乐观锁）
-        Integer currentVersion = extractVersionFromParameter(parameter);
-        if (currentVersion != null && !whereClause.toLowerCase().contains(VERSION_COLUMN.toLowerCase())) {
+        if (withVersion && !whereClause.toLowerCase().contains(VERSION_COLUMN.toLowerCase())) {
             if (newWhereClause.length() > 0) {
                 newWhereClause.append(" AND ");
             }
-            newWhereClause.append(VERSION_COLUMN).append(" = ").append(currentVersion);
+            newWhereClause.append(VERSION_COLUMN).append(" = ?");
+            parameters.add(new TenantSqlTemplate.ExtraParameter(
+                    whereParameterIndex, VERSION_PARAMETER, Integer.class, this::extractVersionFromParameter));
         }
         
         // 组合原有WHERE条件
@@ -152,7 +161,11 @@ public class TenantUpdateInterceptor implements Interceptor {
         }
         
         // 构建最终SQL
-        return "UPDATE " + tableName + " SET " + newSetClause + " WHERE " + newWhereClause;
+        String newSql = "UPDATE " + tableName + " SET " + newSetClause + " WHERE " + newWhereClause;
+        if (newSql.equals(sql)) {
+            return TenantSqlTemplate.NONE;
+        }
+        return new TenantSqlTemplate(newSql, parameters);
     }
     
     /**
@@ -165,8 +178,7 @@ public class TenantUpdateInterceptor implements Interceptor {
         
         try {
             // 处理实体对象
-            if (parameter.getClass().getPackage() != null && 
-                parameter.getClass().getPackage().getName().contains("entity")) {
+            if (EntityFields.isEntity(parameter)) {
                 return getFieldValue(parameter, "version", Integer.class);
             }
             
@@ -174,16 +186,15 @@ public class TenantUpdateInterceptor implements Interceptor {
             if (parameter instanceof java.util.Map) {
                 java.util.Map<?, ?> paramMap = (java.util.Map<?, ?>) parameter;
                 
-                // 尝试从Map中获取version
-                Object versionObj = paramMap.get("version");
+                // 尝试从Map中获取version（MyBatis的ParamMap在键不存在时会抛出异常）
+                Object versionObj = paramMap.containsKey("version") ? paramMap.get("version") : null;
                 if (versionObj instanceof Integer) {
                     return (Integer) versionObj;
                 }
                 
                 // 尝试从Map中获取实体对象
                 for (Object value : paramMap.values()) {
-                    if (value != null && value.getClass().getPackage() != null &&
-                        value.getClass().getPackage().getName().contains("entity")) {
+                    if (EntityFields.isEntity(value)) {
                         Integer version = getFieldValue(value, "version", Integer.class);
                         if (version != null) {
                             return version;
@@ -204,9 +215,8 @@ public class TenantUpdateInterceptor implements Interceptor {
     @SuppressWarnings("unchecked")
     private <T> T getFieldValue(Object obj, String fieldName, Class<T> fieldType) {
         try {
-            Field field = findField(obj.getClass(), fieldName);
+            Field field = EntityFields.find(obj.getClass(), fieldName);
             if (field != null) {
-                field.setAccessible(true);
                 Object value = field.get(obj);
                 if (fieldType.isInstance(value)) {
                     return (T) value;
@@ -218,20 +228,6 @@ public class TenantUpdateInterceptor implements Interceptor {
         return null;
     }
     
-    /**
-     * 查找字段（包括父类）
-     */
-    private Field findField(Class<?> clazz, String fieldName) {
-        while (clazz != null && clazz != Object.class) {
-            try {
-                return clazz.getDeclaredField(fieldName);
-            } catch (NoSuchFieldException e) {
-                clazz = clazz.getSuperclass();
-            }
-        }
-        return null;
-    }
-    
     /**
      * 获取当前租户ID
      */
@@ -239,41 +235,6 @@ public class TenantUpdateInterceptor implements Interceptor {
         return TenantContext.getTenantId();
     }
     
-    /**
-     * 复制MappedStatement并替换SQL
-     */
-    private MappedStatement copyMappedStatement(MappedStatement ms, String newSql, BoundSql boundSql) {
-        MappedStatement.Builder builder = new MappedStatement.Builder(
-            ms.getConfiguration(),
-            ms.getId(),
-            new StaticSqlSource(ms.getConfiguration(), newSql, boundSql.getParameterMappings()),
-            ms.getSqlCommandType()
-        );
-        
-        builder.resource(ms.getResource());
-        builder.fetchSize(ms.getFetchSize());
-        builder.timeout(ms.getTimeout());
-        builder.statementType(ms.getStatementType());
-        builder.keyGenerator(ms.getKeyGenerator());
-        if (ms.getKeyProperties() != null && ms.getKeyProperties().length > 0) {
-            builder.keyProperty(String.join(",", ms.getKeyProperties()));
-        }
-        if (ms.getKeyColumns() != null && ms.getKeyColumns().length > 0) {
-            builder.keyColumn(String.join(",", ms.getKeyColumns()));
-        }
-        builder.databaseId(ms.getDatabaseId());
-        builder.lang(ms.getLang());
-        if (ms.getResultMaps() != null) {
-            builder.resultMaps(ms.getResultMaps());
-        }
-        builder.resultSetType(ms.getResultSetType());
-        builder.flushCacheRequired(ms.isFlushCacheRequired());
-        builder.useCache(ms.isUseCache());
-        builder.cache(ms.getCache());
-        
-        return builder.build();
-    }
-    
     @Override
     public Object plugin(Object target) {
         return Plugin.wrap(target, this);
@@ -283,25 +244,4 @@ public class TenantUpdateInterceptor implements Interceptor {
     public void setProperties(Properties properties) {
         // 可以通过配置文件设置属性
     }
-    
-    /**
-     * 静态SQL源
-     */
-    private static class StaticSqlSource implements org.apache.ibatis.mapping.SqlSource {
-        private final String sql;
-        private final java.util.List<org.apache.ibatis.mapping.ParameterMapping> parameterMappings;
-        private final org.apache.ibatis.session.Configuration configuration;
-        
-        public StaticSqlSource(org.apache.ibatis.session.Configuration configuration, String sql, 
-                              java.util.List<org.apache.ibatis.mapping.ParameterMapping> parameterMappings) {
-            this.sql = sql;
-            this.parameterMappings = parameterMappings;
-            this.configuration = configuration;
-        }
-        
-        @Override
-        public BoundSql getBoundSql(Object parameterObject) {
-            return new BoundSql(configuration, sql, parameterMappings, parameterObject);
-        }
-    }
 }
\ No newline at end of file
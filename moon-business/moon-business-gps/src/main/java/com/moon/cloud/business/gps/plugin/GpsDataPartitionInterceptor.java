@@ -5,21 +5,39 @@ import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.plugin.*;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.springframework.stereotype.Component;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * GPS数据分表拦截器
  * 根据gps_time字段自动将数据路由到对应日期的分表
+ * <p>
+ * 为降低每条语句的开销，拦截器缓存以下元数据：
+ * <ul>
+ *     <li>静态语句是否涉及gps_data表的判定结果（按语句ID），命中后无需再调用getBoundSql</li>
+ *     <li>解析后的SQL模板（按原始SQL），替换表名只需拼接片段，无需再执行正则</li>
+ *     <li>gpsTime字段的访问器（按实体类型），以MethodHandle代替每次反射查找字段</li>
+ *     <li>派生的分表MappedStatement（按语句ID、分表名和原始SQL）</li>
+ * </ul>
  *
  * @author moon-cloud
  * @since 2024-01-01
@@ -33,20 +51,71 @@ import java.util.regex.Pattern;
 public class GpsDataPartitionInterceptor implements Interceptor {
 
     private static final String GPS_DATA_TABLE = "gps_data";
+    private static final String GPS_TIME_FIELD = "gpsTime";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
     private static final Pattern GPS_DATA_PATTERN = Pattern.compile("\\b" + GPS_DATA_TABLE + "\\b", Pattern.CASE_INSENSITIVE);
 
+    /**
+     * 各缓存的最大条目数，超过后整体清空重建，防止动态SQL导致缓存无限增长
+     */
+    private static final int MAX_CACHE_SIZE = 4096;
+
+    /**
+     * 表示实体类型上不存在gpsTime字段的访问器占位符
+     */
+    private static final MethodHandle NO_ACCESSOR = MethodHandles.constant(Object.class, null);
+
+    /**
+     * 语句ID -> 是否无需分表（仅缓存静态SQL的判定结果）
+     */
+    private final Map<String, Boolean> skipStatementCache = new ConcurrentHashMap<>();
+
+    /**
+     * 原始SQL -> SQL模板
+     */
+    private final Map<String, SqlTemplate> sqlTemplateCache = new ConcurrentHashMap<>();
+
+    /**
+     * 语句ID + 分表名 + 原始SQL -> 分表MappedStatement
+     */
+    private final Map<PartitionKey, MappedStatement> partitionStatementCache = new ConcurrentHashMap<>();
+
+    /**
+     * 日期 -> 分表名
+     */
+    private final Map<LocalDate, String> partitionTableNameCache = new ConcurrentHashMap<>();
+
+    /**
+     * 实体类型 -> gpsTime访问器
+     */
+    private final ClassValue<MethodHandle> gpsTimeAccessors = new ClassValue<>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            return findGpsTimeAccessor(type);
+        }
+    };
+
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
         MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
         Object parameter = invocation.getArgs()[1];
+        String statementId = mappedStatement.getId();
+
+        // 已确认不涉及gps_data的静态语句直接放行
+        if (skipStatementCache.containsKey(statementId)) {
+            return invocation.proceed();
+        }
         
         // 获取原始SQL
         BoundSql boundSql = mappedStatement.getBoundSql(parameter);
         String originalSql = boundSql.getSql();
         
         // 检查是否需要进行分表处理
-        if (!needPartition(originalSql)) {
+        SqlTemplate sqlTemplate = getSqlTemplate(originalSql);
+        if (sqlTemplate == SqlTemplate.NONE) {
+            if (isStaticSqlSource(mappedStatement.getSqlSource())) {
+                putBounded(skipStatementCache, statementId, Boolean.TRUE);
+            }
             return invocation.proceed();
         }
         
@@ -61,12 +130,15 @@ public class GpsDataPartitionInterceptor implements Interceptor {
             // 生成分表名
             String partitionTableName = generatePartitionTableName(gpsTime);
             
-            // 替换SQL中的表名
-            String newSql = replaceTableName(originalSql, partitionTableName);
-            
-            // 创建新的MappedStatement
-            MappedStatement newMappedStatement = copyMappedStatement(mappedStatement, newSql, boundSql);
-            invocation.getArgs()[0] = newMappedStatement;
+            // 获取分表MappedStatement，未命中时替换表名并创建
+            PartitionKey key = new PartitionKey(statementId, partitionTableName, originalSql);
+            MappedStatement partitionStatement = partitionStatementCache.get(key);
+            if (partitionStatement == null) {
+                String newSql = sqlTemplate.render(partitionTableName);
+                partitionStatement = copyMappedStatement(mappedStatement, newSql, boundSql);
+                putBounded(partitionStatementCache, key, partitionStatement);
+            }
+            invocation.getArgs()[0] = partitionStatement;
             
             log.debug("GPS数据分表路由: {} -> {}, GPS时间: {}", GPS_DATA_TABLE, partitionTableName, gpsTime);
             
@@ -78,10 +150,23 @@ public class GpsDataPartitionInterceptor implements Interceptor {
     }
     
     /**
-     * 检查是否需要进行分表处理
+     * 获取SQL模板，不涉及gps_data表时返回{@link SqlTemplate#NONE}
      */
-    private boolean needPartition(String sql) {
-        return GPS_DATA_PATTERN.matcher(sql).find();
+    private SqlTemplate getSqlTemplate(String sql) {
+        SqlTemplate template = sqlTemplateCache.get(sql);
+        if (template == null) {
+            template = SqlTemplate.parse(sql);
+            putBounded(sqlTemplateCache, sql, template);
+        }
+        return template;
+    }
+
+    /**
+     * 判断SQL源是否为静态SQL，静态SQL的文本不随参数变化
+     */
+    private boolean isStaticSqlSource(SqlSource sqlSource) {
+        return sqlSource instanceof RawSqlSource
+                || sqlSource instanceof org.apache.ibatis.builder.StaticSqlSource;
     }
     
     /**
@@ -94,24 +179,27 @@ public class GpsDataPartitionInterceptor implements Interceptor {
         
         try {
             // 处理实体对象
-            if (parameter.getClass().getSimpleName().contains("GpsData")) {
-                return getFieldValue(parameter, "gpsTime", LocalDateTime.class);
+            MethodHandle accessor = gpsTimeAccessors.get(parameter.getClass());
+            if (accessor != NO_ACCESSOR) {
+                return readGpsTime(accessor, parameter);
             }
             
             // 处理Map参数
-            if (parameter instanceof java.util.Map) {
-                java.util.Map<?, ?> paramMap = (java.util.Map<?, ?>) parameter;
-                
-                // 尝试从Map中获取gpsTime
-                Object gpsTimeObj = paramMap.get("gpsTime");
-                if (gpsTimeObj instanceof LocalDateTime) {
-                    return (LocalDateTime) gpsTimeObj;
+            if (parameter instanceof Map<?, ?> paramMap) {
+                // 尝试从Map中获取gpsTime（MyBatis的ParamMap在key不存在时会抛出异常，因此先判断）
+                if (paramMap.containsKey(GPS_TIME_FIELD)
+                        && paramMap.get(GPS_TIME_FIELD) instanceof LocalDateTime gpsTime) {
+                    return gpsTime;
                 }
                 
                 // 尝试从Map中获取实体对象
                 for (Object value : paramMap.values()) {
-                    if (value != null && value.getClass().getSimpleName().contains("GpsData")) {
-                        LocalDateTime gpsTime = getFieldValue(value, "gpsTime", LocalDateTime.class);
+                    if (value == null) {
+                        continue;
+                    }
+                    MethodHandle valueAccessor = gpsTimeAccessors.get(value.getClass());
+                    if (valueAccessor != NO_ACCESSOR) {
+                        LocalDateTime gpsTime = readGpsTime(valueAccessor, value);
                         if (gpsTime != null) {
                             return gpsTime;
                         }
@@ -124,7 +212,7 @@ public class GpsDataPartitionInterceptor implements Interceptor {
                 return LocalDateTime.now();
             }
             
-        } catch (Exception e) {
+        } catch (Throwable e) {
             log.warn("提取GPS时间失败", e);
         }
         
@@ -132,23 +220,35 @@ public class GpsDataPartitionInterceptor implements Interceptor {
     }
     
     /**
-     * 通过反射获取字段值
+     * 通过访问器读取gpsTime
+     */
+    private LocalDateTime readGpsTime(MethodHandle accessor, Object target) throws Throwable {
+        Object value = accessor.invokeExact(target);
+        return value instanceof LocalDateTime gpsTime ? gpsTime : null;
+    }
+
+    /**
+     * 查找实体类型上gpsTime字段的访问器，不存在时返回{@link #NO_ACCESSOR}
      */
-    @SuppressWarnings("unchecked")
-    private <T> T getFieldValue(Object obj, String fieldName, Class<T> fieldType) {
+    private MethodHandle findGpsTimeAccessor(Class<?> type) {
+        if (!type.getSimpleName().contains("GpsData")) {
+            return NO_ACCESSOR;
+        }
+
+        Field field = findField(type, GPS_TIME_FIELD);
+        if (field == null) {
+            return NO_ACCESSOR;
+        }
+
         try {
-            Field field = findField(obj.getClass(), fieldName);
-            if (field != null) {
-                field.setAccessible(true);
-                Object value = field.get(obj);
-                if (fieldType.isInstance(value)) {
-                    return (T) value;
-                }
-            }
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .unreflectGetter(field)
+                    .asType(MethodType.methodType(Object.class, Object.class));
         } catch (Exception e) {
-            log.debug("获取字段值失败: {}.{}", obj.getClass().getSimpleName(), fieldName);
+            log.debug("创建字段访问器失败: {}.{}", type.getSimpleName(), GPS_TIME_FIELD);
+            return NO_ACCESSOR;
         }
-        return null;
     }
     
     /**
@@ -169,15 +269,23 @@ public class GpsDataPartitionInterceptor implements Interceptor {
      * 生成分表名
      */
     private String generatePartitionTableName(LocalDateTime gpsTime) {
-        String dateSuffix = gpsTime.format(DATE_FORMATTER);
-        return GPS_DATA_TABLE + "_" + dateSuffix;
+        LocalDate date = gpsTime.toLocalDate();
+        String tableName = partitionTableNameCache.get(date);
+        if (tableName == null) {
+            tableName = GPS_DATA_TABLE + "_" + date.format(DATE_FORMATTER);
+            putBounded(partitionTableNameCache, date, tableName);
+        }
+        return tableName;
     }
     
     /**
-     * 替换SQL中的表名
+     * 写入缓存，超过容量上限时先清空
      */
-    private String replaceTableName(String sql, String newTableName) {
-        return GPS_DATA_PATTERN.matcher(sql).replaceAll(newTableName);
+    private <K, V> void putBounded(Map<K, V> cache, K key, V value) {
+        if (cache.size() >= MAX_CACHE_SIZE) {
+            cache.clear();
+        }
+        cache.put(key, value);
     }
     
     /**
@@ -222,6 +330,62 @@ public class GpsDataPartitionInterceptor implements Interceptor {
         // 可以通过配置文件设置插件属性
     }
     
+    /**
+     * 分表语句缓存键
+     */
+    private record PartitionKey(String statementId, String tableName, String sql) {
+    }
+
+    /**
+     * SQL模板
+     * 按gps_data表名出现的位置切分原始SQL，替换表名时只需按顺序拼接片段
+     */
+    private static final class SqlTemplate {
+
+        /**
+         * 不涉及gps_data表的SQL
+         */
+        static final SqlTemplate NONE = new SqlTemplate(new String[0], 0);
+
+        private final String[] segments;
+        private final int length;
+
+        private SqlTemplate(String[] segments, int length) {
+            this.segments = segments;
+            this.length = length;
+        }
+
+        static SqlTemplate parse(String sql) {
+            Matcher matcher = GPS_DATA_PATTERN.matcher(sql);
+            if (!matcher.find()) {
+                return NONE;
+            }
+
+            List<String> segments = new ArrayList<>();
+            int start = 0;
+            do {
+                segments.add(sql.substring(start, matcher.start()));
+                start = matcher.end();
+            } while (matcher.find());
+            segments.add(sql.substring(start));
+
+            int length = 0;
+            for (String segment : segments) {
+                length += segment.length();
+            }
+            return new SqlTemplate(segments.toArray(new String[0]), length);
+        }
+
+        String render(String tableName) {
+            StringBuilder sql = new StringBuilder(length + tableName.length() * (segments.length - 1));
+            sql.append(segments[0]);
+            for (int i = 1; i < segments.length; i++) {
+                sql.append(tableName).append(segments[i]);
+            }
+            return sql.toString();
+        }
+    }
+
     /**
      * 静态SQL源
      */
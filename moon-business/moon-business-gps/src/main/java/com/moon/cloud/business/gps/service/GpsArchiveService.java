@@ -0,0 +1,261 @@
+package com.moon.cloud.business.gps.service;
+
+import com.moon.cloud.business.gps.archive.GpsArchiveReader;
+import com.moon.cloud.business.gps.archive.GpsArchiveWriter;
+import com.moon.cloud.business.gps.entity.GpsData;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * GPS数据归档服务
+ * <p>
+ * 将已经结束的日分表按车辆转存为本地列式归档文件（见 {@link GpsArchiveWriter}），
+ * 分表被CleanOldPartitions删除后，历史轨迹查询改由归档文件提供。
+ * 归档文件存在时查询优先读取归档，减少对数据库的扫描。
+ *
+ * @author mooncloud
+ */
+@Slf4j
+@Service
+public class GpsArchiveService {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String GPS_DATA_TABLE_PREFIX = "gps_data_";
+    private static final String ARCHIVE_FILE_SUFFIX = ".gpsa";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 是否启用归档定时任务
+     */
+    @Value("${gps.archive.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 归档文件目录
+     */
+    @Value("${gps.archive.directory:./data/gps-archive}")
+    private String directory;
+
+    /**
+     * 已打开的归档文件读取器，按日期缓存
+     */
+    private final Map<LocalDate, GpsArchiveReader> readers = new ConcurrentHashMap<>();
+
+    /**
+     * 定时任务：每天凌晨2点30分归档前一天的分表（在轨迹压缩之后执行）
+     */
+    @Scheduled(cron = "0 30 2 * * ?")
+    public void scheduledArchiveYesterday() {
+        if (!enabled) {
+            return;
+        }
+        log.info("开始执行GPS数据归档定时任务");
+        try {
+            archivePartition(LocalDate.now().minusDays(1));
+        } catch (Exception e) {
+            log.error("GPS数据归档定时任务执行失败", e);
+        }
+    }
+
+    /**
+     * 归档指定日期的分表，已存在的归档文件会被替换
+     *
+     * @param date 分表日期，不能是当天
+     * @return 归档统计信息
+     */
+    public Map<String, Object> archivePartition(LocalDate date) {
+        if (!date.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("只能归档已经结束的日分表");
+        }
+
+        String tableName = GPS_DATA_TABLE_PREFIX + date.format(DATE_FORMATTER);
+        List<String> vehicleIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT vehicle_id FROM " + tableName + " ORDER BY vehicle_id", String.class);
+
+        Path file = archiveFile(date);
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        long startMillis = System.currentTimeMillis();
+        int vehicleCount;
+        long pointCount;
+        try {
+            Files.createDirectories(file.getParent());
+            try (GpsArchiveWriter writer = new GpsArchiveWriter(tempFile, date)) {
+                for (String vehicleId : vehicleIds) {
+                    writer.writeVehicle(vehicleId, loadVehicle(tableName, vehicleId));
+                }
+                vehicleCount = writer.getVehicleCount();
+                pointCount = writer.getPointCount();
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(tempFile);
+            throw new UncheckedIOException("写入GPS归档文件失败: " + file, e);
+        }
+
+        // 替换后重新打开，旧读取器的映射仍指向原文件内容，不影响正在进行的查询
+        GpsArchiveReader previous = readers.remove(date);
+        if (previous != null) {
+            closeQuietly(previous);
+        }
+
+        long fileSize = file.toFile().length();
+        log.info("GPS数据归档完成: 表={}, 车辆数={}, 点数={}, 文件大小={}字节, 耗时={}ms",
+                tableName, vehicleCount, pointCount, fileSize, System.currentTimeMillis() - startMillis);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("table_name", tableName);
+        stats.put("archive_file", file.toString());
+        stats.put("vehicle_count", vehicleCount);
+        stats.put("point_count", pointCount);
+        stats.put("file_size", fileSize);
+        stats.put("bytes_per_point", pointCount > 0 ? (double) fileSize / pointCount : 0);
+        return stats;
+    }
+
+    /**
+     * 指定日期是否已归档
+     */
+    public boolean isArchived(LocalDate date) {
+        return readers.containsKey(date) || Files.exists(archiveFile(date));
+    }
+
+    /**
+     * 从归档文件读取车辆在时间范围内的轨迹
+     *
+     * @param date      归档日期
+     * @param vehicleId 车辆ID
+     * @param startTime 开始时间（包含）
+     * @param endTime   结束时间（包含）
+     * @return 按 (gps_time, id) 升序排列的轨迹点，未归档时返回null
+     */
+    public List<GpsData> queryArchive(LocalDate date, String vehicleId, LocalDateTime startTime, LocalDateTime endTime) {
+        GpsArchiveReader reader = reader(date);
+        if (reader == null) {
+            return null;
+        }
+        try {
+            return reader.read(vehicleId, startTime, endTime);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取GPS归档文件失败: " + reader.getFile(), e);
+        }
+    }
+
+    /**
+     * 获取已归档日期列表
+     */
+    public List<LocalDate> listArchivedDates() {
+        Path dir = Path.of(directory);
+        List<LocalDate> dates = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return dates;
+        }
+        try (var files = Files.list(dir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(ARCHIVE_FILE_SUFFIX))
+                    .map(name -> LocalDate.parse(name.substring(0, name.length() - ARCHIVE_FILE_SUFFIX.length()), DATE_FORMATTER))
+                    .sorted()
+                    .forEach(dates::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取GPS归档目录失败: " + dir, e);
+        }
+        return dates;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        readers.values().forEach(this::closeQuietly);
+        readers.clear();
+    }
+
+    private GpsArchiveReader reader(LocalDate date) {
+        GpsArchiveReader reader = readers.get(date);
+        if (reader != null) {
+            return reader;
+        }
+        Path file = archiveFile(date);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        return readers.computeIfAbsent(date, key -> {
+            try {
+                return GpsArchiveReader.open(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("打开GPS归档文件失败: " + file, e);
+            }
+        });
+    }
+
+    /**
+     * 按 (gps_time, id) 顺序读取单辆车在分表中的全部轨迹点
+     */
+    private List<GpsData> loadVehicle(String tableName, String vehicleId) {
+        return jdbcTemplate.query("SELECT id, longitude, latitude, speed, direction, altitude, gps_time, create_time FROM "
+                        + tableName + " WHERE vehicle_id = ? ORDER BY gps_time, id",
+                (rs, rowNum) -> new GpsData()
+                        .setId(rs.getLong("id"))
+                        .setLongitude(getDouble(rs, "longitude"))
+                        .setLatitude(getDouble(rs, "latitude"))
+                        .setSpeed(getDouble(rs, "speed"))
+                        .setDirection(getDouble(rs, "direction"))
+                        .setAltitude(getDouble(rs, "altitude"))
+                        .setGpsTime(rs.getTimestamp("gps_time").toLocalDateTime())
+                        .setCreateTime(toLocalDateTime(rs.getTimestamp("create_time"))),
+                vehicleId);
+    }
+
+    private Path archiveFile(LocalDate date) {
+        return Path.of(directory, date.format(DATE_FORMATTER) + ARCHIVE_FILE_SUFFIX);
+    }
+
+    private void closeQuietly(GpsArchiveReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            log.warn("关闭GPS归档文件失败: {}", reader.getFile(), e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除GPS归档临时文件失败: {}", file, e);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    /**
+     * 读取可为空的数值列，保留SQL NULL，归档后仍能与分表数据区分
+     */
+    private static Double getDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+}
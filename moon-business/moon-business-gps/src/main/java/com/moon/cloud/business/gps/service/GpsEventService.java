@@ -0,0 +1,237 @@
+package com.moon.cloud.business.gps.service;
+
+import com.moon.cloud.business.gps.dto.GpsMessage;
+import com.moon.cloud.business.gps.entity.GpsEvent;
+import com.moon.cloud.business.gps.event.GpsEventDetector;
+import com.moon.cloud.threadpool.factory.MoonThreadPoolFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GPS事件服务
+ * <p>
+ * 处理线程只做内存中的事件检测（去重、防抖）并把事件放入有界缓冲队列，
+ * 由后台写入线程定时批量写入gps_event表，事件检测不会给GPS点处理增加同步的数据库开销。
+ * 缓冲队列满时丢弃新事件并计数，不阻塞处理线程；写入失败的批次保留到下个写入周期重试，多次失败后才丢弃并计数。
+ *
+ * @author mooncloud
+ */
+@Slf4j
+@Service
+public class GpsEventService {
+
+    private static final String INSERT_SQL = "INSERT INTO gps_event "
+            + "(vehicle_id, event_type, longitude, latitude, event_time, description, create_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 车辆状态空闲清理间隔（毫秒）
+     */
+    private static final long EVICT_INTERVAL_MILLIS = 60_000L;
+
+    /**
+     * 单个批次最多写入次数，超过后丢弃该批次
+     */
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MoonThreadPoolFactory moonThreadPoolFactory;
+
+    /**
+     * 状态翻转需要持续的时长（秒）
+     */
+    @Value("${gps.event.debounce-seconds:10}")
+    private long debounceSeconds;
+
+    /**
+     * 缓冲队列容量
+     */
+    @Value("${gps.event.buffer-capacity:10000}")
+    private int bufferCapacity;
+
+    /**
+     * 每批写入的最大事件数
+     */
+    @Value("${gps.event.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 批量写入间隔（毫秒）
+     */
+    @Value("${gps.event.flush-interval-ms:1000}")
+    private long flushIntervalMillis;
+
+    /**
+     * 车辆状态空闲多久后清理（分钟）
+     */
+    @Value("${gps.event.state-idle-minutes:60}")
+    private long stateIdleMinutes;
+
+    private GpsEventDetector detector;
+    private BlockingQueue<GpsEvent> buffer;
+    private ScheduledThreadPoolExecutor writer;
+
+    /**
+     * 上次写入失败、等待重试的批次，只在持有锁时访问
+     */
+    private final List<GpsEvent> pendingBatch = new ArrayList<>();
+    private int pendingAttempts;
+
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder persistedEvents = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+    private final LongAdder retriedBatches = new LongAdder();
+    private long reportedDroppedEvents;
+
+    @PostConstruct
+    public void init() {
+        detector = new GpsEventDetector(Duration.ofSeconds(debounceSeconds));
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        writer = moonThreadPoolFactory.createScheduledThreadPool("gps-event-writer", 1);
+        writer.scheduleWithFixedDelay(this::flushSafely, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        writer.scheduleWithFixedDelay(this::evictIdleStates, EVICT_INTERVAL_MILLIS, EVICT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 应用关闭前写入缓冲队列中剩余的事件
+     */
+    @PreDestroy
+    public void destroy() {
+        if (writer != null) {
+            writer.shutdown();
+        }
+        flushSafely();
+    }
+
+    /**
+     * 根据GPS点的判定结果检测事件，检测到的事件异步写入数据库
+     *
+     * @param gpsMessage GPS消息
+     * @param deviated   是否偏离路线
+     * @param inArea     是否在区域内
+     * @return 本次检测到的事件
+     */
+    public List<GpsEvent> onGpsData(GpsMessage gpsMessage, boolean deviated, boolean inArea) {
+        List<GpsEvent> events = detector.detect(gpsMessage, deviated, inArea);
+        for (GpsEvent event : events) {
+            if (!buffer.offer(event)) {
+                droppedEvents.increment();
+                log.debug("GPS事件缓冲队列已满，丢弃事件: vehicleId={}, eventType={}", event.getVehicleId(), event.getEventType());
+            }
+        }
+        return events;
+    }
+
+    /**
+     * 将缓冲队列中的事件全部批量写入数据库
+     * <p>
+     * 写入失败的批次不重新入队（避免数据库持续不可用时挤占缓冲队列），而是保留到下个写入周期优先重试，
+     * 连续失败 {@value #MAX_WRITE_ATTEMPTS} 次后丢弃并计入失败数。
+     *
+     * @return 写入的事件数
+     */
+    public synchronized int flush() {
+        int written = 0;
+        while (!pendingBatch.isEmpty() || buffer.drainTo(pendingBatch, batchSize) > 0) {
+            int size = pendingBatch.size();
+            try {
+                insertBatch(pendingBatch);
+                persistedEvents.add(size);
+                written += size;
+            } catch (Exception e) {
+                if (++pendingAttempts < MAX_WRITE_ATTEMPTS) {
+                    retriedBatches.increment();
+                    log.warn("批量写入GPS事件失败，{}条事件将在下次写入时重试（第{}次失败）", size, pendingAttempts, e);
+                    break;
+                }
+                failedEvents.add(size);
+                log.error("批量写入GPS事件连续失败{}次，丢弃{}条事件", pendingAttempts, size, e);
+            }
+            pendingBatch.clear();
+            pendingAttempts = 0;
+        }
+        return written;
+    }
+
+    /**
+     * 获取事件管道统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("buffered", buffer.size());
+        stats.put("buffer_capacity", bufferCapacity);
+        stats.put("persisted", persistedEvents.sum());
+        stats.put("dropped", droppedEvents.sum());
+        stats.put("failed", failedEvents.sum());
+        stats.put("retried_batches", retriedBatches.sum());
+        stats.put("tracked_vehicles", detector.size());
+        return stats;
+    }
+
+    private void insertBatch(List<GpsEvent> events) {
+        List<Object[]> args = new ArrayList<>(events.size());
+        for (GpsEvent event : events) {
+            args.add(new Object[]{
+                    event.getVehicleId(),
+                    event.getEventType(),
+                    event.getLongitude(),
+                    event.getLatitude(),
+                    toTimestamp(event.getEventTime()),
+                    event.getDescription(),
+                    toTimestamp(event.getCreateTime())
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, args);
+        log.debug("批量写入GPS事件{}条", events.size());
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+
+            long dropped = droppedEvents.sum();
+            if (dropped > reportedDroppedEvents) {
+                log.warn("GPS事件缓冲队列已满，{}条事件被丢弃（累计{}条）", dropped - reportedDroppedEvents, dropped);
+                reportedDroppedEvents = dropped;
+            }
+        } catch (Exception e) {
+            log.error("GPS事件写入任务执行失败", e);
+        }
+    }
+
+    private void evictIdleStates() {
+        try {
+            int evicted = detector.evictIdle(Duration.ofMinutes(stateIdleMinutes));
+            if (evicted > 0) {
+                log.debug("清理空闲车辆事件状态{}个", evicted);
+            }
+        } catch (Exception e) {
+            log.error("清理车辆事件状态失败", e);
+        }
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+}
@@ -0,0 +1,364 @@
+package com.moon.cloud.business.gps.service;
+
+import com.moon.cloud.business.gps.dto.GpsHistoryPage;
+import com.moon.cloud.business.gps.entity.GpsData;
+import com.moon.cloud.business.gps.track.TrajectoryCompressor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * GPS历史轨迹查询服务
+ * <p>
+ * 根据查询时间范围计算覆盖的日分表（gps_data_yyyyMMdd），按日期顺序分批并行查询各分表，
+ * 再按 (gps_time, id) 归并排序返回，支持基于游标的分页。
+ * 由于分表按gps_time的日期路由，较晚批次的数据一定不早于较早批次，
+ * 因此凑满一页后即可停止查询剩余分表。
+ * 已归档的日期直接读取本地归档文件（见 {@link GpsArchiveService}），不再查询数据库。
+ *
+ * @author mooncloud
+ */
+@Slf4j
+@Service
+public class GpsHistoryQueryService {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String GPS_DATA_TABLE_PREFIX = "gps_data_";
+    private static final String CURSOR_SEPARATOR = "|";
+
+    /**
+     * 表不存在的MySQL错误码和SQLState
+     */
+    private static final int MYSQL_NO_SUCH_TABLE = 1146;
+    private static final String MISSING_TABLE_SQL_STATE = "42S02";
+
+    /**
+     * 单次查询允许跨越的最大天数
+     */
+    private static final long MAX_QUERY_DAYS = 90;
+
+    /**
+     * 单页最大记录数
+     */
+    public static final int MAX_PAGE_SIZE = 5000;
+
+    private static final Comparator<GpsData> TIME_ORDER = Comparator
+            .comparing(GpsData::getGpsTime)
+            .thenComparing(GpsData::getId);
+
+    private static final RowMapper<GpsData> GPS_DATA_ROW_MAPPER = (rs, rowNum) -> new GpsData()
+            .setId(rs.getLong("id"))
+            .setVehicleId(rs.getString("vehicle_id"))
+            .setLongitude(getDouble(rs, "longitude"))
+            .setLatitude(getDouble(rs, "latitude"))
+            .setSpeed(getDouble(rs, "speed"))
+            .setDirection(getDouble(rs, "direction"))
+            .setAltitude(getDouble(rs, "altitude"))
+            .setGpsTime(toLocalDateTime(rs.getTimestamp("gps_time")))
+            .setCreateTime(toLocalDateTime(rs.getTimestamp("create_time")));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Executor queryExecutor;
+    private final int parallelism;
+    private final GpsArchiveService gpsArchiveService;
+
+    public GpsHistoryQueryService(JdbcTemplate jdbcTemplate,
+                                  @Qualifier("gpsHistoryQueryExecutor") Executor queryExecutor,
+                                  @Value("${gps.history.parallelism:4}") int parallelism,
+                                  GpsArchiveService gpsArchiveService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queryExecutor = queryExecutor;
+        this.parallelism = Math.max(1, parallelism);
+        this.gpsArchiveService = gpsArchiveService;
+    }
+
+    /**
+     * 分页查询车辆历史轨迹
+     *
+     * @param vehicleId 车辆ID
+     * @param startTime 开始时间（包含）
+     * @param endTime   结束时间（包含）
+     * @param cursor    上一页返回的游标，首页传null
+     * @param pageSize  每页记录数
+     * @return 分页结果
+     */
+    public GpsHistoryPage queryHistory(String vehicleId, LocalDateTime startTime, LocalDateTime endTime,
+                                       String cursor, int pageSize) {
+        return queryHistory(vehicleId, startTime, endTime, cursor, pageSize, null);
+    }
+
+    /**
+     * 分页查询车辆历史轨迹，可选返回压缩后的轨迹
+     * 压缩按页进行，每页首尾点始终保留，因此游标仍指向原始数据的位置
+     *
+     * @param vehicleId       车辆ID
+     * @param startTime       开始时间（包含）
+     * @param endTime         结束时间（包含）
+     * @param cursor          上一页返回的游标，首页传null
+     * @param pageSize        每页记录数（压缩前）
+     * @param toleranceMeters 轨迹压缩容差（米），为null时返回原始轨迹
+     * @return 分页结果
+     */
+    public GpsHistoryPage queryHistory(String vehicleId, LocalDateTime startTime, LocalDateTime endTime,
+                                       String cursor, int pageSize, Double toleranceMeters) {
+        if (toleranceMeters != null && toleranceMeters < 0) {
+            throw new IllegalArgumentException("轨迹压缩容差不能为负数");
+        }
+        if (startTime == null || endTime == null || startTime.isAfter(endTime)) {
+            throw new IllegalArgumentException("查询时间范围无效");
+        }
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("每页记录数必须在1到" + MAX_PAGE_SIZE + "之间");
+        }
+
+        Cursor after = Cursor.decode(cursor);
+        LocalDateTime effectiveStart = after != null && after.gpsTime().isAfter(startTime) ? after.gpsTime() : startTime;
+        List<String> tables = resolvePartitionTables(effectiveStart, endTime);
+
+        // 多取一条用于判断是否还有下一页
+        int fetchSize = pageSize + 1;
+        List<GpsData> records = new ArrayList<>(fetchSize);
+
+        for (int from = 0; from < tables.size() && records.size() < fetchSize; from += parallelism) {
+            List<String> batch = tables.subList(from, Math.min(from + parallelism, tables.size()));
+            int remaining = fetchSize - records.size();
+
+            List<CompletableFuture<List<GpsData>>> futures = new ArrayList<>(batch.size());
+            for (String table : batch) {
+                futures.add(CompletableFuture.supplyAsync(
+                        () -> queryPartition(table, vehicleId, effectiveStart, endTime, after, remaining), queryExecutor));
+            }
+
+            List<List<GpsData>> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<List<GpsData>> future : futures) {
+                results.add(join(future));
+            }
+            mergeInto(records, results, remaining);
+        }
+
+        boolean hasMore = records.size() > pageSize;
+        if (hasMore) {
+            records = new ArrayList<>(records.subList(0, pageSize));
+        }
+
+        String nextCursor = hasMore ? Cursor.of(records.get(records.size() - 1)).encode() : null;
+        if (toleranceMeters != null) {
+            records = TrajectoryCompressor.compress(records, toleranceMeters);
+        }
+
+        return new GpsHistoryPage()
+                .setRecords(records)
+                .setHasMore(hasMore)
+                .setNextCursor(nextCursor);
+    }
+
+    /**
+     * 计算时间范围覆盖的日分表名，按日期升序
+     */
+    List<String> resolvePartitionTables(LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDate startDate = startTime.toLocalDate();
+        LocalDate endDate = endTime.toLocalDate();
+        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        if (days > MAX_QUERY_DAYS) {
+            throw new IllegalArgumentException("查询时间范围不能超过" + MAX_QUERY_DAYS + "天");
+        }
+
+        List<String> tables = new ArrayList<>((int) days);
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            tables.add(GPS_DATA_TABLE_PREFIX + date.format(DATE_FORMATTER));
+        }
+        return tables;
+    }
+
+    /**
+     * 查询单个分表，分表不存在（尚未创建或已被清理）时返回空列表
+     */
+    private List<GpsData> queryPartition(String table, String vehicleId, LocalDateTime startTime,
+                                         LocalDateTime endTime, Cursor after, int limit) {
+        LocalDate date = LocalDate.parse(table.substring(GPS_DATA_TABLE_PREFIX.length()), DATE_FORMATTER);
+        List<GpsData> archived = gpsArchiveService.queryArchive(date, vehicleId, startTime, endTime);
+        if (archived != null) {
+            return filterArchived(archived, after, limit);
+        }
+
+        StringBuilder sql = new StringBuilder()
+                .append("SELECT id, vehicle_id, longitude, latitude, speed, direction, altitude, gps_time, create_time FROM ")
+                .append(table)
+                .append(" WHERE vehicle_id = ? AND gps_time >= ? AND gps_time <= ?");
+        List<Object> args = new ArrayList<>(7);
+        args.add(vehicleId);
+        args.add(Timestamp.valueOf(startTime));
+        args.add(Timestamp.valueOf(endTime));
+
+        if (after != null) {
+            Timestamp cursorTime = Timestamp.valueOf(after.gpsTime());
+            sql.append(" AND (gps_time > ? OR (gps_time = ? AND id > ?))");
+            args.add(cursorTime);
+            args.add(cursorTime);
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY gps_time, id LIMIT ?");
+        args.add(limit);
+
+        try {
+            return jdbcTemplate.query(sql.toString(), GPS_DATA_ROW_MAPPER, args.toArray());
+        } catch (BadSqlGrammarException e) {
+            if (isMissingTable(e)) {
+                log.debug("GPS数据分表不存在，跳过: {}", table);
+                return List.of();
+            }
+            log.error("查询GPS数据分表失败: {}", table, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 判断异常是否由分表不存在引起（MySQL错误码1146，SQLState 42S02）
+     */
+    private static boolean isMissingTable(BadSqlGrammarException e) {
+        SQLException cause = e.getSQLException();
+        return cause != null
+                && (cause.getErrorCode() == MYSQL_NO_SUCH_TABLE || MISSING_TABLE_SQL_STATE.equals(cause.getSQLState()));
+    }
+
+    /**
+     * 按游标和条数过滤归档数据，与分表查询的WHERE和LIMIT条件一致
+     */
+    private List<GpsData> filterArchived(List<GpsData> archived, Cursor after, int limit) {
+        GpsData cursorPoint = after != null ? new GpsData().setGpsTime(after.gpsTime()).setId(after.id()) : null;
+        List<GpsData> result = new ArrayList<>(Math.min(limit, archived.size()));
+        for (GpsData point : archived) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (cursorPoint == null || TIME_ORDER.compare(point, cursorPoint) > 0) {
+                result.add(point);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 将多个已按时间排序的分表结果归并到目标列表，最多追加limit条
+     */
+    private void mergeInto(List<GpsData> target, List<List<GpsData>> sortedResults, int limit) {
+        PriorityQueue<PeekingIterator> queue = new PriorityQueue<>(
+                Math.max(1, sortedResults.size()), (a, b) -> TIME_ORDER.compare(a.peek(), b.peek()));
+        for (List<GpsData> result : sortedResults) {
+            if (!result.isEmpty()) {
+                queue.add(new PeekingIterator(result.iterator()));
+            }
+        }
+
+        int appended = 0;
+        while (!queue.isEmpty() && appended < limit) {
+            PeekingIterator head = queue.poll();
+            target.add(head.next());
+            appended++;
+            if (head.hasNext()) {
+                queue.add(head);
+            }
+        }
+    }
+
+    private List<GpsData> join(CompletableFuture<List<GpsData>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    /**
+     * 读取可为空的数值列，与归档文件中的空值保持一致
+     */
+    private static Double getDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * 可预读下一个元素的迭代器，用于多路归并
+     */
+    private static final class PeekingIterator {
+        private final Iterator<GpsData> delegate;
+        private GpsData next;
+
+        PeekingIterator(Iterator<GpsData> delegate) {
+            this.delegate = delegate;
+            this.next = delegate.next();
+        }
+
+        GpsData peek() {
+            return next;
+        }
+
+        GpsData next() {
+            GpsData current = next;
+            next = delegate.hasNext() ? delegate.next() : null;
+            return current;
+        }
+
+        boolean hasNext() {
+            return next != null;
+        }
+    }
+
+    /**
+     * 分页游标，记录上一页最后一条数据的 (gps_time, id)
+     */
+    record Cursor(LocalDateTime gpsTime, long id) {
+
+        static Cursor of(GpsData gpsData) {
+            return new Cursor(gpsData.getGpsTime(), gpsData.getId());
+        }
+
+        static Cursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf(CURSOR_SEPARATOR);
+                return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+        }
+
+        String encode() {
+            String raw = gpsTime + CURSOR_SEPARATOR + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.moon.cloud.business.gps.service;
 
 import com.moon.cloud.business.gps.dto.GpsMessage;
 import com.moon.cloud.business.gps.entity.GpsData;
+import com.moon.cloud.business.gps.entity.GpsEvent;
+import com.moon.cloud.business.gps.event.GpsEventType;
 import com.moon.cloud.business.gps.mapper.GpsDataMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +24,12 @@ public class GpsProcessingService {
 
     @Autowired
     private GpsDataMapper gpsDataMapper;
+    
+    @Autowired
+    private GpsEventService gpsEventService;
+    
+    @Autowired
+    private GpsVehicleStatsService gpsVehicleStatsService;
 
     // 预定义的路线坐标点（示例：北京市内的一条路线）
     private static final double[][] ROUTE_POINTS = {
@@ -53,12 +61,18 @@ public class GpsProcessingService {
             
             // 2. 路线偏离判断
             boolean isDeviated = checkRouteDeviation(gpsMessage);
-            if (isDeviated) {
-                handleRouteDeviation(gpsMessage);
-            }
             
             // 3. 驶入驶出判断
-            checkAreaEnterExit(gpsMessage);
+            boolean inArea = isInArea(gpsMessage.getLongitude(), gpsMessage.getLatitude());
+            
+            // 4. 事件检测（按车辆去重、防抖），事件由后台批量写入数据库
+            List<GpsEvent> events = gpsEventService.onGpsData(gpsMessage, isDeviated, inArea);
+            for (GpsEvent event : events) {
+                handleEvent(gpsMessage, event);
+            }
+            
+            // 5. 累加车辆当天的里程、速度等统计，由后台定时写入汇总表
+            gpsVehicleStatsService.onGpsData(gpsMessage);
             
             log.debug("Processed GPS data for vehicle: {}", gpsMessage.getVehicleId());
             
@@ -112,40 +126,31 @@ public class GpsProcessingService {
     }
     
     /**
-     * 处理路线偏离事件
+     * 处理检测到的事件
      * 
      * @param gpsMessage GPS消息
+     * @param event 事件
      */
-    private void handleRouteDeviation(GpsMessage gpsMessage) {
-        log.warn("Vehicle {} deviated from route at location: [{}, {}]", 
-                gpsMessage.getVehicleId(), 
-                gpsMessage.getLongitude(), 
-                gpsMessage.getLatitude());
-        
-        // 这里可以添加更多的处理逻辑，比如发送告警、记录事件等
+    private void handleEvent(GpsMessage gpsMessage, GpsEvent event) {
+        switch (GpsEventType.valueOf(event.getEventType())) {
+            case ROUTE_DEVIATION -> handleRouteDeviation(gpsMessage);
+            case AREA_ENTER -> handleAreaEnter(gpsMessage);
+            case AREA_EXIT -> handleAreaExit(gpsMessage);
+        }
     }
     
     /**
-     * 检查区域驶入驶出
+     * 处理路线偏离事件
      * 
      * @param gpsMessage GPS消息
      */
-    private void checkAreaEnterExit(GpsMessage gpsMessage) {
-        boolean currentInArea = isInArea(gpsMessage.getLongitude(), gpsMessage.getLatitude());
+    private void handleRouteDeviation(GpsMessage gpsMessage) {
+        log.warn("Vehicle {} deviated from route at location: [{}, {}]", 
+                gpsMessage.getVehicleId(), 
+                gpsMessage.getLongitude(), 
+                gpsMessage.getLatitude());
         
-        // 获取车辆的上一个GPS数据
-        GpsData lastGpsData = gpsDataMapper.findLatestByVehicleId(gpsMessage.getVehicleId());
-        if (lastGpsData != null) {
-            boolean lastInArea = isInArea(lastGpsData.getLongitude(), lastGpsData.getLatitude());
-            
-            if (!lastInArea && currentInArea) {
-                // 驶入区域
-                handleAreaEnter(gpsMessage);
-            } else if (lastInArea && !currentInArea) {
-                // 驶出区域
-                handleAreaExit(gpsMessage);
-            }
-        }
+        // 这里可以添加更多的处理逻辑，比如发送告警等
     }
     
     /**
@@ -0,0 +1,165 @@
+package com.moon.cloud.business.gps.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * GPS实时表数据保留服务
+ * <p>
+ * 按主键分批删除gps_data_realtime中超过保留时长的数据：每批先通过gps_time索引取出一批主键，
+ * 再按主键删除，单个事务只锁定少量行，undo日志和主从延迟都保持在较小范围。
+ * 批次之间按上一批的耗时停顿，使清理占用的数据库时间不超过一半；
+ * 单次运行超过时长上限时停止，剩余数据由下次运行继续清理。
+ *
+ * @author mooncloud
+ */
+@Slf4j
+@Service
+public class GpsRealtimeRetentionService {
+
+    private static final String SELECT_EXPIRED_IDS_SQL =
+            "SELECT id FROM gps_data_realtime WHERE gps_time < ? ORDER BY gps_time LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 是否启用定时清理
+     */
+    @Value("${gps.realtime-retention.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 数据保留时长（小时）
+     */
+    @Value("${gps.realtime-retention.retention-hours:24}")
+    private long retentionHours;
+
+    /**
+     * 每批删除的最大行数
+     */
+    @Value("${gps.realtime-retention.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * 批次之间的最小停顿（毫秒）
+     */
+    @Value("${gps.realtime-retention.pause-ms:20}")
+    private long pauseMillis;
+
+    /**
+     * 单次运行的最长时长（秒）
+     */
+    @Value("${gps.realtime-retention.max-run-seconds:300}")
+    private long maxRunSeconds;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * 定时任务：按固定间隔清理过期数据
+     */
+    @Scheduled(fixedDelayString = "${gps.realtime-retention.interval-ms:600000}",
+            initialDelayString = "${gps.realtime-retention.interval-ms:600000}")
+    public void scheduledPurge() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            purgeExpired();
+        } catch (Exception e) {
+            log.error("GPS实时表定时清理失败", e);
+        }
+    }
+
+    /**
+     * 分批删除指定时间之前的实时数据
+     *
+     * @param beforeTime 截止时间（不包含）
+     * @return 清理统计信息
+     */
+    public Map<String, Object> purgeBefore(LocalDateTime beforeTime) {
+        if (beforeTime == null) {
+            throw new IllegalArgumentException("截止时间不能为空");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("GPS实时表清理任务正在执行");
+        }
+
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.SECONDS.toNanos(maxRunSeconds);
+        long deleted = 0;
+        int chunks = 0;
+        boolean completed = false;
+        try {
+            Timestamp cutoff = Timestamp.valueOf(beforeTime);
+            while (true) {
+                long chunkStart = System.nanoTime();
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_EXPIRED_IDS_SQL, Long.class, cutoff, chunkSize);
+                if (!ids.isEmpty()) {
+                    String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+                    deleted += jdbcTemplate.update("DELETE FROM gps_data_realtime WHERE id IN (" + placeholders + ")",
+                            ids.toArray());
+                    chunks++;
+                }
+                if (ids.size() < chunkSize) {
+                    completed = true;
+                    break;
+                }
+                if (System.nanoTime() >= deadline) {
+                    log.info("GPS实时表清理达到单次运行时长上限，剩余数据下次继续清理");
+                    break;
+                }
+                if (!pause(Math.max(pauseMillis, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - chunkStart)))) {
+                    break;
+                }
+            }
+        } finally {
+            running.set(false);
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        log.info("GPS实时表清理完成: 截止时间={}, 删除行数={}, 批次数={}, 耗时={}ms, 是否清理完毕={}",
+                beforeTime, deleted, chunks, elapsedMillis, completed);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("before_time", beforeTime.toString());
+        stats.put("deleted_rows", deleted);
+        stats.put("chunks", chunks);
+        stats.put("elapsed_ms", elapsedMillis);
+        stats.put("completed", completed);
+        return stats;
+    }
+
+    /**
+     * 按保留时长清理过期数据
+     *
+     * @return 清理统计信息
+     */
+    public Map<String, Object> purgeExpired() {
+        return purgeBefore(LocalDateTime.now().minusHours(retentionHours));
+    }
+
+    private boolean pause(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("GPS实时表清理被中断");
+            return false;
+        }
+    }
+}
@@ -1,9 +1,6 @@
 package com.moon.cloud.business.gps.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.moon.cloud.business.gps.dto.GpsMessage;
 import com.moon.cloud.business.gps.entity.VehicleInfo;
 import com.moon.cloud.business.gps.mapper.VehicleInfoMapper;
@@ -31,18 +28,11 @@ public class GpsSimulatorService {
     private static final String GPS_TOPIC = "gps-data";
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
-    
-    private final ObjectMapper objectMapper;
+    private KafkaTemplate<String, GpsMessage> gpsKafkaTemplate;
 
     @Autowired
     private VehicleInfoMapper vehicleInfoMapper;
     
-    public GpsSimulatorService() {
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-    }
-    
     /**
      * 定时生成GPS数据，每5秒执行一次
      */
@@ -91,11 +81,11 @@ public class GpsSimulatorService {
      */
     private void sendGpsMessage(GpsMessage gpsMessage) {
         try {
-            String messageJson = objectMapper.writeValueAsString(gpsMessage);
-            kafkaTemplate.send(GPS_TOPIC, gpsMessage.getVehicleId(), messageJson);
+            // 编码格式由gpsKafkaTemplate的序列化器决定
+            gpsKafkaTemplate.send(GPS_TOPIC, gpsMessage.getVehicleId(), gpsMessage);
             log.debug("Sent GPS message for vehicle: {}", gpsMessage.getVehicleId());
-        } catch (JsonProcessingException e) {
-            log.error("Failed to serialize GPS message for vehicle: {}", gpsMessage.getVehicleId(), e);
+        } catch (Exception e) {
+            log.error("Failed to send GPS message for vehicle: {}", gpsMessage.getVehicleId(), e);
         }
     }
     
@@ -0,0 +1,150 @@
+package com.moon.cloud.business.gps.service;
+
+import com.moon.cloud.business.gps.entity.GpsData;
+import com.moon.cloud.business.gps.track.TrajectoryCompressor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GPS轨迹压缩服务
+ * 对已经结束的日分表按车辆执行轨迹压缩，删除容差范围内可被插值还原的冗余点
+ *
+ * @author mooncloud
+ */
+@Slf4j
+@Service
+public class GpsTrackCompressionService {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String GPS_DATA_TABLE_PREFIX = "gps_data_";
+
+    /**
+     * 每条DELETE语句删除的最大行数
+     */
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 是否启用归档日压缩定时任务
+     */
+    @Value("${gps.track-compression.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 压缩容差（米）
+     */
+    @Value("${gps.track-compression.tolerance-meters:10}")
+    private double toleranceMeters;
+
+    /**
+     * 定时任务：每天凌晨1点30分压缩前一天的分表
+     */
+    @Scheduled(cron = "0 30 1 * * ?")
+    public void scheduledCompressYesterday() {
+        if (!enabled) {
+            return;
+        }
+        log.info("开始执行GPS轨迹压缩定时任务");
+        compressPartition(LocalDate.now().minusDays(1), toleranceMeters);
+    }
+
+    /**
+     * 压缩指定日期分表中的所有车辆轨迹
+     *
+     * @param date            分表日期，不能是当天
+     * @param toleranceMeters 容差（米）
+     * @return 压缩统计信息
+     */
+    public Map<String, Object> compressPartition(LocalDate date, double toleranceMeters) {
+        if (!date.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("只能压缩已经结束的日分表");
+        }
+
+        String tableName = GPS_DATA_TABLE_PREFIX + date.format(DATE_FORMATTER);
+        List<String> vehicleIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT vehicle_id FROM " + tableName, String.class);
+
+        long totalRows = 0;
+        long deletedRows = 0;
+        for (String vehicleId : vehicleIds) {
+            long[] counts = compressVehicle(tableName, vehicleId, toleranceMeters);
+            totalRows += counts[0];
+            deletedRows += counts[1];
+        }
+
+        log.info("GPS轨迹压缩完成: 表={}, 车辆数={}, 原始点数={}, 删除点数={}",
+                tableName, vehicleIds.size(), totalRows, deletedRows);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("table_name", tableName);
+        stats.put("vehicle_count", vehicleIds.size());
+        stats.put("total_rows", totalRows);
+        stats.put("deleted_rows", deletedRows);
+        stats.put("tolerance_meters", toleranceMeters);
+        return stats;
+    }
+
+    /**
+     * 压缩单辆车在分表中的轨迹
+     *
+     * @return [原始点数, 删除点数]
+     */
+    private long[] compressVehicle(String tableName, String vehicleId, double toleranceMeters) {
+        TrajectoryCompressor compressor = new TrajectoryCompressor(toleranceMeters);
+        List<Long> allIds = new ArrayList<>();
+        Set<Long> keptIds = new HashSet<>();
+
+        // 逐行流式输入压缩器，只缓存ID
+        jdbcTemplate.query("SELECT id, longitude, latitude, gps_time FROM " + tableName
+                        + " WHERE vehicle_id = ? ORDER BY gps_time, id",
+                rs -> {
+                    GpsData point = new GpsData()
+                            .setId(rs.getLong("id"))
+                            .setLongitude(rs.getDouble("longitude"))
+                            .setLatitude(rs.getDouble("latitude"))
+                            .setGpsTime(rs.getTimestamp("gps_time").toLocalDateTime());
+                    allIds.add(point.getId());
+                    GpsData kept = compressor.offer(point);
+                    if (kept != null) {
+                        keptIds.add(kept.getId());
+                    }
+                },
+                vehicleId);
+        GpsData last = compressor.flush();
+        if (last != null) {
+            keptIds.add(last.getId());
+        }
+
+        List<Long> droppedIds = new ArrayList<>(allIds.size() - keptIds.size());
+        for (Long id : allIds) {
+            if (!keptIds.contains(id)) {
+                droppedIds.add(id);
+            }
+        }
+
+        for (int from = 0; from < droppedIds.size(); from += DELETE_BATCH_SIZE) {
+            List<Long> batch = droppedIds.subList(from, Math.min(from + DELETE_BATCH_SIZE, droppedIds.size()));
+            String placeholders = String.join(",", Collections.nCopies(batch.size(), "?"));
+            jdbcTemplate.update("DELETE FROM " + tableName + " WHERE id IN (" + placeholders + ")", batch.toArray());
+        }
+
+        log.debug("车辆 {} 轨迹压缩: {} -> {} 个点", vehicleId, allIds.size(), keptIds.size());
+        return new long[]{allIds.size(), droppedIds.size()};
+    }
+}
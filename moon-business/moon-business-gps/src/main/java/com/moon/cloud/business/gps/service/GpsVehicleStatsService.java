@@ -0,0 +1,289 @@
+package com.moon.cloud.business.gps.service;
+
+import com.moon.cloud.business.gps.dto.GpsMessage;
+import com.moon.cloud.business.gps.entity.GpsVehicleDailyStats;
+import com.moon.cloud.business.gps.stats.VehicleDailyStatsAggregator;
+import com.moon.cloud.threadpool.factory.MoonThreadPoolFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 车辆日统计服务
+ * <p>
+ * 处理线程只在内存中累加每辆车当天的统计增量，后台写入线程定时取出增量，
+ * 以 INSERT ... ON DUPLICATE KEY UPDATE 累加到gps_vehicle_daily_stats表，
+ * 看板按车辆和日期读取一行汇总数据，无需扫描原始GPS点。
+ * 增量是累加写入的，每批在一个事务中写入，失败时整批回滚后保留到下次写入时重试，
+ * 避免已提交的行被重复累加；重试队列超过上限时丢弃并计数。
+ *
+ * @author mooncloud
+ */
+@Slf4j
+@Service
+public class GpsVehicleStatsService {
+
+    private static final String UPSERT_SQL = "INSERT INTO gps_vehicle_daily_stats "
+            + "(vehicle_id, stat_date, point_count, distance_meters, max_speed, speed_sum, speed_count, avg_speed, "
+            + "moving_seconds, stop_count, first_gps_time, last_gps_time, update_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "point_count = point_count + VALUES(point_count), "
+            + "distance_meters = distance_meters + VALUES(distance_meters), "
+            + "max_speed = GREATEST(max_speed, VALUES(max_speed)), "
+            + "speed_sum = speed_sum + VALUES(speed_sum), "
+            + "speed_count = speed_count + VALUES(speed_count), "
+            + "avg_speed = CASE WHEN speed_count > 0 THEN speed_sum / speed_count ELSE 0 END, "
+            + "moving_seconds = moving_seconds + VALUES(moving_seconds), "
+            + "stop_count = stop_count + VALUES(stop_count), "
+            + "first_gps_time = LEAST(first_gps_time, VALUES(first_gps_time)), "
+            + "last_gps_time = GREATEST(last_gps_time, VALUES(last_gps_time)), "
+            + "update_time = VALUES(update_time)";
+
+    private static final String SELECT_SQL = "SELECT vehicle_id, stat_date, point_count, distance_meters, max_speed, "
+            + "speed_sum, speed_count, avg_speed, moving_seconds, stop_count, first_gps_time, last_gps_time, update_time "
+            + "FROM gps_vehicle_daily_stats WHERE vehicle_id = ? AND stat_date BETWEEN ? AND ? ORDER BY stat_date";
+
+    private static final RowMapper<GpsVehicleDailyStats> ROW_MAPPER = (rs, rowNum) -> new GpsVehicleDailyStats()
+            .setVehicleId(rs.getString("vehicle_id"))
+            .setStatDate(rs.getDate("stat_date").toLocalDate())
+            .setPointCount(rs.getLong("point_count"))
+            .setDistanceMeters(rs.getDouble("distance_meters"))
+            .setMaxSpeed(rs.getDouble("max_speed"))
+            .setSpeedSum(rs.getDouble("speed_sum"))
+            .setSpeedCount(rs.getLong("speed_count"))
+            .setAvgSpeed(rs.getDouble("avg_speed"))
+            .setMovingSeconds(rs.getLong("moving_seconds"))
+            .setStopCount(rs.getInt("stop_count"))
+            .setFirstGpsTime(toLocalDateTime(rs.getTimestamp("first_gps_time")))
+            .setLastGpsTime(toLocalDateTime(rs.getTimestamp("last_gps_time")))
+            .setUpdateTime(toLocalDateTime(rs.getTimestamp("update_time")));
+
+    /**
+     * 单次查询允许跨越的最大天数
+     */
+    private static final long MAX_QUERY_DAYS = 366;
+
+    /**
+     * 车辆状态空闲清理间隔（毫秒）
+     */
+    private static final long EVICT_INTERVAL_MILLIS = 60_000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MoonThreadPoolFactory moonThreadPoolFactory;
+
+    /**
+     * 行驶速度阈值 (km/h)，低于该速度视为停车
+     */
+    @Value("${gps.vehicle-stats.moving-speed-kmh:5}")
+    private double movingSpeedKmh;
+
+    /**
+     * 相邻两点的最大间隔（秒），超过时视为离线，不累计里程和行驶时长
+     */
+    @Value("${gps.vehicle-stats.max-gap-seconds:300}")
+    private long maxGapSeconds;
+
+    /**
+     * 每批写入的最大行数
+     */
+    @Value("${gps.vehicle-stats.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 增量写入间隔（毫秒）
+     */
+    @Value("${gps.vehicle-stats.flush-interval-ms:10000}")
+    private long flushIntervalMillis;
+
+    /**
+     * 写入失败后等待重试的最大增量数
+     */
+    @Value("${gps.vehicle-stats.max-retry-size:100000}")
+    private int maxRetrySize;
+
+    /**
+     * 车辆状态空闲多久后清理（分钟）
+     */
+    @Value("${gps.vehicle-stats.state-idle-minutes:120}")
+    private long stateIdleMinutes;
+
+    private VehicleDailyStatsAggregator aggregator;
+    private ScheduledThreadPoolExecutor writer;
+
+    /**
+     * 写入失败待重试的增量，只在写入线程中访问
+     */
+    private final List<GpsVehicleDailyStats> retry = new ArrayList<>();
+
+    private final LongAdder persistedRows = new LongAdder();
+    private final LongAdder droppedRows = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        aggregator = new VehicleDailyStatsAggregator(movingSpeedKmh, Duration.ofSeconds(maxGapSeconds));
+        writer = moonThreadPoolFactory.createScheduledThreadPool("gps-vehicle-stats-writer", 1);
+        writer.scheduleWithFixedDelay(this::flushSafely, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        writer.scheduleWithFixedDelay(this::evictIdleStates, EVICT_INTERVAL_MILLIS, EVICT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 应用关闭前写入剩余的增量
+     */
+    @PreDestroy
+    public void destroy() {
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushSafely();
+    }
+
+    /**
+     * 累加一个GPS点到车辆当天的统计
+     *
+     * @param gpsMessage GPS消息
+     */
+    public void onGpsData(GpsMessage gpsMessage) {
+        aggregator.accept(gpsMessage);
+    }
+
+    /**
+     * 将内存中的增量累加写入汇总表
+     *
+     * @return 写入的行数
+     */
+    public synchronized int flush() {
+        List<GpsVehicleDailyStats> deltas = new ArrayList<>(retry);
+        retry.clear();
+        deltas.addAll(aggregator.drain());
+
+        int written = 0;
+        for (int from = 0; from < deltas.size(); from += batchSize) {
+            List<GpsVehicleDailyStats> batch = deltas.subList(from, Math.min(from + batchSize, deltas.size()));
+            try {
+                upsertBatch(batch);
+                persistedRows.add(batch.size());
+                written += batch.size();
+            } catch (Exception e) {
+                log.error("写入车辆日统计失败，{}条增量将在下次写入时重试", batch.size(), e);
+                retry.addAll(batch);
+            }
+        }
+
+        if (retry.size() > maxRetrySize) {
+            int dropped = retry.size() - maxRetrySize;
+            retry.subList(0, dropped).clear();
+            droppedRows.add(dropped);
+            log.warn("车辆日统计重试队列超过上限，丢弃{}条最早的增量", dropped);
+        }
+        return written;
+    }
+
+    /**
+     * 查询车辆日统计
+     *
+     * @param vehicleId 车辆ID
+     * @param startDate 开始日期（包含）
+     * @param endDate   结束日期（包含）
+     * @return 按日期升序排列的统计
+     */
+    public List<GpsVehicleDailyStats> queryDailyStats(String vehicleId, LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("查询日期范围无效");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) + 1 > MAX_QUERY_DAYS) {
+            throw new IllegalArgumentException("查询日期范围不能超过" + MAX_QUERY_DAYS + "天");
+        }
+        return jdbcTemplate.query(SELECT_SQL, ROW_MAPPER, vehicleId, Date.valueOf(startDate), Date.valueOf(endDate));
+    }
+
+    /**
+     * 获取统计管道信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tracked_vehicles", aggregator.size());
+        stats.put("persisted", persistedRows.sum());
+        stats.put("dropped", droppedRows.sum());
+        return stats;
+    }
+
+    private void upsertBatch(List<GpsVehicleDailyStats> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (GpsVehicleDailyStats delta : batch) {
+            args.add(new Object[]{
+                    delta.getVehicleId(),
+                    Date.valueOf(delta.getStatDate()),
+                    delta.getPointCount(),
+                    delta.getDistanceMeters(),
+                    delta.getMaxSpeed(),
+                    delta.getSpeedSum(),
+                    delta.getSpeedCount(),
+                    delta.getSpeedCount() > 0 ? delta.getSpeedSum() / delta.getSpeedCount() : 0.0,
+                    delta.getMovingSeconds(),
+                    delta.getStopCount(),
+                    Timestamp.valueOf(delta.getFirstGpsTime()),
+                    Timestamp.valueOf(delta.getLastGpsTime()),
+                    Timestamp.valueOf(now)
+            });
+        }
+        // 驱动未开启批量改写时每行单独执行，需要在同一事务中提交，失败时整批回滚
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, args));
+        log.debug("写入车辆日统计{}条", batch.size());
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("车辆日统计写入任务执行失败", e);
+        }
+    }
+
+    private void evictIdleStates() {
+        try {
+            int evicted = aggregator.evictIdle(Duration.ofMinutes(stateIdleMinutes));
+            if (evicted > 0) {
+                log.debug("清理空闲车辆统计状态{}个", evicted);
+            }
+        } catch (Exception e) {
+            log.error("清理车辆统计状态失败", e);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
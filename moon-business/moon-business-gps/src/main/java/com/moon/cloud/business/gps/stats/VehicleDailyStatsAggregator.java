@@ -0,0 +1,228 @@
+package com.moon.cloud.business.gps.stats;
+
+import com.moon.cloud.business.gps.dto.GpsMessage;
+import com.moon.cloud.business.gps.entity.GpsVehicleDailyStats;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 车辆日统计聚合器
+ * <p>
+ * 按车辆在内存中维护当天的累计增量（点数、里程、最高/平均速度、行驶时长、停车次数），
+ * 由调用方定期 {@link #drain()} 取出自上次取出以来的增量并累加写入汇总表：
+ * <ul>
+ *     <li>里程：相邻两点的球面距离（Haversine）之和，跨天时不累计两天之间的距离</li>
+ *     <li>行驶时长：相邻两点速度均不低于行驶阈值时累计两点的时间间隔</li>
+ *     <li>停车次数：速度从不低于阈值降到阈值以下的次数</li>
+ *     <li>相邻两点间隔超过 maxGap 时视为离线，不累计里程和行驶时长</li>
+ * </ul>
+ * GPS时间不晚于上一个已处理点的数据（重复投递或乱序到达）直接忽略。
+ * 速度为负数或超过 {@value #MAX_PLAUSIBLE_SPEED} km/h 的点视为设备异常，仍计入点数和里程，
+ * 但不计入最高/平均速度（speedCount），行驶状态沿用上一个点。
+ * 同一车辆的更新在 {@link ConcurrentHashMap#compute} 中串行执行，可被多个处理线程并发调用。
+ *
+ * @author mooncloud
+ */
+public class VehicleDailyStatsAggregator {
+
+    private static final double EARTH_RADIUS_METERS = 6371000.0;
+
+    /**
+     * 可信速度上限 (km/h)，与汇总表 max_speed DECIMAL(5,2) 的范围一致，超出时整批写入会失败
+     */
+    static final double MAX_PLAUSIBLE_SPEED = 999.99;
+
+    private final double movingSpeedThreshold;
+    private final Duration maxGap;
+    private final Map<String, VehicleState> vehicleStates = new ConcurrentHashMap<>();
+
+    /**
+     * @param movingSpeedThreshold 行驶速度阈值 (km/h)
+     * @param maxGap               相邻两点允许的最大时间间隔
+     */
+    public VehicleDailyStatsAggregator(double movingSpeedThreshold, Duration maxGap) {
+        if (movingSpeedThreshold < 0) {
+            throw new IllegalArgumentException("行驶速度阈值不能为负数");
+        }
+        if (maxGap == null || maxGap.isNegative() || maxGap.isZero()) {
+            throw new IllegalArgumentException("最大时间间隔必须为正数");
+        }
+        this.movingSpeedThreshold = movingSpeedThreshold;
+        this.maxGap = maxGap;
+    }
+
+    /**
+     * 累加一个GPS点
+     *
+     * @param gpsMessage GPS消息
+     */
+    public void accept(GpsMessage gpsMessage) {
+        if (gpsMessage.getVehicleId() == null || gpsMessage.getGpsTime() == null
+                || gpsMessage.getLongitude() == null || gpsMessage.getLatitude() == null) {
+            return;
+        }
+
+        vehicleStates.compute(gpsMessage.getVehicleId(), (vehicleId, state) -> {
+            if (state == null) {
+                state = new VehicleState(vehicleId);
+            } else if (!gpsMessage.getGpsTime().isAfter(state.lastGpsTime)) {
+                return state;
+            }
+            state.lastUpdateMillis = System.currentTimeMillis();
+            update(state, gpsMessage);
+            return state;
+        });
+    }
+
+    /**
+     * 取出所有车辆自上次取出以来的增量
+     *
+     * @return 各车辆各日期的统计增量，avgSpeed不填充
+     */
+    public List<GpsVehicleDailyStats> drain() {
+        List<GpsVehicleDailyStats> deltas = new ArrayList<>();
+        for (String vehicleId : vehicleStates.keySet()) {
+            vehicleStates.computeIfPresent(vehicleId, (key, state) -> {
+                deltas.addAll(state.completed);
+                state.completed.clear();
+                if (state.pending != null) {
+                    deltas.add(state.pending);
+                    state.pending = null;
+                }
+                return state;
+            });
+        }
+        return deltas;
+    }
+
+    /**
+     * 清理长时间没有上报数据且没有未取出增量的车辆状态
+     *
+     * @param idleTimeout 空闲时长
+     * @return 清理的车辆数
+     */
+    public int evictIdle(Duration idleTimeout) {
+        long deadline = System.currentTimeMillis() - idleTimeout.toMillis();
+        int evicted = 0;
+        for (String vehicleId : vehicleStates.keySet()) {
+            boolean[] removed = new boolean[1];
+            vehicleStates.computeIfPresent(vehicleId, (key, state) -> {
+                removed[0] = state.lastUpdateMillis < deadline && state.pending == null && state.completed.isEmpty();
+                return removed[0] ? null : state;
+            });
+            if (removed[0]) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * 当前跟踪的车辆数
+     */
+    public int size() {
+        return vehicleStates.size();
+    }
+
+    private void update(VehicleState state, GpsMessage point) {
+        LocalDateTime gpsTime = point.getGpsTime();
+        LocalDate date = gpsTime.toLocalDate();
+        double speed = point.getSpeed() != null ? point.getSpeed() : 0.0;
+        boolean plausible = speed >= 0 && speed <= MAX_PLAUSIBLE_SPEED;
+        boolean moving = plausible ? speed >= movingSpeedThreshold : state.lastMoving;
+
+        // 跨天或离线过久时重新开始，不累计与上一个点之间的里程和时长
+        boolean continuous = state.lastGpsTime != null
+                && date.equals(state.date)
+                && Duration.between(state.lastGpsTime, gpsTime).compareTo(maxGap) <= 0;
+
+        if (!date.equals(state.date)) {
+            if (state.pending != null) {
+                state.completed.add(state.pending);
+                state.pending = null;
+            }
+            state.date = date;
+        }
+        GpsVehicleDailyStats delta = state.pending;
+        if (delta == null) {
+            delta = new GpsVehicleDailyStats()
+                    .setVehicleId(state.vehicleId)
+                    .setStatDate(date)
+                    .setPointCount(0L)
+                    .setDistanceMeters(0.0)
+                    .setMaxSpeed(0.0)
+                    .setSpeedSum(0.0)
+                    .setSpeedCount(0L)
+                    .setMovingSeconds(0L)
+                    .setStopCount(0)
+                    .setFirstGpsTime(gpsTime);
+            state.pending = delta;
+        }
+
+        delta.setPointCount(delta.getPointCount() + 1)
+                .setLastGpsTime(gpsTime);
+        if (plausible) {
+            delta.setSpeedSum(delta.getSpeedSum() + speed)
+                    .setSpeedCount(delta.getSpeedCount() + 1)
+                    .setMaxSpeed(Math.max(delta.getMaxSpeed(), speed));
+        }
+
+        if (continuous) {
+            delta.setDistanceMeters(delta.getDistanceMeters()
+                    + haversine(state.lastLongitude, state.lastLatitude, point.getLongitude(), point.getLatitude()));
+            if (moving && state.lastMoving) {
+                delta.setMovingSeconds(delta.getMovingSeconds() + Duration.between(state.lastGpsTime, gpsTime).toSeconds());
+            }
+            if (!moving && state.lastMoving) {
+                delta.setStopCount(delta.getStopCount() + 1);
+            }
+        }
+
+        state.lastGpsTime = gpsTime;
+        state.lastLongitude = point.getLongitude();
+        state.lastLatitude = point.getLatitude();
+        state.lastMoving = moving;
+    }
+
+    /**
+     * 两点之间的球面距离（米）
+     */
+    static double haversine(double lon1, double lat1, double lon2, double lat2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * 单辆车的状态
+     */
+    private static final class VehicleState {
+        private final String vehicleId;
+        /**
+         * 当前日期尚未取出的增量
+         */
+        private GpsVehicleDailyStats pending;
+        /**
+         * 跨天后尚未取出的前一天增量
+         */
+        private final List<GpsVehicleDailyStats> completed = new ArrayList<>(1);
+        private LocalDate date;
+        private LocalDateTime lastGpsTime;
+        private double lastLongitude;
+        private double lastLatitude;
+        private boolean lastMoving;
+        private long lastUpdateMillis;
+
+        VehicleState(String vehicleId) {
+            this.vehicleId = vehicleId;
+        }
+    }
+}
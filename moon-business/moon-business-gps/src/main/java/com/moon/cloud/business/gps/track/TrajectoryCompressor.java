@@ -0,0 +1,179 @@
+package com.moon.cloud.business.gps.track;
+
+import com.moon.cloud.business.gps.entity.GpsData;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 在线轨迹压缩器（Opening Window 算法）
+ * <p>
+ * 以锚点为起点不断扩大窗口，若窗口内任一中间点到“锚点-候选点”的同步欧氏距离（SED，按时间比例插值出的期望位置与实际位置的距离）
+ * 超过容差，则保留候选点的前一个点作为新的锚点。算法只需缓存当前窗口内的点，适合按车辆逐点流式处理。
+ * <p>
+ * 非线程安全，每辆车使用独立实例。
+ *
+ * @author mooncloud
+ */
+public class TrajectoryCompressor {
+
+    /**
+     * 默认窗口最大点数，超过后强制输出锚点，限制单点的最坏计算量
+     */
+    public static final int DEFAULT_MAX_WINDOW_SIZE = 256;
+
+    private static final double EARTH_RADIUS_METERS = 6371000.0;
+
+    private final double toleranceMeters;
+    private final int maxWindowSize;
+
+    /**
+     * 当前锚点（最近一个被保留的点）
+     */
+    private GpsData anchor;
+
+    /**
+     * 锚点之后尚未确定去留的点，最后一个为候选点
+     */
+    private final List<GpsData> window = new ArrayList<>();
+
+    public TrajectoryCompressor(double toleranceMeters) {
+        this(toleranceMeters, DEFAULT_MAX_WINDOW_SIZE);
+    }
+
+    public TrajectoryCompressor(double toleranceMeters, int maxWindowSize) {
+        if (toleranceMeters < 0) {
+            throw new IllegalArgumentException("容差不能为负数");
+        }
+        if (maxWindowSize < 2) {
+            throw new IllegalArgumentException("窗口大小不能小于2");
+        }
+        this.toleranceMeters = toleranceMeters;
+        this.maxWindowSize = maxWindowSize;
+    }
+
+    /**
+     * 压缩一段已按时间排序的轨迹，首尾点始终保留
+     *
+     * @param points          按GPS时间升序排列的轨迹点
+     * @param toleranceMeters 容差（米）
+     * @return 压缩后的轨迹点
+     */
+    public static List<GpsData> compress(List<GpsData> points, double toleranceMeters) {
+        if (points == null || points.size() <= 2) {
+            return points;
+        }
+        TrajectoryCompressor compressor = new TrajectoryCompressor(toleranceMeters);
+        List<GpsData> result = new ArrayList<>();
+        for (GpsData point : points) {
+            GpsData kept = compressor.offer(point);
+            if (kept != null) {
+                result.add(kept);
+            }
+        }
+        GpsData last = compressor.flush();
+        if (last != null) {
+            result.add(last);
+        }
+        return result;
+    }
+
+    /**
+     * 输入一个新的轨迹点
+     *
+     * @param point 轨迹点，需按GPS时间升序输入
+     * @return 本次确定保留的点，没有则返回null
+     */
+    public GpsData offer(GpsData point) {
+        if (anchor == null) {
+            anchor = point;
+            return point;
+        }
+
+        window.add(point);
+        if (window.size() < 2) {
+            return null;
+        }
+
+        if (window.size() > maxWindowSize || exceedsTolerance(point)) {
+            GpsData kept = window.get(window.size() - 2);
+            anchor = kept;
+            window.clear();
+            window.add(point);
+            return kept;
+        }
+        return null;
+    }
+
+    /**
+     * 结束当前轨迹，输出最后一个尚未保留的点
+     *
+     * @return 最后一个点，没有则返回null
+     */
+    public GpsData flush() {
+        if (window.isEmpty()) {
+            return null;
+        }
+        GpsData last = window.get(window.size() - 1);
+        anchor = last;
+        window.clear();
+        return last;
+    }
+
+    /**
+     * 检查窗口内的中间点相对“锚点-候选点”是否超出容差
+     */
+    private boolean exceedsTolerance(GpsData candidate) {
+        for (int i = 0; i < window.size() - 1; i++) {
+            if (synchronizedDistance(anchor, candidate, window.get(i)) > toleranceMeters) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 计算点q相对线段(a, b)的同步欧氏距离（米）
+     * 时间相同无法插值时退化为点到线段的垂直距离
+     */
+    static double synchronizedDistance(GpsData a, GpsData b, GpsData q) {
+        double refLatRadians = Math.toRadians(a.getLatitude());
+        double bx = projectX(a, b, refLatRadians);
+        double by = projectY(a, b);
+        double qx = projectX(a, q, refLatRadians);
+        double qy = projectY(a, q);
+
+        double ratio;
+        long total = millisBetween(a, b);
+        if (total > 0) {
+            ratio = (double) millisBetween(a, q) / total;
+        } else {
+            double lengthSquared = bx * bx + by * by;
+            ratio = lengthSquared == 0 ? 0 : (qx * bx + qy * by) / lengthSquared;
+        }
+        ratio = Math.max(0, Math.min(1, ratio));
+
+        double dx = qx - ratio * bx;
+        double dy = qy - ratio * by;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * 以a为原点的等距投影X坐标（米），适用于轨迹窗口这种小范围计算
+     */
+    private static double projectX(GpsData origin, GpsData point, double refLatRadians) {
+        return Math.toRadians(point.getLongitude() - origin.getLongitude()) * Math.cos(refLatRadians) * EARTH_RADIUS_METERS;
+    }
+
+    private static double projectY(GpsData origin, GpsData point) {
+        return Math.toRadians(point.getLatitude() - origin.getLatitude()) * EARTH_RADIUS_METERS;
+    }
+
+    private static long millisBetween(GpsData from, GpsData to) {
+        if (from.getGpsTime() == null || to.getGpsTime() == null) {
+            return 0;
+        }
+        return Duration.between(from.getGpsTime(), to.getGpsTime()).toMillis();
+    }
+}
@@ -51,6 +51,26 @@ CREATE TABLE IF NOT EXISTS gps_event (
     INDEX idx_event_time (event_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='GPS事件表';
 
+-- 创建车辆日统计表（由GPS处理服务在线累加，每辆车每天一行）
+CREATE TABLE IF NOT EXISTS gps_vehicle_daily_stats (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+    vehicle_id VARCHAR(50) NOT NULL COMMENT '车辆ID',
+    stat_date DATE NOT NULL COMMENT '统计日期',
+    point_count BIGINT NOT NULL DEFAULT 0 COMMENT 'GPS点数',
+    distance_meters DECIMAL(12, 2) NOT NULL DEFAULT 0.00 COMMENT '行驶里程(米)',
+    max_speed DECIMAL(5, 2) NOT NULL DEFAULT 0.00 COMMENT '最高速度(km/h)',
+    speed_sum DECIMAL(16, 2) NOT NULL DEFAULT 0.00 COMMENT '速度累加值',
+    speed_count BIGINT NOT NULL DEFAULT 0 COMMENT '计入速度累加值的点数',
+    avg_speed DECIMAL(5, 2) NOT NULL DEFAULT 0.00 COMMENT '平均速度(km/h)',
+    moving_seconds BIGINT NOT NULL DEFAULT 0 COMMENT '行驶时长(秒)',
+    stop_count INT NOT NULL DEFAULT 0 COMMENT '停车次数',
+    first_gps_time DATETIME COMMENT '当天第一个点的GPS时间',
+    last_gps_time DATETIME COMMENT '当天最后一个点的GPS时间',
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_vehicle_date (vehicle_id, stat_date),
+    INDEX idx_stat_date (stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='车辆日统计表';
+
 -- 创建车辆信息表
 CREATE TABLE IF NOT EXISTS vehicle_info (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
@@ -0,0 +1,112 @@
+package com.moon.cloud.business.gps.archive;
+
+import com.moon.cloud.business.gps.entity.GpsData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GPS日归档文件读写测试类
+ *
+ * @author mooncloud
+ */
+@DisplayName("GPS日归档文件读写测试")
+class GpsArchiveReaderTest {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("测试写入多辆车后按车辆和时间范围读取")
+    void testWriteAndRead() throws IOException {
+        Path file = directory.resolve("20240101.gpsa");
+        List<GpsData> v1 = track("V0001", 1L, 0, 120);
+        List<GpsData> v2 = track("京A12345", 10_000L, 30, 60);
+        try (GpsArchiveWriter writer = new GpsArchiveWriter(file, DATE)) {
+            writer.writeVehicle("V0001", v1);
+            writer.writeVehicle("京A12345", v2);
+            writer.writeVehicle("V0003", List.of());
+            assertEquals(2, writer.getVehicleCount());
+            assertEquals(180, writer.getPointCount());
+        }
+
+        try (GpsArchiveReader reader = GpsArchiveReader.open(file)) {
+            assertEquals(DATE, reader.getDate());
+            assertEquals(2, reader.getVehicleCount());
+            assertTrue(reader.contains("京A12345"));
+            assertFalse(reader.contains("V0003"));
+
+            LocalDateTime dayStart = DATE.atStartOfDay();
+            LocalDateTime dayEnd = DATE.plusDays(1).atStartOfDay().minusNanos(1);
+            assertEquals(v1, reader.read("V0001", dayStart, dayEnd));
+            assertEquals(v2, reader.read("京A12345", dayStart, dayEnd));
+
+            // 时间范围部分重叠时只返回范围内的点，边界包含
+            List<GpsData> partial = reader.read("V0001", dayStart.plusMinutes(10), dayStart.plusMinutes(20));
+            assertEquals(v1.subList(10, 21), partial);
+
+            // 时间范围不重叠或车辆不存在时返回空列表
+            assertTrue(reader.read("京A12345", dayStart, dayStart.plusMinutes(29)).isEmpty());
+            assertTrue(reader.read("V0003", dayStart, dayEnd).isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("测试文件不完整或版本不支持时打开失败")
+    void testInvalidFile() throws IOException {
+        Path file = directory.resolve("20240101.gpsa");
+        try (GpsArchiveWriter writer = new GpsArchiveWriter(file, DATE)) {
+            writer.writeVehicle("V0001", track("V0001", 1L, 0, 10));
+        }
+        byte[] content = Files.readAllBytes(file);
+
+        Path truncated = directory.resolve("truncated.gpsa");
+        Files.write(truncated, Arrays.copyOf(content, content.length - 4));
+        assertThrows(IOException.class, () -> GpsArchiveReader.open(truncated));
+
+        Path otherVersion = directory.resolve("other-version.gpsa");
+        byte[] otherVersionContent = content.clone();
+        ByteBuffer.wrap(otherVersionContent).putInt(4, GpsArchiveWriter.VERSION - 1);
+        Files.write(otherVersion, otherVersionContent);
+        assertThrows(IOException.class, () -> GpsArchiveReader.open(otherVersion));
+
+        Path empty = directory.resolve("empty.gpsa");
+        Files.write(empty, new byte[0]);
+        assertThrows(IOException.class, () -> GpsArchiveReader.open(empty));
+    }
+
+    /**
+     * 每分钟一个点的轨迹，部分点缺少海拔
+     */
+    private List<GpsData> track(String vehicleId, long firstId, int startMinute, int count) {
+        List<GpsData> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDateTime gpsTime = DATE.atStartOfDay().plusMinutes(startMinute + i);
+            points.add(new GpsData()
+                    .setId(firstId + i)
+                    .setVehicleId(vehicleId)
+                    .setLongitude((1_164_074_000L + i * 1000L) / 1e7)
+                    .setLatitude((399_042_000L + i * 1000L) / 1e7)
+                    .setSpeed(40.0 + i % 20)
+                    .setDirection(45.0)
+                    .setAltitude(i % 10 == 0 ? null : 50.0)
+                    .setGpsTime(gpsTime)
+                    .setCreateTime(gpsTime.plusSeconds(1)));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,119 @@
+package com.moon.cloud.business.gps.archive;
+
+import com.moon.cloud.business.gps.entity.GpsData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 轨迹段列式编解码测试类
+ *
+ * @author mooncloud
+ */
+@DisplayName("轨迹段列式编解码测试")
+class VehicleSegmentCodecTest {
+
+    private static final String VEHICLE_ID = "V0001";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Test
+    @DisplayName("测试定频上报轨迹编解码")
+    void testRoundTrip() {
+        List<GpsData> points = new ArrayList<>();
+        // 坐标取1e-7度定点数可精确表示的值，保证解码结果与原值相等
+        for (int i = 0; i < 1000; i++) {
+            points.add(point(1000L + i, START.plusSeconds(i * 5L))
+                    .setLongitude((1_164_074_000L + i * 100L) / 1e7)
+                    .setLatitude((399_042_000L - i * 100L) / 1e7)
+                    .setSpeed(60.0 + (i % 7))
+                    .setDirection(90.25)
+                    .setAltitude(-3.5 + (i % 3))
+                    .setCreateTime(START.plusSeconds(i * 5L).plusNanos(150_000_000)));
+        }
+
+        byte[] raw = VehicleSegmentCodec.encode(points);
+        List<GpsData> decoded = VehicleSegmentCodec.decode(raw, VEHICLE_ID);
+
+        assertEquals(points, decoded);
+        // 定频上报时时间列几乎全为0，每点远小于原始行大小
+        assertTrue(raw.length < points.size() * 16, "每点编码后应小于16字节，实际" + raw.length / points.size());
+    }
+
+    @Test
+    @DisplayName("测试空值字段解码后仍为空，不会变成0")
+    void testNullFields() {
+        List<GpsData> points = List.of(
+                point(1L, START).setLongitude(116.4).setLatitude(39.9).setSpeed(60.0).setDirection(90.0).setAltitude(50.0),
+                point(2L, START.plusSeconds(5)).setLongitude(116.4).setLatitude(39.9),
+                point(3L, START.plusSeconds(10)).setSpeed(0.0).setDirection(0.0).setAltitude(0.0),
+                point(4L, START.plusSeconds(15)).setLongitude(116.5).setLatitude(39.8).setSpeed(30.0)
+                        .setDirection(180.0).setAltitude(-10.0).setCreateTime(START.plusSeconds(14)));
+
+        List<GpsData> decoded = VehicleSegmentCodec.decode(VehicleSegmentCodec.encode(points), VEHICLE_ID);
+
+        assertEquals(points, decoded);
+        assertNull(decoded.get(1).getSpeed());
+        assertNull(decoded.get(1).getCreateTime());
+        assertNull(decoded.get(2).getLongitude());
+        // 0与空值可以区分
+        assertEquals(0.0, decoded.get(2).getSpeed());
+    }
+
+    @Test
+    @DisplayName("测试不定频、乱序ID和单点轨迹段")
+    void testIrregularPoints() {
+        List<GpsData> points = List.of(
+                point(500L, START).setLongitude(-73.9857).setLatitude(40.7484).setSpeed(999.99),
+                point(20L, START.plusNanos(1_000_000)).setLongitude(151.2093).setLatitude(-33.8688).setSpeed(0.01),
+                point(21L, START.plusHours(5).plusNanos(999_000_000)).setLongitude(-180.0).setLatitude(-90.0),
+                point(Long.MAX_VALUE, START.plusHours(23).plusMinutes(59)).setLongitude(180.0).setLatitude(90.0));
+
+        assertEquals(points, VehicleSegmentCodec.decode(VehicleSegmentCodec.encode(points), VEHICLE_ID));
+
+        List<GpsData> single = List.of(point(1L, START).setLongitude(116.4).setLatitude(39.9));
+        assertEquals(single, VehicleSegmentCodec.decode(VehicleSegmentCodec.encode(single), VEHICLE_ID));
+    }
+
+    @Test
+    @DisplayName("测试Deflate压缩和解压")
+    void testCompress() {
+        List<GpsData> points = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            points.add(point(i + 1L, START.plusSeconds(i)).setLongitude(116.4).setLatitude(39.9).setSpeed(0.0));
+        }
+        byte[] raw = VehicleSegmentCodec.encode(points);
+
+        byte[] compressed = VehicleSegmentCodec.compress(raw);
+
+        assertTrue(compressed.length < raw.length);
+        assertArrayEquals(raw, VehicleSegmentCodec.decompress(ByteBuffer.wrap(compressed), raw.length));
+        assertThrows(IllegalStateException.class,
+                () -> VehicleSegmentCodec.decompress(ByteBuffer.wrap(compressed), raw.length + 1));
+    }
+
+    @Test
+    @DisplayName("测试数据损坏时抛出IllegalStateException")
+    void testCorruptedSegment() {
+        byte[] raw = VehicleSegmentCodec.encode(List.of(
+                point(1L, START).setLongitude(116.4).setLatitude(39.9),
+                point(2L, START.plusSeconds(5)).setLongitude(116.4).setLatitude(39.9)));
+
+        assertThrows(IllegalStateException.class,
+                () -> VehicleSegmentCodec.decode(Arrays.copyOf(raw, raw.length - 1), VEHICLE_ID));
+
+        byte[] malformed = new byte[16];
+        Arrays.fill(malformed, (byte) 0x80);
+        assertThrows(IllegalStateException.class, () -> VehicleSegmentCodec.decode(malformed, VEHICLE_ID));
+    }
+
+    private GpsData point(long id, LocalDateTime gpsTime) {
+        return new GpsData().setId(id).setVehicleId(VEHICLE_ID).setGpsTime(gpsTime);
+    }
+}
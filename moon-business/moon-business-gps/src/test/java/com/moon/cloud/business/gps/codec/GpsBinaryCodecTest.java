@@ -0,0 +1,151 @@
+package com.moon.cloud.business.gps.codec;
+
+import com.moon.cloud.business.gps.dto.GpsMessage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GPS消息二进制编解码器测试类
+ *
+ * @author mooncloud
+ */
+@DisplayName("GPS消息二进制编解码器测试")
+class GpsBinaryCodecTest {
+
+    private static final LocalDateTime GPS_TIME = LocalDateTime.of(2024, 1, 1, 8, 0, 0, 123_000_000);
+
+    @Test
+    @DisplayName("测试完整消息编解码")
+    void testRoundTrip() {
+        GpsMessage message = new GpsMessage()
+                .setVehicleId("V0001")
+                .setLongitude(116.3972282)
+                .setLatitude(39.9096933)
+                .setSpeed(65.5)
+                .setDirection(270.25)
+                .setAltitude(-12.34)
+                .setGpsTime(GPS_TIME);
+
+        byte[] data = GpsBinaryCodec.encode(message);
+
+        assertTrue(GpsBinaryCodec.isBinary(data));
+        assertTrue(data.length < 40, "城市范围内的消息应在40字节以内，实际" + data.length);
+        assertEquals(message, GpsBinaryCodec.decode(data));
+    }
+
+    @Test
+    @DisplayName("测试缺失字段解码后仍为空")
+    void testNullFields() {
+        GpsMessage message = new GpsMessage()
+                .setVehicleId("V0001")
+                .setLongitude(116.3972282)
+                .setGpsTime(GPS_TIME);
+
+        GpsMessage decoded = GpsBinaryCodec.decode(GpsBinaryCodec.encode(message));
+
+        assertEquals(message, decoded);
+        assertNull(decoded.getLatitude());
+        assertNull(decoded.getSpeed());
+        assertNull(decoded.getDirection());
+        assertNull(decoded.getAltitude());
+
+        GpsMessage empty = GpsBinaryCodec.decode(GpsBinaryCodec.encode(new GpsMessage()));
+        assertEquals("", empty.getVehicleId());
+        assertNull(empty.getGpsTime());
+    }
+
+    @Test
+    @DisplayName("测试异常的大数值需要10字节varlong时仍能编解码")
+    void testBoundaryValues() {
+        // 设备故障时速度、海拔可能上报极大值，zigzag后需要满10字节
+        GpsMessage message = new GpsMessage()
+                .setVehicleId("V0001")
+                .setLongitude(-180.0)
+                .setLatitude(-90.0)
+                .setSpeed(9.0e16)
+                .setDirection(-9.0e16)
+                .setAltitude(-9.0e16)
+                .setGpsTime(LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999_000_000));
+
+        assertEquals(message, GpsBinaryCodec.decode(GpsBinaryCodec.encode(message)));
+
+        // 超出long定点范围的值按long边界截断，不抛出异常
+        GpsMessage overflow = new GpsMessage()
+                .setVehicleId("V0001")
+                .setSpeed(Double.MAX_VALUE)
+                .setAltitude(-Double.MAX_VALUE)
+                .setGpsTime(LocalDateTime.of(1900, 1, 1, 0, 0));
+
+        GpsMessage decoded = GpsBinaryCodec.decode(GpsBinaryCodec.encode(overflow));
+        assertEquals(Long.MAX_VALUE / 100.0, decoded.getSpeed(), 1.0);
+        assertEquals(Long.MIN_VALUE / 100.0, decoded.getAltitude(), 1.0);
+        assertEquals(overflow.getGpsTime(), decoded.getGpsTime());
+    }
+
+    @Test
+    @DisplayName("测试长车辆ID和多字节字符")
+    void testLongVehicleId() {
+        String vehicleId = "京A" + "0".repeat(300);
+        GpsMessage message = new GpsMessage().setVehicleId(vehicleId).setGpsTime(GPS_TIME);
+
+        GpsMessage decoded = GpsBinaryCodec.decode(GpsBinaryCodec.encode(message));
+
+        assertEquals(vehicleId, decoded.getVehicleId());
+    }
+
+    @Test
+    @DisplayName("测试非法数据抛出IllegalArgumentException")
+    void testInvalidData() {
+        byte[] data = GpsBinaryCodec.encode(new GpsMessage()
+                .setVehicleId("V0001")
+                .setSpeed(65.5)
+                .setGpsTime(GPS_TIME));
+
+        assertFalse(GpsBinaryCodec.isBinary("{\"vehicleId\":\"V0001\"}".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(GpsBinaryCodec.isBinary(new byte[0]));
+        assertThrows(IllegalArgumentException.class,
+                () -> GpsBinaryCodec.decode("{}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class,
+                () -> GpsBinaryCodec.decode(Arrays.copyOf(data, data.length - 1)));
+
+        byte[] otherVersion = data.clone();
+        otherVersion[1] = (byte) (GpsBinaryCodec.VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> GpsBinaryCodec.decode(otherVersion));
+
+        // 超过10字节仍未结束的varint
+        byte[] malformed = new byte[16];
+        Arrays.fill(malformed, (byte) 0x80);
+        malformed[0] = GpsBinaryCodec.MAGIC;
+        malformed[1] = GpsBinaryCodec.VERSION;
+        malformed[2] = 0;
+        assertThrows(IllegalArgumentException.class, () -> GpsBinaryCodec.decode(malformed));
+    }
+
+    @Test
+    @DisplayName("测试varlong边界值编解码")
+    void testVarLongBoundaries() {
+        long[] values = {0, 1, -1, 63, -64, 64, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        byte[] buffer = new byte[VarLongCodec.MAX_VARLONG_SIZE * values.length];
+        int position = 0;
+        for (long value : values) {
+            position = VarLongCodec.writeSigned(buffer, position, value);
+        }
+
+        VarLongCodec.Reader reader = new VarLongCodec.Reader(buffer, 0);
+        for (long value : values) {
+            assertEquals(value, reader.readSigned());
+        }
+        assertEquals(position, reader.getPosition());
+
+        // 单字节表示 -64 ~ 63，long边界值需要满10字节
+        assertEquals(1, VarLongCodec.writeSigned(new byte[VarLongCodec.MAX_VARLONG_SIZE], 0, -64));
+        assertEquals(VarLongCodec.MAX_VARLONG_SIZE,
+                VarLongCodec.writeSigned(new byte[VarLongCodec.MAX_VARLONG_SIZE], 0, Long.MIN_VALUE));
+    }
+}
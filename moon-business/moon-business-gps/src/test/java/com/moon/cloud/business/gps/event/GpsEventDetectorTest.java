@@ -0,0 +1,151 @@
+package com.moon.cloud.business.gps.event;
+
+import com.moon.cloud.business.gps.dto.GpsMessage;
+import com.moon.cloud.business.gps.entity.GpsEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GPS事件检测器测试类
+ *
+ * @author mooncloud
+ */
+@DisplayName("GPS事件检测器测试")
+class GpsEventDetectorTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    private GpsEventDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        detector = new GpsEventDetector(Duration.ofSeconds(10));
+    }
+
+    @Test
+    @DisplayName("测试偏离持续达到防抖时长后只产生一条路线偏离事件")
+    void testRouteDeviation() {
+        List<GpsEvent> events = new ArrayList<>();
+        for (int second = 0; second <= 60; second += 5) {
+            events.addAll(detector.detect(message("V0001", second), second >= 20, false));
+        }
+
+        assertEquals(1, events.size());
+        GpsEvent event = events.get(0);
+        assertEquals(GpsEventType.ROUTE_DEVIATION.name(), event.getEventType());
+        assertEquals("V0001", event.getVehicleId());
+        // 以开始偏离的点作为事件发生时间
+        assertEquals(START.plusSeconds(20), event.getEventTime());
+    }
+
+    @Test
+    @DisplayName("测试状态在防抖时长内来回抖动不产生事件")
+    void testDebounce() {
+        List<GpsEvent> events = new ArrayList<>();
+        for (int second = 0; second <= 60; second += 5) {
+            events.addAll(detector.detect(message("V0001", second), second % 10 == 5, false));
+        }
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试回到路线并确认后再次偏离会产生新事件")
+    void testDeviationAfterReturn() {
+        List<GpsEvent> events = new ArrayList<>();
+        for (int second = 0; second <= 90; second += 5) {
+            boolean deviated = (second >= 10 && second < 30) || second >= 60;
+            events.addAll(detector.detect(message("V0001", second), deviated, false));
+        }
+
+        assertEquals(2, events.size());
+        assertEquals(START.plusSeconds(10), events.get(0).getEventTime());
+        assertEquals(START.plusSeconds(60), events.get(1).getEventTime());
+    }
+
+    @Test
+    @DisplayName("测试第一个点只确定区域状态，之后产生驶入和驶出事件")
+    void testAreaEnterAndExit() {
+        List<GpsEvent> events = new ArrayList<>();
+        // 第一个点就在区域内，不产生事件；最后一次离开区域未达到防抖时长，也不产生事件
+        for (int second = 0; second <= 75; second += 5) {
+            boolean inArea = second < 20 || (second >= 40 && second < 70);
+            events.addAll(detector.detect(message("V0001", second), false, inArea));
+        }
+
+        assertEquals(2, events.size());
+        assertEquals(GpsEventType.AREA_EXIT.name(), events.get(0).getEventType());
+        assertEquals(START.plusSeconds(20), events.get(0).getEventTime());
+        assertEquals(GpsEventType.AREA_ENTER.name(), events.get(1).getEventType());
+        assertEquals(START.plusSeconds(40), events.get(1).getEventTime());
+    }
+
+    @Test
+    @DisplayName("测试重复投递和乱序到达的点被忽略")
+    void testDuplicateAndOutOfOrderIgnored() {
+        assertTrue(detector.detect(message("V0001", 0), true, false).isEmpty());
+        assertTrue(detector.detect(message("V0001", 5), true, false).isEmpty());
+
+        // 重复投递的点和更早的点不推进防抖计时
+        assertTrue(detector.detect(message("V0001", 5), true, false).isEmpty());
+        assertTrue(detector.detect(message("V0001", 3), true, false).isEmpty());
+
+        assertEquals(1, detector.detect(message("V0001", 10), true, false).size());
+        // 已确认的偏离重复投递不会再次产生事件
+        assertTrue(detector.detect(message("V0001", 10), true, false).isEmpty());
+        assertTrue(detector.detect(message("V0001", 15), true, false).isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试不同车辆的状态互不影响")
+    void testVehiclesIndependent() {
+        List<GpsEvent> events = new ArrayList<>();
+        for (int second = 0; second <= 30; second += 5) {
+            events.addAll(detector.detect(message("V0001", second), true, false));
+            events.addAll(detector.detect(message("V0002", second), false, false));
+        }
+
+        assertEquals(1, events.size());
+        assertEquals("V0001", events.get(0).getVehicleId());
+        assertEquals(2, detector.size());
+    }
+
+    @Test
+    @DisplayName("测试缺少车辆ID或GPS时间的消息被忽略，防抖时长不能为负数")
+    void testInvalidInput() {
+        assertTrue(detector.detect(new GpsMessage().setGpsTime(START), true, true).isEmpty());
+        assertTrue(detector.detect(new GpsMessage().setVehicleId("V0001"), true, true).isEmpty());
+        assertEquals(0, detector.size());
+
+        assertThrows(IllegalArgumentException.class, () -> new GpsEventDetector(Duration.ofSeconds(-1)));
+        assertThrows(IllegalArgumentException.class, () -> new GpsEventDetector(null));
+    }
+
+    @Test
+    @DisplayName("测试清理空闲车辆状态")
+    void testEvictIdle() throws InterruptedException {
+        detector.detect(message("V0001", 0), false, false);
+        detector.detect(message("V0002", 0), false, false);
+
+        assertEquals(0, detector.evictIdle(Duration.ofMinutes(1)));
+        Thread.sleep(5);
+        assertEquals(2, detector.evictIdle(Duration.ZERO));
+        assertEquals(0, detector.size());
+    }
+
+    private GpsMessage message(String vehicleId, int second) {
+        return new GpsMessage()
+                .setVehicleId(vehicleId)
+                .setLongitude(116.4)
+                .setLatitude(39.9)
+                .setGpsTime(START.plusSeconds(second));
+    }
+}
@@ -0,0 +1,350 @@
+package com.moon.cloud.business.gps.loadtest;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.moon.cloud.business.gps.codec.GpsMessageDeserializer;
+import com.moon.cloud.business.gps.codec.GpsMessageFormat;
+import com.moon.cloud.business.gps.codec.GpsMessageSerializer;
+import com.moon.cloud.business.gps.consumer.GpsDataConsumer;
+import com.moon.cloud.business.gps.dto.GpsMessage;
+import com.moon.cloud.business.gps.mapper.GpsDataMapper;
+import com.moon.cloud.business.gps.orm.SqlLatencyHistogram;
+import com.moon.cloud.business.gps.service.GpsEventService;
+import com.moon.cloud.business.gps.service.GpsProcessingService;
+import com.moon.cloud.business.gps.service.GpsVehicleStatsService;
+import com.moon.cloud.threadpool.factory.MoonThreadPoolFactory;
+import com.moon.cloud.threadpool.rejector.RetryRejectedExecutionConfig;
+import org.h2.jdbcx.JdbcDataSource;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GPS接入链路压测工具
+ * <p>
+ * 不依赖外部Kafka和MySQL，在本地进程内跑通 生产者 -> 内存主题 -> {@link GpsDataConsumer} -> {@link GpsProcessingService}：
+ * <ul>
+ *     <li>生产者按指定速率回放合成轨迹或录制轨迹，消息经线上使用的序列化器编码（format=json|binary）</li>
+ *     <li>消费线程经线上使用的反序列化器从字节数组解码，解码开销计入压测结果</li>
+ *     <li>内存主题按车辆ID分区，每个分区一个消费线程，模拟Kafka的分区消费</li>
+ *     <li>GPS点入库使用桩Mapper（可配置模拟延迟），事件和车辆日统计批量写入内存H2数据库</li>
+ * </ul>
+ * 每5秒输出吞吐量（每秒平均值）、积压量、端到端延迟（发送到处理完成）和主题等待延迟的分位数，结束时输出汇总。
+ * <p>
+ * 运行方式：执行 {@link #main(String[])}，参数为 key=value 形式，例如
+ * {@code vehicles=300000 rate=100000 duration=60 producers=4 partitions=16 dbLatencyMicros=200 format=binary}；
+ * 回放录制轨迹时指定 {@code file=/path/to/track.csv copies=1000}。
+ *
+ * @author mooncloud
+ */
+public class GpsLoadGenerator {
+
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+    private static final String GPS_TOPIC = "gps-data";
+
+    private final Map<String, String> options;
+    private final GpsMessageSerializer serializer;
+    private final GpsMessageDeserializer deserializer = new GpsMessageDeserializer();
+    private final InMemoryTopic<byte[]> topic;
+    private final Map<String, Long> sendTimes = new ConcurrentHashMap<>();
+    private final AtomicReference<SqlLatencyHistogram> intervalLatency = new AtomicReference<>(new SqlLatencyHistogram());
+    private final AtomicReference<SqlLatencyHistogram> intervalTopicWait = new AtomicReference<>(new SqlLatencyHistogram());
+    private final SqlLatencyHistogram totalLatency = new SqlLatencyHistogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder sentBytes = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final AtomicBoolean producing = new AtomicBoolean(true);
+    private final AtomicBoolean consuming = new AtomicBoolean(true);
+
+    private GpsDataConsumer consumer;
+    private GpsEventService gpsEventService;
+    private GpsVehicleStatsService gpsVehicleStatsService;
+    private ThreadPoolExecutor processingExecutor;
+
+    public GpsLoadGenerator(Map<String, String> options) {
+        this.options = options;
+        this.serializer = new GpsMessageSerializer(
+                GpsMessageFormat.valueOf(options.getOrDefault("format", "json").toUpperCase()));
+        this.topic = new InMemoryTopic<>(intOption("partitions", 16), intOption("partitionCapacity", 10_000));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+
+        // 处理链路的逐条日志会压垮控制台，压测期间只保留错误日志
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.ERROR);
+
+        new GpsLoadGenerator(options).run();
+    }
+
+    public void run() throws Exception {
+        setUp();
+
+        List<Thread> consumers = startConsumers();
+        List<Thread> producers = startProducers();
+
+        long durationSeconds = longOption("duration", 60);
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long lastSent = 0;
+        long lastCompleted = 0;
+        System.out.printf("开始压测: %s%n", options);
+
+        while (System.nanoTime() < deadline && producers.stream().anyMatch(Thread::isAlive)) {
+            TimeUnit.SECONDS.sleep(REPORT_INTERVAL_SECONDS);
+            long currentSent = sent.sum();
+            long currentCompleted = completed.sum();
+            SqlLatencyHistogram latency = intervalLatency.getAndSet(new SqlLatencyHistogram());
+            SqlLatencyHistogram topicWait = intervalTopicWait.getAndSet(new SqlLatencyHistogram());
+            System.out.printf("发送 %,d/s, 处理 %,d/s, 主题积压 %,d, 线程池积压 %,d, 端到端延迟 p50=%.1fms p99=%.1fms, 主题等待 p99=%.1fms%n",
+                    (currentSent - lastSent) / REPORT_INTERVAL_SECONDS,
+                    (currentCompleted - lastCompleted) / REPORT_INTERVAL_SECONDS,
+                    topic.lag(),
+                    processingExecutor.getQueue().size(),
+                    latency.percentileMillis(0.50),
+                    latency.percentileMillis(0.99),
+                    topicWait.percentileMillis(0.99));
+            lastSent = currentSent;
+            lastCompleted = currentCompleted;
+        }
+
+        producing.set(false);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        long produceNanos = System.nanoTime() - startNanos;
+
+        // 等待积压处理完，最多30秒
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (completed.sum() < sent.sum() && System.nanoTime() < drainDeadline) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        long totalNanos = System.nanoTime() - startNanos;
+
+        consuming.set(false);
+        for (Thread consumerThread : consumers) {
+            consumerThread.join();
+        }
+        processingExecutor.shutdown();
+        processingExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        gpsEventService.destroy();
+        gpsVehicleStatsService.destroy();
+
+        Map<String, Object> latency = totalLatency.snapshot();
+        System.out.println("===== 压测结果 =====");
+        System.out.printf("发送消息: %,d（%,.0f/s）, 编码格式 %s, 平均消息大小 %.1f字节%n", sent.sum(), sent.sum() / (produceNanos / 1e9),
+                serializer.getFormat(), sent.sum() > 0 ? (double) sentBytes.sum() / sent.sum() : 0);
+        System.out.printf("处理完成: %,d（%,.0f/s）%n", completed.sum(), completed.sum() / (totalNanos / 1e9));
+        System.out.printf("端到端延迟(ms): avg=%s p50=%s p95=%s p99=%s max=%s%n",
+                latency.get("avgMs"), latency.get("p50Ms"), latency.get("p95Ms"), latency.get("p99Ms"), latency.get("maxMs"));
+        System.out.printf("事件管道: %s%n", gpsEventService.getStatistics());
+        System.out.printf("车辆日统计: %s%n", gpsVehicleStatsService.getStatistics());
+    }
+
+    /**
+     * 组装处理链路：桩Mapper + 内存H2事件表 + 真实的事件检测与消费者
+     */
+    private void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:gps_load;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS gps_event (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "vehicle_id VARCHAR(50), event_type VARCHAR(20), longitude DECIMAL(10, 7), latitude DECIMAL(10, 7), "
+                + "event_time DATETIME, description TEXT, create_time DATETIME)");
+
+        gpsEventService = new GpsEventService();
+        ReflectionTestUtils.setField(gpsEventService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(gpsEventService, "moonThreadPoolFactory", new MoonThreadPoolFactory(new RetryRejectedExecutionConfig()));
+        ReflectionTestUtils.setField(gpsEventService, "debounceSeconds", 10L);
+        ReflectionTestUtils.setField(gpsEventService, "bufferCapacity", 100_000);
+        ReflectionTestUtils.setField(gpsEventService, "batchSize", 500);
+        ReflectionTestUtils.setField(gpsEventService, "flushIntervalMillis", 200L);
+        ReflectionTestUtils.setField(gpsEventService, "stateIdleMinutes", 60L);
+        gpsEventService.init();
+
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS gps_vehicle_daily_stats (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "vehicle_id VARCHAR(50) NOT NULL, stat_date DATE NOT NULL, point_count BIGINT, distance_meters DECIMAL(12, 2), "
+                + "max_speed DECIMAL(5, 2), speed_sum DECIMAL(16, 2), speed_count BIGINT, avg_speed DECIMAL(5, 2), moving_seconds BIGINT, "
+                + "stop_count INT, first_gps_time DATETIME, last_gps_time DATETIME, update_time DATETIME, "
+                + "UNIQUE KEY uk_vehicle_date (vehicle_id, stat_date))");
+        gpsVehicleStatsService = new GpsVehicleStatsService();
+        ReflectionTestUtils.setField(gpsVehicleStatsService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(gpsVehicleStatsService, "transactionTemplate",
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        ReflectionTestUtils.setField(gpsVehicleStatsService, "moonThreadPoolFactory", new MoonThreadPoolFactory(new RetryRejectedExecutionConfig()));
+        ReflectionTestUtils.setField(gpsVehicleStatsService, "movingSpeedKmh", 5.0);
+        ReflectionTestUtils.setField(gpsVehicleStatsService, "maxGapSeconds", 300L);
+        ReflectionTestUtils.setField(gpsVehicleStatsService, "batchSize", 500);
+        ReflectionTestUtils.setField(gpsVehicleStatsService, "flushIntervalMillis", 1000L);
+        ReflectionTestUtils.setField(gpsVehicleStatsService, "maxRetrySize", 1_000_000);
+        ReflectionTestUtils.setField(gpsVehicleStatsService, "stateIdleMinutes", 120L);
+        gpsVehicleStatsService.init();
+
+        GpsProcessingService processingService = new MeasuredProcessingService();
+        ReflectionTestUtils.setField(processingService, "gpsDataMapper", stubGpsDataMapper(longOption("dbLatencyMicros", 0)));
+        ReflectionTestUtils.setField(processingService, "gpsEventService", gpsEventService);
+        ReflectionTestUtils.setField(processingService, "gpsVehicleStatsService", gpsVehicleStatsService);
+
+        int workers = intOption("workers", Runtime.getRuntime().availableProcessors() * 2);
+        processingExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 1000), new ThreadPoolExecutor.CallerRunsPolicy());
+        consumer = new GpsDataConsumer(processingService, processingExecutor);
+    }
+
+    private List<Thread> startConsumers() {
+        List<Thread> threads = new ArrayList<>(topic.partitionCount());
+        for (int partition = 0; partition < topic.partitionCount(); partition++) {
+            int assigned = partition;
+            Thread thread = new Thread(() -> consumePartition(assigned), "load-consumer-" + partition);
+            thread.start();
+            threads.add(thread);
+        }
+        return threads;
+    }
+
+    private void consumePartition(int partition) {
+        try {
+            while (consuming.get()) {
+                InMemoryTopic.Record<byte[]> record = topic.poll(partition, 100, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    intervalTopicWait.get().record(System.nanoTime() - record.sendNanos(), false);
+                    consumer.consumeGpsData(deserializer.deserialize(GPS_TOPIC, record.value()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Thread> startProducers() throws Exception {
+        String file = options.get("file");
+        double rate = longOption("rate", 50_000);
+        List<Thread> threads = new ArrayList<>();
+
+        if (file != null) {
+            TrajectorySource source = new TrajectorySource.Recorded(Path.of(file), intOption("copies", 1));
+            threads.add(new Thread(() -> produce(source, rate), "load-producer-0"));
+        } else {
+            int vehicles = intOption("vehicles", 200_000);
+            int producers = Math.max(1, intOption("producers", 2));
+            int perProducer = vehicles / producers;
+            for (int i = 0; i < producers; i++) {
+                int count = i == producers - 1 ? vehicles - perProducer * i : perProducer;
+                TrajectorySource source = new TrajectorySource.Synthetic(perProducer * i, count, 5, 42L + i);
+                threads.add(new Thread(() -> produce(source, rate / producers), "load-producer-" + i));
+            }
+        }
+
+        threads.forEach(Thread::start);
+        return threads;
+    }
+
+    /**
+     * 按固定速率发送，落后于计划时不休眠直接追赶
+     */
+    private void produce(TrajectorySource source, double rate) {
+        long periodNanos = (long) (1_000_000_000L / rate);
+        long startNanos = System.nanoTime();
+        long count = 0;
+        try {
+            while (producing.get()) {
+                GpsMessage message = source.next();
+                if (message == null) {
+                    return;
+                }
+
+                long scheduled = startNanos + count * periodNanos;
+                long waitNanos = scheduled - System.nanoTime();
+                if (waitNanos > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+
+                byte[] payload = serializer.serialize(GPS_TOPIC, message);
+                sendTimes.put(latencyKey(message), System.nanoTime());
+                topic.send(message.getVehicleId(), payload);
+                sent.increment();
+                sentBytes.add(payload.length);
+                count++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            throw new IllegalStateException("发送压测消息失败", e);
+        }
+    }
+
+    /**
+     * 二进制格式的时间精度为毫秒，按毫秒截断后两种格式的键一致
+     */
+    private static String latencyKey(GpsMessage message) {
+        return message.getVehicleId() + "|" + message.getGpsTime().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    /**
+     * GPS点入库桩：不访问数据库，可模拟单条插入的耗时
+     */
+    private static GpsDataMapper stubGpsDataMapper(long latencyMicros) {
+        return (GpsDataMapper) Proxy.newProxyInstance(GpsDataMapper.class.getClassLoader(),
+                new Class<?>[]{GpsDataMapper.class},
+                (proxy, method, args) -> {
+                    if ("insert".equals(method.getName())) {
+                        if (latencyMicros > 0) {
+                            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+                        }
+                        return 1;
+                    }
+                    return null;
+                });
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    private long longOption(String name, long defaultValue) {
+        return options.containsKey(name) ? Long.parseLong(options.get(name)) : defaultValue;
+    }
+
+    /**
+     * 在处理完成时记录端到端延迟
+     */
+    private class MeasuredProcessingService extends GpsProcessingService {
+
+        @Override
+        public void processGpsData(GpsMessage gpsMessage) {
+            super.processGpsData(gpsMessage);
+
+            Long sendNanos = sendTimes.remove(latencyKey(gpsMessage));
+            if (sendNanos != null) {
+                long latency = System.nanoTime() - sendNanos;
+                intervalLatency.get().record(latency, false);
+                totalLatency.record(latency, false);
+            }
+            completed.increment();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.moon.cloud.business.gps.loadtest;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存主题
+ * 模拟Kafka主题的分区语义：按消息键哈希路由到固定分区，同一车辆的消息保持顺序；
+ * 分区队列有界，队列满时发送方阻塞，模拟Broker的背压。
+ *
+ * @param <V> 消息值类型
+ * @author mooncloud
+ */
+public class InMemoryTopic<V> {
+
+    private final BlockingQueue<Record<V>>[] partitions;
+
+    @SuppressWarnings("unchecked")
+    public InMemoryTopic(int partitionCount, int partitionCapacity) {
+        if (partitionCount <= 0 || partitionCapacity <= 0) {
+            throw new IllegalArgumentException("分区数和分区容量必须大于0");
+        }
+        this.partitions = new BlockingQueue[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new ArrayBlockingQueue<>(partitionCapacity);
+        }
+    }
+
+    /**
+     * 发送消息，分区已满时阻塞
+     *
+     * @param key   消息键
+     * @param value 消息值
+     */
+    public void send(String key, V value) throws InterruptedException {
+        partitions[partitionOf(key)].put(new Record<>(key, value, System.nanoTime()));
+    }
+
+    /**
+     * 拉取指定分区的一条消息
+     *
+     * @return 消息，超时返回null
+     */
+    public Record<V> poll(int partition, long timeout, TimeUnit unit) throws InterruptedException {
+        return partitions[partition].poll(timeout, unit);
+    }
+
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * 所有分区中积压的消息数
+     */
+    public long lag() {
+        long lag = 0;
+        for (BlockingQueue<Record<V>> partition : partitions) {
+            lag += partition.size();
+        }
+        return lag;
+    }
+
+    private int partitionOf(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % partitions.length;
+    }
+
+    /**
+     * 消息
+     *
+     * @param key       消息键
+     * @param value     消息值
+     * @param sendNanos 发送时间（System.nanoTime）
+     */
+    public record Record<V>(String key, V value, long sendNanos) {
+    }
+}
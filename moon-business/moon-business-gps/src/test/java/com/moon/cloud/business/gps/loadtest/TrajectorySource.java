@@ -0,0 +1,146 @@
+package com.moon.cloud.business.gps.loadtest;
+
+import com.moon.cloud.business.gps.dto.GpsMessage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 轨迹数据源
+ * 按车辆轮询产生GPS点，同一车辆的GPS时间严格递增
+ *
+ * @author mooncloud
+ */
+public interface TrajectorySource {
+
+    /**
+     * 产生下一个GPS点
+     *
+     * @return GPS点，数据耗尽时返回null
+     */
+    GpsMessage next();
+
+    /**
+     * 合成轨迹：每辆车从北京市区内的随机位置出发，按随机游走的航向和速度行驶
+     */
+    final class Synthetic implements TrajectorySource {
+
+        private static final double METERS_PER_DEGREE = 111_000.0;
+
+        private final int vehicleOffset;
+        private final int vehicleCount;
+        private final long reportIntervalSeconds;
+        private final LocalDateTime startTime;
+        private final SplittableRandom random;
+        private final double[] longitudes;
+        private final double[] latitudes;
+        private final double[] headings;
+        private final double[] speeds;
+        private long sequence;
+
+        /**
+         * @param vehicleOffset         车辆编号起始值，多个数据源并行发送时各自负责不重叠的车辆
+         * @param vehicleCount          车辆数
+         * @param reportIntervalSeconds 每辆车的上报间隔（GPS时间，秒）
+         * @param seed                  随机种子
+         */
+        public Synthetic(int vehicleOffset, int vehicleCount, long reportIntervalSeconds, long seed) {
+            this.vehicleOffset = vehicleOffset;
+            this.vehicleCount = vehicleCount;
+            this.reportIntervalSeconds = reportIntervalSeconds;
+            this.startTime = LocalDateTime.now().withNano(0);
+            this.random = new SplittableRandom(seed);
+            this.longitudes = new double[vehicleCount];
+            this.latitudes = new double[vehicleCount];
+            this.headings = new double[vehicleCount];
+            this.speeds = new double[vehicleCount];
+            for (int i = 0; i < vehicleCount; i++) {
+                longitudes[i] = 116.25 + random.nextDouble() * 0.3;
+                latitudes[i] = 39.75 + random.nextDouble() * 0.3;
+                headings[i] = random.nextDouble() * 360;
+                speeds[i] = 20 + random.nextDouble() * 60;
+            }
+        }
+
+        @Override
+        public GpsMessage next() {
+            int vehicle = (int) (sequence % vehicleCount);
+            long step = sequence / vehicleCount;
+            sequence++;
+
+            headings[vehicle] = (headings[vehicle] + random.nextDouble(-15, 15) + 360) % 360;
+            speeds[vehicle] = Math.max(0, Math.min(120, speeds[vehicle] + random.nextDouble(-5, 5)));
+            double meters = speeds[vehicle] / 3.6 * reportIntervalSeconds;
+            double radians = Math.toRadians(headings[vehicle]);
+            latitudes[vehicle] += meters * Math.cos(radians) / METERS_PER_DEGREE;
+            longitudes[vehicle] += meters * Math.sin(radians) / (METERS_PER_DEGREE * Math.cos(Math.toRadians(latitudes[vehicle])));
+
+            return new GpsMessage()
+                    .setVehicleId("LT" + (vehicleOffset + vehicle))
+                    .setLongitude(longitudes[vehicle])
+                    .setLatitude(latitudes[vehicle])
+                    .setSpeed(speeds[vehicle])
+                    .setDirection(headings[vehicle])
+                    .setAltitude(50.0)
+                    .setGpsTime(startTime.plusSeconds(step * reportIntervalSeconds));
+        }
+    }
+
+    /**
+     * 回放录制的轨迹
+     * 文件每行一个点：vehicleId,longitude,latitude,speed,direction,altitude,gpsTime（ISO格式），按GPS时间排序；
+     * 可将录制数据复制为多份以模拟更多车辆，每份的车辆ID追加副本序号
+     */
+    final class Recorded implements TrajectorySource {
+
+        private final List<GpsMessage> points;
+        private final int copies;
+        private int index;
+        private int copy;
+
+        public Recorded(Path file, int copies) throws IOException {
+            this.points = new ArrayList<>();
+            this.copies = Math.max(1, copies);
+            for (String line : Files.readAllLines(file)) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                points.add(new GpsMessage()
+                        .setVehicleId(fields[0].trim())
+                        .setLongitude(Double.parseDouble(fields[1].trim()))
+                        .setLatitude(Double.parseDouble(fields[2].trim()))
+                        .setSpeed(Double.parseDouble(fields[3].trim()))
+                        .setDirection(Double.parseDouble(fields[4].trim()))
+                        .setAltitude(Double.parseDouble(fields[5].trim()))
+                        .setGpsTime(LocalDateTime.parse(fields[6].trim())));
+            }
+        }
+
+        @Override
+        public GpsMessage next() {
+            if (index >= points.size()) {
+                return null;
+            }
+            GpsMessage point = points.get(index);
+            GpsMessage message = new GpsMessage()
+                    .setVehicleId(copies > 1 ? point.getVehicleId() + "-" + copy : point.getVehicleId())
+                    .setLongitude(point.getLongitude())
+                    .setLatitude(point.getLatitude())
+                    .setSpeed(point.getSpeed())
+                    .setDirection(point.getDirection())
+                    .setAltitude(point.getAltitude())
+                    .setGpsTime(point.getGpsTime());
+            if (++copy >= copies) {
+                copy = 0;
+                index++;
+            }
+            return message;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.moon.cloud.business.gps.plugin;
+
+import com.moon.cloud.business.gps.entity.GpsData;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GPS数据分表拦截器基准测试
+ * <p>
+ * baseline：引入元数据缓存之前的实现（{@link BaselineGpsDataPartitionInterceptor}），每条语句都要解析SQL、反射取值并构建MappedStatement；
+ * warm：复用同一个拦截器实例，测量缓存命中后的单条语句开销。
+ * <p>
+ * 运行方式：执行 {@link #main(String[])}，或 mvn test-compile 后通过 org.openjdk.jmh.Main 运行。
+ *
+ * @author moon-cloud
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GpsDataPartitionInterceptorBenchmark {
+
+    private static final String INSERT_SQL = "INSERT INTO gps_data (vehicle_id, longitude, latitude, speed, direction, altitude, gps_time, create_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String OTHER_SQL = "UPDATE vehicle_info SET status = ? WHERE vehicle_id = ?";
+
+    private Executor executor;
+    private Method updateMethod;
+    private MappedStatement gpsInsertStatement;
+    private MappedStatement otherStatement;
+    private GpsData gpsData;
+    private BaselineGpsDataPartitionInterceptor baselineInterceptor;
+    private GpsDataPartitionInterceptor warmInterceptor;
+
+    @Setup
+    public void setUp() throws Exception {
+        Configuration configuration = new Configuration();
+        List<ParameterMapping> insertMappings = List.of(
+                mapping(configuration, "vehicleId", String.class),
+                mapping(configuration, "longitude", Double.class),
+                mapping(configuration, "latitude", Double.class),
+                mapping(configuration, "speed", Double.class),
+                mapping(configuration, "direction", Double.class),
+                mapping(configuration, "altitude", Double.class),
+                mapping(configuration, "gpsTime", LocalDateTime.class),
+                mapping(configuration, "createTime", LocalDateTime.class));
+
+        gpsInsertStatement = new MappedStatement.Builder(configuration, "GpsDataMapper.insert",
+                new StaticSqlSource(configuration, INSERT_SQL, insertMappings), SqlCommandType.INSERT).build();
+        otherStatement = new MappedStatement.Builder(configuration, "VehicleInfoMapper.updateStatus",
+                new StaticSqlSource(configuration, OTHER_SQL, List.of(
+                        mapping(configuration, "status", Integer.class),
+                        mapping(configuration, "vehicleId", String.class))),
+                SqlCommandType.UPDATE).build();
+
+        gpsData = new GpsData()
+                .setVehicleId("V0001")
+                .setLongitude(116.4074)
+                .setLatitude(39.9042)
+                .setSpeed(60.0)
+                .setDirection(90.0)
+                .setAltitude(50.0)
+                .setGpsTime(LocalDateTime.now())
+                .setCreateTime(LocalDateTime.now());
+
+        // 不访问数据库的空Executor
+        executor = (Executor) Proxy.newProxyInstance(Executor.class.getClassLoader(),
+                new Class<?>[]{Executor.class}, (proxy, method, args) -> 1);
+        updateMethod = Executor.class.getMethod("update", MappedStatement.class, Object.class);
+        baselineInterceptor = new BaselineGpsDataPartitionInterceptor();
+        warmInterceptor = new GpsDataPartitionInterceptor();
+    }
+
+    @Benchmark
+    public Object partitionInsertBaseline() throws Throwable {
+        return baselineInterceptor.intercept(newInvocation(gpsInsertStatement, gpsData));
+    }
+
+    @Benchmark
+    public Object partitionInsertWarm() throws Throwable {
+        return warmInterceptor.intercept(newInvocation(gpsInsertStatement, gpsData));
+    }
+
+    @Benchmark
+    public Object nonPartitionBaseline() throws Throwable {
+        return baselineInterceptor.intercept(newInvocation(otherStatement, "V0001"));
+    }
+
+    @Benchmark
+    public Object nonPartitionWarm() throws Throwable {
+        return warmInterceptor.intercept(newInvocation(otherStatement, "V0001"));
+    }
+
+    private Invocation newInvocation(MappedStatement mappedStatement, Object parameter) {
+        return new Invocation(executor, updateMethod, new Object[]{mappedStatement, parameter});
+    }
+
+    private static ParameterMapping mapping(Configuration configuration, String property, Class<?> javaType) {
+        return new ParameterMapping.Builder(configuration, property, javaType).build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(GpsDataPartitionInterceptorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,115 @@
+package com.moon.cloud.business.gps.service;
+
+import com.moon.cloud.business.gps.dto.GpsMessage;
+import com.moon.cloud.threadpool.factory.MoonThreadPoolFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * GPS事件服务测试类
+ *
+ * @author mooncloud
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("GPS事件服务测试")
+class GpsEventServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private MoonThreadPoolFactory moonThreadPoolFactory;
+
+    @Mock
+    private ScheduledThreadPoolExecutor writer;
+
+    @InjectMocks
+    private GpsEventService gpsEventService;
+
+    @BeforeEach
+    void setUp() {
+        // 防抖时长为0，每辆车第一个偏离点即产生事件
+        ReflectionTestUtils.setField(gpsEventService, "debounceSeconds", 0L);
+        ReflectionTestUtils.setField(gpsEventService, "bufferCapacity", 100);
+        ReflectionTestUtils.setField(gpsEventService, "batchSize", 10);
+        ReflectionTestUtils.setField(gpsEventService, "flushIntervalMillis", 1000L);
+        ReflectionTestUtils.setField(gpsEventService, "stateIdleMinutes", 60L);
+        when(moonThreadPoolFactory.createScheduledThreadPool("gps-event-writer", 1)).thenReturn(writer);
+        gpsEventService.init();
+
+        for (int i = 1; i <= 3; i++) {
+            gpsEventService.onGpsData(new GpsMessage()
+                    .setVehicleId("V000" + i)
+                    .setLongitude(116.4)
+                    .setLatitude(39.9)
+                    .setGpsTime(START), true, false);
+        }
+    }
+
+    @Test
+    @DisplayName("测试批量写入成功")
+    void testFlush() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1, 1});
+
+        assertEquals(3, gpsEventService.flush());
+        assertEquals(0, gpsEventService.flush());
+
+        Map<String, Object> stats = gpsEventService.getStatistics();
+        assertEquals(3L, stats.get("persisted"));
+        assertEquals(0, stats.get("buffered"));
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("测试写入失败的批次在下次写入时重试")
+    void testFailedBatchRetried() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("数据库不可用"))
+                .thenReturn(new int[]{1, 1, 1});
+
+        assertEquals(0, gpsEventService.flush());
+        assertEquals(3, gpsEventService.flush());
+
+        Map<String, Object> stats = gpsEventService.getStatistics();
+        assertEquals(3L, stats.get("persisted"));
+        assertEquals(1L, stats.get("retried_batches"));
+        assertEquals(0L, stats.get("failed"));
+    }
+
+    @Test
+    @DisplayName("测试连续失败达到上限后丢弃批次并计数")
+    void testFailedBatchDroppedAfterMaxAttempts() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("数据库不可用"));
+
+        assertEquals(0, gpsEventService.flush());
+        assertEquals(0, gpsEventService.flush());
+        assertEquals(0, gpsEventService.flush());
+        // 批次已丢弃，没有需要写入的事件
+        assertEquals(0, gpsEventService.flush());
+
+        Map<String, Object> stats = gpsEventService.getStatistics();
+        assertEquals(3L, stats.get("failed"));
+        assertEquals(2L, stats.get("retried_batches"));
+        assertEquals(0L, stats.get("persisted"));
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), anyList());
+    }
+}
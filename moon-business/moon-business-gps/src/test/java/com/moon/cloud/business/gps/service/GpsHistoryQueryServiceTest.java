@@ -0,0 +1,222 @@
+package com.moon.cloud.business.gps.service;
+
+import com.moon.cloud.business.gps.dto.GpsHistoryPage;
+import com.moon.cloud.business.gps.entity.GpsData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GPS历史轨迹查询服务测试类
+ * 使用H2内存数据库模拟多个日分表
+ *
+ * @author mooncloud
+ */
+@DisplayName("GPS历史轨迹查询服务测试")
+class GpsHistoryQueryServiceTest {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    private static final int DAYS = 3;
+    private static final int POINTS_PER_DAY = 24;
+
+    @TempDir
+    Path archiveDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private ExecutorService executor;
+    private GpsArchiveService gpsArchiveService;
+    private GpsHistoryQueryService gpsHistoryQueryService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:gps_history;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        executor = Executors.newFixedThreadPool(2);
+        gpsArchiveService = new GpsArchiveService();
+        ReflectionTestUtils.setField(gpsArchiveService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(gpsArchiveService, "directory", archiveDir.toString());
+        gpsHistoryQueryService = new GpsHistoryQueryService(jdbcTemplate, executor, 2, gpsArchiveService);
+
+        for (int day = 0; day < DAYS; day++) {
+            LocalDate date = FIRST_DAY.plusDays(day);
+            String table = "gps_data_" + date.format(DATE_FORMATTER);
+            jdbcTemplate.execute("CREATE TABLE " + table + " ("
+                    + "id BIGINT AUTO_INCREMENT PRIMARY KEY, vehicle_id VARCHAR(50) NOT NULL, "
+                    + "longitude DECIMAL(10, 7), latitude DECIMAL(10, 7), speed DECIMAL(5, 2), "
+                    + "direction DECIMAL(5, 2), altitude DECIMAL(8, 2), gps_time DATETIME NOT NULL, "
+                    + "create_time DATETIME DEFAULT CURRENT_TIMESTAMP)");
+            for (int hour = 0; hour < POINTS_PER_DAY; hour++) {
+                insertPoint(table, "V0001", date.atTime(hour, 0));
+                insertPoint(table, "V0002", date.atTime(hour, 30));
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        executor.shutdownNow();
+        gpsArchiveService.destroy();
+    }
+
+    @Test
+    @DisplayName("测试跨日查询按时间顺序返回全部数据")
+    void testQueryAcrossDays() {
+        LocalDateTime start = FIRST_DAY.atTime(12, 0);
+        LocalDateTime end = FIRST_DAY.plusDays(2).atTime(11, 0);
+
+        GpsHistoryPage page = gpsHistoryQueryService.queryHistory("V0001", start, end, null, 1000);
+
+        // 第一天12-23点12条，第二天24条，第三天0-11点12条
+        assertEquals(48, page.getRecords().size());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+        assertEquals(start, page.getRecords().get(0).getGpsTime());
+        assertEquals(end, page.getRecords().get(47).getGpsTime());
+        assertSorted(page.getRecords());
+        assertTrue(page.getRecords().stream().allMatch(data -> "V0001".equals(data.getVehicleId())));
+    }
+
+    @Test
+    @DisplayName("测试游标分页遍历结果与一次性查询一致")
+    void testCursorPagination() {
+        LocalDateTime start = FIRST_DAY.atStartOfDay();
+        LocalDateTime end = FIRST_DAY.plusDays(DAYS).atStartOfDay().minusSeconds(1);
+
+        List<GpsData> all = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            GpsHistoryPage page = gpsHistoryQueryService.queryHistory("V0002", start, end, cursor, 10);
+            assertTrue(page.getRecords().size() <= 10);
+            all.addAll(page.getRecords());
+            cursor = page.getNextCursor();
+            assertEquals(page.isHasMore(), cursor != null);
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(DAYS * POINTS_PER_DAY, all.size());
+        assertEquals(8, pages);
+        assertSorted(all);
+        assertEquals(all.size(), all.stream().map(GpsData::getGpsTime).distinct().count());
+    }
+
+    @Test
+    @DisplayName("测试不存在的分表被跳过")
+    void testMissingPartitionSkipped() {
+        LocalDateTime start = FIRST_DAY.minusDays(2).atStartOfDay();
+        LocalDateTime end = FIRST_DAY.atTime(5, 0);
+
+        GpsHistoryPage page = gpsHistoryQueryService.queryHistory("V0001", start, end, null, 100);
+
+        assertEquals(6, page.getRecords().size());
+        assertEquals(FIRST_DAY.atStartOfDay(), page.getRecords().get(0).getGpsTime());
+    }
+
+    @Test
+    @DisplayName("测试分表结构错误等其他SQL错误不被跳过")
+    void testBrokenPartitionFails() {
+        LocalDate brokenDay = FIRST_DAY.minusDays(1);
+        jdbcTemplate.execute("CREATE TABLE gps_data_" + brokenDay.format(DATE_FORMATTER) + " (id BIGINT PRIMARY KEY)");
+
+        assertThrows(BadSqlGrammarException.class, () -> gpsHistoryQueryService.queryHistory(
+                "V0001", brokenDay.atStartOfDay(), FIRST_DAY.atTime(5, 0), null, 100));
+    }
+
+    @Test
+    @DisplayName("测试分表删除后从归档文件查询")
+    void testArchivedPartition() {
+        LocalDate archivedDay = FIRST_DAY.plusDays(1);
+        // 部分点缺少速度和海拔，归档后仍应为空而不是0
+        jdbcTemplate.update("UPDATE gps_data_" + archivedDay.format(DATE_FORMATTER)
+                + " SET speed = NULL, altitude = NULL WHERE vehicle_id = 'V0002' AND gps_time < ?",
+                Timestamp.valueOf(archivedDay.atTime(3, 0)));
+
+        LocalDateTime start = FIRST_DAY.atStartOfDay();
+        LocalDateTime end = FIRST_DAY.plusDays(DAYS).atStartOfDay().minusSeconds(1);
+        List<GpsData> expected = gpsHistoryQueryService.queryHistory("V0002", start, end, null, 1000).getRecords();
+
+        Map<String, Object> stats = gpsArchiveService.archivePartition(archivedDay);
+        assertEquals(2, stats.get("vehicle_count"));
+        assertEquals(2L * POINTS_PER_DAY, stats.get("point_count"));
+        jdbcTemplate.execute("DROP TABLE gps_data_" + archivedDay.format(DATE_FORMATTER));
+
+        // 游标分页跨越数据库分表和归档文件
+        List<GpsData> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            GpsHistoryPage page = gpsHistoryQueryService.queryHistory("V0002", start, end, cursor, 10);
+            all.addAll(page.getRecords());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(expected.stream().map(GpsData::getId).toList(), all.stream().map(GpsData::getId).toList());
+        assertEquals(expected.stream().map(GpsData::getGpsTime).toList(), all.stream().map(GpsData::getGpsTime).toList());
+        GpsData archived = all.get(POINTS_PER_DAY);
+        assertEquals("V0002", archived.getVehicleId());
+        assertEquals(116.4074, archived.getLongitude(), 1e-9);
+        assertEquals(39.9042, archived.getLatitude(), 1e-9);
+        assertNull(archived.getSpeed());
+        assertNull(archived.getAltitude());
+        assertEquals(90.0, archived.getDirection(), 1e-9);
+        assertEquals(60.0, all.get(POINTS_PER_DAY + 3).getSpeed(), 1e-9);
+        assertEquals(expected.stream().map(GpsData::getSpeed).toList(), all.stream().map(GpsData::getSpeed).toList());
+        assertEquals(expected.stream().map(GpsData::getAltitude).toList(), all.stream().map(GpsData::getAltitude).toList());
+        assertEquals(List.of(archivedDay), gpsArchiveService.listArchivedDates());
+    }
+
+    @Test
+    @DisplayName("测试计算覆盖的日分表")
+    void testResolvePartitionTables() {
+        List<String> tables = gpsHistoryQueryService.resolvePartitionTables(
+                LocalDateTime.of(2024, 1, 31, 23, 0), LocalDateTime.of(2024, 2, 2, 1, 0));
+
+        assertEquals(List.of("gps_data_20240131", "gps_data_20240201", "gps_data_20240202"), tables);
+    }
+
+    @Test
+    @DisplayName("测试无效参数")
+    void testInvalidArguments() {
+        LocalDateTime now = FIRST_DAY.atStartOfDay();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> gpsHistoryQueryService.queryHistory("V0001", now, now.minusHours(1), null, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> gpsHistoryQueryService.queryHistory("V0001", now, now.plusDays(365), null, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> gpsHistoryQueryService.queryHistory("V0001", now, now.plusHours(1), "not-a-cursor", 10));
+    }
+
+    private void insertPoint(String table, String vehicleId, LocalDateTime gpsTime) {
+        jdbcTemplate.update("INSERT INTO " + table
+                        + " (vehicle_id, longitude, latitude, speed, direction, altitude, gps_time) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                vehicleId, 116.4074, 39.9042, 60.0, 90.0, 50.0, Timestamp.valueOf(gpsTime));
+    }
+
+    private void assertSorted(List<GpsData> records) {
+        for (int i = 1; i < records.size(); i++) {
+            assertFalse(records.get(i).getGpsTime().isBefore(records.get(i - 1).getGpsTime()));
+        }
+    }
+}
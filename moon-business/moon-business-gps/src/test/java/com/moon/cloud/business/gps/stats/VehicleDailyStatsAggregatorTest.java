@@ -0,0 +1,171 @@
+package com.moon.cloud.business.gps.stats;
+
+import com.moon.cloud.business.gps.dto.GpsMessage;
+import com.moon.cloud.business.gps.entity.GpsVehicleDailyStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 车辆日统计聚合器测试类
+ *
+ * @author mooncloud
+ */
+@DisplayName("车辆日统计聚合器测试")
+class VehicleDailyStatsAggregatorTest {
+
+    private static final String VEHICLE_ID = "V0001";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 8, 0);
+    /**
+     * 纬度0.001度约111米
+     */
+    private static final double LATITUDE_STEP = 0.001;
+
+    private VehicleDailyStatsAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new VehicleDailyStatsAggregator(5.0, Duration.ofMinutes(5));
+    }
+
+    @Test
+    @DisplayName("测试里程、速度、行驶时长和停车次数")
+    void testAccumulate() {
+        double[] speeds = {30.0, 40.0, 50.0, 0.0, 0.0, 20.0, 2.0};
+        for (int i = 0; i < speeds.length; i++) {
+            aggregator.accept(point(START.plusSeconds(i * 10L), i, speeds[i]));
+        }
+
+        List<GpsVehicleDailyStats> deltas = aggregator.drain();
+
+        assertEquals(1, deltas.size());
+        GpsVehicleDailyStats delta = deltas.get(0);
+        assertEquals(VEHICLE_ID, delta.getVehicleId());
+        assertEquals(START.toLocalDate(), delta.getStatDate());
+        assertEquals(7L, delta.getPointCount());
+        assertEquals(6 * 111.19, delta.getDistanceMeters(), 1.0);
+        assertEquals(50.0, delta.getMaxSpeed());
+        assertEquals(142.0, delta.getSpeedSum(), 1e-9);
+        assertEquals(7L, delta.getSpeedCount());
+        // 只有前三个点两两都在行驶
+        assertEquals(20L, delta.getMovingSeconds());
+        assertEquals(2, delta.getStopCount());
+        assertEquals(START, delta.getFirstGpsTime());
+        assertEquals(START.plusSeconds(60), delta.getLastGpsTime());
+
+        // 取出后增量清空
+        assertTrue(aggregator.drain().isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试重复和乱序的点被忽略")
+    void testDuplicateAndOutOfOrder() {
+        aggregator.accept(point(START, 0, 30.0));
+        aggregator.accept(point(START.plusSeconds(10), 1, 30.0));
+        aggregator.accept(point(START.plusSeconds(10), 1, 30.0));
+        aggregator.accept(point(START.plusSeconds(5), 5, 900.0));
+
+        GpsVehicleDailyStats delta = aggregator.drain().get(0);
+
+        assertEquals(2L, delta.getPointCount());
+        assertEquals(30.0, delta.getMaxSpeed());
+        assertEquals(10L, delta.getMovingSeconds());
+    }
+
+    @Test
+    @DisplayName("测试跨天和离线过久时不累计里程和行驶时长")
+    void testDayRolloverAndGap() {
+        LocalDateTime beforeMidnight = LocalDate.of(2024, 1, 1).atTime(23, 59, 50);
+        aggregator.accept(point(beforeMidnight, 0, 30.0));
+        aggregator.accept(point(beforeMidnight.plusSeconds(20), 1, 30.0));
+        // 离线10分钟后恢复上报
+        aggregator.accept(point(beforeMidnight.plusMinutes(10).plusSeconds(20), 2, 30.0));
+        aggregator.accept(point(beforeMidnight.plusMinutes(10).plusSeconds(30), 3, 30.0));
+
+        List<GpsVehicleDailyStats> deltas = aggregator.drain();
+
+        assertEquals(2, deltas.size());
+        GpsVehicleDailyStats firstDay = deltas.get(0);
+        assertEquals(LocalDate.of(2024, 1, 1), firstDay.getStatDate());
+        assertEquals(1L, firstDay.getPointCount());
+        assertEquals(0.0, firstDay.getDistanceMeters());
+        assertEquals(0L, firstDay.getMovingSeconds());
+
+        GpsVehicleDailyStats secondDay = deltas.get(1);
+        assertEquals(LocalDate.of(2024, 1, 2), secondDay.getStatDate());
+        assertEquals(3L, secondDay.getPointCount());
+        assertEquals(111.19, secondDay.getDistanceMeters(), 1.0);
+        assertEquals(10L, secondDay.getMovingSeconds());
+    }
+
+    @Test
+    @DisplayName("测试异常速度不计入最高和平均速度")
+    void testImplausibleSpeed() {
+        aggregator.accept(point(START, 0, 60.0));
+        aggregator.accept(point(START.plusSeconds(10), 1, 12345.6));
+        aggregator.accept(point(START.plusSeconds(20), 2, -1.0));
+        aggregator.accept(point(START.plusSeconds(30), 3, Double.NaN));
+        aggregator.accept(point(START.plusSeconds(40), 4, 80.0));
+
+        GpsVehicleDailyStats delta = aggregator.drain().get(0);
+
+        assertEquals(5L, delta.getPointCount());
+        assertEquals(80.0, delta.getMaxSpeed());
+        assertEquals(140.0, delta.getSpeedSum(), 1e-9);
+        assertEquals(2L, delta.getSpeedCount());
+        assertTrue(delta.getMaxSpeed() <= VehicleDailyStatsAggregator.MAX_PLAUSIBLE_SPEED);
+        // 异常点仍计入里程，行驶状态沿用上一个点，不产生停车
+        assertEquals(4 * 111.19, delta.getDistanceMeters(), 1.0);
+        assertEquals(40L, delta.getMovingSeconds());
+        assertEquals(0, delta.getStopCount());
+    }
+
+    @Test
+    @DisplayName("测试缺少坐标的点被忽略")
+    void testMissingFields() {
+        aggregator.accept(new GpsMessage().setVehicleId(VEHICLE_ID).setGpsTime(START).setSpeed(30.0));
+        aggregator.accept(new GpsMessage().setLongitude(116.4).setLatitude(39.9).setGpsTime(START));
+
+        assertEquals(0, aggregator.size());
+        assertTrue(aggregator.drain().isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试只清理空闲且没有未取出增量的车辆")
+    void testEvictIdle() throws InterruptedException {
+        aggregator.accept(point(START, 0, 30.0));
+        Thread.sleep(5);
+
+        assertEquals(0, aggregator.evictIdle(Duration.ZERO));
+        assertEquals(1, aggregator.size());
+
+        aggregator.drain();
+        assertEquals(0, aggregator.evictIdle(Duration.ofMinutes(1)));
+        assertEquals(1, aggregator.evictIdle(Duration.ZERO));
+        assertEquals(0, aggregator.size());
+    }
+
+    @Test
+    @DisplayName("测试Haversine距离")
+    void testHaversine() {
+        assertEquals(0.0, VehicleDailyStatsAggregator.haversine(116.4, 39.9, 116.4, 39.9));
+        // 赤道上经度1度约111.2公里
+        assertEquals(111_195.0, VehicleDailyStatsAggregator.haversine(0.0, 0.0, 1.0, 0.0), 1.0);
+    }
+
+    private GpsMessage point(LocalDateTime gpsTime, int step, double speed) {
+        return new GpsMessage()
+                .setVehicleId(VEHICLE_ID)
+                .setLongitude(116.4)
+                .setLatitude(39.9 + step * LATITUDE_STEP)
+                .setSpeed(speed)
+                .setGpsTime(gpsTime);
+    }
+}
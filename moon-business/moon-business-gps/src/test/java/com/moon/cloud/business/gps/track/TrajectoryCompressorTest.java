@@ -0,0 +1,178 @@
+package com.moon.cloud.business.gps.track;
+
+import com.moon.cloud.business.gps.entity.GpsData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 在线轨迹压缩器测试类
+ *
+ * @author mooncloud
+ */
+@DisplayName("在线轨迹压缩器测试")
+class TrajectoryCompressorTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    /**
+     * 纬度方向0.0001度约11.1米
+     */
+    private static final double STEP_DEGREES = 0.0001;
+
+    @Test
+    @DisplayName("测试匀速直线轨迹只保留首尾点")
+    void testStraightLine() {
+        List<GpsData> points = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            points.add(point(i, 39.9 + i * STEP_DEGREES, 116.4));
+        }
+
+        List<GpsData> compressed = TrajectoryCompressor.compress(points, 1.0);
+
+        assertEquals(2, compressed.size());
+        assertSame(points.get(0), compressed.get(0));
+        assertSame(points.get(99), compressed.get(1));
+    }
+
+    @Test
+    @DisplayName("测试拐点被保留，首尾点始终保留")
+    void testCornerKept() {
+        List<GpsData> points = new ArrayList<>();
+        // 先向北50秒，再向东50秒
+        for (int i = 0; i <= 50; i++) {
+            points.add(point(i, 39.9 + i * STEP_DEGREES, 116.4));
+        }
+        for (int i = 1; i <= 50; i++) {
+            points.add(point(50 + i, 39.9 + 50 * STEP_DEGREES, 116.4 + i * STEP_DEGREES));
+        }
+
+        List<GpsData> compressed = TrajectoryCompressor.compress(points, 5.0);
+
+        assertSame(points.get(0), compressed.get(0));
+        assertSame(points.get(points.size() - 1), compressed.get(compressed.size() - 1));
+        assertTrue(compressed.contains(points.get(50)), "拐点应被保留");
+        assertTrue(compressed.size() < 10);
+        assertWithinTolerance(points, compressed, 5.0);
+    }
+
+    @Test
+    @DisplayName("测试被丢弃的点到保留轨迹的同步距离不超过容差")
+    void testToleranceRespected() {
+        List<GpsData> points = zigzag(200, 20.0);
+
+        for (double tolerance : new double[]{0.0, 5.0, 15.0, 45.0}) {
+            List<GpsData> compressed = TrajectoryCompressor.compress(points, tolerance);
+            assertSame(points.get(0), compressed.get(0));
+            assertSame(points.get(points.size() - 1), compressed.get(compressed.size() - 1));
+            assertWithinTolerance(points, compressed, tolerance);
+        }
+
+        // 候选点与中间点可能分处两侧，容差超过两倍摆动幅度时只保留首尾点，容差为0时保留全部转折点
+        assertEquals(2, TrajectoryCompressor.compress(points, 45.0).size());
+        assertTrue(TrajectoryCompressor.compress(points, 0.0).size() > 100);
+    }
+
+    @Test
+    @DisplayName("测试直线上速度变化时按时间插值保留变速点")
+    void testSpeedChangeKept() {
+        List<GpsData> points = new ArrayList<>();
+        // 前30秒停在原地，之后30秒匀速向北行驶
+        for (int i = 0; i < 30; i++) {
+            points.add(point(i, 39.9, 116.4));
+        }
+        for (int i = 0; i <= 30; i++) {
+            points.add(point(30 + i, 39.9 + i * STEP_DEGREES, 116.4));
+        }
+
+        List<GpsData> compressed = TrajectoryCompressor.compress(points, 5.0);
+
+        assertTrue(compressed.size() > 2, "同步欧氏距离应识别停车后起步");
+        assertWithinTolerance(points, compressed, 5.0);
+    }
+
+    @Test
+    @DisplayName("测试窗口达到上限时强制输出锚点")
+    void testMaxWindowSize() {
+        TrajectoryCompressor compressor = new TrajectoryCompressor(1000.0, 4);
+        List<GpsData> kept = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            GpsData point = compressor.offer(point(i, 39.9 + i * STEP_DEGREES, 116.4));
+            if (point != null) {
+                kept.add(point);
+            }
+        }
+        kept.add(compressor.flush());
+
+        assertTrue(kept.size() > 2);
+        assertNull(compressor.flush());
+    }
+
+    @Test
+    @DisplayName("测试少于3个点原样返回，参数无效时抛出异常")
+    void testEdgeCases() {
+        List<GpsData> two = List.of(point(0, 39.9, 116.4), point(1, 39.91, 116.4));
+
+        assertSame(two, TrajectoryCompressor.compress(two, 1.0));
+        assertNull(TrajectoryCompressor.compress(null, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> new TrajectoryCompressor(-1.0));
+        assertThrows(IllegalArgumentException.class, () -> new TrajectoryCompressor(1.0, 1));
+    }
+
+    @Test
+    @DisplayName("测试同步欧氏距离")
+    void testSynchronizedDistance() {
+        GpsData a = point(0, 39.9, 116.4);
+        GpsData b = point(10, 39.9 + 10 * STEP_DEGREES, 116.4);
+
+        // 时间和位置都在中点
+        assertEquals(0.0, TrajectoryCompressor.synchronizedDistance(a, b, point(5, 39.9 + 5 * STEP_DEGREES, 116.4)), 1e-6);
+        // 位置在线段上但时间滞后，期望位置与实际位置相差约5个步长
+        assertEquals(55.6, TrajectoryCompressor.synchronizedDistance(a, b, point(5, 39.9, 116.4)), 0.5);
+    }
+
+    /**
+     * 向北行驶并在东西方向来回摆动
+     */
+    private List<GpsData> zigzag(int count, double amplitudeMeters) {
+        double amplitudeDegrees = amplitudeMeters / 111320.0 / Math.cos(Math.toRadians(39.9));
+        List<GpsData> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double offset = (i % 4 == 1) ? amplitudeDegrees : (i % 4 == 3) ? -amplitudeDegrees : 0;
+            points.add(point(i, 39.9 + i * STEP_DEGREES, 116.4 + offset));
+        }
+        return points;
+    }
+
+    /**
+     * 检查每个被丢弃的点到相邻两个保留点的同步欧氏距离不超过容差
+     */
+    private void assertWithinTolerance(List<GpsData> points, List<GpsData> compressed, double tolerance) {
+        int keptIndex = 0;
+        for (GpsData point : points) {
+            if (keptIndex < compressed.size() && point == compressed.get(keptIndex)) {
+                keptIndex++;
+                continue;
+            }
+            GpsData from = compressed.get(keptIndex - 1);
+            GpsData to = compressed.get(keptIndex);
+            double distance = TrajectoryCompressor.synchronizedDistance(from, to, point);
+            assertTrue(distance <= tolerance + 1e-6,
+                    "点 " + point.getGpsTime() + " 的同步距离 " + distance + " 超过容差 " + tolerance);
+        }
+        assertEquals(compressed.size(), keptIndex, "保留点应按原顺序出现在输入中");
+    }
+
+    private GpsData point(int second, double latitude, double longitude) {
+        return new GpsData()
+                .setVehicleId("V0001")
+                .setLatitude(latitude)
+                .setLongitude(longitude)
+                .setGpsTime(START.plusSeconds(second));
+    }
+}
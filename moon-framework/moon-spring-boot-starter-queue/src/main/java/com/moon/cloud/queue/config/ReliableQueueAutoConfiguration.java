@@ -0,0 +1,31 @@
+package com.moon.cloud.queue.config;
+
+import com.moon.cloud.queue.core.ReliableQueueFactory;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 可靠队列自动配置
+ *
+ * @author Moon Cloud
+ * @since 1.0.0
+ */
+@AutoConfiguration(after = RedisAutoConfiguration.class)
+@EnableConfigurationProperties(ReliableQueueProperties.class)
+@ConditionalOnBean(StringRedisTemplate.class)
+@ConditionalOnProperty(prefix = "moon.queue", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ReliableQueueAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ReliableQueueFactory reliableQueueFactory(StringRedisTemplate stringRedisTemplate,
+                                                     ReliableQueueProperties properties) {
+        return new ReliableQueueFactory(stringRedisTemplate, properties);
+    }
+}
@@ -0,0 +1,40 @@
+package com.moon.cloud.queue.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 可靠队列配置属性
+ *
+ * @author Moon Cloud
+ * @since 1.0.0
+ */
+@Data
+@ConfigurationProperties(prefix = "moon.queue")
+public class ReliableQueueProperties {
+
+    /**
+     * 是否启用可靠队列
+     */
+    private boolean enabled = true;
+
+    /**
+     * 默认租约时长（秒），出队后超过该时长未确认的任务会被回收重新投递
+     */
+    private long visibilityTimeout = 300;
+
+    /**
+     * 默认最大投递次数，达到后不再重新投递而是转入死信队列
+     */
+    private int maxDeliveries = 3;
+
+    /**
+     * 回收过期租约的间隔（秒）
+     */
+    private long reclaimInterval = 30;
+
+    /**
+     * 每次回收脚本处理的最大任务数
+     */
+    private int reclaimBatchSize = 100;
+}
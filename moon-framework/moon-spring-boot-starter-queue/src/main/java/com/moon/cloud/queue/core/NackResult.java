@@ -0,0 +1,25 @@
+package com.moon.cloud.queue.core;
+
+/**
+ * 否认确认的处理结果
+ *
+ * @author Moon Cloud
+ * @since 1.0.0
+ */
+public enum NackResult {
+
+    /**
+     * 已放回队列等待重新投递
+     */
+    REQUEUED,
+
+    /**
+     * 已达最大投递次数，转入死信队列
+     */
+    DEAD_LETTERED,
+
+    /**
+     * 任务不在租约中（已确认或租约已过期被回收）
+     */
+    NOT_LEASED
+}
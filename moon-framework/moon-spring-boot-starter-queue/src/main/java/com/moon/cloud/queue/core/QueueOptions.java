@@ -0,0 +1,30 @@
+package com.moon.cloud.queue.core;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 单个队列的配置，未设置的项使用全局默认配置
+ *
+ * @author Moon Cloud
+ * @since 1.0.0
+ */
+@Data
+@Accessors(chain = true)
+public class QueueOptions {
+
+    /**
+     * 租约时长（秒）
+     */
+    private Long visibilityTimeout;
+
+    /**
+     * 最大投递次数
+     */
+    private Integer maxDeliveries;
+
+    /**
+     * 死信队列key，默认为队列key加上 :dead 后缀
+     */
+    private String deadLetterKey;
+}
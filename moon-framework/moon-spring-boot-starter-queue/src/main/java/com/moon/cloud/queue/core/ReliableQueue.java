@@ -0,0 +1,304 @@
+package com.moon.cloud.queue.core;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 基于Redis的可靠队列
+ * <p>
+ * 待处理任务保存在List中，生产者从左端入队，消费者从右端出队。出队的任务不会直接消失，
+ * 而是以租约截止时间为分值写入租约ZSet，消费者处理完成后确认（ack）才真正删除。
+ * 消费者崩溃或超时未确认的任务，租约到期后由 {@link #reclaimExpired(int)} 放回队列重新投递；
+ * 投递次数记录在Hash中，达到最大投递次数的任务转入死信队列，不再无限重试。
+ * <p>
+ * 所有状态变更都在Lua脚本中原子完成，多个消费者可以安全地并发出队、确认和回收。
+ * 租约截止时间使用消费者本地时钟计算，各节点时钟偏差只会让回收提前或推迟相应的时长。
+ *
+ * @author Moon Cloud
+ * @since 1.0.0
+ */
+public class ReliableQueue {
+
+    /**
+     * 出队脚本：弹出至多ARGV[1]个任务，写入租约ZSet并累加投递次数
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> LEASE_SCRIPT = RedisScript.of(
+            "local items = {} "
+                    + "for i = 1, tonumber(ARGV[1]) do "
+                    + "  local item = redis.call('RPOP', KEYS[1]) "
+                    + "  if not item then break end "
+                    + "  redis.call('ZADD', KEYS[2], ARGV[2], item) "
+                    + "  redis.call('HINCRBY', KEYS[3], item, 1) "
+                    + "  items[#items + 1] = item "
+                    + "end "
+                    + "return items",
+            List.class);
+
+    /**
+     * 确认脚本：删除租约和投递次数，返回实际确认的任务数
+     */
+    private static final RedisScript<Long> ACK_SCRIPT = RedisScript.of(
+            "local acked = 0 "
+                    + "for i = 1, #ARGV do "
+                    + "  acked = acked + redis.call('ZREM', KEYS[1], ARGV[i]) "
+                    + "  redis.call('HDEL', KEYS[2], ARGV[i]) "
+                    + "end "
+                    + "return acked",
+            Long.class);
+
+    /**
+     * 否认确认脚本：返回-1表示不在租约中，0表示已放回队列，1表示已转入死信队列
+     */
+    private static final RedisScript<Long> NACK_SCRIPT = RedisScript.of(
+            "if redis.call('ZREM', KEYS[2], ARGV[1]) == 0 then return -1 end "
+                    + "local deliveries = tonumber(redis.call('HGET', KEYS[3], ARGV[1]) or '0') "
+                    + "if deliveries >= tonumber(ARGV[2]) then "
+                    + "  redis.call('HDEL', KEYS[3], ARGV[1]) "
+                    + "  redis.call('LPUSH', KEYS[4], ARGV[1]) "
+                    + "  return 1 "
+                    + "end "
+                    + "redis.call('LPUSH', KEYS[1], ARGV[1]) "
+                    + "return 0",
+            Long.class);
+
+    /**
+     * 转入死信脚本：仅当任务仍在租约中时删除租约和投递次数并写入死信队列
+     */
+    private static final RedisScript<Long> DEAD_LETTER_SCRIPT = RedisScript.of(
+            "if redis.call('ZREM', KEYS[1], ARGV[1]) == 0 then return 0 end "
+                    + "redis.call('HDEL', KEYS[2], ARGV[1]) "
+                    + "redis.call('LPUSH', KEYS[3], ARGV[1]) "
+                    + "return 1",
+            Long.class);
+
+    /**
+     * 回收脚本：处理至多ARGV[2]个租约已到期的任务，返回{回收数, 转入死信数}
+     * 回收的任务放回队列右端，下一次出队即可被重新投递
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RECLAIM_SCRIPT = RedisScript.of(
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2])) "
+                    + "local dead = 0 "
+                    + "for _, item in ipairs(expired) do "
+                    + "  redis.call('ZREM', KEYS[2], item) "
+                    + "  local deliveries = tonumber(redis.call('HGET', KEYS[3], item) or '0') "
+                    + "  if deliveries >= tonumber(ARGV[3]) then "
+                    + "    redis.call('HDEL', KEYS[3], item) "
+                    + "    redis.call('LPUSH', KEYS[4], item) "
+                    + "    dead = dead + 1 "
+                    + "  else "
+                    + "    redis.call('RPUSH', KEYS[1], item) "
+                    + "  end "
+                    + "end "
+                    + "return {#expired, dead}",
+            List.class);
+
+    /**
+     * 续约脚本：仅当任务仍在租约中时更新截止时间
+     */
+    private static final RedisScript<Long> EXTEND_SCRIPT = RedisScript.of(
+            "if redis.call('ZSCORE', KEYS[1], ARGV[2]) then "
+                    + "  redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2]) "
+                    + "  return 1 "
+                    + "end "
+                    + "return 0",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String queueKey;
+    private final String leaseKey;
+    private final String deliveryKey;
+    private final String deadLetterKey;
+    private final long visibilityTimeoutMillis;
+    private final int maxDeliveries;
+
+    /**
+     * @param redisTemplate     Redis模板
+     * @param queueKey          待处理任务List的key
+     * @param deadLetterKey     死信队列List的key
+     * @param visibilityTimeout 租约时长（秒）
+     * @param maxDeliveries     最大投递次数
+     */
+    public ReliableQueue(StringRedisTemplate redisTemplate, String queueKey, String deadLetterKey,
+                         long visibilityTimeout, int maxDeliveries) {
+        if (visibilityTimeout <= 0) {
+            throw new IllegalArgumentException("租约时长必须大于0: " + visibilityTimeout);
+        }
+        if (maxDeliveries <= 0) {
+            throw new IllegalArgumentException("最大投递次数必须大于0: " + maxDeliveries);
+        }
+        this.redisTemplate = redisTemplate;
+        this.queueKey = queueKey;
+        this.leaseKey = queueKey + ":leases";
+        this.deliveryKey = queueKey + ":deliveries";
+        this.deadLetterKey = deadLetterKey;
+        this.visibilityTimeoutMillis = visibilityTimeout * 1000;
+        this.maxDeliveries = maxDeliveries;
+    }
+
+    public String getQueueKey() {
+        return queueKey;
+    }
+
+    public String getDeadLetterKey() {
+        return deadLetterKey;
+    }
+
+    public int getMaxDeliveries() {
+        return maxDeliveries;
+    }
+
+    /**
+     * 任务入队
+     */
+    public void enqueue(String item) {
+        redisTemplate.opsForList().leftPush(queueKey, item);
+    }
+
+    /**
+     * 批量入队
+     */
+    public void enqueueAll(Collection<String> items) {
+        if (items != null && !items.isEmpty()) {
+            redisTemplate.opsForList().leftPushAll(queueKey, items);
+        }
+    }
+
+    /**
+     * 出队至多count个任务并为其建立租约，一次Redis往返完成
+     *
+     * @param count 最大出队数
+     * @return 出队的任务，队列为空时返回空列表
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> lease(int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        List<String> items = redisTemplate.execute(LEASE_SCRIPT,
+                List.of(queueKey, leaseKey, deliveryKey),
+                String.valueOf(count), String.valueOf(deadline()));
+        return items != null ? items : new ArrayList<>();
+    }
+
+    /**
+     * 确认任务处理完成
+     *
+     * @return 任务是否仍在租约中；返回false说明租约已过期，任务可能已被重新投递
+     */
+    public boolean ack(String item) {
+        Long acked = redisTemplate.execute(ACK_SCRIPT, List.of(leaseKey, deliveryKey), item);
+        return acked != null && acked > 0;
+    }
+
+    /**
+     * 批量确认任务处理完成
+     *
+     * @return 实际确认的任务数
+     */
+    public long ackAll(Collection<String> items) {
+        if (items == null || items.isEmpty()) {
+            return 0;
+        }
+        Long acked = redisTemplate.execute(ACK_SCRIPT, List.of(leaseKey, deliveryKey), items.toArray());
+        return acked != null ? acked : 0;
+    }
+
+    /**
+     * 否认确认，任务放回队列末尾重新投递；已达最大投递次数的任务转入死信队列
+     */
+    public NackResult nack(String item) {
+        Long result = redisTemplate.execute(NACK_SCRIPT,
+                List.of(queueKey, leaseKey, deliveryKey, deadLetterKey),
+                item, String.valueOf(maxDeliveries));
+        if (result == null || result < 0) {
+            return NackResult.NOT_LEASED;
+        }
+        return result > 0 ? NackResult.DEAD_LETTERED : NackResult.REQUEUED;
+    }
+
+    /**
+     * 直接转入死信队列，用于无法解析、重试也不会成功的任务
+     *
+     * @return 任务是否仍在租约中；返回false说明任务已确认或租约已过期被回收
+     */
+    public boolean deadLetter(String item) {
+        Long moved = redisTemplate.execute(DEAD_LETTER_SCRIPT, List.of(leaseKey, deliveryKey, deadLetterKey), item);
+        return moved != null && moved > 0;
+    }
+
+    /**
+     * 续约，处理耗时较长的任务可在租约到期前调用
+     *
+     * @return 任务是否仍在租约中
+     */
+    public boolean extendLease(String item) {
+        Long extended = redisTemplate.execute(EXTEND_SCRIPT, List.of(leaseKey), String.valueOf(deadline()), item);
+        return extended != null && extended > 0;
+    }
+
+    /**
+     * 回收租约已到期的任务
+     *
+     * @param limit 本次最多处理的任务数
+     * @return 长度为2的数组：{回收的任务数, 其中转入死信队列的任务数}
+     */
+    @SuppressWarnings("unchecked")
+    public long[] reclaimExpired(int limit) {
+        List<Long> result = redisTemplate.execute(RECLAIM_SCRIPT,
+                List.of(queueKey, leaseKey, deliveryKey, deadLetterKey),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(limit), String.valueOf(maxDeliveries));
+        if (result == null || result.size() < 2) {
+            return new long[]{0, 0};
+        }
+        return new long[]{result.get(0), result.get(1)};
+    }
+
+    /**
+     * 获取任务已被投递的次数
+     */
+    public int getDeliveryCount(String item) {
+        Object count = redisTemplate.opsForHash().get(deliveryKey, item);
+        return count != null ? Integer.parseInt(count.toString()) : 0;
+    }
+
+    /**
+     * 待处理任务数
+     */
+    public long size() {
+        Long size = redisTemplate.opsForList().size(queueKey);
+        return size != null ? size : 0;
+    }
+
+    /**
+     * 租约中的任务数
+     */
+    public long leasedSize() {
+        Long size = redisTemplate.opsForZSet().zCard(leaseKey);
+        return size != null ? size : 0;
+    }
+
+    /**
+     * 死信队列中的任务数
+     */
+    public long deadLetterSize() {
+        Long size = redisTemplate.opsForList().size(deadLetterKey);
+        return size != null ? size : 0;
+    }
+
+    /**
+     * 清空待处理任务、租约和投递次数，不清理死信队列
+     */
+    public void clear() {
+        redisTemplate.delete(List.of(queueKey, leaseKey, deliveryKey));
+    }
+
+    private long deadline() {
+        return System.currentTimeMillis() + visibilityTimeoutMillis;
+    }
+}
@@ -0,0 +1,119 @@
+package com.moon.cloud.queue.core;
+
+import com.moon.cloud.queue.config.ReliableQueueProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 可靠队列工厂
+ * 按队列key缓存队列实例，并由后台线程定期回收所有已创建队列中租约到期的任务
+ *
+ * @author Moon Cloud
+ * @since 1.0.0
+ */
+@Slf4j
+public class ReliableQueueFactory implements InitializingBean, DisposableBean {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ReliableQueueProperties properties;
+    private final ConcurrentMap<String, ReliableQueue> queues = new ConcurrentHashMap<>();
+    private ScheduledExecutorService reclaimer;
+
+    public ReliableQueueFactory(StringRedisTemplate redisTemplate, ReliableQueueProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        reclaimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "moon-queue-reclaimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getReclaimInterval();
+        reclaimer.scheduleWithFixedDelay(this::reclaimAll, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (reclaimer != null) {
+            reclaimer.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取使用默认配置的队列
+     *
+     * @param queueKey 待处理任务List的key
+     */
+    public ReliableQueue getQueue(String queueKey) {
+        return getQueue(queueKey, null);
+    }
+
+    /**
+     * 获取队列，同一个key只在首次获取时按options创建
+     *
+     * @param queueKey 待处理任务List的key
+     * @param options  队列配置，为null或未设置的项使用默认配置
+     */
+    public ReliableQueue getQueue(String queueKey, QueueOptions options) {
+        return queues.computeIfAbsent(queueKey, key -> createQueue(key, options));
+    }
+
+    /**
+     * 已创建的队列
+     */
+    public Collection<ReliableQueue> getQueues() {
+        return queues.values();
+    }
+
+    /**
+     * 回收所有队列中租约到期的任务
+     */
+    public void reclaimAll() {
+        int batchSize = properties.getReclaimBatchSize();
+        for (ReliableQueue queue : queues.values()) {
+            try {
+                long reclaimed = 0;
+                long deadLettered = 0;
+                long[] result;
+                do {
+                    result = queue.reclaimExpired(batchSize);
+                    reclaimed += result[0];
+                    deadLettered += result[1];
+                } while (result[0] >= batchSize);
+
+                if (reclaimed > 0) {
+                    log.warn("队列 {} 回收租约到期任务 {} 个，其中转入死信队列 {} 个",
+                            queue.getQueueKey(), reclaimed, deadLettered);
+                }
+            } catch (Exception e) {
+                log.error("回收队列 {} 的过期租约失败", queue.getQueueKey(), e);
+            }
+        }
+    }
+
+    private ReliableQueue createQueue(String queueKey, QueueOptions options) {
+        QueueOptions resolved = options != null ? options : new QueueOptions();
+        long visibilityTimeout = resolved.getVisibilityTimeout() != null
+                ? resolved.getVisibilityTimeout() : properties.getVisibilityTimeout();
+        int maxDeliveries = resolved.getMaxDeliveries() != null
+                ? resolved.getMaxDeliveries() : properties.getMaxDeliveries();
+        String deadLetterKey = resolved.getDeadLetterKey() != null
+                ? resolved.getDeadLetterKey() : queueKey + ":dead";
+
+        log.info("创建可靠队列 [{}]: 租约时长={}秒, 最大投递次数={}, 死信队列={}",
+                queueKey, visibilityTimeout, maxDeliveries, deadLetterKey);
+        return new ReliableQueue(redisTemplate, queueKey, deadLetterKey, visibilityTimeout, maxDeliveries);
+    }
+}
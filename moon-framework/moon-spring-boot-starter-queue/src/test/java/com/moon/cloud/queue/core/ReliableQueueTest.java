@@ -0,0 +1,187 @@
+package com.moon.cloud.queue.core;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 可靠队列测试类
+ * 状态变更都在Lua脚本中完成，使用真实的Redis容器验证
+ *
+ * @author Moon Cloud
+ * @since 1.0.0
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("可靠队列测试")
+class ReliableQueueTest {
+
+    private static final String QUEUE_KEY = "test:queue";
+    private static final String DEAD_LETTER_KEY = "test:queue:dead";
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private ReliableQueue queue;
+
+    @BeforeAll
+    static void setUpRedis() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void tearDownRedis() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        queue = createQueue(300, 2);
+        queue.clear();
+        redisTemplate.delete(DEAD_LETTER_KEY);
+    }
+
+    @Test
+    @DisplayName("测试按入队顺序出队并建立租约")
+    void testLease() {
+        queue.enqueue("a");
+        queue.enqueueAll(List.of("b", "c"));
+
+        assertEquals(List.of("a", "b"), queue.lease(2));
+        assertEquals(1, queue.size());
+        assertEquals(2, queue.leasedSize());
+        assertEquals(1, queue.getDeliveryCount("a"));
+
+        assertEquals(List.of("c"), queue.lease(10));
+        assertTrue(queue.lease(10).isEmpty());
+        assertTrue(queue.lease(0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试确认后删除租约和投递次数")
+    void testAck() {
+        queue.enqueueAll(List.of("a", "b", "c"));
+        queue.lease(3);
+
+        assertTrue(queue.ack("a"));
+        assertFalse(queue.ack("a"));
+        assertEquals(0, queue.getDeliveryCount("a"));
+
+        assertEquals(1, queue.ackAll(List.of("a", "b")));
+        assertEquals(1, queue.leasedSize());
+        assertEquals(0, queue.ackAll(List.of()));
+    }
+
+    @Test
+    @DisplayName("测试否认确认后重新投递，达到最大投递次数转入死信队列")
+    void testNack() {
+        queue.enqueue("a");
+
+        queue.lease(1);
+        assertEquals(NackResult.REQUEUED, queue.nack("a"));
+        assertEquals(1, queue.size());
+        assertEquals(0, queue.leasedSize());
+
+        assertEquals(List.of("a"), queue.lease(1));
+        assertEquals(2, queue.getDeliveryCount("a"));
+        assertEquals(NackResult.DEAD_LETTERED, queue.nack("a"));
+        assertEquals(0, queue.size());
+        assertEquals(1, queue.deadLetterSize());
+        assertEquals("a", redisTemplate.opsForList().rightPop(DEAD_LETTER_KEY));
+
+        assertEquals(NackResult.NOT_LEASED, queue.nack("a"));
+    }
+
+    @Test
+    @DisplayName("测试直接转入死信队列")
+    void testDeadLetter() {
+        queue.enqueueAll(List.of("a", "b"));
+        queue.lease(1);
+
+        assertTrue(queue.deadLetter("a"));
+        assertFalse(queue.deadLetter("a"));
+        // 未出队的任务不在租约中，不会被转入
+        assertFalse(queue.deadLetter("b"));
+
+        assertEquals(1, queue.deadLetterSize());
+        assertEquals(0, queue.leasedSize());
+        assertEquals(0, queue.getDeliveryCount("a"));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    @DisplayName("测试回收租约到期的任务，达到最大投递次数转入死信队列")
+    void testReclaimExpired() throws InterruptedException {
+        ReliableQueue shortLease = createQueue(1, 2);
+        shortLease.enqueueAll(List.of("a", "b", "c"));
+        shortLease.lease(2);
+
+        // 租约未到期时不回收
+        assertArrayEquals(new long[]{0, 0}, shortLease.reclaimExpired(10));
+
+        Thread.sleep(1100);
+        assertArrayEquals(new long[]{2, 0}, shortLease.reclaimExpired(10));
+        assertEquals(3, shortLease.size());
+        assertEquals(0, shortLease.leasedSize());
+
+        // 回收的任务放在队列右端，优先于尚未出队的任务重新投递
+        List<String> redelivered = shortLease.lease(2);
+        assertEquals(2, redelivered.size());
+        assertTrue(redelivered.containsAll(List.of("a", "b")));
+        assertEquals(2, shortLease.getDeliveryCount("a"));
+
+        Thread.sleep(1100);
+        assertArrayEquals(new long[]{2, 2}, shortLease.reclaimExpired(10));
+        assertEquals(2, shortLease.deadLetterSize());
+        assertEquals(List.of("c"), shortLease.lease(10));
+    }
+
+    @Test
+    @DisplayName("测试续约后租约不会被回收")
+    void testExtendLease() throws InterruptedException {
+        ReliableQueue shortLease = createQueue(1, 2);
+        shortLease.enqueue("a");
+        shortLease.lease(1);
+
+        Thread.sleep(600);
+        assertTrue(shortLease.extendLease("a"));
+        Thread.sleep(600);
+        assertArrayEquals(new long[]{0, 0}, shortLease.reclaimExpired(10));
+
+        assertTrue(shortLease.ack("a"));
+        assertFalse(shortLease.extendLease("a"));
+    }
+
+    @Test
+    @DisplayName("测试非法参数")
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> createQueue(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> createQueue(1, 0));
+    }
+
+    private ReliableQueue createQueue(long visibilityTimeout, int maxDeliveries) {
+        return new ReliableQueue(redisTemplate, QUEUE_KEY, DEAD_LETTER_KEY, visibilityTimeout, maxDeliveries);
+    }
+}
@@ -137,6 +137,35 @@ public class MoonThreadPoolFactory {
         return executor;
     }
 
+    /**
+     * 创建虚拟线程池
+     * 适合阻塞在网络调用上的IO任务：工作线程为虚拟线程，阻塞时不占用平台线程；
+     * 最大线程数即任务的最大并发数，超出的任务在队列中排队，空闲线程超时后回收。
+     * 仍以ThreadPoolExecutor形式注册到线程池注册中心，可被监控和动态调整。
+     */
+    public ThreadPoolExecutor createVirtualThreadPool(String poolName, int maxConcurrency) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                maxConcurrency,
+                maxConcurrency,
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                Thread.ofVirtual()
+                        .name("moon-" + poolName + "-vthread-", 1)
+                        .uncaughtExceptionHandler((thread, ex) -> log.error("线程 {} 发生未捕获异常", thread.getName(), ex))
+                        .factory(),
+                new RetryRejectedExecutionHandler(retryConfig)
+        );
+        executor.allowCoreThreadTimeOut(true);
+
+        // 注册到线程池注册中心
+        ThreadPoolRegistry.register(poolName, executor);
+
+        log.info("创建虚拟线程池 [{}]: 最大并发数={}", poolName, maxConcurrency);
+
+        return executor;
+    }
+
     /**
      * 创建定时任务线程池
      */